@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.examples.icon;
+
+import java.util.Random;
+
+import com.metsci.glimpse.axis.Axis2D;
+import com.metsci.glimpse.axis.listener.mouse.AxisMouseListener2D;
+import com.metsci.glimpse.axis.painter.NumericXYAxisPainter;
+import com.metsci.glimpse.examples.Example;
+import com.metsci.glimpse.layout.GlimpseAxisLayout2D;
+import com.metsci.glimpse.layout.GlimpseLayout;
+import com.metsci.glimpse.layout.GlimpseLayoutProvider;
+import com.metsci.glimpse.painter.decoration.BackgroundPainter;
+import com.metsci.glimpse.painter.info.FpsPainter;
+import com.metsci.glimpse.support.color.GlimpseColor;
+import com.metsci.glimpse.support.font.FontUtils;
+import com.metsci.glimpse.support.font.sdf.SdfTextPainter;
+
+/**
+ * Demonstrates how to use SdfTextPainter.
+ *
+ * SdfTextPainter draws glyphs from signed distance fields stored in a
+ * TextureAtlas, so many thousands of distinct labels can be drawn with
+ * a single draw call per label group and scaled without re-rasterizing.
+ */
+public class SdfTextPainterExample implements GlimpseLayoutProvider
+{
+    public static void main( String[] args ) throws Exception
+    {
+        Example.showWithSwing( new SdfTextPainterExample( ) );
+    }
+
+    @Override
+    public GlimpseLayout getLayout( ) throws Exception
+    {
+        GlimpseLayout layout = new GlimpseAxisLayout2D( new Axis2D( ) );
+        layout.addGlimpseMouseAllListener( new AxisMouseListener2D( ) );
+
+        SdfTextPainter textPainter = new SdfTextPainter( FontUtils.getDefaultPlain( 12 ) );
+        textPainter.addLabelGroup( "small", GlimpseColor.getBlack( ), 11 );
+        textPainter.addLabelGroup( "large", GlimpseColor.getRed( ), 28 );
+
+        // ten thousand distinct strings, drawn with one draw call
+        Random r = new Random( 0 );
+        for ( int i = 0; i < 10000; i++ )
+        {
+            float x = r.nextFloat( ) * 1000;
+            float y = r.nextFloat( ) * 1000;
+            textPainter.addLabel( "small", String.format( "%.1f, %.1f", x, y ), x, y, true, true );
+        }
+
+        textPainter.addLabel( "large", "Signed Distance Field Text", 500, 500, 0, 0, true, true, ( float ) Math.PI / 8, Float.NaN );
+
+        layout.addPainter( new BackgroundPainter( ).setColor( GlimpseColor.getWhite( ) ) );
+        layout.addPainter( new NumericXYAxisPainter( ) );
+        layout.addPainter( textPainter );
+        layout.addPainter( new FpsPainter( ) );
+
+        return layout;
+    }
+}
@@ -26,13 +26,18 @@
  */
 package com.metsci.glimpse.axis;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 import com.metsci.glimpse.axis.listener.AxisListener1D;
+import com.metsci.glimpse.axis.listener.AxisMouseValueListener1D;
 
 /**
  * A one dimensional numeric axis. Has minimum and maximum bounds which
@@ -59,6 +64,9 @@ public class Axis1D
 {
     public static Logger logger = Logger.getLogger( Axis1D.class.getName( ) );
 
+    // the batch (if any) currently open on each thread, see beginBatch( )
+    private static final ThreadLocal<Batch> currentBatch = new ThreadLocal<Batch>( );
+
     // fields are prefixed with either 'value' or 'pixel'
     // referring to whether they hold a value in screen pixels
     // or axis data units
@@ -101,6 +109,7 @@ public class Axis1D
     protected double absoluteMax;
 
     protected List<AxisListener1D> listeners;
+    protected List<AxisMouseValueListener1D> mouseValueListeners;
     protected List<Axis1D> children;
     protected Axis1D parentAxis;
 
@@ -123,6 +132,7 @@ public class Axis1D
     {
         this.children = new CopyOnWriteArrayList<Axis1D>( );
         this.listeners = new CopyOnWriteArrayList<AxisListener1D>( );
+        this.mouseValueListeners = new CopyOnWriteArrayList<AxisMouseValueListener1D>( );
 
         this.setDefaults( );
         this.setParent( parent );
@@ -150,6 +160,110 @@ public class Axis1D
         updateLinkedAxes( );
     }
 
+    /**
+     * A lightweight alternative to {@link #validate()} for use when only
+     * {@link #setMouseValue(double)} has been called since the last validate.</p>
+     *
+     * Notifies this axis' AxisMouseValueListener1D listeners, but does not publish
+     * to linked axes or notify AxisListener1D listeners, so painters and layouts
+     * which depend only on the axis bounds are not disturbed.
+     */
+    public void validateMouseValue( )
+    {
+        Batch batch = currentBatch.get( );
+        if ( batch != null )
+        {
+            batch.mouseNotifications.add( this );
+        }
+        else
+        {
+            notifyMouseValueListeners( );
+        }
+    }
+
+    /**
+     * Opens a batch of axis updates on the calling thread. Batches may be nested;
+     * updates are published when the outermost batch is closed with {@link #endBatch()}.</p>
+     *
+     * While a batch is open, calls to {@link #validate()} and {@link #updateLinkedAxes()}
+     * apply constraints to the modified axis but defer publishing it to linked axes.
+     * When the batch ends, each modified axis is published once (in the order in which
+     * it was last validated) and every affected listener is notified exactly once,
+     * after all linked axes have been brought up to date.</p>
+     *
+     * Because publishing is deferred, changes made to one axis are not visible through
+     * other axes linked to it until the batch ends. Calls should always be paired:
+     *
+     * <pre>
+     * Axis1D.beginBatch( );
+     * try
+     * {
+     *     ...
+     * }
+     * finally
+     * {
+     *     Axis1D.endBatch( );
+     * }
+     * </pre>
+     */
+    public static void beginBatch( )
+    {
+        Batch batch = currentBatch.get( );
+        if ( batch == null )
+        {
+            batch = new Batch( );
+            currentBatch.set( batch );
+        }
+
+        batch.depth++;
+    }
+
+    /**
+     * Closes a batch opened with {@link #beginBatch()}. If this closes the outermost
+     * batch, all deferred axis updates are published and listeners are notified.
+     */
+    public static void endBatch( )
+    {
+        Batch batch = currentBatch.get( );
+        if ( batch == null ) throw new IllegalStateException( "No axis batch is open on this thread" );
+
+        if ( --batch.depth > 0 ) return;
+
+        // publish deferred updates, collecting (but not yet firing) listener notifications
+        batch.publishing = true;
+        try
+        {
+            for ( Map.Entry<Axis1D, Set<Axis1D>> entry : batch.updates.entrySet( ) )
+            {
+                Axis1D axis = entry.getKey( );
+                axis.broadcastAxisUpdateUp( axis, new HashSet<Axis1D>( entry.getValue( ) ) );
+            }
+        }
+        finally
+        {
+            currentBatch.remove( );
+        }
+
+        // the batch is closed, so listeners which modify axes propagate normally
+        for ( Map.Entry<Axis1D, Axis1D> entry : batch.notifications.entrySet( ) )
+        {
+            entry.getKey( ).notifyAxisListeners( entry.getValue( ) );
+        }
+
+        for ( Axis1D axis : batch.mouseNotifications )
+        {
+            axis.notifyMouseValueListeners( );
+        }
+    }
+
+    /**
+     * @return whether a batch of axis updates is open on the calling thread
+     */
+    public static boolean isBatchOpen( )
+    {
+        return currentBatch.get( ) != null;
+    }
+
     /**
      * Allows a group of axis which should mirror each other to be defined
      * by placing them in a tree-hierarchy.</p>
@@ -231,6 +345,29 @@ public class Axis1D
         this.listeners.remove( listener );
     }
 
+    /**
+     * Adds a listener which will be notified when only the mouse position of
+     * this axis changes (see {@link #validateMouseValue()}) as well as when
+     * this axis is validated.
+     *
+     * @param listener
+     */
+    public void addMouseValueListener( AxisMouseValueListener1D listener )
+    {
+        this.mouseValueListeners.add( listener );
+    }
+
+    /**
+     * Removes the provided listener from the list of listeners which are
+     * notified when the mouse position of this axis changes.
+     *
+     * @param listener
+     */
+    public void removeMouseValueListener( AxisMouseValueListener1D listener )
+    {
+        this.mouseValueListeners.remove( listener );
+    }
+
     /**
      * Locks the aspect ratio between this axis and a provided orthogonal
      * aspect to a fixed ratio. Whenever either axis updates the other will
@@ -461,7 +598,9 @@ public class Axis1D
     }
 
     /**
-     * Sets the position of the mouse in axis value space.
+     * Sets the position of the mouse in axis value space. If nothing else about
+     * the axis has changed, {@link #validateMouseValue()} may be called instead
+     * of {@link #validate()}.
      * @param value
      */
     public void setMouseValue( double value )
@@ -869,6 +1008,13 @@ public class Axis1D
 
     public void updateLinkedAxes( )
     {
+        Batch batch = currentBatch.get( );
+        if ( batch != null && !batch.publishing )
+        {
+            batch.deferUpdate( this, Collections.<Axis1D> emptySet( ) );
+            return;
+        }
+
         Set<Axis1D> visited = new HashSet<Axis1D>( );
 
         broadcastAxisUpdateUp( this, visited );
@@ -880,6 +1026,13 @@ public class Axis1D
         for ( Axis1D axis : ignore )
             visited.add( axis );
 
+        Batch batch = currentBatch.get( );
+        if ( batch != null && !batch.publishing )
+        {
+            batch.deferUpdate( this, visited );
+            return;
+        }
+
         broadcastAxisUpdateUp( this, visited );
     }
 
@@ -1113,13 +1266,59 @@ public class Axis1D
             }
         }
 
-        // update our listeners
+        // update our listeners (once, at the end of the batch, if one is open)
+        Batch batch = currentBatch.get( );
+        if ( batch != null )
+        {
+            batch.notifications.put( this, source );
+            if ( source == this ) batch.mouseNotifications.add( this );
+        }
+        else
+        {
+            notifyAxisListeners( source );
+            if ( source == this ) notifyMouseValueListeners( );
+        }
+    }
+
+    protected void notifyAxisListeners( Axis1D source )
+    {
         for ( AxisListener1D child : this.listeners )
         {
             child.axisUpdated( source );
         }
     }
 
+    protected void notifyMouseValueListeners( )
+    {
+        for ( AxisMouseValueListener1D child : this.mouseValueListeners )
+        {
+            child.mouseValueUpdated( this );
+        }
+    }
+
+    /*
+     * The axis updates and listener notifications deferred by an open batch.
+     */
+    private static class Batch
+    {
+        int depth;
+        boolean publishing;
+
+        // axes to publish, in the order they were last validated, and the axes to skip for each
+        final Map<Axis1D, Set<Axis1D>> updates = new LinkedHashMap<Axis1D, Set<Axis1D>>( );
+        // axes whose listeners need notifying, and the most recent source axis for each
+        final Map<Axis1D, Axis1D> notifications = new LinkedHashMap<Axis1D, Axis1D>( );
+        // axes whose mouse value listeners need notifying
+        final Set<Axis1D> mouseNotifications = new LinkedHashSet<Axis1D>( );
+
+        void deferUpdate( Axis1D axis, Set<Axis1D> ignore )
+        {
+            // re-insert so that iteration order reflects the most recent validate
+            this.updates.remove( axis );
+            this.updates.put( axis, ignore );
+        }
+    }
+
     protected void setDefaults( )
     {
         this.selectionCenterValue = 5.0;
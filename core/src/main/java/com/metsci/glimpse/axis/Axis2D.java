@@ -116,8 +116,16 @@ public class Axis2D
 
     public void updateLinkedAxes( )
     {
-        x.updateLinkedAxes( y );
-        y.updateLinkedAxes( );
+        Axis1D.beginBatch( );
+        try
+        {
+            x.updateLinkedAxes( y );
+            y.updateLinkedAxes( );
+        }
+        finally
+        {
+            Axis1D.endBatch( );
+        }
     }
 
     public void unlockAspectRatioXY( )
@@ -30,6 +30,8 @@ import com.metsci.glimpse.axis.Axis1D;
 
 /**
  * An interface for receiving notifications that the min/max bounds of an Axis1D have changed.
+ * Updates made with {@link Axis1D#validateMouseValue()}, which change only the mouse value,
+ * are not delivered to AxisListener1Ds; use {@link AxisMouseValueListener1D} to receive them.
  *
  * @author ulman
  * @see com.metsci.glimpse.axis.Axis1D
@@ -47,6 +47,7 @@ public abstract class AxisMouseListener implements GlimpseMouseAllListener
     protected boolean allowSelectionZoom = true;
     protected boolean allowPan = true;
     protected boolean allowZoom = true;
+    protected boolean mouseValueOnlyUpdates = false;
 
     protected boolean anchoredX = false;
     protected boolean anchoredY = false;
@@ -82,6 +83,24 @@ public abstract class AxisMouseListener implements GlimpseMouseAllListener
         allowPan = b;
     }
 
+    /**
+     * If true, mouse moves over an axis with a locked selection (which change only the
+     * mouse value) update the axis with {@link Axis1D#validateMouseValue()} instead of
+     * a full axis validation. In that case only
+     * {@link com.metsci.glimpse.axis.listener.AxisMouseValueListener1D}s are notified;
+     * {@link com.metsci.glimpse.axis.listener.AxisListener1D}s and linked axes are not.
+     * Defaults to false.
+     */
+    public void setMouseValueOnlyUpdates( boolean b )
+    {
+        mouseValueOnlyUpdates = b;
+    }
+
+    public boolean isMouseValueOnlyUpdates( )
+    {
+        return mouseValueOnlyUpdates;
+    }
+
     protected int getDim( boolean horizontal, int x, int y )
     {
         return horizontal ? x : y;
@@ -121,6 +140,17 @@ public abstract class AxisMouseListener implements GlimpseMouseAllListener
         }
     }
 
+    /**
+     * @return whether {@link #mouseMoved(GlimpseMouseEvent, Axis1D, boolean)} will change
+     *         only the mouse value of the axis, in which case the axis need only be
+     *         updated with {@link Axis1D#validateMouseValue()}
+     * @see #setMouseValueOnlyUpdates(boolean)
+     */
+    public boolean isMouseValueOnly( GlimpseMouseEvent e, Axis1D axis )
+    {
+        return mouseValueOnlyUpdates && !e.isButtonDown( MouseButton.Button1 ) && axis.isSelectionLocked( );
+    }
+
     public void mousePressed( GlimpseMouseEvent e, Axis1D axis, boolean horizontal )
     {
         if ( e.isButtonDown( MouseButton.Button3 ) )
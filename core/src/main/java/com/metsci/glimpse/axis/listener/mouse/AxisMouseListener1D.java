@@ -75,8 +75,18 @@ public class AxisMouseListener1D extends AxisMouseListener
 
         Axis1D targetAxis = layout.getAxis( event.getTargetStack( ) );
 
+        boolean mouseValueOnly = this.isMouseValueOnly( event, targetAxis );
+
         this.mouseMoved( event, targetAxis, layout.isHorizontal( ) );
-        this.validateAxes( targetAxis );
+
+        if ( mouseValueOnly )
+        {
+            targetAxis.validateMouseValue( );
+        }
+        else
+        {
+            this.validateAxes( targetAxis );
+        }
     }
 
     @Override
@@ -121,9 +131,18 @@ public class AxisMouseListener1D extends AxisMouseListener
 
         if ( axis.getLockedAspectAxis( ) != null ) axis.getLockedAspectAxis( ).applyConstraints( );
 
-        axis.updateLinkedAxes( );
+        // publish both axes together so shared listeners are notified once
+        Axis1D.beginBatch( );
+        try
+        {
+            axis.updateLinkedAxes( );
 
-        if ( axis.getLockedAspectAxis( ) != null ) axis.getLockedAspectAxis( ).updateLinkedAxes( );
+            if ( axis.getLockedAspectAxis( ) != null ) axis.getLockedAspectAxis( ).updateLinkedAxes( );
+        }
+        finally
+        {
+            Axis1D.endBatch( );
+        }
     }
 
 }
@@ -77,9 +77,20 @@ public class AxisMouseListener2D extends AxisMouseListener
 
         Axis2D axis = layout.getAxis( event.getTargetStack( ) );
 
+        boolean mouseValueOnly = this.isMouseValueOnly( event, axis.getAxisX( ) ) && this.isMouseValueOnly( event, axis.getAxisY( ) );
+
         this.mouseMoved( event, axis.getAxisX( ), true );
         this.mouseMoved( event, axis.getAxisY( ), false );
-        this.applyAndUpdate( axis.getAxisX( ), axis.getAxisY( ) );
+
+        if ( mouseValueOnly )
+        {
+            axis.getAxisX( ).validateMouseValue( );
+            axis.getAxisY( ).validateMouseValue( );
+        }
+        else
+        {
+            this.applyAndUpdate( axis.getAxisX( ), axis.getAxisY( ) );
+        }
     }
 
     @Override
@@ -125,7 +136,16 @@ public class AxisMouseListener2D extends AxisMouseListener
         axisX.applyConstraints( );
         axisY.applyConstraints( );
 
-        axisX.updateLinkedAxes( axisY );
-        axisY.updateLinkedAxes( );
+        // publish both axes together so shared listeners are notified once
+        Axis1D.beginBatch( );
+        try
+        {
+            axisX.updateLinkedAxes( axisY );
+            axisY.updateLinkedAxes( );
+        }
+        finally
+        {
+            Axis1D.endBatch( );
+        }
     }
 }
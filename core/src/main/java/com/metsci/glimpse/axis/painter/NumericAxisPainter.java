@@ -35,6 +35,7 @@ import javax.media.opengl.GLContext;
 import com.metsci.glimpse.axis.painter.label.AxisLabelHandler;
 import com.metsci.glimpse.painter.base.GlimpsePainter1D;
 import com.metsci.glimpse.support.color.GlimpseColor;
+import com.metsci.glimpse.support.font.TextBoundsCache;
 import com.metsci.glimpse.support.settings.AbstractLookAndFeel;
 import com.metsci.glimpse.support.settings.LookAndFeel;
 import com.sun.opengl.util.j2d.TextRenderer;
@@ -62,6 +63,7 @@ public abstract class NumericAxisPainter extends GlimpsePainter1D
     protected boolean showMinorTicks = false;
 
     protected TextRenderer textRenderer;
+    protected TextBoundsCache textBounds = new TextBoundsCache( );
     protected volatile Font newFont = null;
     protected volatile boolean antialias = false;
 
@@ -207,6 +209,7 @@ public abstract class NumericAxisPainter extends GlimpsePainter1D
     {
         if ( textRenderer != null ) textRenderer.dispose( );
         textRenderer = null;
+        textBounds.clear( );
     }
 
     public void updateTextRenderer( )
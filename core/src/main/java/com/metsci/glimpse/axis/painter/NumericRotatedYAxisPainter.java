@@ -124,7 +124,7 @@ public class NumericRotatedYAxisPainter extends NumericYAxisPainter
         {
             double yTick = yTicks[i];
             String yLabel = yLabels[i];
-            Rectangle2D tickTextBounds = textRenderer.getBounds( yLabel );
+            Rectangle2D tickTextBounds = textBounds.getBounds( textRenderer, yLabel );
 
             int iTickText = getTickTextPositionX( width, ( int ) tickTextBounds.getHeight( ) );
             int jTickText = ( int ) round( axis.valueToScreenPixel( converter.fromAxisUnits( yTick ) ) + tickTextBounds.getWidth( ) / 2 );
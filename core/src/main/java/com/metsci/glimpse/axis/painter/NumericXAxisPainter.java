@@ -143,8 +143,8 @@ public class NumericXAxisPainter extends NumericAxisPainter
             {
                 double xTick = xTicks[i];
                 String xLabel = xLabels[i];
-                Rectangle2D tickTextBounds = textRenderer.getBounds( xLabel );
-                Rectangle2D dashTextBounds = textRenderer.getBounds( "-" );
+                Rectangle2D tickTextBounds = textBounds.getBounds( textRenderer, xLabel );
+                Rectangle2D dashTextBounds = textBounds.getBounds( textRenderer, "-" );
                 double dashTextWidth = xTick < 0 ? dashTextBounds.getWidth( ) : 0;
                 double absTextWidth = tickTextBounds.getWidth( ) - dashTextWidth;
 
@@ -184,7 +184,7 @@ public class NumericXAxisPainter extends NumericAxisPainter
             try
             {
 	            String label = ticks.getAxisLabel( axis );
-	            Rectangle2D axisLabelBounds = textRenderer.getBounds( label );
+	            Rectangle2D axisLabelBounds = textBounds.getBounds( textRenderer, label );
 	            int iAxisLabel = round( 0.5f * ( width - ( int ) axisLabelBounds.getWidth( ) ) );
 	            int jAxisLabel = getAxisLabelPositionY( height, ( int ) axisLabelBounds.getHeight( ) );
 
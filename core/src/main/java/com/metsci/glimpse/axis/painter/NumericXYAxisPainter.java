@@ -30,6 +30,7 @@ import static com.metsci.glimpse.support.font.FontUtils.getDefaultPlain;
 
 import java.awt.Font;
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
 
 import javax.media.opengl.GL;
 import javax.media.opengl.GLContext;
@@ -44,6 +45,7 @@ import com.metsci.glimpse.context.GlimpseBounds;
 import com.metsci.glimpse.context.GlimpseContext;
 import com.metsci.glimpse.painter.base.GlimpsePainter2D;
 import com.metsci.glimpse.support.color.GlimpseColor;
+import com.metsci.glimpse.support.font.TextBoundsCache;
 import com.metsci.glimpse.support.settings.AbstractLookAndFeel;
 import com.metsci.glimpse.support.settings.LookAndFeel;
 import com.sun.opengl.util.j2d.TextRenderer;
@@ -60,6 +62,7 @@ import com.sun.opengl.util.j2d.TextRenderer;
 public class NumericXYAxisPainter extends GlimpsePainter2D
 {
     protected TextRenderer textRenderer;
+    protected TextBoundsCache textBounds = new TextBoundsCache( );
     protected Font font;
     
     protected volatile Font newFont = null;
@@ -92,6 +95,10 @@ public class NumericXYAxisPainter extends GlimpsePainter2D
     protected boolean fontSet = false;
     protected boolean tickColorSet = false;
     protected boolean labelColorSet = false;
+
+    // reused between frames to avoid allocating while painting
+    protected boolean[] paintLabelsX = new boolean[0];
+    protected boolean[] paintLabelsY = new boolean[0];
     
     public NumericXYAxisPainter( AxisLabelHandler ticksX, AxisLabelHandler ticksY )
     {
@@ -277,8 +284,8 @@ public class NumericXYAxisPainter extends GlimpsePainter2D
         boolean labelRight = width - originX > rightBuffer;
         boolean labelTop = height - originY > topBuffer;
 
-        boolean[] paintLabelsX = new boolean[ positionsX.length ];
-        boolean[] paintLabelsY = new boolean[ positionsY.length ];
+        boolean[] paintLabelsX = this.paintLabelsX = clearLabelFlags( this.paintLabelsX, positionsX.length );
+        boolean[] paintLabelsY = this.paintLabelsY = clearLabelFlags( this.paintLabelsY, positionsY.length );
         
         GlimpseColor.setColor( textRenderer, textColor );
         textRenderer.beginRendering( width, height );
@@ -297,7 +304,7 @@ public class NumericXYAxisPainter extends GlimpsePainter2D
                 }
                 else
                 {
-                    Rectangle2D textBounds = textRenderer.getBounds( labelsX[0] );
+                    Rectangle2D textBounds = this.textBounds.getBounds( textRenderer, labelsX[0] );
                     offsetY = ( int ) - ( textBounds.getHeight( ) + tickWidth + labelBuffer );
                 }
 
@@ -322,7 +329,7 @@ public class NumericXYAxisPainter extends GlimpsePainter2D
                 for ( int i = 0; i < positionsY.length; i++ )
                 {
                     String label = labelsY[i];
-                    Rectangle2D textBounds = textRenderer.getBounds( label );
+                    Rectangle2D textBounds = this.textBounds.getBounds( textRenderer, label );
 
                     double valueY = positionsY[i];
 
@@ -469,5 +476,14 @@ public class NumericXYAxisPainter extends GlimpsePainter2D
     {
         if ( textRenderer != null ) textRenderer.dispose( );
         textRenderer = null;
+        textBounds.clear( );
+    }
+
+    protected static boolean[] clearLabelFlags( boolean[] flags, int size )
+    {
+        if ( flags.length < size ) return new boolean[size];
+
+        Arrays.fill( flags, 0, size, false );
+        return flags;
     }
 }
@@ -143,7 +143,7 @@ public class NumericYAxisPainter extends NumericAxisPainter
             {
                 double yTick = yTicks[i];
                 String yLabel = yLabels[i];
-                Rectangle2D tickTextBounds = textRenderer.getBounds( yLabel );
+                Rectangle2D tickTextBounds = textBounds.getBounds( textRenderer, yLabel );
                 int iTickText = getTickTextPositionX( width, ( int ) tickTextBounds.getWidth( ) );
                 int jTickText = ( int ) round( axis.valueToScreenPixel( converter.fromAxisUnits( yTick ) ) - 0.35 * tickTextBounds.getHeight( ) );
 
@@ -179,7 +179,7 @@ public class NumericYAxisPainter extends NumericAxisPainter
             try
             {
                 String label = ticks.getAxisLabel( axis );
-                Rectangle2D labelSize = textRenderer.getBounds( label );
+                Rectangle2D labelSize = textBounds.getBounds( textRenderer, label );
                 int iAxisLabel = getAxisLabelPositionX( width, ( int ) labelSize.getHeight( ) );
                 int jAxisLabel = round( 0.5f * ( height - ( int ) labelSize.getWidth( ) ) );
 
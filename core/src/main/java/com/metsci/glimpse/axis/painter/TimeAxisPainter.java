@@ -38,6 +38,7 @@ import com.metsci.glimpse.painter.base.GlimpsePainter1D;
 import com.metsci.glimpse.plot.timeline.data.Epoch;
 import com.metsci.glimpse.support.color.GlimpseColor;
 import com.metsci.glimpse.support.font.FontUtils;
+import com.metsci.glimpse.support.font.TextBoundsCache;
 import com.metsci.glimpse.support.settings.AbstractLookAndFeel;
 import com.metsci.glimpse.support.settings.LookAndFeel;
 import com.metsci.glimpse.util.units.time.TimeStamp;
@@ -58,6 +59,7 @@ public abstract class TimeAxisPainter extends GlimpsePainter1D
     protected TimeAxisLabelHandler handler;
 
     protected TextRenderer textRenderer;
+    protected TextBoundsCache textBounds = new TextBoundsCache( );
     protected volatile Font newFont = null;
     protected volatile boolean antialias = false;
 
@@ -191,6 +193,7 @@ public abstract class TimeAxisPainter extends GlimpsePainter1D
     {
         if ( textRenderer != null ) textRenderer.dispose( );
         textRenderer = null;
+        textBounds.clear( );
     }
 
     @Override
@@ -101,8 +101,9 @@ public class TimeXAxisPainter extends TimeAxisPainter
 
         // Tick marks
         gl.glBegin( GL.GL_LINES );
-        for ( TimeStamp t : tickTimes )
+        for ( int k = 0; k < tickTimes.size( ); k++ )
         {
+            TimeStamp t = tickTimes.get( k );
             double x = axis.valueToScreenPixel( fromTimeStamp( t ) );
             gl.glVertex2d( x, height );
             gl.glVertex2d( x, height - tickLineLength );
@@ -168,7 +169,7 @@ public class TimeXAxisPainter extends TimeAxisPainter
     {
         // text heights vary slightly, making the labels appear unevenly spaced in height
         // just use the height of a fixed sample character
-        Rectangle2D fixedBounds = textRenderer.getBounds( "M" );
+        Rectangle2D fixedBounds = textBounds.getBounds( textRenderer, "M" );
         double textHeight = fixedBounds.getHeight( );
 
         // Date labels
@@ -176,8 +177,7 @@ public class TimeXAxisPainter extends TimeAxisPainter
         for ( TimeStruct time : timeStructs )
         {
             String text = time.textCenter.toString( format );
-            Rectangle2D textBounds = textRenderer.getBounds( text );
-            double textWidth = textBounds.getWidth( );
+            double textWidth = textBounds.getBounds( textRenderer, text ).getWidth( );
 
             int iMin = axis.valueToScreenPixel( fromTimeStamp( time.start ) );
             int iMax = ( int ) Math.floor( axis.valueToScreenPixel( fromTimeStamp( time.end ) ) - textWidth );
@@ -195,17 +195,18 @@ public class TimeXAxisPainter extends TimeAxisPainter
     {
         // text heights vary slightly, making the labels appear unevenly spaced in height
         // just use the height of a fixed sample character
-        Rectangle2D fixedBounds = textRenderer.getBounds( "M" );
+        Rectangle2D fixedBounds = textBounds.getBounds( textRenderer, "M" );
         double textHeight = fixedBounds.getHeight( );
 
         // Time labels
+        String[] tickLabels = handler.getTickLabels( tickTimes, format );
         int jTimeText = Integer.MAX_VALUE;
-        for ( TimeStamp t : tickTimes )
+        for ( int k = 0; k < tickLabels.length; k++ )
         {
-            String string = t.toString( format );
-            Rectangle2D textBounds = textRenderer.getBounds( string );
+            TimeStamp t = tickTimes.get( k );
+            String string = tickLabels[k];
 
-            double textWidth = textBounds.getWidth( );
+            double textWidth = textBounds.getBounds( textRenderer, string ).getWidth( );
             int i = ( int ) Math.round( axis.valueToScreenPixel( fromTimeStamp( t ) ) - 0.5 * textWidth );
             if ( i < 0 || i + textWidth > width ) continue;
 
@@ -102,8 +102,9 @@ public class TimeYAxisPainter extends TimeAxisPainter
 
         // Tick marks
         gl.glBegin( GL.GL_LINES );
-        for ( TimeStamp t : tickTimes )
+        for ( int k = 0; k < tickTimes.size( ); k++ )
         {
+            TimeStamp t = tickTimes.get( k );
             double y = axis.valueToScreenPixel( fromTimeStamp( t ) );
             gl.glVertex2d( width, y );
             gl.glVertex2d( width - tickLineLength, y );
@@ -158,7 +159,7 @@ public class TimeYAxisPainter extends TimeAxisPainter
         for ( TimeStruct day : days )
         {
             String text = day.textCenter.toString( format );
-            Rectangle2D textBounds = textRenderer.getBounds( text );
+            Rectangle2D textBounds = this.textBounds.getBounds( textRenderer, text );
 
             // Text will be drawn rotated 90 degrees, so height
             // is the *width* of the bounds rectangle
@@ -203,10 +204,12 @@ public class TimeYAxisPainter extends TimeAxisPainter
         textRenderer.beginRendering( width, height );
         try
         {
-            for ( TimeStamp t : tickTimes )
+            String[] tickLabels = handler.getTickLabels( tickTimes, format );
+            for ( int k = 0; k < tickLabels.length; k++ )
             {
-                String string = t.toString( format );
-                Rectangle2D textBounds = textRenderer.getBounds( string );
+                TimeStamp t = tickTimes.get( k );
+                String string = tickLabels[k];
+                Rectangle2D textBounds = this.textBounds.getBounds( textRenderer, string );
 
                 double textHeight = textBounds.getHeight( );
                 int j = ( int ) Math.round( axis.valueToScreenPixel( fromTimeStamp( t ) ) - 0.5 * Math.max( 1, textHeight - 2 ) );
@@ -43,7 +43,14 @@ import com.metsci.glimpse.axis.Axis1D;
  * axis label.<p>
  *
  * For example, an axis with min and max values of 0.001 and 0.006 might have tick
- * values displayed as "1.0" or "6.0" with "(x 1,000)" specified in the axis label.
+ * values displayed as "1.0" or "6.0" with "(x 1,000)" specified in the axis label.<p>
+ *
+ * Tick positions, tick labels, and minor tick positions are cached and the same
+ * arrays are returned until the axis min, max, or pixel size changes, so an axis
+ * which is not moving is painted without allocating. When the axis is panned (the
+ * tick interval and axis order stay the same) labels for ticks which remain
+ * visible are reused rather than formatted again. Returned arrays are shared and
+ * must not be modified by callers.
  *
  * @author ulman
  */
@@ -63,6 +70,24 @@ public class GridAxisLabelHandler implements AxisLabelHandler
 
     protected AxisUnitConverter converter;
 
+    protected static final double[] EMPTY_TICKS = new double[0];
+
+    // state describing the most recent call to getTickPositions( )
+    protected double cachedMin = Double.NaN;
+    protected double cachedMax = Double.NaN;
+    protected int cachedSizePixels = -1;
+    protected double[] cachedTickPositions;
+
+    // state describing the most recent call to getTickLabels( )
+    protected double[] cachedLabelPositions;
+    protected String[] cachedTickLabels;
+    protected double cachedLabelInterval = Double.NaN;
+    protected int cachedLabelOrder;
+
+    // state describing the most recent call to getMinorTickPositions( )
+    protected double[] cachedMinorSource;
+    protected double[] cachedMinorTickPositions;
+
     public GridAxisLabelHandler( )
     {
         this.tickNumberFormatter = NumberFormat.getNumberInstance( );
@@ -100,13 +125,27 @@ public class GridAxisLabelHandler implements AxisLabelHandler
     public void setAxisUnitConverter( AxisUnitConverter converter )
     {
         this.converter = converter;
+        this.invalidateTickCache( );
     }
 
     @Override
     public double[] getTickPositions( Axis1D axis )
     {
-        if ( axis.getSizePixels( ) == 0 ) return new double[0];
-        return tickPositions( axis, tickInterval( axis ) );
+        int sizePixels = axis.getSizePixels( );
+        if ( sizePixels == 0 ) return EMPTY_TICKS;
+
+        double min = axis.getMin( );
+        double max = axis.getMax( );
+
+        if ( cachedTickPositions == null || cachedSizePixels != sizePixels || cachedMin != min || cachedMax != max )
+        {
+            cachedTickPositions = tickPositions( axis, tickInterval( axis ) );
+            cachedSizePixels = sizePixels;
+            cachedMin = min;
+            cachedMax = max;
+        }
+
+        return cachedTickPositions;
     }
 
     @Override
@@ -114,23 +153,74 @@ public class GridAxisLabelHandler implements AxisLabelHandler
     {
         double tickInterval = tickInterval( axis );
         int orderAxis = getOrderAxis( axis );
+
+        boolean sameFormat = cachedTickLabels != null && cachedLabelInterval == tickInterval && cachedLabelOrder == orderAxis;
+
+        // the axis has not changed since the last call
+        if ( sameFormat && cachedLabelPositions == tickPositions ) return cachedTickLabels;
+
         int orderTick = getOrderTick( tickInterval );
         updateFormatter( orderAxis, orderTick );
 
         String[] tickLabels = new String[ tickPositions.length ];
         for ( int i = 0 ; i < tickPositions.length ; i++ )
         {
-            tickLabels[i] = tickString( tickPositions[i], orderAxis );
+            String label = sameFormat ? cachedTickString( tickPositions[i], tickInterval ) : null;
+            tickLabels[i] = label != null ? label : tickString( tickPositions[i], orderAxis );
         }
 
+        cachedLabelPositions = tickPositions;
+        cachedTickLabels = tickLabels;
+        cachedLabelInterval = tickInterval;
+        cachedLabelOrder = orderAxis;
+
         return tickLabels;
     }
 
+    /**
+     * Looks up the label previously generated for a tick at the given position. Tick
+     * positions are always integer multiples of the tick interval, so when the interval
+     * is unchanged a tick which is still visible after a pan has exactly the same value.
+     */
+    protected String cachedTickString( double tickPosition, double tickInterval )
+    {
+        double[] positions = cachedLabelPositions;
+        if ( positions == null || positions.length == 0 ) return null;
+
+        long index = Math.round( ( tickPosition - positions[0] ) / tickInterval );
+        if ( index < 0 || index >= positions.length ) return null;
+
+        int i = ( int ) index;
+        return positions[i] == tickPosition ? cachedTickLabels[i] : null;
+    }
+
+    /**
+     * Discards cached tick positions and labels. Subclasses should call this whenever
+     * a setting which affects tick placement or formatting changes.
+     */
+    public void invalidateTickCache( )
+    {
+        cachedTickPositions = null;
+        cachedSizePixels = -1;
+        cachedMin = Double.NaN;
+        cachedMax = Double.NaN;
+
+        cachedLabelPositions = null;
+        cachedTickLabels = null;
+        cachedLabelInterval = Double.NaN;
+
+        cachedMinorSource = null;
+        cachedMinorTickPositions = null;
+    }
+
     @Override
     public double[] getMinorTickPositions( double[] tickPositions )
     {
         if ( tickPositions.length < 2 )
-            return new double[0];
+            return EMPTY_TICKS;
+
+        if ( cachedMinorSource == tickPositions )
+            return cachedMinorTickPositions;
 
         // assume all the ticks are evenly spaced
         double start = tickPositions[0];
@@ -157,6 +247,8 @@ public class GridAxisLabelHandler implements AxisLabelHandler
             minorTickPositions[minorIndex++] = start + step * j;
         }
 
+        cachedMinorSource = tickPositions;
+        cachedMinorTickPositions = minorTickPositions;
 
         return minorTickPositions;
     }
@@ -170,11 +262,13 @@ public class GridAxisLabelHandler implements AxisLabelHandler
     public void setTickSpacing( int spacing )
     {
         this.tickSpacing = spacing;
+        this.invalidateTickCache( );
     }
 
     public void setMinorTickCount( int count )
     {
         this.minorTickCount = count;
+        this.invalidateTickCache( );
     }
 
     public void setAxisLabel( String label )
@@ -291,7 +385,7 @@ public class GridAxisLabelHandler implements AxisLabelHandler
 
         if ( min >= max )
         {
-            return new double[0];
+            return EMPTY_TICKS;
         }
 
         int minTickNumber = ( int ) floor( min / tickInterval );
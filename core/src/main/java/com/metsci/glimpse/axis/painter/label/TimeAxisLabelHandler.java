@@ -75,6 +75,18 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
     
     protected AxisUnitConverter converter;
 
+    // tick times from the most recent call to tickTimes( ), reused while the axis is unchanged
+    protected double cachedMin = Double.NaN;
+    protected double cachedMax = Double.NaN;
+    protected double cachedLengthPixels = Double.NaN;
+    protected List<TimeStamp> cachedTickTimes;
+    protected double[] cachedTickPositions;
+
+    // tick labels from the most recent call to getTickLabels( List, TimeStampFormat )
+    protected List<TimeStamp> cachedLabelTimes;
+    protected TimeStampFormat cachedLabelFormat;
+    protected String[] cachedTickLabels;
+
     public TimeAxisLabelHandler( Epoch epoch )
     {
         this( defaultTimeZone, epoch );
@@ -192,11 +204,30 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
     public void setPixelsBetweenTicks( int pixels )
     {
         this.pixelsBetweenTicks = pixels;
+        this.invalidateTickCache( );
     }
     
     public void setEpoch( Epoch epoch )
     {
         this.epoch = epoch;
+        this.invalidateTickCache( );
+    }
+
+    /**
+     * Discards cached tick times and labels. Subclasses should call this whenever
+     * a setting which affects tick placement or formatting changes.
+     */
+    public void invalidateTickCache( )
+    {
+        cachedMin = Double.NaN;
+        cachedMax = Double.NaN;
+        cachedLengthPixels = Double.NaN;
+        cachedTickTimes = null;
+        cachedTickPositions = null;
+
+        cachedLabelTimes = null;
+        cachedLabelFormat = null;
+        cachedTickLabels = null;
     }
 
     public Epoch getEpoch( )
@@ -243,7 +274,72 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
         return numSteps * yearStep;
     }
 
+    /**
+     * Returns the times at which ticks should be placed. The returned list is cached and
+     * the same instance is returned until the axis bounds or the axis length change, so
+     * it must not be modified by callers.
+     */
     public List<TimeStamp> tickTimes( Axis1D axis, double axisLengthPixels )
+    {
+        double min = axis.getMin( );
+        double max = axis.getMax( );
+
+        if ( cachedTickTimes == null || cachedMin != min || cachedMax != max || cachedLengthPixels != axisLengthPixels )
+        {
+            cachedTickTimes = computeTickTimes( axis, axisLengthPixels );
+            cachedTickPositions = null;
+            cachedMin = min;
+            cachedMax = max;
+            cachedLengthPixels = axisLengthPixels;
+        }
+
+        return cachedTickTimes;
+    }
+
+    /**
+     * Returns labels for the provided tick times formatted using the provided format.
+     * Labels are cached: if called again with the same tick list and format the same
+     * array is returned, and when the axis has only been panned the labels of ticks
+     * which are still visible are reused instead of being formatted again. The
+     * returned array must not be modified by callers.
+     */
+    public String[] getTickLabels( List<TimeStamp> tickTimes, TimeStampFormat format )
+    {
+        if ( cachedTickLabels != null && cachedLabelFormat == format && cachedLabelTimes == tickTimes ) return cachedTickLabels;
+
+        String[] tickLabels = new String[tickTimes.size( )];
+
+        // both lists are sorted, so walk through them together looking for shared ticks
+        List<TimeStamp> oldTimes = cachedLabelFormat == format ? cachedLabelTimes : null;
+        int j = 0;
+
+        for ( int i = 0; i < tickLabels.length; i++ )
+        {
+            TimeStamp t = tickTimes.get( i );
+
+            if ( oldTimes != null )
+            {
+                while ( j < oldTimes.size( ) && oldTimes.get( j ).isBefore( t ) )
+                    j++;
+
+                if ( j < oldTimes.size( ) && oldTimes.get( j ).equals( t ) )
+                {
+                    tickLabels[i] = cachedTickLabels[j];
+                    continue;
+                }
+            }
+
+            tickLabels[i] = t.toString( format );
+        }
+
+        cachedLabelTimes = tickTimes;
+        cachedLabelFormat = format;
+        cachedTickLabels = tickLabels;
+
+        return tickLabels;
+    }
+
+    protected List<TimeStamp> computeTickTimes( Axis1D axis, double axisLengthPixels )
     {
         TimeStamp t0 = toTimeStamp( axis.getMin( ) );
         TimeStamp t1 = toTimeStamp( axis.getMax( ) );
@@ -604,6 +700,8 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
     public double[] getTickPositions( Axis1D axis )
     {
         List<TimeStamp> tickList = tickTimes( axis, axis.getSizePixels( ) );
+        if ( cachedTickPositions != null ) return cachedTickPositions;
+
         double[] tickArray = new double[tickList.size( )];
         
         for ( int i = 0 ; i < tickList.size( ) ; i++ )
@@ -611,6 +709,7 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
             tickArray[i] = fromTimeStamp( tickList.get( i ) );
         }
         
+        cachedTickPositions = tickArray;
         return tickArray;
     }
     
@@ -648,5 +747,6 @@ public class TimeAxisLabelHandler implements AxisLabelHandler
     public void setAxisUnitConverter( AxisUnitConverter converter )
     {
         this.converter = converter;
+        this.invalidateTickCache( );
     }
 }
@@ -30,7 +30,9 @@ import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
 
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import javax.media.opengl.GL;
@@ -41,6 +43,7 @@ import com.metsci.glimpse.context.GlimpseContext;
 import com.metsci.glimpse.context.GlimpseContextImpl;
 import com.metsci.glimpse.context.GlimpseTarget;
 import com.metsci.glimpse.context.GlimpseTargetStack;
+import com.metsci.glimpse.gl.GLAsyncReadback;
 import com.metsci.glimpse.gl.GLListenerInfo;
 import com.metsci.glimpse.gl.GLSimpleListener;
 import com.metsci.glimpse.gl.GLSimplePixelBuffer;
@@ -164,6 +167,22 @@ public class OffscreenGlimpseCanvas implements GlimpseCanvas
         return pixelBuffer.drawToBufferedImage( );
     }
 
+    /**
+     * Like {@link #drawToBufferedImage( )}, but does not wait for the GPU to finish drawing.
+     * The pixels are delivered during a later draw or call to {@link #flushReadback( )}.
+     *
+     * @see GLSimplePixelBuffer#drawAsync( GLAsyncReadback.Listener )
+     */
+    public Future<ByteBuffer> drawAsync( GLAsyncReadback.Listener listener )
+    {
+        return pixelBuffer.drawAsync( listener );
+    }
+
+    public void flushReadback( )
+    {
+        pixelBuffer.flushReadback( );
+    }
+
     public void resize( int width, int height, boolean notifyListeners )
     {
         pixelBuffer.resize( width, height, notifyListeners );
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.event.mouse;
+
+import static com.metsci.glimpse.context.TargetStackUtil.newTargetStack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.metsci.glimpse.canvas.GlimpseCanvas;
+import com.metsci.glimpse.context.GlimpseBounds;
+import com.metsci.glimpse.context.GlimpseContextImpl;
+import com.metsci.glimpse.context.GlimpseTarget;
+import com.metsci.glimpse.context.GlimpseTargetStack;
+import com.metsci.glimpse.layout.GlimpseLayout;
+
+/**
+ * A flattened snapshot of the GlimpseTarget hierarchy attached to a GlimpseCanvas,
+ * used by {@link MouseWrapper} to find the GlimpseTargets under the mouse without
+ * walking the whole hierarchy (and allocating GlimpseTargetStacks) on every event.
+ * 
+ * Each node stores its GlimpseTarget, its bounds, its children (sorted by z order,
+ * as returned by {@link GlimpseTarget#getTargetChildren( )}) and the GlimpseTargetStack
+ * leading from the canvas to the node. The stacks are shared by every event dispatched
+ * using the index and must not be modified.
+ * 
+ * The index is only valid until the layout hierarchy changes, see {@link #isStale( GlimpseCanvas )}.
+ */
+public class HitTestIndex
+{
+    public static final int ROOT = 0;
+
+    private static final int[] NO_CHILDREN = new int[0];
+
+    protected GlimpseTarget[] targets;
+    protected GlimpseBounds[] bounds;
+    protected GlimpseTargetStack[] stacks;
+    protected int[][] children;
+
+    // the root layouts the index was built from and their layout generations
+    protected GlimpseTarget[] rootChildren;
+    protected long[] rootGenerations;
+
+    protected HitTestIndex( )
+    {
+    }
+
+    /**
+     * Builds an index of the GlimpseTargets currently attached to the canvas. Layouts
+     * which have not been laid out yet are laid out in the process.
+     */
+    public static HitTestIndex build( GlimpseCanvas canvas )
+    {
+        HitTestIndex index = new HitTestIndex( );
+
+        List<GlimpseTarget> rootList = canvas.getTargetChildren( );
+        index.rootChildren = rootList.toArray( new GlimpseTarget[rootList.size( )] );
+
+        // record the generations before building, a layout triggered
+        // during the build should cause the index to be rebuilt again
+        index.rootGenerations = new long[index.rootChildren.length];
+        for ( int i = 0; i < index.rootChildren.length; i++ )
+        {
+            index.rootGenerations[i] = getLayoutGeneration( index.rootChildren[i] );
+        }
+
+        Builder builder = new Builder( );
+        builder.add( new GlimpseContextImpl( canvas ).getTargetStack( ) );
+
+        int size = builder.targets.size( );
+        index.targets = builder.targets.toArray( new GlimpseTarget[size] );
+        index.bounds = builder.bounds.toArray( new GlimpseBounds[size] );
+        index.stacks = builder.stacks.toArray( new GlimpseTargetStack[size] );
+        index.children = builder.children.toArray( new int[size][] );
+
+        return index;
+    }
+
+    /**
+     * @return true if the layout hierarchy may have changed since the index was built
+     */
+    public boolean isStale( GlimpseCanvas canvas )
+    {
+        // layouts attached directly to the canvas are not tracked by the layout generation
+        List<GlimpseTarget> rootList = canvas.getTargetChildren( );
+        if ( rootList.size( ) != rootChildren.length ) return true;
+
+        // the generation of each root layout changes with any of its descendants,
+        // but not with layouts which are only painted on other canvases
+        for ( int i = 0; i < rootChildren.length; i++ )
+        {
+            if ( rootList.get( i ) != rootChildren[i] ) return true;
+            if ( getLayoutGeneration( rootChildren[i] ) != rootGenerations[i] ) return true;
+        }
+
+        return false;
+    }
+
+    protected static long getLayoutGeneration( GlimpseTarget target )
+    {
+        return target instanceof GlimpseLayout ? ( ( GlimpseLayout ) target ).getLayoutGeneration( ) : 0;
+    }
+
+    public int getSize( )
+    {
+        return targets.length;
+    }
+
+    public GlimpseTarget getTarget( int node )
+    {
+        return targets[node];
+    }
+
+    public GlimpseBounds getBounds( int node )
+    {
+        return bounds[node];
+    }
+
+    public GlimpseTargetStack getStack( int node )
+    {
+        return stacks[node];
+    }
+
+    /**
+     * @return the indices of the children of the node, in increasing z order (do not modify)
+     */
+    public int[] getChildren( int node )
+    {
+        return children[node];
+    }
+
+    protected static class Builder
+    {
+        protected List<GlimpseTarget> targets = new ArrayList<GlimpseTarget>( );
+        protected List<GlimpseBounds> bounds = new ArrayList<GlimpseBounds>( );
+        protected List<GlimpseTargetStack> stacks = new ArrayList<GlimpseTargetStack>( );
+        protected List<int[]> children = new ArrayList<int[]>( );
+
+        // adds the target at the top of the stack and its children (recursively),
+        // returning the index of the newly added node
+        protected int add( GlimpseTargetStack stack )
+        {
+            int node = targets.size( );
+
+            GlimpseTarget target = stack.getTarget( );
+            targets.add( target );
+            bounds.add( stack.getBounds( ) );
+            stacks.add( newTargetStack( stack ) );
+            children.add( NO_CHILDREN );
+
+            List<GlimpseTarget> list = target.getTargetChildren( );
+            int size = list.size( );
+            if ( size == 0 ) return node;
+
+            int[] childNodes = new int[size];
+            for ( int i = 0; i < size; i++ )
+            {
+                GlimpseTarget child = list.get( i );
+                GlimpseBounds childBounds = child.getTargetBounds( stack );
+
+                stack.push( child, childBounds );
+                childNodes[i] = add( stack );
+                stack.pop( );
+            }
+
+            children.set( node, childNodes );
+
+            return node;
+        }
+    }
+}
@@ -26,78 +26,93 @@
  */
 package com.metsci.glimpse.event.mouse;
 
-import static com.metsci.glimpse.context.TargetStackUtil.newTargetStack;
-
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
 import com.metsci.glimpse.canvas.GlimpseCanvas;
 import com.metsci.glimpse.context.GlimpseBounds;
-import com.metsci.glimpse.context.GlimpseContext;
-import com.metsci.glimpse.context.GlimpseContextImpl;
 import com.metsci.glimpse.context.GlimpseTarget;
 import com.metsci.glimpse.context.GlimpseTargetStack;
-import com.metsci.glimpse.context.TargetStackUtil;
 
 public abstract class MouseWrapper<E>
 {
     protected GlimpseCanvas canvas;
     // set of hovered stacks which does not change during drags
-    protected LinkedList<GlimpseTargetStack> dragHoveredSet;
+    protected List<GlimpseTargetStack> dragHoveredSet;
     // set of hovered stacks which changes even during drags
     // this is necessary because mouseExited and mouseEntered events
     // are fired even while the mouse is dragging
-    protected LinkedList<GlimpseTargetStack> hoveredSet;
+    protected List<GlimpseTargetStack> hoveredSet;
+
+    // the previous contents of the hovered sets, swapped with the
+    // current sets when they are cleared to avoid copying
+    protected List<GlimpseTargetStack> oldDragHoveredSet;
+    protected List<GlimpseTargetStack> oldHoveredSet;
+
+    // flattened GlimpseTarget hierarchy, rebuilt when the layout changes
+    protected HitTestIndex hitTestIndex;
+    // reused result of getContainingTargets( )
+    protected List<GlimpseTargetStack> containingTargets;
 
     public MouseWrapper( GlimpseCanvas canvas )
     {
         this.canvas = canvas;
-        this.dragHoveredSet = new LinkedList<GlimpseTargetStack>( );
-        this.hoveredSet = new LinkedList<GlimpseTargetStack>( );
+        this.dragHoveredSet = new ArrayList<GlimpseTargetStack>( );
+        this.hoveredSet = new ArrayList<GlimpseTargetStack>( );
+        this.oldDragHoveredSet = new ArrayList<GlimpseTargetStack>( );
+        this.oldHoveredSet = new ArrayList<GlimpseTargetStack>( );
+        this.containingTargets = new ArrayList<GlimpseTargetStack>( );
     }
 
+    /**
+     * Returns the stacks of the event generating GlimpseTargets under the mouse, topmost first.
+     * The returned list is reused by the next call and should not be retained.
+     */
     public List<GlimpseTargetStack> getContainingTargets( E e )
     {
-        // create a new context using the context associated with this mouse wrapper
-        // GlimpseTargets will be popped on and off the context as we search through
-        // the hierarchy in order to determine which GlimpseTargets to dispatch
-        // GlimpseMouseEvents to
-        GlimpseContext context = new GlimpseContextImpl( canvas );
+        containingTargets.clear( );
 
-        List<GlimpseTargetStack> result = new LinkedList<GlimpseTargetStack>( );
+        getContainingTargets( e, getHitTestIndex( ), HitTestIndex.ROOT, containingTargets );
 
-        getContainingTargets( e, context, result );
+        return containingTargets;
+    }
+
+    protected HitTestIndex getHitTestIndex( )
+    {
+        if ( hitTestIndex == null || hitTestIndex.isStale( canvas ) )
+        {
+            hitTestIndex = HitTestIndex.build( canvas );
+        }
 
-        return result;
+        return hitTestIndex;
     }
 
     // perform a depth first search of the hierarchy of GlimpseLayouts in order
     // to find the top most component which contains the click
-    protected boolean getContainingTargets( E e, GlimpseContext context, List<GlimpseTargetStack> accumulator )
+    protected boolean getContainingTargets( E e, HitTestIndex index, int node, List<GlimpseTargetStack> accumulator )
     {
-        GlimpseTargetStack stack = context.getTargetStack( );
-        GlimpseTarget layout = stack.getTarget( );
-        GlimpseBounds bounds = stack.getBounds( );
-        List<GlimpseTarget> list = layout.getTargetChildren( );
-        int size = list.size( );
+        GlimpseTarget layout = index.getTarget( node );
+        GlimpseTargetStack stack = index.getStack( node );
+        GlimpseBounds bounds = index.getBounds( node );
+        int[] children = index.getChildren( node );
 
         // run though the list backwards. GlimpseTarget.getTargetChildren() returns
         // a list sorted by zOrder. GlimpseTargets with larger zOrder (or those added
         // later among GlimpseTargets with the same zOrder) are considered "on top"
         // and should have events delivered to them first
-        for ( int i = size - 1; i >= 0; i-- )
+        for ( int i = children.length - 1; i >= 0; i-- )
         {
-            GlimpseTarget childLayout = list.get( i );
-
-            GlimpseBounds childBounds = childLayout.getTargetBounds( context.getTargetStack( ) );
+            int child = children[i];
 
-            stack.push( childLayout, childBounds );
+            // children are laid out inside their parents, so only descend
+            // into the children which actually contain the event
+            GlimpseBounds childBounds = index.getBounds( child );
+            if ( childBounds == null || !isValid( e, childBounds ) || !isInterior( e, childBounds ) ) continue;
 
-            boolean consumeEvent = getContainingTargets( e, context, accumulator );
+            boolean consumeEvent = getContainingTargets( e, index, child, accumulator );
 
             if ( consumeEvent ) return true;
-
-            stack.pop( );
         }
 
         // if the layout neither consumes nor responds to events, we don't need
@@ -107,11 +122,11 @@ public abstract class MouseWrapper<E>
         // if the event was interior to the layout, add it to the accumulator list
         // if it is an event generator and signal that we should short-circuit the
         // search if it was an event consumer
-        if ( handleInterior( e, context, bounds ) )
+        if ( handleInterior( e, stack, bounds ) )
         {
             if ( layout.isEventGenerator( ) )
             {
-                accumulator.add( newTargetStack( stack ) );
+                accumulator.add( stack );
             }
 
             return layout.isEventConsumer( );
@@ -122,7 +137,7 @@ public abstract class MouseWrapper<E>
         }
     }
 
-    protected boolean handleInterior( E e, GlimpseContext context, GlimpseBounds bounds )
+    protected boolean handleInterior( E e, GlimpseTargetStack stack, GlimpseBounds bounds )
     {
         if ( bounds == null ) return false;
 
@@ -133,8 +148,8 @@ public abstract class MouseWrapper<E>
 
         if ( isInterior )
         {
-            addHovered( context.getTargetStack( ) );
-            if ( !isButtonDown ) addDragHovered( context.getTargetStack( ) );
+            addHovered( stack );
+            if ( !isButtonDown ) addDragHovered( stack );
         }
 
         return isInterior;
@@ -154,9 +169,8 @@ public abstract class MouseWrapper<E>
 
     protected List<GlimpseTargetStack> clearAllHovered( )
     {
-        List<GlimpseTargetStack> oldHovered = copyHovered( );
+        List<GlimpseTargetStack> oldHovered = clearHovered( );
         dragHoveredSet.clear( );
-        hoveredSet.clear( );
         return oldHovered;
     }
 
@@ -166,16 +180,20 @@ public abstract class MouseWrapper<E>
         setHovered( list );
     }
 
+    // the returned list remains valid until the next call to clearDragHovered( )
     protected List<GlimpseTargetStack> clearDragHovered( )
     {
-        List<GlimpseTargetStack> oldHovered = copyDragHovered( );
+        List<GlimpseTargetStack> oldHovered = dragHoveredSet;
+        dragHoveredSet = oldDragHoveredSet;
         dragHoveredSet.clear( );
+        oldDragHoveredSet = oldHovered;
         return oldHovered;
     }
 
+    // stacks come from the HitTestIndex and are never modified, so they are not copied
     protected void addDragHovered( GlimpseTargetStack stack )
     {
-        dragHoveredSet.add( TargetStackUtil.newTargetStack( stack ) );
+        dragHoveredSet.add( stack );
     }
 
     protected void setDragHovered( List<GlimpseTargetStack> list )
@@ -200,16 +218,20 @@ public abstract class MouseWrapper<E>
         return dragHoveredSet;
     }
 
+    // the returned list remains valid until the next call to clearHovered( )
     protected List<GlimpseTargetStack> clearHovered( )
     {
-        List<GlimpseTargetStack> oldHovered = copyHovered( );
+        List<GlimpseTargetStack> oldHovered = hoveredSet;
+        hoveredSet = oldHoveredSet;
         hoveredSet.clear( );
+        oldHoveredSet = oldHovered;
         return oldHovered;
     }
 
+    // stacks come from the HitTestIndex and are never modified, so they are not copied
     protected void addHovered( GlimpseTargetStack stack )
     {
-        hoveredSet.add( TargetStackUtil.newTargetStack( stack ) );
+        hoveredSet.add( stack );
     }
 
     protected void setHovered( List<GlimpseTargetStack> list )
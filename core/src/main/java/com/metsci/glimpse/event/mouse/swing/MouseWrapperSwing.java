@@ -26,7 +26,10 @@
  */
 package com.metsci.glimpse.event.mouse.swing;
 
+import java.awt.AWTEvent;
 import java.awt.Component;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
@@ -43,15 +46,65 @@ public class MouseWrapperSwing extends MouseWrapperImpl<MouseEvent> implements M
 {
     public static final int ANY_BUTTON_DOWN_MASK = MouseEvent.BUTTON1_DOWN_MASK | MouseEvent.BUTTON2_DOWN_MASK | MouseEvent.BUTTON3_DOWN_MASK;
 
+    protected boolean coalesceMotionEvents = true;
+    protected EventQueue eventQueue;
+    protected boolean eventQueueChecked = false;
+
     public MouseWrapperSwing( GlimpseCanvas canvas )
     {
         super( canvas );
     }
 
+    /**
+     * If true (the default), mouse moved and dragged events are skipped when a newer
+     * event of the same type from the same component is already waiting in the AWT
+     * event queue. Listeners only see the most recent mouse position.
+     */
+    public void setCoalesceMotionEvents( boolean coalesce )
+    {
+        this.coalesceMotionEvents = coalesce;
+    }
+
+    public boolean isCoalesceMotionEvents( )
+    {
+        return this.coalesceMotionEvents;
+    }
+
+    protected boolean isSuperseded( MouseEvent e )
+    {
+        if ( !coalesceMotionEvents ) return false;
+
+        EventQueue queue = getEventQueue( );
+        if ( queue == null ) return false;
+
+        AWTEvent next = queue.peekEvent( e.getID( ) );
+        return next != null && next.getSource( ) == e.getSource( );
+    }
+
+    protected EventQueue getEventQueue( )
+    {
+        if ( !eventQueueChecked )
+        {
+            eventQueueChecked = true;
+
+            try
+            {
+                eventQueue = Toolkit.getDefaultToolkit( ).getSystemEventQueue( );
+            }
+            catch ( SecurityException e )
+            {
+                // without access to the event queue, events are simply not coalesced
+                eventQueue = null;
+            }
+        }
+
+        return eventQueue;
+    }
+
     @Override
     protected boolean isInterior( MouseEvent e, GlimpseBounds bounds )
     {
-        return bounds.contains( e.getX( ), e.getComponent( ).getBounds( ).height - e.getY( ) );
+        return bounds.contains( e.getX( ), e.getComponent( ).getHeight( ) - e.getY( ) );
     }
 
     @Override
@@ -77,7 +130,7 @@ public class MouseWrapperSwing extends MouseWrapperImpl<MouseEvent> implements M
 
         if ( e.getComponent( ) == null ) return null;
 
-        int parentHeight = e.getComponent( ).getBounds( ).height;
+        int parentHeight = e.getComponent( ).getHeight( );
 
         Component source = e.getComponent( );
         int id = e.getID( );
@@ -123,7 +176,7 @@ public class MouseWrapperSwing extends MouseWrapperImpl<MouseEvent> implements M
 
         if ( e.getComponent( ) == null ) return null;
 
-        int parentHeight = e.getComponent( ).getBounds( ).height;
+        int parentHeight = e.getComponent( ).getHeight( );
 
         Component source = e.getComponent( );
         int id = e.getID( );
@@ -181,12 +234,16 @@ public class MouseWrapperSwing extends MouseWrapperImpl<MouseEvent> implements M
     @Override
     public void mouseDragged( MouseEvent e )
     {
+        if ( isSuperseded( e ) ) return;
+
         mouseDragged0( e );
     }
 
     @Override
     public void mouseMoved( MouseEvent e )
     {
+        if ( isSuperseded( e ) ) return;
+
         mouseMoved0( e );
     }
 }
@@ -0,0 +1,419 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.gl;
+
+import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Logger;
+
+import javax.media.opengl.GL;
+
+import com.sun.opengl.util.BufferUtil;
+
+/**
+ * Reads RGBA pixels back from the current read framebuffer without stalling the
+ * OpenGL pipeline.<p>
+ *
+ * Each call to {@link #readPixels(GL, int, int, int, int, Listener)} copies the requested
+ * pixels into a pixel buffer object on the GPU and returns immediately. The copy into
+ * client memory happens in a later call to {@link #poll(GL)}, which should be made
+ * once per frame (typically at the start of the next frame) with the same GLContext
+ * current. Results are delivered both through the returned Future and through an
+ * optional Listener, which is called on the OpenGL thread during poll.<p>
+ *
+ * Pixel buffer objects are reused from a pool. If the NV_fence extension is available,
+ * a read is only completed once its fence has passed, so poll never waits on the GPU.
+ * Otherwise reads are completed one frame after they were issued. If pixel buffer objects
+ * are not supported, reads fall back to a synchronous glReadPixels and complete immediately.<p>
+ *
+ * Returned pixels are GL_RGBA / GL_UNSIGNED_BYTE rows (tightly packed under the default
+ * pack alignment), starting with the bottom row, in a newly allocated buffer owned by the
+ * receiver.
+ */
+public class GLAsyncReadback
+{
+    private static final Logger logger = Logger.getLogger( GLAsyncReadback.class.getName( ) );
+
+    public static final int DEFAULT_MAX_PENDING = 64;
+
+    protected static final int BYTES_PER_PIXEL = 4;
+
+    public static interface Listener
+    {
+        public void pixelsRead( ByteBuffer pixels, int width, int height );
+    }
+
+    protected int maxPending;
+
+    protected boolean initialized;
+    protected boolean pboSupported;
+    protected boolean fenceSupported;
+
+    // incremented by each call to poll( )
+    protected long frame;
+
+    // pixel buffers which are not currently in use
+    protected LinkedList<Slot> free;
+    // pixel buffers holding reads which have not been delivered, oldest first
+    protected LinkedList<Slot> pending;
+
+    public GLAsyncReadback( )
+    {
+        this( DEFAULT_MAX_PENDING );
+    }
+
+    /**
+     * @param maxPending the maximum number of reads waiting for delivery at once. If a read is
+     *                   requested when this many are pending, the oldest is completed immediately
+     *                   (which may wait for the GPU).
+     */
+    public GLAsyncReadback( int maxPending )
+    {
+        this.maxPending = maxPending;
+        this.free = new LinkedList<Slot>( );
+        this.pending = new LinkedList<Slot>( );
+    }
+
+    protected void initialize( GL gl )
+    {
+        if ( initialized ) return;
+
+        pboSupported = gl.isExtensionAvailable( "GL_ARB_pixel_buffer_object" ) || gl.isExtensionAvailable( "GL_EXT_pixel_buffer_object" );
+        fenceSupported = gl.isExtensionAvailable( "GL_NV_fence" );
+
+        initialized = true;
+    }
+
+    public boolean isAsynchronous( GL gl )
+    {
+        initialize( gl );
+        return pboSupported;
+    }
+
+    public int getPendingCount( )
+    {
+        return pending.size( );
+    }
+
+    /**
+     * @see #readPixels(GL, int, int, int, int, Listener)
+     */
+    public Future<ByteBuffer> readPixels( GL gl, int x, int y, int width, int height )
+    {
+        return readPixels( gl, x, y, width, height, null );
+    }
+
+    /**
+     * Begins reading the width x height block of pixels with lower left corner at x, y
+     * from the framebuffer currently bound for reading.
+     *
+     * @param listener notified on the OpenGL thread when the pixels are available (may be null)
+     * @return a Future which completes when the pixels are available
+     */
+    public Future<ByteBuffer> readPixels( GL gl, int x, int y, int width, int height, Listener listener )
+    {
+        return readPixels( gl, x, y, width, height, null, listener );
+    }
+
+    /**
+     * Like {@link #readPixels(GL, int, int, int, int, Listener)}, but delivers the pixels in the
+     * provided buffer (which must have room for width * height * 4 bytes) instead of allocating
+     * a new one, allowing callers to recycle buffers.
+     *
+     * @param pixels the buffer to deliver the pixels in, or null to allocate a new buffer
+     */
+    public Future<ByteBuffer> readPixels( GL gl, int x, int y, int width, int height, ByteBuffer pixels, Listener listener )
+    {
+        initialize( gl );
+
+        Request request = new Request( width, height, pixels, listener );
+
+        if ( !pboSupported )
+        {
+            pixels = request.getPixelBuffer( );
+            gl.glReadPixels( x, y, width, height, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, pixels );
+            request.complete( pixels );
+            return request;
+        }
+
+        if ( pending.size( ) >= maxPending )
+        {
+            complete( gl, pending.removeFirst( ) );
+        }
+
+        Slot slot = free.isEmpty( ) ? new Slot( gl ) : free.removeFirst( );
+        slot.request = request;
+        slot.frame = frame;
+
+        gl.glBindBuffer( GL.GL_PIXEL_PACK_BUFFER, slot.pbo );
+        try
+        {
+            if ( slot.capacity < request.getSize( ) )
+            {
+                gl.glBufferData( GL.GL_PIXEL_PACK_BUFFER, request.getSize( ), null, GL.GL_STREAM_READ );
+                slot.capacity = request.getSize( );
+            }
+
+            // with a pixel pack buffer bound, the last argument is an offset into
+            // the buffer and the call returns without waiting for the pixels
+            gl.glReadPixels( x, y, width, height, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, 0L );
+        }
+        finally
+        {
+            gl.glBindBuffer( GL.GL_PIXEL_PACK_BUFFER, 0 );
+        }
+
+        if ( fenceSupported ) gl.glSetFenceNV( slot.fence, GL.GL_ALL_COMPLETED_NV );
+
+        pending.addLast( slot );
+
+        return request;
+    }
+
+    /**
+     * Delivers reads which have finished on the GPU. Should be called once per frame.
+     *
+     * @return the number of reads delivered
+     */
+    public int poll( GL gl )
+    {
+        frame++;
+
+        int count = 0;
+        Iterator<Slot> iter = pending.iterator( );
+        while ( iter.hasNext( ) )
+        {
+            Slot slot = iter.next( );
+
+            // reads finish in the order they were issued
+            if ( !isReady( gl, slot ) ) break;
+
+            iter.remove( );
+            complete( gl, slot );
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Delivers all pending reads, waiting for the GPU if necessary.
+     */
+    public void flush( GL gl )
+    {
+        while ( !pending.isEmpty( ) )
+        {
+            complete( gl, pending.removeFirst( ) );
+        }
+    }
+
+    /**
+     * Releases the pixel buffers. Pending reads are cancelled.
+     */
+    public void dispose( GL gl )
+    {
+        for ( Slot slot : pending )
+        {
+            slot.request.cancel( false );
+            slot.dispose( gl );
+        }
+
+        for ( Slot slot : free )
+        {
+            slot.dispose( gl );
+        }
+
+        pending.clear( );
+        free.clear( );
+    }
+
+    protected boolean isReady( GL gl, Slot slot )
+    {
+        if ( fenceSupported )
+        {
+            return gl.glTestFenceNV( slot.fence );
+        }
+        else
+        {
+            return frame > slot.frame;
+        }
+    }
+
+    protected void complete( GL gl, Slot slot )
+    {
+        Request request = slot.request;
+        ByteBuffer pixels = request.getPixelBuffer( );
+
+        gl.glBindBuffer( GL.GL_PIXEL_PACK_BUFFER, slot.pbo );
+        try
+        {
+            ByteBuffer mapped = gl.glMapBuffer( GL.GL_PIXEL_PACK_BUFFER, GL.GL_READ_ONLY );
+            if ( mapped != null )
+            {
+                mapped.rewind( ).limit( request.getSize( ) );
+                pixels.put( mapped );
+                pixels.rewind( );
+                gl.glUnmapBuffer( GL.GL_PIXEL_PACK_BUFFER );
+            }
+            else
+            {
+                logWarning( logger, "Unable to map pixel buffer object for readback." );
+            }
+        }
+        finally
+        {
+            gl.glBindBuffer( GL.GL_PIXEL_PACK_BUFFER, 0 );
+        }
+
+        slot.request = null;
+        free.addLast( slot );
+
+        request.complete( pixels );
+    }
+
+    /**
+     * Converts pixels returned by this class into a BufferedImage (flipping the
+     * rows so that the top row of the image is the top row of the framebuffer).
+     */
+    public static BufferedImage toBufferedImage( ByteBuffer pixels, int width, int height )
+    {
+        BufferedImage image = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+        int[] row = new int[width];
+
+        for ( int y = 0; y < height; y++ )
+        {
+            int offset = y * width * BYTES_PER_PIXEL;
+            for ( int x = 0; x < width; x++ )
+            {
+                int i = offset + x * BYTES_PER_PIXEL;
+                int r = pixels.get( i ) & 0xff;
+                int g = pixels.get( i + 1 ) & 0xff;
+                int b = pixels.get( i + 2 ) & 0xff;
+                int a = pixels.get( i + 3 ) & 0xff;
+                row[x] = ( a << 24 ) | ( r << 16 ) | ( g << 8 ) | b;
+            }
+
+            image.setRGB( 0, height - 1 - y, width, 1, row, 0, width );
+        }
+
+        return image;
+    }
+
+    protected class Slot
+    {
+        protected int pbo;
+        protected int fence;
+        protected int capacity;
+        protected long frame;
+        protected Request request;
+
+        public Slot( GL gl )
+        {
+            int[] handle = new int[1];
+            gl.glGenBuffers( 1, handle, 0 );
+            this.pbo = handle[0];
+
+            if ( fenceSupported )
+            {
+                gl.glGenFencesNV( 1, handle, 0 );
+                this.fence = handle[0];
+            }
+        }
+
+        public void dispose( GL gl )
+        {
+            gl.glDeleteBuffers( 1, new int[] { pbo }, 0 );
+
+            if ( fenceSupported ) gl.glDeleteFencesNV( 1, new int[] { fence }, 0 );
+        }
+    }
+
+    protected static class Request extends FutureTask<ByteBuffer>
+    {
+        protected static final Callable<ByteBuffer> NOOP = new Callable<ByteBuffer>( )
+        {
+            @Override
+            public ByteBuffer call( ) throws Exception
+            {
+                return null;
+            }
+        };
+
+        protected int width;
+        protected int height;
+        protected ByteBuffer pixels;
+        protected Listener listener;
+
+        public Request( int width, int height, ByteBuffer pixels, Listener listener )
+        {
+            super( NOOP );
+
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+            this.listener = listener;
+        }
+
+        public int getSize( )
+        {
+            return width * height * BYTES_PER_PIXEL;
+        }
+
+        // the buffer to deliver the pixels in
+        public ByteBuffer getPixelBuffer( )
+        {
+            if ( pixels == null ) return BufferUtil.newByteBuffer( getSize( ) );
+
+            pixels.clear( );
+            return pixels;
+        }
+
+        public void complete( ByteBuffer pixels )
+        {
+            set( pixels );
+
+            if ( listener != null )
+            {
+                try
+                {
+                    listener.pixelsRead( pixels, width, height );
+                }
+                catch ( Exception e )
+                {
+                    logWarning( logger, "Readback listener failed.", e );
+                }
+            }
+        }
+    }
+}
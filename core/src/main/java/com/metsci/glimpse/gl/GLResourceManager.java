@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.gl;
+
+import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLContext;
+
+/**
+ * Tracks the GPU memory used by buffers and textures allocated on a GLContext and
+ * keeps it within a configurable budget.<p>
+ *
+ * Resources report each upload with {@link #allocated(Resource, Object, long)} and each
+ * use with {@link #used(Resource)}. When an upload takes the total over budget, the least
+ * recently used resources which have not been used for at least the idle time (by default,
+ * resources belonging to painters which are hidden or no longer on screen) are evicted:
+ * their OpenGL objects are deleted and they upload their host data again the next time
+ * they are drawn.<p>
+ *
+ * By default the budget is unlimited, so resources are tracked but never evicted.
+ *
+ * @see #getInstance(GLContext)
+ */
+public class GLResourceManager
+{
+    private static final Logger logger = Logger.getLogger( GLResourceManager.class.getName( ) );
+
+    public static final long UNLIMITED = Long.MAX_VALUE;
+    public static final long DEFAULT_IDLE_TIME_MILLIS = 1000;
+
+    private static final Map<GLContext, GLResourceManager> managers = new WeakHashMap<GLContext, GLResourceManager>( );
+
+    private static long defaultBudgetBytes = UNLIMITED;
+
+    /**
+     * An OpenGL buffer or texture which can recreate itself from data held on the host.
+     */
+    public static interface Resource
+    {
+        /**
+         * Deletes the OpenGL objects of this resource (the GLContext of the manager is current).
+         * The resource should upload its data again the next time it is used.
+         *
+         * @return false if the resource could not be evicted right now (for example, because it is in use)
+         */
+        public boolean evict( GL gl );
+    }
+
+    protected static class Entry
+    {
+        protected Object owner;
+        protected long bytes;
+        protected long lastUsedMillis;
+
+        public Entry( Object owner )
+        {
+            this.owner = owner;
+        }
+    }
+
+    // iteration order is least recently used first
+    protected LinkedHashMap<Resource, Entry> entries;
+
+    protected long budgetBytes;
+    protected long idleTimeMillis;
+
+    protected long usedBytes;
+    protected long evictedBytes;
+    protected int evictionCount;
+
+    protected boolean overBudgetWarned;
+
+    /**
+     * @return the GLResourceManager for the provided context, created if necessary
+     */
+    public static synchronized GLResourceManager getInstance( GLContext context )
+    {
+        GLResourceManager manager = managers.get( context );
+
+        if ( manager == null )
+        {
+            manager = new GLResourceManager( );
+            managers.put( context, manager );
+        }
+
+        return manager;
+    }
+
+    /**
+     * @return the GLResourceManager for the current context, or null if no context is current
+     */
+    public static GLResourceManager getCurrent( )
+    {
+        GLContext context = GLContext.getCurrent( );
+        return context == null ? null : getInstance( context );
+    }
+
+    /**
+     * Sets the budget given to managers created after this call.
+     */
+    public static synchronized void setDefaultBudgetBytes( long bytes )
+    {
+        defaultBudgetBytes = bytes;
+    }
+
+    public static synchronized long getDefaultBudgetBytes( )
+    {
+        return defaultBudgetBytes;
+    }
+
+    protected GLResourceManager( )
+    {
+        this.entries = new LinkedHashMap<Resource, Entry>( 16, 0.75f, true );
+        this.budgetBytes = getDefaultBudgetBytes( );
+        this.idleTimeMillis = DEFAULT_IDLE_TIME_MILLIS;
+    }
+
+    public synchronized void setBudgetBytes( long bytes )
+    {
+        this.budgetBytes = bytes;
+        this.overBudgetWarned = false;
+    }
+
+    public synchronized long getBudgetBytes( )
+    {
+        return budgetBytes;
+    }
+
+    /**
+     * Sets how long a resource must go without being used before it may be evicted.
+     * Resources drawn every frame are therefore never evicted to make room for others.
+     */
+    public synchronized void setIdleTimeMillis( long millis )
+    {
+        this.idleTimeMillis = millis;
+    }
+
+    public synchronized long getIdleTimeMillis( )
+    {
+        return idleTimeMillis;
+    }
+
+    /**
+     * Records that the provided resource now holds the given number of bytes of GPU memory,
+     * evicting other resources if this takes the total over budget. Must be called on the
+     * OpenGL thread with the manager's context current.
+     *
+     * @param owner the object reported as responsible for the memory, see {@link #getBytesByOwner()}
+     */
+    public void allocated( Resource resource, Object owner, long bytes )
+    {
+        Map<Resource, Entry> victims;
+
+        synchronized ( this )
+        {
+            Entry entry = entries.get( resource );
+            if ( entry == null )
+            {
+                entry = new Entry( owner );
+                entries.put( resource, entry );
+            }
+
+            usedBytes += bytes - entry.bytes;
+            entry.owner = owner;
+            entry.bytes = bytes;
+            entry.lastUsedMillis = System.currentTimeMillis( );
+
+            victims = selectVictims( resource );
+        }
+
+        evict( victims );
+    }
+
+    /**
+     * Records that the provided resource was drawn.
+     */
+    public synchronized void used( Resource resource )
+    {
+        Entry entry = entries.get( resource );
+        if ( entry != null ) entry.lastUsedMillis = System.currentTimeMillis( );
+    }
+
+    /**
+     * Records that the provided resource has deleted its OpenGL objects.
+     */
+    public synchronized void released( Resource resource )
+    {
+        Entry entry = entries.remove( resource );
+        if ( entry != null ) usedBytes -= entry.bytes;
+    }
+
+    public synchronized long getUsedBytes( )
+    {
+        return usedBytes;
+    }
+
+    public synchronized int getResourceCount( )
+    {
+        return entries.size( );
+    }
+
+    /**
+     * @return the total number of bytes evicted since this manager was created
+     */
+    public synchronized long getEvictedBytes( )
+    {
+        return evictedBytes;
+    }
+
+    public synchronized int getEvictionCount( )
+    {
+        return evictionCount;
+    }
+
+    /**
+     * @return the GPU memory held by each owner, largest first
+     */
+    public synchronized Map<Object, Long> getBytesByOwner( )
+    {
+        Map<Object, Long> totals = new HashMap<Object, Long>( );
+        for ( Entry entry : entries.values( ) )
+        {
+            Long total = totals.get( entry.owner );
+            totals.put( entry.owner, ( total == null ? 0 : total ) + entry.bytes );
+        }
+
+        List<Map.Entry<Object, Long>> sorted = new ArrayList<Map.Entry<Object, Long>>( totals.entrySet( ) );
+        Collections.sort( sorted, new Comparator<Map.Entry<Object, Long>>( )
+        {
+            @Override
+            public int compare( Map.Entry<Object, Long> o1, Map.Entry<Object, Long> o2 )
+            {
+                return o2.getValue( ).compareTo( o1.getValue( ) );
+            }
+        } );
+
+        Map<Object, Long> result = new LinkedHashMap<Object, Long>( );
+        for ( Map.Entry<Object, Long> entry : sorted )
+        {
+            result.put( entry.getKey( ), entry.getValue( ) );
+        }
+
+        return result;
+    }
+
+    /**
+     * @return a human readable summary of the GPU memory in use
+     */
+    public synchronized String getReport( )
+    {
+        StringBuilder b = new StringBuilder( );
+
+        b.append( String.format( "GPU memory: %.1f MB in %d resources", usedBytes / 1e6, entries.size( ) ) );
+        if ( budgetBytes != UNLIMITED ) b.append( String.format( " (budget %.1f MB)", budgetBytes / 1e6 ) );
+        b.append( String.format( ", %d evictions (%.1f MB)%n", evictionCount, evictedBytes / 1e6 ) );
+
+        for ( Map.Entry<Object, Long> entry : getBytesByOwner( ).entrySet( ) )
+        {
+            b.append( String.format( "    %10.1f KB  %s%n", entry.getValue( ) / 1e3, entry.getKey( ) ) );
+        }
+
+        return b.toString( );
+    }
+
+    // removes and returns the resources which must be evicted to get within budget
+    protected Map<Resource, Entry> selectVictims( Resource keep )
+    {
+        if ( usedBytes <= budgetBytes ) return Collections.emptyMap( );
+
+        Map<Resource, Entry> victims = new LinkedHashMap<Resource, Entry>( );
+        long idleBefore = System.currentTimeMillis( ) - idleTimeMillis;
+
+        Iterator<Map.Entry<Resource, Entry>> iter = entries.entrySet( ).iterator( );
+        while ( iter.hasNext( ) && usedBytes > budgetBytes )
+        {
+            Map.Entry<Resource, Entry> mapEntry = iter.next( );
+            Entry entry = mapEntry.getValue( );
+
+            // entries are in least recently used order, so no later entry is idle either
+            if ( entry.lastUsedMillis > idleBefore ) break;
+            if ( mapEntry.getKey( ) == keep ) continue;
+
+            iter.remove( );
+            usedBytes -= entry.bytes;
+            evictedBytes += entry.bytes;
+            evictionCount++;
+            victims.put( mapEntry.getKey( ), entry );
+        }
+
+        if ( usedBytes > budgetBytes && !overBudgetWarned )
+        {
+            logWarning( logger, "GPU memory use (%.1f MB) exceeds budget (%.1f MB) but no idle resources remain to evict.", usedBytes / 1e6, budgetBytes / 1e6 );
+            overBudgetWarned = true;
+        }
+
+        return victims;
+    }
+
+    // called without holding the manager lock, since resources take their own locks to evict
+    protected void evict( Map<Resource, Entry> victims )
+    {
+        if ( victims.isEmpty( ) ) return;
+
+        GL gl = GLContext.getCurrent( ).getGL( );
+
+        for ( Map.Entry<Resource, Entry> victim : victims.entrySet( ) )
+        {
+            boolean evicted = false;
+            try
+            {
+                evicted = victim.getKey( ).evict( gl );
+            }
+            catch ( Exception e )
+            {
+                logWarning( logger, "Trouble evicting OpenGL resource.", e );
+            }
+
+            if ( !evicted ) restore( victim.getKey( ), victim.getValue( ) );
+        }
+    }
+
+    // puts back a resource which could not be evicted
+    protected synchronized void restore( Resource resource, Entry entry )
+    {
+        if ( entries.containsKey( resource ) ) return;
+
+        entries.put( resource, entry );
+        usedBytes += entry.bytes;
+        evictedBytes -= entry.bytes;
+        evictionCount--;
+    }
+}
@@ -30,9 +30,11 @@ import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
 
 import java.awt.Dimension;
 import java.awt.Rectangle;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
@@ -257,6 +259,28 @@ public class GLSimpleFrameBufferObject
         gl.glBindTexture( GL.GL_TEXTURE_2D, 0 );
     }
 
+    /**
+     * Begins an asynchronous read of the contents of this frame buffer. The provided
+     * GLContext must be current and {@link GLAsyncReadback#poll(GL)} must be called on
+     * subsequent frames for the read to complete.
+     *
+     * @see GLAsyncReadback#readPixels(GL, int, int, int, int, GLAsyncReadback.Listener)
+     */
+    public Future<ByteBuffer> readPixelsAsync( GLContext context, GLAsyncReadback readback, GLAsyncReadback.Listener listener )
+    {
+        GL gl = context.getGL( );
+
+        gl.glBindFramebufferEXT( GL.GL_FRAMEBUFFER_EXT, frameBufferId[0] );
+        try
+        {
+            return readback.readPixels( gl, 0, 0, width, height, listener );
+        }
+        finally
+        {
+            gl.glBindFramebufferEXT( GL.GL_FRAMEBUFFER_EXT, 0 );
+        }
+    }
+
     public void addListener( GLSimpleListener listener )
     {
         listeners.add( new GLSimpleFboListenerEntry( listener ) );
@@ -31,8 +31,10 @@ import static com.sun.opengl.util.Screenshot.readToBufferedImage;
 import java.awt.Dimension;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -122,6 +124,9 @@ public class GLSimplePixelBuffer
     private GLContext context;
     private List<ListenerEntry> listeners;
 
+    // created lazily by drawAsync()
+    private GLAsyncReadback readback;
+
     public GLSimplePixelBuffer( int width, int height, GLContext _context )
     {
         createPixelBuffer( width, height, _context );
@@ -156,6 +161,9 @@ public class GLSimplePixelBuffer
 
         if( currHeight != height || currWidth != width )
         {
+            // fences belong to the old context, so finish any reads before it goes away
+            disposeReadback();
+
             GLPbuffer oldBuffer = buffer;
             createPixelBuffer( width, height, context );
             oldBuffer.destroy();
@@ -183,6 +191,9 @@ public class GLSimplePixelBuffer
             @Override
             public Object run( GLContext context, Rectangle bounds, List<ListenerEntry> entries )
             {
+                if( readback != null )
+                    readback.poll( context.getGL() );
+
                 for( ListenerEntry l: entries )
                     l.draw( context, bounds );
 
@@ -192,6 +203,68 @@ public class GLSimplePixelBuffer
         });
     }
 
+    /**
+     * Draws the listeners and begins reading back the result without waiting for the GPU.
+     * The pixels are delivered during a later call to draw(), drawAsync() or flushReadback().
+     *
+     * @see GLAsyncReadback#toBufferedImage( ByteBuffer, int, int )
+     */
+    @SuppressWarnings( "unchecked" )
+    public Future<ByteBuffer> drawAsync( final GLAsyncReadback.Listener listener )
+    {
+        return (Future<ByteBuffer>) glSyncExec( new GLRunnable() {
+            @Override
+            public Object run( GLContext context, Rectangle bounds, List<ListenerEntry> entries )
+            {
+                GL gl = context.getGL();
+
+                if( readback == null )
+                    readback = new GLAsyncReadback();
+
+                readback.poll( gl );
+
+                for( ListenerEntry l: entries )
+                    l.draw( context, bounds );
+
+                return readback.readPixels( gl, 0, 0, bounds.width, bounds.height, listener );
+            }
+        });
+    }
+
+    /**
+     * Delivers all reads started by drawAsync(), waiting for the GPU if necessary.
+     */
+    public void flushReadback()
+    {
+        if( readback == null ) return;
+
+        glSyncExec( new GLRunnable() {
+            @Override
+            public Object run( GLContext context, Rectangle bounds, List<ListenerEntry> entries )
+            {
+                readback.flush( context.getGL() );
+                return null;
+            }
+        });
+    }
+
+    protected void disposeReadback()
+    {
+        if( readback == null ) return;
+
+        glSyncExec( new GLRunnable() {
+            @Override
+            public Object run( GLContext context, Rectangle bounds, List<ListenerEntry> entries )
+            {
+                readback.flush( context.getGL() );
+                readback.dispose( context.getGL() );
+                return null;
+            }
+        });
+
+        readback = null;
+    }
+
     public BufferedImage drawToBufferedImage()
     {
         return (BufferedImage) glSyncExec( new GLRunnable() {
@@ -229,6 +302,8 @@ public class GLSimplePixelBuffer
 
     public void dispose( )
     {
+        disposeReadback();
+
         glSyncExec( new GLRunnable() {
             @Override
             public Object run( GLContext context, Rectangle bounds, List<ListenerEntry> entries )
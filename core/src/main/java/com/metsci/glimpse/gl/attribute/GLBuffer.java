@@ -33,22 +33,73 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import javax.media.opengl.GL;
 
+import com.metsci.glimpse.gl.GLResourceManager;
 import com.sun.opengl.util.BufferUtil;
 
-public abstract class GLBuffer
+public abstract class GLBuffer implements GLResourceManager.Resource
 {
+    // beyond this many disjoint dirty ranges, upload their union instead
+    protected static final int MAX_DIRTY_RANGES = 16;
+
+    /**
+     * Hints how often the contents of a buffer change, which determines how
+     * updates are uploaded to OpenGL.
+     */
+    public static enum Usage
+    {
+        /**
+         * Rarely modified. Modified ranges are uploaded with glBufferSubData.
+         */
+        STATIC( GL.GL_STATIC_DRAW ),
+        /**
+         * Modified often, a few elements at a time. Modified ranges are uploaded with glBufferSubData.
+         */
+        DYNAMIC( GL.GL_DYNAMIC_DRAW ),
+        /**
+         * Modified (mostly rewritten) about once per frame. Every update orphans the previous
+         * data store and uploads the whole buffer into a new one, so the upload never waits
+         * for the GPU to finish drawing from the old contents.
+         */
+        STREAM( GL.GL_STREAM_DRAW );
+
+        private final int glUsage;
+
+        private Usage( int glUsage )
+        {
+            this.glUsage = glUsage;
+        }
+
+        public int getGlUsage( )
+        {
+            return glUsage;
+        }
+    }
+
     protected ReentrantLock lock = new ReentrantLock( );
 
     protected int elementSize; // 1, 2, 3, or 4
 
     protected int glHandle;
     protected boolean dirty;
+
+    protected Usage usage;
+
+    // size of the OpenGL data store, or -1 if none has been allocated
+    protected int glSizeBytes;
+
+    // modified byte ranges [start,end) waiting to be uploaded, stored as pairs
+    protected int[] dirtyRanges;
+    protected int dirtyRangeCount;
     
     protected ByteBuffer data;
     
     protected GLVertexAttribute boundType;
     protected int boundGenericIndex;
 
+    // tracks the GPU memory used by this buffer, set when it is first uploaded
+    protected GLResourceManager resourceManager;
+    protected Object resourceOwner = this;
+
     public GLBuffer( int length, int elementSize )
     {
         if ( elementSize > 4 || elementSize < 1 ) throw new IllegalArgumentException( "length must be 1, 2, 3, or 4" );
@@ -56,6 +107,11 @@ public abstract class GLBuffer
         this.glHandle = -1;
         this.dirty = true;
 
+        this.usage = Usage.STATIC;
+        this.glSizeBytes = -1;
+        this.dirtyRanges = new int[2 * MAX_DIRTY_RANGES];
+        this.dirtyRangeCount = 0;
+
         this.elementSize = elementSize;
         
         this.data = createBuffer( length, elementSize );
@@ -95,7 +151,7 @@ public abstract class GLBuffer
     
     public boolean isDirty( )
     {
-        return dirty;
+        return dirty || dirtyRangeCount > 0;
     }
 
     public void makeDirty( )
@@ -103,6 +159,102 @@ public abstract class GLBuffer
         dirty = true;
     }
 
+    /**
+     * Indicates that only the vertices from fromIndex (inclusive) to toIndex (exclusive)
+     * have changed, so only that part of the buffer needs to be uploaded again.
+     */
+    public void makeDirty( int fromIndex, int toIndex )
+    {
+        lock.lock( );
+        try
+        {
+            int bytesPerVertex = elementSize * getBytesPerElement( );
+            makeDirtyBytes( fromIndex * bytesPerVertex, toIndex * bytesPerVertex );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    protected void makeDirtyBytes( int start, int end )
+    {
+        if ( dirty || start >= end ) return;
+
+        // merge with any range which overlaps or touches the new one
+        for ( int i = 0; i < dirtyRangeCount; )
+        {
+            int rangeStart = dirtyRanges[2 * i];
+            int rangeEnd = dirtyRanges[2 * i + 1];
+
+            if ( rangeStart <= end && start <= rangeEnd )
+            {
+                start = Math.min( start, rangeStart );
+                end = Math.max( end, rangeEnd );
+
+                // remove the old range by moving the last range into its slot
+                dirtyRangeCount--;
+                dirtyRanges[2 * i] = dirtyRanges[2 * dirtyRangeCount];
+                dirtyRanges[2 * i + 1] = dirtyRanges[2 * dirtyRangeCount + 1];
+            }
+            else
+            {
+                i++;
+            }
+        }
+
+        if ( dirtyRangeCount == MAX_DIRTY_RANGES )
+        {
+            for ( int i = 0; i < dirtyRangeCount; i++ )
+            {
+                start = Math.min( start, dirtyRanges[2 * i] );
+                end = Math.max( end, dirtyRanges[2 * i + 1] );
+            }
+
+            dirtyRangeCount = 0;
+        }
+
+        dirtyRanges[2 * dirtyRangeCount] = start;
+        dirtyRanges[2 * dirtyRangeCount + 1] = end;
+        dirtyRangeCount++;
+    }
+
+    public Usage getUsage( )
+    {
+        return usage;
+    }
+
+    /**
+     * Sets the usage hint for this buffer, which is {@link Usage#STATIC} by default.
+     */
+    public void setUsage( Usage usage )
+    {
+        lock.lock( );
+        try
+        {
+            if ( this.usage == usage ) return;
+
+            this.usage = usage;
+
+            // the data store must be reallocated with the new hint
+            makeDirty( );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    /**
+     * Sets the object reported as responsible for this buffer's GPU memory.
+     *
+     * @see GLResourceManager#getBytesByOwner()
+     */
+    public void setResourceOwner( Object owner )
+    {
+        this.resourceOwner = owner;
+    }
+
     public int getNumVertices( )
     {
         return data.limit( ) / elementSize / getBytesPerElement( );
@@ -179,10 +331,35 @@ public abstract class GLBuffer
 
             gl.glBindBuffer( GL.GL_ARRAY_BUFFER, glHandle );
 
-            if ( isDirty( ) )
+            int size = data.limit( );
+
+            if ( dirty || ( isDirty( ) && usage == Usage.STREAM ) || size != glSizeBytes )
             {
-                gl.glBufferData( GL.GL_ARRAY_BUFFER, data.limit( ), data.rewind( ), GL.GL_STATIC_DRAW );
+                // (re)allocate the whole data store, orphaning the old one
+                gl.glBufferData( GL.GL_ARRAY_BUFFER, size, data.rewind( ), usage.getGlUsage( ) );
+                glSizeBytes = size;
                 dirty = false;
+                dirtyRangeCount = 0;
+
+                if ( resourceManager == null ) resourceManager = GLResourceManager.getCurrent( );
+                if ( resourceManager != null ) resourceManager.allocated( this, resourceOwner, size );
+            }
+            else
+            {
+                for ( int i = 0; i < dirtyRangeCount; i++ )
+                {
+                    int start = dirtyRanges[2 * i];
+                    int end = Math.min( dirtyRanges[2 * i + 1], size );
+                    if ( start >= end ) continue;
+
+                    data.limit( end ).position( start );
+                    gl.glBufferSubData( GL.GL_ARRAY_BUFFER, start, end - start, data );
+                }
+
+                data.limit( size ).rewind( );
+                dirtyRangeCount = 0;
+
+                if ( resourceManager != null ) resourceManager.used( this );
             }
 
             return !isDirty( );
@@ -202,7 +379,10 @@ public abstract class GLBuffer
             {
                 gl.glDeleteBuffers( 1, new int[] { glHandle }, 0 );
                 glHandle = -1;
+                glSizeBytes = -1;
             }
+
+            if ( resourceManager != null ) resourceManager.released( this );
         }
         finally
         {
@@ -213,6 +393,30 @@ public abstract class GLBuffer
         return true;
     }
 
+    @Override
+    public boolean evict( GL gl )
+    {
+        // don't wait for (or deadlock with) a thread which is using the buffer
+        if ( lock == null || lock.isHeldByCurrentThread( ) || !lock.tryLock( ) ) return false;
+        try
+        {
+            if ( glHandle != -1 )
+            {
+                gl.glDeleteBuffers( 1, new int[] { glHandle }, 0 );
+                glHandle = -1;
+                glSizeBytes = -1;
+            }
+
+            // prepare( ) will upload the data again
+            makeDirty( );
+            return true;
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
     public void mutate( Mutator mutator )
     {
         lock.lock( );
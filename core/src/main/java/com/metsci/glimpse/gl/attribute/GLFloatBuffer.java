@@ -26,6 +26,7 @@
  */
 package com.metsci.glimpse.gl.attribute;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 
 import javax.media.opengl.GL;
@@ -76,6 +77,54 @@ public class GLFloatBuffer extends GLBuffer
         }
     }
 
+    /**
+     * Like {@link #mutate(Mutator)}, but the mutator must only modify the vertices
+     * from fromIndex (inclusive) to toIndex (exclusive). Only those vertices are
+     * uploaded to OpenGL again.
+     */
+    public void mutate( Mutator mutator, int fromIndex, int toIndex )
+    {
+        lock.lock( );
+        try
+        {
+            data.clear( );
+            FloatBuffer floatData = data.asFloatBuffer( );
+
+            mutator.mutate( floatData, elementSize );
+
+            data.position( 0 );
+            data.limit( floatData.limit( ) * getBytesPerElement( ) );
+
+            makeDirty( fromIndex, toIndex );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    /**
+     * Passes a read only view of the buffer contents, up to the current limit, to the
+     * provided mutator under the buffer lock. Unlike {@link #mutate(Mutator)}, this does
+     * not change the limit or mark the buffer dirty.
+     */
+    public void read( Mutator reader )
+    {
+        lock.lock( );
+        try
+        {
+            ByteBuffer view = data.duplicate( );
+            view.order( data.order( ) );
+            view.rewind( );
+
+            reader.mutate( view.asFloatBuffer( ).asReadOnlyBuffer( ), elementSize );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
     public static interface Mutator
     {
         public void mutate( FloatBuffer data, int length );
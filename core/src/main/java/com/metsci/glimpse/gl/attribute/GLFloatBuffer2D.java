@@ -241,7 +241,8 @@ public class GLFloatBuffer2D extends GLFloatBuffer
             data.position( 0 );
             data.limit( floatData.limit( ) * getBytesPerElement( ) );
             
-            makeDirty();
+            // only the update index and beyond have changed
+            makeDirty( mutator.getUpdateIndex( ), getNumVertices( ) );
         }
         finally
         {
@@ -274,6 +275,46 @@ public class GLFloatBuffer2D extends GLFloatBuffer
         }
     }
 
+    /**
+     * Like {@link #mutate(Mutator)}, but the mutator must only modify the vertices
+     * from fromIndex (inclusive) to toIndex (exclusive). Only those vertices are
+     * updated in the spatial index and uploaded to OpenGL again.
+     */
+    @Override
+    public void mutate( Mutator mutator, int fromIndex, int toIndex )
+    {
+        lock.lock();
+        try
+        {
+            // remove the old positions before the mutator overwrites them
+            if ( xyIndex != null )
+            {
+                for ( int i = fromIndex; i < toIndex && i < getNumVertices( ); i++ )
+                {
+                    xyIndex.remove( i );
+                }
+            }
+
+            super.mutate( mutator, fromIndex, toIndex );
+
+            if ( xyIndex == null )
+            {
+                createIndex();
+            }
+            else
+            {
+                for ( int i = fromIndex; i < toIndex && i < getNumVertices( ); i++ )
+                {
+                    xyIndex.add( i );
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
     public static interface IndexedMutator extends Mutator
     {
         /**
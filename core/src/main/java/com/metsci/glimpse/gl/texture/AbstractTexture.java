@@ -33,6 +33,8 @@ import java.util.concurrent.locks.ReentrantLock;
 import javax.media.opengl.GL;
 import javax.media.opengl.GLContext;
 
+import com.metsci.glimpse.gl.GLResourceManager;
+
 /**
  * An abstract {@link Texture} implementation which wraps an OpenGL
  * integer texture handle but makes no assumptions about the
@@ -40,7 +42,7 @@ import javax.media.opengl.GLContext;
  *
  * @author osborn
  */
-public abstract class AbstractTexture implements Texture
+public abstract class AbstractTexture implements Texture, GLResourceManager.Resource
 {
     protected ReentrantLock lock = new ReentrantLock();
 
@@ -51,6 +53,9 @@ public abstract class AbstractTexture implements Texture
 
     protected int[] dim;
 
+    // tracks the GPU memory used by this texture, set when it is first uploaded
+    protected GLResourceManager resourceManager;
+    protected Object resourceOwner = this;
 
     public AbstractTexture( int n0 )
     {
@@ -83,6 +88,16 @@ public abstract class AbstractTexture implements Texture
         return dirty;
     }
 
+    /**
+     * Sets the object reported as responsible for this texture's GPU memory.
+     *
+     * @see GLResourceManager#getBytesByOwner()
+     */
+    public void setResourceOwner( Object owner )
+    {
+        this.resourceOwner = owner;
+    }
+
     public int getNumDimension( )
     {
         return dim.length;
@@ -134,6 +149,13 @@ public abstract class AbstractTexture implements Texture
                 prepare_setTexParameters( gl );
                 prepare_setData( gl );
                 dirty = false;
+
+                if( resourceManager == null ) resourceManager = GLResourceManager.getCurrent( );
+                if( resourceManager != null ) resourceManager.allocated( this, resourceOwner, getSizeBytes( ) );
+            }
+            else if( resourceManager != null )
+            {
+                resourceManager.used( this );
             }
 
             return !isDirty();
@@ -161,6 +183,41 @@ public abstract class AbstractTexture implements Texture
         {
             context.getGL( ).glDeleteTextures( 1, new int[] { glHandle }, 0 );
         }
+
+        if( resourceManager != null ) resourceManager.released( this );
+    }
+
+    public boolean evict( GL gl )
+    {
+        // don't wait for (or deadlock with) a thread which is using the texture
+        if( !lock.tryLock() ) return false;
+        try
+        {
+            if( glAllocated )
+            {
+                gl.glDeleteTextures( 1, new int[] { glHandle }, 0 );
+                glAllocated = false;
+            }
+
+            // prepare( ) will allocate and upload the data again
+            makeDirty();
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return an estimate of the GPU memory used by this texture, assuming
+     *         four bytes per texel; subclasses with other formats should override
+     */
+    protected long getSizeBytes( )
+    {
+        long size = 4;
+        for( int n : dim ) size *= n;
+        return size;
     }
 
     protected abstract void prepare_setTexParameters( GL gl );
@@ -115,6 +115,9 @@ public abstract class GlimpseAxisLayout1D extends GlimpseLayout
     {
         this.cache.clear( );
 
+        // our axis must be sized again by preLayout( )
+        this.invalidateLayout( );
+
         // descend recursively clearing caches
         // stop if a child has its' axis explicitly set
         // (because it is not using its' parent's axes)
@@ -142,11 +145,13 @@ public abstract class GlimpseAxisLayout1D extends GlimpseLayout
     public void setAxis( GlimpseTargetStack stack, Axis1D axis )
     {
         cache.setValue( stack, axis );
+        invalidateLayout( );
     }
 
     public void setAxis( GlimpseContext context, Axis1D axis )
     {
         cache.setValue( context, axis );
+        invalidateLayout( );
     }
 
     public AxisFactory1D getAxisFactory( )
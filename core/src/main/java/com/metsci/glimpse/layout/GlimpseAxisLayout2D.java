@@ -114,6 +114,9 @@ public class GlimpseAxisLayout2D extends GlimpseLayout
     {
         this.cache.clear( );
 
+        // our axis must be sized again by preLayout( )
+        this.invalidateLayout( );
+
         // descend recursively clearing caches
         // stop if a child has its' axis explicitly set
         // (because it is not using its' parent's axes
@@ -149,11 +152,13 @@ public class GlimpseAxisLayout2D extends GlimpseLayout
     public void setAxis( GlimpseTargetStack stack, Axis2D axis )
     {
         cache.setValue( stack, axis );
+        invalidateLayout( );
     }
 
     public void setAxis( GlimpseContext context, Axis2D axis )
     {
         cache.setValue( context, axis );
+        invalidateLayout( );
     }
 
     public AxisFactory2D getAxisFactory( )
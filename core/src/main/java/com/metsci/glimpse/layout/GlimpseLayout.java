@@ -26,11 +26,14 @@
  */
 package com.metsci.glimpse.layout;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import com.metsci.glimpse.canvas.LayoutManager;
@@ -69,6 +72,12 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
 {
     protected String name = "";
 
+    // incremented whenever this GlimpseLayout or one of its descendants is laid
+    // out or has its children changed, allows structures derived from the layout
+    // hierarchy (such as the mouse event hit test index) to tell when they must
+    // be rebuilt without being affected by layouts on other canvases
+    protected final AtomicLong layoutGeneration = new AtomicLong( );
+
     // stores true when child GlimpseLayouts have been laid out
     // for a given GlimpseLayoutStack. A null or false value
     // indicates that the children must be laid out again
@@ -86,6 +95,12 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
     // helper class which handles ordering of GlimpseLayouts
     protected LayoutManager manager;
 
+    // GlimpseLayouts which this GlimpseLayout has been added to, these lay us out,
+    // must be invalidated when our layout data changes and share our layout
+    // generation changes (modified without
+    // holding our lock, so that we never lock a parent while holding our own lock)
+    protected Set<GlimpseLayout> parents;
+
     // lock controlling access to mutable state of this GlimpseLayout
     protected ReentrantLock lock = new ReentrantLock( );
 
@@ -105,6 +120,10 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
     protected boolean isEventConsumer = true;
     protected boolean isVisible = true;
 
+    // time taken by the most recent call to layoutTo( ), including
+    // laying out any child GlimpseLayouts which needed it
+    protected volatile long lastLayoutTimeNanos;
+
     public GlimpseLayout( GlimpseLayout parent, String name )
     {
         this.layoutClean = new GlimpseLayoutCache<Boolean>( );
@@ -113,6 +132,8 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
 
         this.manager = new LayoutManager( );
 
+        this.parents = new CopyOnWriteArraySet<GlimpseLayout>( );
+
         this.lock = new ReentrantLock( );
 
         this.mouseListeners = new HashSet<GlimpseMouseListener>( );
@@ -191,6 +212,11 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
         }
     }
 
+    /**
+     * Sets the constraints used by the parent GlimpseLayouts of this GlimpseLayout
+     * to position it. The parents are invalidated so that the new constraints take
+     * effect the next time they are painted.
+     */
     public void setLayoutData( Object layoutData )
     {
         lock.lock( );
@@ -203,6 +229,18 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
         {
             lock.unlock( );
         }
+
+        invalidateParentLayouts( );
+    }
+
+    // our parents lay us out according to our layout data, so they must
+    // lay out their children again (called without holding our lock)
+    protected void invalidateParentLayouts( )
+    {
+        for ( GlimpseLayout parent : parents )
+        {
+            parent.invalidateLayout( );
+        }
     }
 
     @Override
@@ -213,6 +251,7 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
         {
             manager.removeLayout( layout );
             layoutDelegate.removeLayout( layout );
+            layout.parents.remove( this );
             invalidateLayout( );
         }
         finally
@@ -226,6 +265,11 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
         lock.lock( );
         try
         {
+            for ( GlimpseLayout layout : new ArrayList<GlimpseLayout>( manager.getLayoutList( ) ) )
+            {
+                layout.parents.remove( this );
+            }
+
             manager.removeAllLayouts( );
             layoutDelegate.removeAll( );
             invalidateLayout( );
@@ -247,6 +291,9 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
         {
             manager.setZOrder( layout, zOrder );
             layoutDelegate.setZOrder( layout, zOrder );
+
+            // the order of our children can affect where the layout manager places them
+            invalidateLayout( );
         }
         finally
         {
@@ -313,6 +360,7 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
         {
             manager.addLayout( layout, zOrder );
             layoutDelegate.addLayout( layout, callback, zOrder );
+            layout.parents.add( this );
             invalidateLayout( );
         }
         finally
@@ -376,13 +424,41 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
         }
     }
 
+    /**
+     * @return a counter which changes whenever the bounds or children of this GlimpseLayout
+     *         or any of its descendants change
+     */
+    public long getLayoutGeneration( )
+    {
+        return layoutGeneration.get( );
+    }
+
+    // also increments the generation of every ancestor, up to the layouts
+    // attached directly to a canvas (called without holding parent locks)
+    protected void incrementLayoutGeneration( )
+    {
+        layoutGeneration.incrementAndGet( );
+
+        for ( GlimpseLayout parent : parents )
+        {
+            parent.incrementLayoutGeneration( );
+        }
+    }
+
+    /**
+     * Indicates that the children of this GlimpseLayout must be laid out again
+     * the next time it is painted. Child GlimpseLayouts are only laid out again
+     * if their bounds change as a result (or if they are invalidated themselves).
+     * Adding, removing or reordering children and calling {@link #setLayoutData(Object)}
+     * on a child invalidate this GlimpseLayout automatically.
+     */
     public void invalidateLayout( )
     {
         lock.lock( );
         try
         {
             layoutClean.clear( );
-            layoutDelegate.invalidateLayout( );
+            incrementLayoutGeneration( );
         }
         finally
         {
@@ -390,8 +466,20 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
         }
     }
 
+    /**
+     * @return the time taken by the most recent call to {@link #layoutTo(GlimpseTargetStack)},
+     *         including any child GlimpseLayouts which were laid out. For a GlimpseLayout added
+     *         directly to a GlimpseCanvas this is the layout time for the last frame.
+     */
+    public long getLastLayoutTimeNanos( )
+    {
+        return lastLayoutTimeNanos;
+    }
+
     public GlimpseBounds layoutTo( GlimpseTargetStack stack )
     {
+        long startTime = System.nanoTime( );
+
         lock.lock( );
         try
         {
@@ -405,6 +493,7 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
             {
                 bounds = stack.getBounds( );
                 layoutCache.setValue( stack, bounds );
+                incrementLayoutGeneration( );
             }
 
             // now that we know our size, if we are marked as dirty,
@@ -413,11 +502,41 @@ public class GlimpseLayout implements GlimpsePainter, GlimpseTarget, Mouseable
             {
                 layoutDelegate.layoutTo( stack, bounds );
                 setDirty( stack, false );
+                incrementLayoutGeneration( );
             }
 
             return bounds;
         }
         finally
+        {
+            lock.unlock( );
+
+            lastLayoutTimeNanos = System.nanoTime( ) - startTime;
+        }
+    }
+
+    // called by our parent's GlimpseLayoutDelegate after it has positioned us
+    // (the top of the GlimpseTargetStack is our parent), our children are only
+    // laid out again if our bounds changed or we have been invalidated
+    protected void layoutTo( GlimpseTargetStack stack, GlimpseBounds bounds )
+    {
+        lock.lock( );
+        try
+        {
+            boolean boundsChanged = !bounds.equals( layoutCache.getValue( stack ) );
+
+            if ( boundsChanged )
+            {
+                cacheBounds( stack, bounds );
+            }
+
+            if ( boundsChanged || isDirty( stack ) )
+            {
+                layoutDelegate.layoutTo( stack, bounds );
+                setDirty( stack, false );
+            }
+        }
+        finally
         {
             lock.unlock( );
         }
@@ -26,8 +26,7 @@
  */
 package com.metsci.glimpse.layout;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -37,24 +36,27 @@ import com.metsci.glimpse.context.GlimpseBounds;
 import com.metsci.glimpse.context.GlimpseContext;
 import com.metsci.glimpse.context.GlimpseTarget;
 import com.metsci.glimpse.context.GlimpseTargetStack;
-import com.metsci.glimpse.util.Pair;
 
 /**
  * Stores the bounds of a GlimpseLayout keyed off of the sequence of nested
  * parent GlimpseLayouts leading back to the GlimpseCanvas. If a given GlimpseLayout
  * is rendered to the same sequence of parent GlimpseLayouts and none of the parent
  * GlimpseLayouts have changed shape, then the layout algorithm does not need to be
- * run, the cached LayoutBounds can be used.
+ * run, the cached LayoutBounds can be used.</p>
+ *
+ * The sequence of parent GlimpseLayouts is copied into an array whose hash code is
+ * computed once, and the parent bounds are stored as a flat array of ints, so cache
+ * lookups do not copy or iterate over the target stack more than once.
  *
  * @author ulman
  */
 public class GlimpseLayoutCache<D>
 {
-    protected Map<List<GlimpseTarget>, Pair<List<GlimpseBounds>, D>> map;
+    protected Map<Key, Entry<D>> map;
 
     public GlimpseLayoutCache( )
     {
-        this.map = new HashMap<List<GlimpseTarget>, Pair<List<GlimpseBounds>, D>>( );
+        this.map = new HashMap<Key, Entry<D>>( );
     }
 
     public D getValue( GlimpseContext context )
@@ -64,17 +66,11 @@ public class GlimpseLayoutCache<D>
 
     public D getValue( GlimpseTargetStack layoutStack )
     {
-        Pair<List<GlimpseBounds>, D> entry = map.get( layoutStack.getTargetList( ) );
+        Entry<D> entry = map.get( new Key( layoutStack ) );
 
-        if ( entry != null )
+        if ( entry != null && entry.matchesBounds( layoutStack ) )
         {
-            List<GlimpseBounds> cachedBounds = entry.first( );
-            List<GlimpseBounds> contextBounds = layoutStack.getBoundsList( );
-
-            if ( compareBounds( cachedBounds, contextBounds ) )
-            {
-                return entry.second( );
-            }
+            return entry.value;
         }
 
         return null;
@@ -87,11 +83,11 @@ public class GlimpseLayoutCache<D>
 
     public D getValueNoBoundsCheck( GlimpseTargetStack layoutStack )
     {
-        Pair<List<GlimpseBounds>, D> entry = map.get( layoutStack.getTargetList( ) );
+        Entry<D> entry = map.get( new Key( layoutStack ) );
 
         if ( entry != null )
         {
-            return entry.second( );
+            return entry.value;
         }
         else
         {
@@ -101,10 +97,7 @@ public class GlimpseLayoutCache<D>
 
     public void setValue( GlimpseTargetStack stack, D value )
     {
-        List<GlimpseTarget> targetList = Collections.unmodifiableList( new ArrayList<GlimpseTarget>( stack.getTargetList( ) ) );
-        List<GlimpseBounds> boundsList = Collections.unmodifiableList( new ArrayList<GlimpseBounds>( stack.getBoundsList( ) ) );
-
-        map.put( targetList, new Pair<List<GlimpseBounds>, D>( boundsList, value ) );
+        map.put( new Key( stack ), new Entry<D>( stack, value ) );
     }
 
     public void setValue( GlimpseContext context, D value )
@@ -139,4 +132,81 @@ public class GlimpseLayoutCache<D>
 
         return true;
     }
+
+    /*
+     * An immutable snapshot of the GlimpseTargets in a GlimpseTargetStack
+     * with a precomputed hash code.
+     */
+    protected static class Key
+    {
+        protected final GlimpseTarget[] targets;
+        protected final int hash;
+
+        public Key( GlimpseTargetStack stack )
+        {
+            List<GlimpseTarget> targetList = stack.getTargetList( );
+            this.targets = targetList.toArray( new GlimpseTarget[targetList.size( )] );
+            this.hash = Arrays.hashCode( this.targets );
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj ) return true;
+            if ( obj == null ) return false;
+            if ( getClass( ) != obj.getClass( ) ) return false;
+            Key other = ( Key ) obj;
+            return hash == other.hash && Arrays.equals( targets, other.targets );
+        }
+    }
+
+    /*
+     * A cached value along with the bounds of the GlimpseTargetStack
+     * it was stored for, flattened as ( x, y, width, height ) per target.
+     */
+    protected static class Entry<D>
+    {
+        protected final int[] bounds;
+        protected final D value;
+
+        public Entry( GlimpseTargetStack stack, D value )
+        {
+            List<GlimpseBounds> boundsList = stack.getBoundsList( );
+
+            this.bounds = new int[boundsList.size( ) * 4];
+            this.value = value;
+
+            int i = 0;
+            for ( GlimpseBounds b : boundsList )
+            {
+                this.bounds[i++] = b.getX( );
+                this.bounds[i++] = b.getY( );
+                this.bounds[i++] = b.getWidth( );
+                this.bounds[i++] = b.getHeight( );
+            }
+        }
+
+        public boolean matchesBounds( GlimpseTargetStack stack )
+        {
+            List<GlimpseBounds> boundsList = stack.getBoundsList( );
+            if ( boundsList.size( ) * 4 != bounds.length ) return false;
+
+            int i = 0;
+            for ( GlimpseBounds b : boundsList )
+            {
+                if ( bounds[i++] != b.getX( ) ) return false;
+                if ( bounds[i++] != b.getY( ) ) return false;
+                if ( bounds[i++] != b.getWidth( ) ) return false;
+                if ( bounds[i++] != b.getHeight( ) ) return false;
+            }
+
+            return true;
+        }
+    }
 }
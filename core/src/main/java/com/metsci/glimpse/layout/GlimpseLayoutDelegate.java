@@ -211,14 +211,13 @@ public class GlimpseLayoutDelegate implements ComponentWrapper, ContainerWrapper
         this.layoutManager.layout( this );
 
         // retrieve the bounds set by the previous call and store them in the
-        // GlimpseLayout cache for the current context
+        // GlimpseLayout cache for the current context, children whose bounds
+        // did not change (and which are not invalid) are not laid out again
         for ( GlimpseLayoutDelegate child : this.layoutChildren )
         {
             GlimpseBounds childBounds = child.getBounds( );
 
-            child.cacheBounds( stack, childBounds );
-
-            child.layoutTo( stack, childBounds );
+            child.layout.layoutTo( stack, childBounds );
         }
 
         // pop ourself off the stack
@@ -233,6 +232,11 @@ public class GlimpseLayoutDelegate implements ComponentWrapper, ContainerWrapper
         }
     }
 
+    /**
+     * Invalidates the layout of every child GlimpseLayout. This is not necessary
+     * when only the layout of this GlimpseLayout has changed, since children whose
+     * bounds change are laid out again automatically.
+     */
     public void invalidateLayout( )
     {
         for ( GlimpseLayoutDelegate child : layoutChildren )
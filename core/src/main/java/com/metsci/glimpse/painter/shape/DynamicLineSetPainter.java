@@ -37,6 +37,7 @@ import javax.media.opengl.GL;
 
 import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.context.GlimpseBounds;
+import com.metsci.glimpse.gl.attribute.GLBuffer.Usage;
 import com.metsci.glimpse.gl.attribute.GLFloatBuffer;
 import com.metsci.glimpse.gl.attribute.GLFloatBuffer.Mutator;
 import com.metsci.glimpse.gl.attribute.GLFloatBuffer2D;
@@ -102,6 +103,10 @@ public class DynamicLineSetPainter extends GlimpseDataPainter2D
         this.pointBuffer = new GLFloatBuffer2D( initialSize * 2, false );
         this.colorBuffer = new GLFloatBuffer( initialSize * 2, 4 );
 
+        // lines are updated a few at a time, so upload only the modified ranges
+        this.pointBuffer.setUsage( Usage.DYNAMIC );
+        this.colorBuffer.setUsage( Usage.DYNAMIC );
+
         this.searchResults = new IntsArray( );
     }
     
@@ -272,19 +277,13 @@ public class DynamicLineSetPainter extends GlimpseDataPainter2D
                     data.put( color.length == 4 ? color[3] : 1.0f );
                 }
             }
-        } );
+        }, index * 2, index * 2 + 2 );
     }
 
     protected void mutatePosition( final int index, final float posX1, final float posY1, final float posX2, final float posY2 )
     {
-        this.pointBuffer.mutateIndexed( new IndexedMutator( )
+        this.pointBuffer.mutate( new Mutator( )
         {
-            @Override
-            public int getUpdateIndex( )
-            {
-                return index;
-            }
-
             @Override
             public void mutate( FloatBuffer data, int length )
             {
@@ -294,7 +293,7 @@ public class DynamicLineSetPainter extends GlimpseDataPainter2D
                 data.put( posX2 );
                 data.put( posY2 );
             }
-        } );
+        }, index * 2, index * 2 + 2 );
     }
 
     protected int getIndexArray( List<Object> ids, int[] listIndex )
@@ -356,7 +355,7 @@ public class DynamicLineSetPainter extends GlimpseDataPainter2D
                     }
                 }
             }
-        } );
+        }, minIndex * 2, idMap.size( ) * 2 );
     }
 
     protected void mutateColors( BulkColorAccumulator accumulator )
@@ -367,7 +366,7 @@ public class DynamicLineSetPainter extends GlimpseDataPainter2D
         final int size = accumulator.getSize( );
 
         final int[] indexList = new int[size];
-        getIndexArray( ids, indexList );
+        final int minIndex = getIndexArray( ids, indexList );
 
         this.colorBuffer.mutate( new Mutator( )
         {
@@ -384,7 +383,7 @@ public class DynamicLineSetPainter extends GlimpseDataPainter2D
                     }
                 }
             }
-        } );
+        }, minIndex * 2, idMap.size( ) * 2 );
     }
 
     protected int getIndex( Object id, boolean grow )
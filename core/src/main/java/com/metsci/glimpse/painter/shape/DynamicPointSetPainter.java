@@ -39,6 +39,7 @@ import javax.media.opengl.GL;
 
 import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.context.GlimpseBounds;
+import com.metsci.glimpse.gl.attribute.GLBuffer.Usage;
 import com.metsci.glimpse.gl.attribute.GLFloatBuffer;
 import com.metsci.glimpse.gl.attribute.GLFloatBuffer.Mutator;
 import com.metsci.glimpse.gl.attribute.GLFloatBuffer2D;
@@ -99,6 +100,10 @@ public class DynamicPointSetPainter extends GlimpseDataPainter2D
         this.pointBuffer = new GLFloatBuffer2D( initialSize, true );
         this.colorBuffer = new GLFloatBuffer( initialSize, 4 );
 
+        // points are updated a few at a time, so upload only the modified ranges
+        this.pointBuffer.setUsage( Usage.DYNAMIC );
+        this.colorBuffer.setUsage( Usage.DYNAMIC );
+
         this.searchResults = new IntsArray( );
     }
 
@@ -258,19 +263,13 @@ public class DynamicPointSetPainter extends GlimpseDataPainter2D
                 data.put( color[2] );
                 data.put( color.length == 4 ? color[3] : 1.0f );
             }
-        } );
+        }, index, index + 1 );
     }
 
     protected void mutatePosition( final int index, final float posX, final float posY )
     {
-        this.pointBuffer.mutateIndexed( new IndexedMutator( )
+        this.pointBuffer.mutate( new Mutator( )
         {
-            @Override
-            public int getUpdateIndex( )
-            {
-                return index;
-            }
-
             @Override
             public void mutate( FloatBuffer data, int length )
             {
@@ -278,7 +277,7 @@ public class DynamicPointSetPainter extends GlimpseDataPainter2D
                 data.put( posX );
                 data.put( posY );
             }
-        } );
+        }, index, index + 1 );
     }
     
     protected int getIndexArray( List<Object> ids, boolean grow, int[] listIndex )
@@ -336,7 +335,7 @@ public class DynamicPointSetPainter extends GlimpseDataPainter2D
                     data.put( v, i*stride+2, length );
                 }
             }
-        } );
+        }, minIndex, idMap.size( ) );
     }
     
     protected void mutateColors( BulkColorAccumulator accumulator )
@@ -347,7 +346,7 @@ public class DynamicPointSetPainter extends GlimpseDataPainter2D
         final int size = accumulator.getSize();
         
         final int[] indexList = new int[size];
-        getIndexArray( ids, false, indexList );
+        final int minIndex = getIndexArray( ids, false, indexList );
         
         this.colorBuffer.mutate( new Mutator( )
         {
@@ -360,7 +359,7 @@ public class DynamicPointSetPainter extends GlimpseDataPainter2D
                     data.put( v, i*stride, length );
                 }
             }
-        } );
+        }, minIndex, idMap.size( ) );
     }
 
     protected int getIndex( Object id, boolean grow )
@@ -53,6 +53,7 @@ import javax.media.opengl.GLContext;
 import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.context.GlimpseBounds;
 import com.metsci.glimpse.context.GlimpseContext;
+import com.metsci.glimpse.gl.GLResourceManager;
 import com.metsci.glimpse.painter.base.GlimpsePainter2D;
 import com.metsci.glimpse.support.polygon.Polygon;
 import com.metsci.glimpse.support.polygon.Polygon.Interior;
@@ -201,6 +202,8 @@ public class PolygonPainter extends GlimpsePainter2D
     protected Set<Group> updatedGroups;
     // mapping from id to LoadedGroup (GPU-side group information)
     protected Map<Integer, LoadedGroup> loadedGroups;
+    // tracks the GPU memory used by the group buffers, set when the first is uploaded
+    protected GLResourceManager resourceManager;
 
     protected ReentrantLock updateLock;
 
@@ -882,6 +885,9 @@ public class PolygonPainter extends GlimpsePainter2D
                 loaded.glLineBufferHandle = handle;
                 loaded.glLineBufferMaxSize = maxSize;
             }
+
+            if ( resourceManager == null ) resourceManager = GLResourceManager.getCurrent( );
+            if ( resourceManager != null ) resourceManager.allocated( loaded, this, loaded.getSizeBytes( ) );
         }
         else
         {
@@ -922,6 +928,8 @@ public class PolygonPainter extends GlimpsePainter2D
     {
         if ( !isGroupReady( loaded ) ) return;
 
+        if ( resourceManager != null ) resourceManager.used( loaded );
+
         if ( loaded.fillOn )
         {
             gl.glColor4fv( loaded.fillColor, 0 );
@@ -1310,8 +1318,11 @@ public class PolygonPainter extends GlimpsePainter2D
      *
      * @author ulman
      */
-    private static class LoadedGroup
+    private class LoadedGroup implements GLResourceManager.Resource
     {
+        // the id of the Group this LoadedGroup was loaded from
+        int groupId;
+
         //// group display attributes ////
         float[] lineColor = new float[4];
         float lineWidth;
@@ -1360,6 +1371,7 @@ public class PolygonPainter extends GlimpsePainter2D
 
         public LoadedGroup( Group group )
         {
+            this.groupId = group.groupId;
             this.loadSettings( group );
         }
 
@@ -1533,6 +1545,49 @@ public class PolygonPainter extends GlimpsePainter2D
                 if ( glLineBufferHandle > 0 ) gl.glDeleteBuffers( 1, new int[] { glLineBufferHandle }, 0 );
                 if ( glFillBufferHandle > 0 ) gl.glDeleteBuffers( 1, new int[] { glFillBufferHandle }, 0 );
             }
+
+            if ( resourceManager != null ) resourceManager.released( this );
+        }
+
+        public long getSizeBytes( )
+        {
+            long size = 0;
+            if ( glFillBufferInitialized ) size += glFillBufferMaxSize;
+            if ( glLineBufferInitialized ) size += glLineBufferMaxSize;
+            return size * 3 * BYTES_PER_FLOAT;
+        }
+
+        // called by the GLResourceManager on the opengl display thread, the device
+        // buffers are deleted and all the group's polygons are copied into new ones
+        // the next time the painter is drawn
+        @Override
+        public boolean evict( GL gl )
+        {
+            // don't wait for a thread which is updating groups, or evict while
+            // this painter is itself uploading (and iterating over) its groups
+            if ( updateLock.isHeldByCurrentThread( ) || !updateLock.tryLock( ) ) return false;
+            try
+            {
+                if ( glFillBufferInitialized && glFillBufferHandle > 0 ) gl.glDeleteBuffers( 1, new int[] { glFillBufferHandle }, 0 );
+                if ( glLineBufferInitialized && glLineBufferHandle > 0 ) gl.glDeleteBuffers( 1, new int[] { glLineBufferHandle }, 0 );
+
+                glFillBufferInitialized = false;
+                glLineBufferInitialized = false;
+
+                Group group = groups.get( groupId );
+                if ( group != null )
+                {
+                    group.reloadAll( );
+                    updatedGroups.add( group );
+                    newData = true;
+                }
+
+                return true;
+            }
+            finally
+            {
+                updateLock.unlock( );
+            }
         }
     }
 
@@ -1801,6 +1856,12 @@ public class PolygonPainter extends GlimpsePainter2D
             this.lineStipplePattern = stipplePattern;
         }
 
+        // marks all polygons as new, so that the whole group is copied to the device
+        public void reloadAll( )
+        {
+            this.polygonsInserted = true;
+        }
+
         public void reset( )
         {
             this.newSelectedPolygons.clear( );
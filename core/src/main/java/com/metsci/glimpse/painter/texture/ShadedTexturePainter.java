@@ -214,7 +214,7 @@ public class ShadedTexturePainter extends GlimpsePainter2D
         textureUnit.texture.prepare( gl, textureUnit.textureUnit );
     }
 
-    static class TextureUnit<D extends Texture>
+    protected static class TextureUnit<D extends Texture>
     {
         protected int textureUnit;
         protected D texture;
@@ -50,6 +50,7 @@ import com.metsci.glimpse.axis.Axis1D;
 import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.context.GlimpseBounds;
 import com.metsci.glimpse.event.mouse.GlimpseMouseEvent;
+import com.metsci.glimpse.gl.GLResourceManager;
 import com.metsci.glimpse.painter.base.GlimpseDataPainter2D;
 import com.metsci.glimpse.support.font.FontUtils;
 import com.metsci.glimpse.support.selection.SpatialSelectionAxisListener;
@@ -90,6 +91,8 @@ public class TrackPainter extends GlimpseDataPainter2D
     protected Set<Track> updatedTracks;
     // mapping from id to LoadedTrack (GPU-side track information)
     protected Map<Integer, LoadedTrack> loadedTracks;
+    // tracks the GPU memory used by the track buffers, set when the first is uploaded
+    protected GLResourceManager resourceManager;
     // spatial index on Points
     protected QuadTreeXys<Point> spatialIndex;
 
@@ -1066,6 +1069,9 @@ public class TrackPainter extends GlimpseDataPainter2D
                             // copy data from the host buffer into the device buffer
                             gl.glBindBuffer( GL.GL_ARRAY_BUFFER, loaded.glBufferHandle );
                             gl.glBufferData( GL.GL_ARRAY_BUFFER, loaded.glBufferMaxSize * 2 * BYTES_PER_FLOAT, dataBuffer.rewind( ), GL.GL_DYNAMIC_DRAW );
+
+                            if ( resourceManager == null ) resourceManager = GLResourceManager.getCurrent( );
+                            if ( resourceManager != null ) resourceManager.allocated( loaded, this, loaded.glBufferMaxSize * 2 * BYTES_PER_FLOAT );
                         }
                         else
                         {
@@ -1109,6 +1115,8 @@ public class TrackPainter extends GlimpseDataPainter2D
         {
             if ( !loaded.glBufferInitialized ) continue;
 
+            if ( resourceManager != null ) resourceManager.used( loaded );
+
             int glOffset = loaded.glSelectedOffset;
             int glSize = loaded.glSelectedSize;
 
@@ -1244,7 +1252,7 @@ public class TrackPainter extends GlimpseDataPainter2D
     // A Track modified only on the gl display() thread
     // (so no locking is required when calling its methods
     // and accessing its data)
-    private static class LoadedTrack
+    private class LoadedTrack implements GLResourceManager.Resource
     {
         // the unique identifier of the track
         int trackId;
@@ -1352,7 +1360,13 @@ public class TrackPainter extends GlimpseDataPainter2D
             if ( o == this ) return true;
             if ( o.getClass( ) != this.getClass( ) ) return false;
             LoadedTrack p = ( LoadedTrack ) o;
-            return p.trackId == trackId;
+            // LoadedTracks from different painters are distinct GLResourceManager resources
+            return p.trackId == trackId && p.getPainter( ) == getPainter( );
+        }
+
+        protected TrackPainter getPainter( )
+        {
+            return TrackPainter.this;
         }
 
         @Override
@@ -1367,6 +1381,42 @@ public class TrackPainter extends GlimpseDataPainter2D
             if ( glBufferInitialized )
             {
                 gl.glDeleteBuffers( 1, new int[] { glBufferHandle }, 0 );
+                glBufferInitialized = false;
+            }
+
+            if ( resourceManager != null ) resourceManager.released( this );
+        }
+
+        // called by the GLResourceManager on the gl display() thread, the device
+        // buffer is deleted and the whole track is copied into a new one the
+        // next time the painter is drawn
+        @Override
+        public boolean evict( GL gl )
+        {
+            // don't wait for a thread which is updating tracks, or evict while
+            // this painter is itself uploading (and iterating over) its tracks
+            if ( trackUpdateLock.isHeldByCurrentThread( ) || !trackUpdateLock.tryLock( ) ) return false;
+            try
+            {
+                if ( glBufferInitialized )
+                {
+                    gl.glDeleteBuffers( 1, new int[] { glBufferHandle }, 0 );
+                    glBufferInitialized = false;
+                }
+
+                Track track = tracks.get( trackId );
+                if ( track != null )
+                {
+                    track.reloadAll( );
+                    updatedTracks.add( track );
+                    newData = true;
+                }
+
+                return true;
+            }
+            finally
+            {
+                trackUpdateLock.unlock( );
             }
         }
     }
@@ -1656,6 +1706,13 @@ public class TrackPainter extends GlimpseDataPainter2D
             return index;
         }
 
+        // marks every point as new, so that the whole track is copied to the device
+        public void reloadAll( )
+        {
+            insertIndex = 0;
+            dataInserted = true;
+        }
+
         public boolean isDataInserted( )
         {
             return dataInserted;
@@ -43,21 +43,31 @@
  */
 package com.metsci.glimpse.support.atlas;
 
+import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
+
 import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
 
 import javax.media.opengl.GL;
 import javax.media.opengl.GLException;
@@ -65,32 +75,40 @@ import javax.media.opengl.glu.GLU;
 
 import com.metsci.glimpse.axis.Axis1D;
 import com.metsci.glimpse.axis.Axis2D;
+import com.metsci.glimpse.gl.GLResourceManager;
+import com.metsci.glimpse.support.atlas.support.ImageAlphaMask;
 import com.metsci.glimpse.support.atlas.support.ImageData;
 import com.metsci.glimpse.support.atlas.support.ImageDataExternal;
 import com.metsci.glimpse.support.atlas.support.ImageDataInternal;
 import com.metsci.glimpse.support.atlas.support.ImageDrawer;
+import com.metsci.glimpse.support.atlas.support.PagePacker;
 import com.metsci.glimpse.support.atlas.support.TextureAtlasUpdateListener;
-import com.sun.opengl.impl.packrect.BackingStoreManager;
-import com.sun.opengl.impl.packrect.Rect;
-import com.sun.opengl.impl.packrect.RectVisitor;
-import com.sun.opengl.impl.packrect.RectanglePacker;
 import com.sun.opengl.util.j2d.TextureRenderer;
 import com.sun.opengl.util.texture.TextureCoords;
 
 /**
- * Stores a large number of images or icons which are packed into a single
- * OpenGL texture. This allows VBO draw methods like glDrawArrays to be
- * used to draw thousands of images from the TextureAtlas simultaneously.
+ * Stores a large number of images or icons which are packed into one or more
+ * fixed-size OpenGL textures (pages). This allows VBO draw methods like glDrawArrays
+ * to be used to draw thousands of images from the TextureAtlas simultaneously.
+ * 
+ * Once an image has been placed on a page it never moves, so texture coordinates
+ * handed out by {@link #getImageData( Object )} remain valid until the image is
+ * deleted. When no page has room for a new image another page is added. Images
+ * are rasterized by a shared background thread pool as soon as they are loaded,
+ * and only the regions of each page touched by new images are uploaded to OpenGL.
  * 
  * @author ulman
  */
 public class TextureAtlas
 {
-    // note: RectanglePacker won't grow in width, only in height
-    // so INITIAL_WIDTH setting constrains total size of texture atlas
+    private static final Logger logger = Logger.getLogger( TextureAtlas.class.getName( ) );
+
+    // default size of each texture atlas page
     private static final int INITIAL_WIDTH = 2048;
     private static final int INITIAL_HEIGHT = 2048;
-    private static final float MAX_VERTICAL_FRAGMENTATION = 0.7f;
+
+    // shared pool which rasterizes images off the OpenGL thread
+    private static ExecutorService executor;
 
     // internal lock ensuring thread-safe access
     private ReentrantLock lock;
@@ -103,30 +121,28 @@ public class TextureAtlas
 
     private Collection<TextureAtlasUpdateListener> updateListeners;
 
-    // Map of images currently present in the TextureAtlas.
-    // Rect is an internal class used by RectanglePacker. However
-    // an Object field is provided for external use. We use this
-    // to store an associated ImageData object.
-    private Map<Object, Rect> imageMap;
-
-    // Encapsulates logic for packing and reorganizing rectangular
-    // images onto underlying OpenGL texture
-    private RectanglePacker packer;
-    // Handles underlying OpenGL texture which stores image data
-    // location of images is handled by the RectanglePacker
-    private TextureRenderer cachedBackingStore;
-
-    // TextureAtlas images are drawn using this Graphics2D context
-    private Graphics2D cachedGraphics;
-
-    // Need to keep track of whether we're in a beginRendering() /
-    // endRendering() cycle so we can re-enter the exact same state if
-    // we have to reallocate the backing store
-    private boolean inBeginEndPair;
-    private boolean isOrthoMode;
-    private int beginRenderingWidth;
-    private int beginRenderingHeight;
-    private boolean beginRenderingDepthTestDisabled;
+    // Map of images currently present in the TextureAtlas
+    // to their location in the TextureAtlas pages.
+    private Map<Object, Slot> imageMap;
+
+    // Alpha masks of images, extracted lazily from the backing store
+    // and cached until the image is deleted.
+    private Map<Object, ImageAlphaMask> alphaMaskMap;
+
+    // The OpenGL textures which store image data. Pages are only
+    // added (never resized or reorganized) and are only modified
+    // on the OpenGL thread while holding the lock.
+    private List<Page> pages;
+    private int pageWidth;
+    private int pageHeight;
+
+    // The page bound by the last call to bindPage( ), or -1 if
+    // we're not in a beginRendering() / endRendering() cycle
+    private int boundPage;
+
+    // Whether images are rasterized by the shared thread pool
+    // or on the OpenGL thread during beginRendering( )
+    private boolean backgroundRasterization;
 
     // Whether GL_LINEAR filtering is enabled for the backing store
     private boolean smoothing;
@@ -134,35 +150,40 @@ public class TextureAtlas
     private boolean checkFor_isExtensionAvailable_GL_VERSION_1_5;
     private boolean mipmap;
     private boolean haveMaxSize;
+    private int maxTextureSize;
 
     /**
-     * Constructs a new TextureAtlas with the provided initial width and height
-     * in pixels. The TextureAtlas will grow in height automatically as needed, up
-     * to the maximum texture size supported by the graphics hardware.
-     * 
-     * Note: the TextureAtlas will not currently grow in width.
+     * Constructs a new TextureAtlas whose pages have the provided width and height
+     * in pixels (clamped to the maximum texture size supported by the graphics hardware).
+     * Additional pages are added automatically as needed. An image larger than the
+     * page size is given its own page.
      *
      * If the smoothing parameter is true, rendered pixel colors will be interpolated
      * among adjacent texels. Otherwise, pixel colors will be assigned from the nearest
      * texel.
      *
-     * @param initalWidth
-     * @param initialHeight
+     * @param pageWidth
+     * @param pageHeight
      * @param smoothing
      */
-    public TextureAtlas( int initialWidth, int initialHeight, boolean smoothing )
+    public TextureAtlas( int pageWidth, int pageHeight, boolean smoothing )
     {
-        this.packer = new RectanglePacker( new Manager( ), initialWidth, initialHeight );
+        this.pages = new ArrayList<Page>( );
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.boundPage = -1;
+        this.backgroundRasterization = true;
         this.additionQueue = new HashMap<Object, ImageDataExternal>( );
         this.deletionQueue = new HashSet<Object>( );
-        this.imageMap = new HashMap<Object, Rect>( );
+        this.imageMap = new HashMap<Object, Slot>( );
+        this.alphaMaskMap = new HashMap<Object, ImageAlphaMask>( );
         this.updateListeners = new CopyOnWriteArrayList<TextureAtlasUpdateListener>( );
         this.lock = new ReentrantLock( );
         this.smoothing = smoothing;
     }
 
     /**
-     * Constructs a new TextureAtlas with the provided initial width and height
+     * Constructs a new TextureAtlas with the provided page width and height
      * in pixels, with smoothing enabled.
      *
      * @see #TextureAtlas( int, int, boolean )
@@ -174,7 +195,7 @@ public class TextureAtlas
     }
 
     /**
-     * Constructs a new TextureAtlas with default initial width and height, with
+     * Constructs a new TextureAtlas with default page width and height, with
      * smoothing enabled.
      *
      * @see #TextureAtlas( int, int, boolean )
@@ -186,10 +207,12 @@ public class TextureAtlas
 
     /**
      * Registers a TextureAtlasUpdateListener with the TextureAtlas. This listener is
-     * notified when the TextureAtlas compacts itself. This compaction, done to make
-     * space in the TextureAtlas for additional images/icons, may cause images to change
-     * location within the atlas. This may require updates to external data structures storing
-     * texture coordinates that reference locations in the atlas.
+     * notified if images change location within the atlas, which would require updates
+     * to external data structures storing texture coordinates that reference locations
+     * in the atlas.
+     * 
+     * Note: images are currently never moved once they have been placed on a page, so
+     * listeners are not notified.
      * 
      * @param listener
      */
@@ -203,6 +226,41 @@ public class TextureAtlas
         this.updateListeners.remove( listener );
     }
 
+    /**
+     * If true (the default), images are rasterized by a shared pool of background threads
+     * as soon as they are loaded. {@link #beginRendering( )} then only waits for rasterization
+     * which has not already completed and copies the results into the atlas. If false, each
+     * ImageDrawer is run on the OpenGL thread during {@link #beginRendering( )}.
+     * 
+     * ImageDrawers must be safe to run off the calling thread when background rasterization
+     * is enabled.
+     */
+    public void setBackgroundRasterization( boolean background )
+    {
+        this.lock.lock( );
+        try
+        {
+            this.backgroundRasterization = background;
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    public boolean isBackgroundRasterization( )
+    {
+        this.lock.lock( );
+        try
+        {
+            return this.backgroundRasterization;
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
     //////////////////////////////////////////////////////////////
     ///    Image Addition / Deletion / Modification Methods    ///
     //////////////////////////////////////////////////////////////
@@ -287,13 +345,21 @@ public class TextureAtlas
         this.lock.lock( );
         try
         {
-            Rect rect = imageMap.get( id );
-            if ( rect != null )
+            if ( imageMap.containsKey( id ) )
             {
                 throw new IllegalArgumentException( String.format( "Image id \"%s\" already exists.", id ) );
             }
 
-            this.additionQueue.put( id, new ImageDataExternal( id, centerX, centerY, width, height, drawer ) );
+            ImageDataExternal data = new ImageDataExternal( id, centerX, centerY, width, height, drawer );
+
+            // start rasterizing the image now so that it is (hopefully)
+            // ready by the time it is needed in beginRendering( )
+            if ( backgroundRasterization )
+            {
+                data.setRaster( getExecutor( ).submit( new Rasterizer( drawer, width, height ) ) );
+            }
+
+            this.additionQueue.put( id, data );
         }
         finally
         {
@@ -348,10 +414,10 @@ public class TextureAtlas
     }
 
     /**
-     * Returns information about an image in the TextureAtlas. This information includes texture coordinates,
-     * which can be used to manually draw icons from the atlas. This information can also be used by
-     * external painters like {@link com.metsci.glimpse.support.atlas.painter.IconPainter} which are
-     * backed by a TextureAtlas.
+     * Returns information about an image in the TextureAtlas. This information includes texture coordinates
+     * and the index of the page holding the image, which can be used to manually draw icons from the atlas.
+     * This information can also be used by external painters like
+     * {@link com.metsci.glimpse.support.atlas.painter.IconPainter} which are backed by a TextureAtlas.
      * 
      * @param id the unique identifier for the image
      * @return a ImageData handle with size and texture coordinate information about the image
@@ -361,14 +427,59 @@ public class TextureAtlas
         this.lock.lock( );
         try
         {
-            Rect rect = imageMap.get( id );
-            if ( rect == null )
-            {
-                throw new IllegalArgumentException( String.format( "Image id \"%s\" does not exist.", id ) );
-            }
-
             // return an immutable view into the internal image data
-            return new ImageData( ( ImageDataInternal ) rect.getUserData( ) );
+            return new ImageData( getImageDataInternal( id ) );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * @return the number of OpenGL textures currently backing the TextureAtlas
+     * @see ImageData#getPage( )
+     */
+    public int getPageCount( )
+    {
+        this.lock.lock( );
+        try
+        {
+            return pages.size( );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * Returns a mask indicating which pixels of an image in the TextureAtlas are not fully transparent.
+     * The mask is extracted from the atlas page the first time it is requested and cached until the
+     * image is deleted. Like {@link TextureAtlas#getImageData( Object )}, the image must have been loaded
+     * by an intervening {@link TextureAtlas#beginRendering( )}.
+     * 
+     * @param id the unique identifier for the image
+     * @return an ImageAlphaMask for the image (not including its buffer pixels)
+     */
+    public ImageAlphaMask getImageAlphaMask( Object id )
+    {
+        this.lock.lock( );
+        try
+        {
+            ImageAlphaMask mask = alphaMaskMap.get( id );
+            if ( mask != null ) return mask;
+
+            Slot slot = getSlot( id );
+            ImageDataInternal data = slot.data;
+            BufferedImage image = ( BufferedImage ) pages.get( data.getPage( ) ).renderer.getImage( );
+
+            int x = slot.region.x + data.getBufferX( );
+            int y = slot.region.y + data.getBufferY( );
+            mask = new ImageAlphaMask( image, x, y, data.getWidth( ), data.getHeight( ) );
+
+            alphaMaskMap.put( id, mask );
+            return mask;
         }
         finally
         {
@@ -530,6 +641,8 @@ public class TextureAtlas
         int height = data.getBufferedHeight( );
         TextureCoords texCoords = data.getTextureCoordinates( );
 
+        bindPage( data.getPage( ) );
+
         // Align the leftmost point of the baseline to the (x, y, z) coordinate requested
         float minX = ( float ) ( positionX - ( centerX + data.getBufferX( ) ) * vppX * scaleX );
         float minY = ( float ) ( positionY - ( height - centerY - data.getBufferY( ) ) * vppY * scaleY );
@@ -557,10 +670,13 @@ public class TextureAtlas
     }
 
     /**
-     * Readies the TextureAtlas for drawing. The backing texture is bound and OpenGL
+     * Readies the TextureAtlas for drawing. The first page texture is bound and OpenGL
      * state is configured for textured quad rendering. {@link drawImage( GL, Object, Axis2D, float, float )}
      * must be called while between calls to {@beginRendering()} and {endRendering()}.
      * 
+     * Images loaded since the last call are copied into the atlas pages and the modified
+     * regions of each page are uploaded to OpenGL.
+     * 
      * @see com.sun.opengl.util.j2d.TextRenderer#begin3DRendering( )
      */
     public void beginRendering( ) throws GLException
@@ -568,6 +684,23 @@ public class TextureAtlas
         beginRendering( false, 0, 0, false );
     }
 
+    /**
+     * Binds the texture for the given page of the TextureAtlas. Must be called between
+     * {@link #beginRendering( )} and {@link #endRendering( )}. Painters which draw icons
+     * from more than one page must bind each page before drawing the icons it holds.
+     * 
+     * @param page the page index, as reported by {@link ImageData#getPage( )}
+     */
+    public void bindPage( int page )
+    {
+        if ( page == boundPage ) return;
+
+        Page p = pages.get( page );
+        p.renderer.getTexture( ).bind( );
+        p.prepare( );
+        boundPage = page;
+    }
+
     /**
      * Resets OpenGL state. Every call to {@beginRendering()} should be followed by
      * a call to {endRendering()}.
@@ -586,79 +719,118 @@ public class TextureAtlas
      */
     public void dispose( ) throws GLException
     {
-        packer.dispose( );
-        packer = null;
-        cachedBackingStore = null;
-        cachedGraphics = null;
+        lock.lock( );
+        try
+        {
+            for ( ImageDataExternal data : additionQueue.values( ) )
+            {
+                if ( data.getRaster( ) != null ) data.getRaster( ).cancel( false );
+            }
+
+            for ( Page page : pages )
+            {
+                page.dispose( );
+            }
+
+            pages.clear( );
+            imageMap.clear( );
+            alphaMaskMap.clear( );
+            additionQueue.clear( );
+            deletionQueue.clear( );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
     }
 
     //////////////////////////////////////////////////////////////
     ///           Internals Only Beyond This Point             ///
     //////////////////////////////////////////////////////////////
 
-    private ImageDataInternal getImageDataInternal( Object id )
+    protected static synchronized ExecutorService getExecutor( )
     {
-        Rect rect = imageMap.get( id );
-        if ( rect == null )
+        if ( executor == null )
         {
-            throw new IllegalArgumentException( String.format( "Image id \"%s\" does not exist.", id ) );
+            final AtomicInteger count = new AtomicInteger( );
+
+            executor = Executors.newFixedThreadPool( Runtime.getRuntime( ).availableProcessors( ), new ThreadFactory( )
+            {
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable );
+                    thread.setName( "texture-atlas-rasterizer-" + count.getAndIncrement( ) );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
         }
 
-        return ( ImageDataInternal ) rect.getUserData( );
+        return executor;
     }
-    
-    private Graphics2D getGraphics2D( )
-    {
-        TextureRenderer renderer = getBackingStore( );
 
-        if ( cachedGraphics == null )
+    private Slot getSlot( Object id )
+    {
+        Slot slot = imageMap.get( id );
+        if ( slot == null )
         {
-            cachedGraphics = renderer.createGraphics( );
-            cachedGraphics.setComposite( AlphaComposite.Src );
-            cachedGraphics.setColor( Color.WHITE );
+            throw new IllegalArgumentException( String.format( "Image id \"%s\" does not exist.", id ) );
         }
 
-        return cachedGraphics;
+        return slot;
+    }
+
+    private ImageDataInternal getImageDataInternal( Object id )
+    {
+        return getSlot( id ).data;
     }
 
     private void beginRendering( boolean ortho, int width, int height, boolean disableDepthTestForOrtho )
     {
+        GL gl = GLU.getCurrentGL( );
+
+        if ( !haveMaxSize )
+        {
+            // Query OpenGL for the maximum texture size and use it
+            // to keep pages from being allocated too large
+            int[] sz = new int[1];
+            gl.glGetIntegerv( GL.GL_MAX_TEXTURE_SIZE, sz, 0 );
+
+            maxTextureSize = sz[0];
+            pageWidth = Math.min( pageWidth, maxTextureSize );
+            pageHeight = Math.min( pageHeight, maxTextureSize );
+            haveMaxSize = true;
+        }
+
         updateImages( );
 
-        inBeginEndPair = true;
-        isOrthoMode = ortho;
-        beginRenderingWidth = width;
-        beginRenderingHeight = height;
-        beginRenderingDepthTestDisabled = disableDepthTestForOrtho;
+        // always have at least one page to bind, even if the atlas is empty
+        if ( pages.isEmpty( ) )
+        {
+            addPage( pageWidth, pageHeight );
+        }
+
+        TextureRenderer firstPage = pages.get( 0 ).renderer;
 
         if ( ortho )
         {
-            getBackingStore( ).beginOrthoRendering( width, height, disableDepthTestForOrtho );
+            firstPage.beginOrthoRendering( width, height, disableDepthTestForOrtho );
         }
         else
         {
-            getBackingStore( ).begin3DRendering( );
+            firstPage.begin3DRendering( );
         }
 
-        GL gl = GLU.getCurrentGL( );
+        boundPage = 0;
+        pages.get( 0 ).prepare( );
 
         // Push client attrib bits used by the pipelined quad renderer
         gl.glPushClientAttrib( ( int ) GL.GL_ALL_CLIENT_ATTRIB_BITS );
 
-        if ( !haveMaxSize )
-        {
-            // Query OpenGL for the maximum texture size and set it in the
-            // RectanglePacker to keep it from expanding too large
-            int[] sz = new int[1];
-            gl.glGetIntegerv( GL.GL_MAX_TEXTURE_SIZE, sz, 0 );
-
-            packer.setMaxSize( sz[0], sz[0] );
-            haveMaxSize = true;
-        }
-
         // Disable future attempts to use mipmapping if TextureRenderer
         // doesn't support it
-        if ( mipmap && !getBackingStore( ).isUsingAutoMipmapGeneration( ) )
+        if ( mipmap && !firstPage.isUsingAutoMipmapGeneration( ) )
         {
             mipmap = false;
         }
@@ -671,35 +843,63 @@ public class TextureAtlas
         lock.lock( );
         try
         {
+            List<Slot> added = new ArrayList<Slot>( additionQueue.size( ) );
+
+            // an image which fails (for example, because it is larger than the maximum
+            // texture size) is dropped without affecting the other queued images
             for ( ImageDataExternal addImage : additionQueue.values( ) )
             {
-                newImage0( addImage );
+                try
+                {
+                    added.add( newImage0( addImage ) );
+                }
+                catch ( RuntimeException e )
+                {
+                    logWarning( logger, "Unable to add image id \"%s\" to the texture atlas.", e, addImage.getId( ) );
+                }
+            }
+
+            // save the image texture coordinates for easy access off the OpenGL thread
+            // this is done after all the images are drawn because fetching the texture
+            // uploads the dirty region of the page, which we only want to do once
+            for ( Slot slot : added )
+            {
+                try
+                {
+                    updateTextureCoordinates( slot );
+                }
+                catch ( RuntimeException e )
+                {
+                    logWarning( logger, "Unable to update texture coordinates for image id \"%s\".", e, slot.data.getId( ) );
+                }
             }
 
             for ( Object deleteImage : deletionQueue )
             {
-                Rect rect = imageMap.get( deleteImage );
-                if ( rect == null ) continue; // image is already deleted, no need to do anything
+                Slot slot = imageMap.remove( deleteImage );
+                if ( slot == null ) continue; // image is already deleted, no need to do anything
 
-                ImageDataInternal data = ( ImageDataInternal ) rect.getUserData( );
-                data.delete( ); // mark for deletion next time compaction of the texture atlas is performed
-            }
+                // the space is immediately available to new images, nothing else moves
+                slot.data.delete( );
+                pages.get( slot.data.getPage( ) ).packer.free( slot.region );
 
-            additionQueue.clear( );
-            deletionQueue.clear( );
+                alphaMaskMap.remove( deleteImage );
+            }
         }
         finally
         {
+            additionQueue.clear( );
+            deletionQueue.clear( );
+
             lock.unlock( );
         }
     }
 
-    private void newImage0( ImageDataExternal data )
+    private Slot newImage0( ImageDataExternal data )
     {
         Object id = data.getId( );
 
-        Rect rect = imageMap.get( data.getId( ) );
-        if ( rect != null )
+        if ( imageMap.containsKey( id ) )
         {
             // This should never actually happen (it should be prevented by checks in addImage )
             throw new IllegalArgumentException( String.format( "Image id \"%s\" already exists.", id ) );
@@ -710,78 +910,143 @@ public class TextureAtlas
         int centerX = data.getCenterX( );
         int centerY = data.getCenterY( );
 
-        // draw the new image onto the backing store
-        Graphics2D g = getGraphics2D( );
-
         // leave one pixel around the edge to prevent bleeding into adjacent images
         // this makes the width and height 2 larger and means the actual origin of the
         // image is one pixel away from the edge of the rectangle
-        ImageDataInternal imageData = new ImageDataInternal( id, centerX, centerY, 1, 1, width, height );
-        rect = new Rect( 0, 0, imageData.getBufferedWidth( ), imageData.getBufferedHeight( ), imageData );
+        int bufferedWidth = width + 2;
+        int bufferedHeight = height + 2;
+
+        // find the first page with room for the image, adding a page if necessary
+        int pageIndex = -1;
+        Rectangle region = null;
+        for ( int i = 0; i < pages.size( ) && region == null; i++ )
+        {
+            region = pages.get( i ).packer.allocate( bufferedWidth, bufferedHeight );
+            pageIndex = i;
+        }
+
+        if ( region == null )
+        {
+            Page page = addPage( Math.max( pageWidth, bufferedWidth ), Math.max( pageHeight, bufferedHeight ) );
+            region = page.packer.allocate( bufferedWidth, bufferedHeight );
+            pageIndex = pages.size( ) - 1;
+        }
+
+        Page page = pages.get( pageIndex );
+
+        ImageDataInternal imageData = new ImageDataInternal( id, pageIndex, centerX, centerY, 1, 1, width, height );
+        Slot slot = new Slot( imageData, region );
+
+        // store the image location so that we can find it again
+        imageMap.put( id, slot );
+        alphaMaskMap.remove( id );
+
+        try
+        {
+            drawImage0( data, page, region, imageData );
+        }
+        catch ( RuntimeException e )
+        {
+            // give the space back, the image will not be drawn
+            imageMap.remove( id );
+            page.packer.free( region );
+            throw e;
+        }
 
-        // store the image location in the texture atlas packer and in
-        // our map of id to location so that we can find it again
-        // adding the rectangle to the packer will adjust its x and y position
-        packer.add( rect );
-        imageMap.put( id, rect );
+        return slot;
+    }
 
-        // save the image texture coordinates for easy access off the OpenGL thread
-        updateTextureCoordinates( rect, imageData, imageData.getBufferedWidth( ), imageData.getBufferedHeight( ) );
+    private void drawImage0( ImageDataExternal data, Page page, Rectangle region, ImageDataInternal imageData )
+    {
+        int width = data.getWidth( );
+        int height = data.getHeight( );
 
-        // Re-fetch the Graphics2D in case the addition of the rectangle
-        // caused the old backing store to be thrown away
-        g = getGraphics2D( );
+        Graphics2D g = page.getGraphics2D( );
 
         // Clear out the area we're going to draw into
         g.setComposite( AlphaComposite.Clear );
-        g.fillRect( rect.x( ), rect.y( ), rect.w( ), rect.h( ) );
+        g.fillRect( region.x, region.y, region.width, region.height );
         g.setComposite( AlphaComposite.Src );
 
         // the origin of the image within the texture atlas
-        int x = rect.x( ) + imageData.getBufferX( );
-        int y = rect.y( ) + imageData.getBufferY( );
+        int x = region.x + imageData.getBufferX( );
+        int y = region.y + imageData.getBufferY( );
 
-        // save the transform and transform the context
-        // so that the ImageDrawer can draw relative to 0,0
-        AffineTransform transform = g.getTransform( );
-        g.translate( x, y );
+        BufferedImage raster = getRaster( data );
+        if ( raster != null )
+        {
+            // copy the image which was rasterized off the OpenGL thread
+            g.drawImage( raster, x, y, null );
+        }
+        else
+        {
+            // save the transform and transform the context
+            // so that the ImageDrawer can draw relative to 0,0
+            AffineTransform transform = g.getTransform( );
+            g.translate( x, y );
 
-        //XXX mask drawing area: http://stackoverflow.com/questions/1241253/inside-clipping-with-java-graphics
+            //XXX mask drawing area: http://stackoverflow.com/questions/1241253/inside-clipping-with-java-graphics
 
-        // delegate drawing of the image to the provided ImageDrawer
-        data.getImageDrawer( ).drawImage( g, width, height );
+            // delegate drawing of the image to the provided ImageDrawer
+            data.getImageDrawer( ).drawImage( g, width, height );
 
-        // reset the transform
-        g.setTransform( transform );
+            // reset the transform
+            g.setTransform( transform );
+        }
 
-        // Mark this region of the TextureRenderer as dirty
-        getBackingStore( ).markDirty( rect.x( ), rect.y( ), rect.w( ), rect.h( ) );
+        // Mark this region of the page as dirty, only dirty regions are uploaded
+        page.renderer.markDirty( region.x, region.y, region.width, region.height );
     }
 
-    private void updateTextureCoordinates( TextureRenderer backingStore, Rect rect, ImageDataInternal imageData, int width, int height )
+    // waits for background rasterization of the image to complete, returns null if the
+    // image was not rasterized in the background (or rasterization failed) in which case
+    // the ImageDrawer should be run directly on the page
+    private BufferedImage getRaster( ImageDataExternal data )
     {
-        // save the image texture coordinates for easy access off the OpenGL thread
-        // (this is done to make the user's life easier, however it introduces an
-        // implementation complication because we will have to update these values
-        // whenever the backing store is reorganized)
-        int texX = rect.x( );
-        int texY = backingStore.getHeight( ) - rect.y( ) - height;
-        TextureCoords textureCoordinates = backingStore.getTexture( ).getSubImageTexCoords( texX, texY, texX + width, texY + height );
-        imageData.setTextureCoordinates( textureCoordinates );
+        Future<BufferedImage> raster = data.getRaster( );
+        if ( raster == null ) return null;
+
+        try
+        {
+            return raster.get( );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            return null;
+        }
+        catch ( ExecutionException e )
+        {
+            logWarning( logger, String.format( "Trouble rasterizing image id \"%s\" in the background. Drawing on the OpenGL thread instead.", data.getId( ) ), e.getCause( ) );
+            return null;
+        }
     }
 
-    private void updateTextureCoordinates( Rect rect, ImageDataInternal imageData, int width, int height )
+    private Page addPage( int width, int height )
     {
-        updateTextureCoordinates( getBackingStore( ), rect, imageData, width, height );
+        if ( haveMaxSize && ( width > maxTextureSize || height > maxTextureSize ) )
+        {
+            throw new IllegalArgumentException( String.format( "Image size %d x %d exceeds maximum texture size %d.", width, height, maxTextureSize ) );
+        }
+
+        Page page = new Page( width, height );
+        pages.add( page );
+        return page;
     }
 
-    private void updateTextureCoordinates( TextureRenderer backingStore, Rect rect )
+    private void updateTextureCoordinates( Slot slot )
     {
-        ImageDataInternal imageData = ( ImageDataInternal ) rect.getUserData( );
+        ImageDataInternal imageData = slot.data;
+        TextureRenderer renderer = pages.get( imageData.getPage( ) ).renderer;
+
+        // NOTE: the packer regions have their origin at the upper-left
+        // but the TextureRenderer's origin is at its lower left
         int width = imageData.getBufferedWidth( );
         int height = imageData.getBufferedHeight( );
-
-        updateTextureCoordinates( backingStore, rect, imageData, width, height );
+        int texX = slot.region.x;
+        int texY = renderer.getHeight( ) - slot.region.y - height;
+        TextureCoords textureCoordinates = renderer.getTexture( ).getSubImageTexCoords( texX, texY, texX + width, texY + height );
+        imageData.setTextureCoordinates( textureCoordinates );
     }
 
     /**
@@ -793,7 +1058,7 @@ public class TextureAtlas
     */
     private void endRendering( boolean ortho ) throws GLException
     {
-        inBeginEndPair = false;
+        boundPage = -1;
 
         GL gl = GLU.getCurrentGL( );
 
@@ -815,225 +1080,179 @@ public class TextureAtlas
             }
         }
 
+        // all pages share the same texture target, so ending rendering
+        // on the first page restores state regardless of the bound page
+        TextureRenderer firstPage = pages.get( 0 ).renderer;
+
         if ( ortho )
         {
-            getBackingStore( ).endOrthoRendering( );
+            firstPage.endOrthoRendering( );
         }
         else
         {
-            getBackingStore( ).end3DRendering( );
+            firstPage.end3DRendering( );
         }
     }
 
-    private void clearUnusedEntries( )
+    private boolean is15Available( GL gl )
     {
-        final java.util.List<Rect> deadRects = new ArrayList<Rect>( );
-
-        // Iterate through the contents of the backing store, removing
-        // text strings that haven't been used recently
-        packer.visit( new RectVisitor( )
-        {
-            public void visit( Rect rect )
-            {
-                ImageDataInternal data = ( ImageDataInternal ) rect.getUserData( );
-
-                if ( data.isMarkedForDelete( ) )
-                {
-                    deadRects.add( rect );
-                }
-            }
-        } );
-
-        for ( Iterator<Rect> iter = deadRects.iterator( ); iter.hasNext( ); )
-        {
-            Rect r = iter.next( );
-            packer.remove( r );
-            imageMap.remove( ( ( ImageDataInternal ) r.getUserData( ) ).getId( ) );
-        }
-
-        // If we removed dead rectangles this cycle, try to do a compaction
-        float frag = packer.verticalFragmentationRatio( );
-
-        if ( !deadRects.isEmpty( ) && ( frag > MAX_VERTICAL_FRAGMENTATION ) )
+        if ( !checkFor_isExtensionAvailable_GL_VERSION_1_5 )
         {
-            packer.compact( );
+            isExtensionAvailable_GL_VERSION_1_5 = gl.isExtensionAvailable( "GL_VERSION_1_5" );
+            checkFor_isExtensionAvailable_GL_VERSION_1_5 = true;
         }
+        return isExtensionAvailable_GL_VERSION_1_5;
     }
 
-    private TextureRenderer getBackingStore( )
+    // location of an image within the TextureAtlas pages
+    private static class Slot
     {
-        TextureRenderer renderer = ( TextureRenderer ) packer.getBackingStore( );
+        private ImageDataInternal data;
+        private Rectangle region;
 
-        if ( renderer != cachedBackingStore )
+        public Slot( ImageDataInternal data, Rectangle region )
         {
-            // Backing store changed since last time; discard any cached Graphics2D
-            if ( cachedGraphics != null )
-            {
-                cachedGraphics.dispose( );
-                cachedGraphics = null;
-            }
-
-            cachedBackingStore = renderer;
+            this.data = data;
+            this.region = region;
         }
-
-        return cachedBackingStore;
     }
 
-    private boolean is15Available( GL gl )
+    // a single OpenGL texture holding images, along with the packer
+    // which tracks which parts of the texture are in use
+    private class Page implements GLResourceManager.Resource
     {
-        if ( !checkFor_isExtensionAvailable_GL_VERSION_1_5 )
-        {
-            isExtensionAvailable_GL_VERSION_1_5 = gl.isExtensionAvailable( "GL_VERSION_1_5" );
-            checkFor_isExtensionAvailable_GL_VERSION_1_5 = true;
-        }
-        return isExtensionAvailable_GL_VERSION_1_5;
-    }
+        private TextureRenderer renderer;
+        private PagePacker packer;
 
-    class Manager implements BackingStoreManager
-    {
+        // images are drawn onto the page using this Graphics2D context
         private Graphics2D g;
 
-        public Object allocateBackingStore( int w, int h )
-        {
-            TextureRenderer renderer = new TextureRenderer( w, h, true, mipmap );
-            renderer.setSmoothing( smoothing );
-            return renderer;
-        }
+        // tracks the GPU memory used by the page texture, set when it is first bound
+        private GLResourceManager resourceManager;
+        private boolean allocated;
 
-        public void deleteBackingStore( Object backingStore )
+        public Page( int width, int height )
         {
-            ( ( TextureRenderer ) backingStore ).dispose( );
+            this.renderer = new TextureRenderer( width, height, true, mipmap );
+            this.renderer.setSmoothing( smoothing );
+            this.packer = new PagePacker( width, height );
         }
 
-        public boolean preExpand( Rect cause, int attemptNumber )
+        public Graphics2D getGraphics2D( )
         {
-            // Only try this one time; clear out potentially obsolete entries
-            // NOTE: this heuristic and the fact that it clears the used bit
-            // of all entries seems to cause cycling of entries in some
-            // situations, where the backing store becomes small compared to
-            // the amount of text on the screen (see the TextFlow demo) and
-            // the entries continually cycle in and out of the backing
-            // store, decreasing performance. If we added a little age
-            // information to the entries, and only cleared out entries
-            // above a certain age, this behavior would be eliminated.
-            // However, it seems the system usually stabilizes itself, so
-            // for now we'll just keep things simple. Note that if we don't
-            // clear the used bit here, the backing store tends to increase
-            // very quickly to its maximum size, at least with the TextFlow
-            // demo when the text is being continually re-laid out.
-            if ( attemptNumber == 0 )
+            if ( g == null )
             {
-                clearUnusedEntries( );
-
-                return true;
+                g = renderer.createGraphics( );
+                g.setComposite( AlphaComposite.Src );
+                g.setColor( Color.WHITE );
             }
 
-            return false;
+            return g;
         }
 
-        public void additionFailed( Rect cause, int attemptNumber )
+        // called on the OpenGL thread each time the page texture is bound
+        public void prepare( )
         {
-            // Heavy hammer -- might consider doing something different
-            packer.clear( );
-            imageMap.clear( );
+            if ( resourceManager == null ) resourceManager = GLResourceManager.getCurrent( );
+            if ( resourceManager == null ) return;
+
+            if ( !allocated )
+            {
+                resourceManager.allocated( this, TextureAtlas.this, 4L * renderer.getWidth( ) * renderer.getHeight( ) );
+                allocated = true;
+            }
+            else
+            {
+                resourceManager.used( this );
+            }
         }
 
-        public void beginMovement( Object oldBackingStore, Object newBackingStore )
+        // called by the GLResourceManager on the OpenGL thread. The TextureRenderer
+        // cannot release its texture without also discarding its backing image, so
+        // the images are copied into a new TextureRenderer whose texture is created
+        // and uploaded the next time the page is bound
+        @Override
+        public boolean evict( GL gl )
         {
-            // Exit the begin / end pair if necessary
-            if ( inBeginEndPair )
+            // don't wait for a thread which is adding images, or evict pages which
+            // may still be bound during the current rendering cycle of this atlas
+            if ( lock.isHeldByCurrentThread( ) || !lock.tryLock( ) ) return false;
+            try
             {
-                GL gl = GLU.getCurrentGL( );
+                if ( boundPage != -1 ) return false;
 
-                // Pop client attrib bits used by the pipelined quad renderer
-                gl.glPopClientAttrib( );
+                TextureRenderer newRenderer = new TextureRenderer( renderer.getWidth( ), renderer.getHeight( ), true, mipmap );
+                newRenderer.setSmoothing( smoothing );
 
-                // The OpenGL spec is unclear about whether this changes the
-                // buffer bindings, so preemptively zero out the GL_ARRAY_BUFFER
-                // binding
-                if ( is15Available( gl ) )
-                {
-                    try
-                    {
-                        gl.glBindBuffer( GL.GL_ARRAY_BUFFER, 0 );
-                    }
-                    catch ( Exception e )
-                    {
-                        isExtensionAvailable_GL_VERSION_1_5 = false;
-                    }
-                }
+                Graphics2D newGraphics = newRenderer.createGraphics( );
+                newGraphics.setComposite( AlphaComposite.Src );
+                newGraphics.drawImage( renderer.getImage( ), 0, 0, null );
+                newGraphics.setColor( Color.WHITE );
+                newRenderer.markDirty( 0, 0, newRenderer.getWidth( ), newRenderer.getHeight( ) );
 
-                if ( isOrthoMode )
-                {
-                    ( ( TextureRenderer ) oldBackingStore ).endOrthoRendering( );
-                }
-                else
-                {
-                    ( ( TextureRenderer ) oldBackingStore ).end3DRendering( );
-                }
-            }
-
-            TextureRenderer newRenderer = ( TextureRenderer ) newBackingStore;
-            g = newRenderer.createGraphics( );
-        }
+                if ( g != null ) g.dispose( );
+                renderer.dispose( );
 
-        public void move( Object oldBackingStore, Rect oldLocation, Object newBackingStore, Rect newLocation )
-        {
-            TextureRenderer oldRenderer = ( TextureRenderer ) oldBackingStore;
-            TextureRenderer newRenderer = ( TextureRenderer ) newBackingStore;
+                renderer = newRenderer;
+                g = newGraphics;
+                allocated = false;
 
-            if ( oldRenderer == newRenderer )
+                return true;
+            }
+            finally
             {
-                // Movement on the same backing store -- easy case
-                g.copyArea( oldLocation.x( ), oldLocation.y( ), oldLocation.w( ), oldLocation.h( ), newLocation.x( ) - oldLocation.x( ), newLocation.y( ) - oldLocation.y( ) );
+                lock.unlock( );
             }
-            else
+        }
+
+        public void dispose( )
+        {
+            if ( g != null )
             {
-                // Need to draw from the old renderer's image into the new one
-                Image img = oldRenderer.getImage( );
-                g.drawImage( img, newLocation.x( ), newLocation.y( ), newLocation.x( ) + newLocation.w( ), newLocation.y( ) + newLocation.h( ), oldLocation.x( ), oldLocation.y( ), oldLocation.x( ) + oldLocation.w( ), oldLocation.y( ) + oldLocation.h( ), null );
+                g.dispose( );
+                g = null;
             }
 
-            // copy the user data to the newLocation and put the new location in the image map
-            ImageDataInternal data = ( ImageDataInternal ) oldLocation.getUserData( );
-            newLocation.setUserData( oldLocation.getUserData( ) );
-            imageMap.put( data.getId( ), newLocation );
+            renderer.dispose( );
 
-            // updated the cached texture coordinates
-            updateTextureCoordinates( newRenderer, newLocation );
+            if ( resourceManager != null ) resourceManager.released( this );
         }
+    }
+
+    // draws an image onto its own BufferedImage (with the same pixel format as
+    // the TextureRenderer backing store) so that it can simply be copied onto a page
+    private static class Rasterizer implements Callable<BufferedImage>
+    {
+        private ImageDrawer drawer;
+        private int width;
+        private int height;
 
-        public void endMovement( Object oldBackingStore, Object newBackingStore )
+        public Rasterizer( ImageDrawer drawer, int width, int height )
         {
-            g.dispose( );
+            this.drawer = drawer;
+            this.width = width;
+            this.height = height;
+        }
 
-            // Sync the whole surface
-            TextureRenderer newRenderer = ( TextureRenderer ) newBackingStore;
-            newRenderer.markDirty( 0, 0, newRenderer.getWidth( ), newRenderer.getHeight( ) );
+        @Override
+        public BufferedImage call( ) throws Exception
+        {
+            BufferedImage image = new BufferedImage( Math.max( 1, width ), Math.max( 1, height ), BufferedImage.TYPE_INT_ARGB_PRE );
 
-            // Re-enter the begin / end pair if necessary
-            if ( inBeginEndPair )
+            Graphics2D g = image.createGraphics( );
+            try
             {
-                if ( isOrthoMode )
-                {
-                    ( ( TextureRenderer ) newBackingStore ).beginOrthoRendering( beginRenderingWidth, beginRenderingHeight, beginRenderingDepthTestDisabled );
-                }
-                else
-                {
-                    ( ( TextureRenderer ) newBackingStore ).begin3DRendering( );
-                }
+                g.setComposite( AlphaComposite.Src );
+                g.setColor( Color.WHITE );
 
-                //XXX is this necessary? we're not using pipelined quad renderer...
-                // Push client attrib bits used by the pipelined quad renderer
-                GL gl = GLU.getCurrentGL( );
-                gl.glPushClientAttrib( ( int ) GL.GL_ALL_CLIENT_ATTRIB_BITS );
+                drawer.drawImage( g, width, height );
             }
-
-            // notify update listeners that the TextureAtlas was reorganized
-            for ( TextureAtlasUpdateListener listener : updateListeners )
+            finally
             {
-                listener.reorganized( );
+                g.dispose( );
             }
+
+            return image;
         }
     }
 }
@@ -26,9 +26,12 @@
  */
 package com.metsci.glimpse.support.atlas.painter;
 
+import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
+
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -40,6 +43,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import java.util.concurrent.Executors;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
@@ -55,6 +59,7 @@ import com.metsci.glimpse.context.GlimpseTargetStack;
 import com.metsci.glimpse.context.TargetStackUtil;
 import com.metsci.glimpse.event.mouse.GlimpseMouseEvent;
 import com.metsci.glimpse.event.mouse.GlimpseMouseMotionListener;
+import com.metsci.glimpse.gl.GLAsyncReadback;
 import com.metsci.glimpse.gl.GLSimpleFrameBufferObject;
 import com.metsci.glimpse.gl.attribute.GLBuffer;
 import com.metsci.glimpse.gl.attribute.GLByteBuffer;
@@ -68,9 +73,12 @@ import com.metsci.glimpse.support.atlas.TextureAtlas;
 import com.metsci.glimpse.support.atlas.shader.TextureAtlasIconShaderFragment;
 import com.metsci.glimpse.support.atlas.shader.TextureAtlasIconShaderGeometry;
 import com.metsci.glimpse.support.atlas.shader.TextureAtlasIconShaderVertex;
+import com.metsci.glimpse.support.atlas.support.ImageAlphaMask;
 import com.metsci.glimpse.support.atlas.support.ImageData;
 import com.metsci.glimpse.support.atlas.support.TextureAtlasUpdateListener;
 import com.metsci.glimpse.support.selection.SpatialSelectionListener;
+import com.metsci.glimpse.util.primitives.IntsArray;
+import com.metsci.glimpse.util.quadtree.QuadTreeInts;
 import com.sun.opengl.util.BufferUtil;
 import com.sun.opengl.util.texture.TextureCoords;
 
@@ -85,9 +93,9 @@ import com.sun.opengl.util.texture.TextureCoords;
 //      to VRAM again. Either GLFloatBuffer needs to be smarter and use glSubBuffer or we
 //      need to do things manually with FloatBuffers.
 //
-//TODO: Picking could also be done without OpenGL using the quadtree that GLFloatBuffer2D
-//      provides. However, this might be slower and take up more memory with lots of icons.
-//      It also doesn't easily handle not picking on transparent parts of icons.
+//NOTE: Picking can also be done without OpenGL (see setCpuPickingEnabled). This keeps a copy
+//      of icon placements in a quadtree per group, which costs memory with lots of icons, but
+//      avoids a glReadPixels stall per icon group on every pick.
 //
 //TODO: The problem with the current color-based picking approach is that it really only handles
 //      picks at one location at a time (we could draw to a larger offscreen buffer,
@@ -104,6 +112,8 @@ public class IconPainter extends GlimpseDataPainter2D
     private static final int WIDTH_BUFFER = 5;
     private static final int HEIGHT_BUFFER = 5;
 
+    private static final int PICK_INDEX_MAX_BUCKET_SIZE = 500;
+
     protected int initialGroupSize;
 
     // shader fields
@@ -137,9 +147,26 @@ public class IconPainter extends GlimpseDataPainter2D
     protected List<SpatialSelectionListener<PickResult>> pickListeners;
     protected Executor pickNotificationThread;
 
+    // fields related to asynchronous readback of the pick buffer
+    protected boolean asyncPickReadback = false;
+    protected GLAsyncReadback pickReadback;
+    protected LinkedList<PendingPick> pendingPicks;
+
+    // fields related to cpu picking support
+    protected boolean cpuPickingEnabled = false;
+    protected boolean cpuPickAlphaTest = true;
+    protected float globalScale = 1.0f;
+
     protected ReentrantLock lock;
 
     //@formatter:off
+    public IconPainter( int initialGroupSize, boolean enablePicking, boolean cpuPicking )
+    {
+        this( initialGroupSize, enablePicking );
+
+        this.cpuPickingEnabled = cpuPicking;
+    }
+
     public IconPainter( int initialGroupSize, boolean enablePicking )
     {
         this.vertexShader = new TextureAtlasIconShaderVertex( pixelCoordsAttributeIndex, texCoordsAttributeIndex, colorCoordsAttributeIndex );
@@ -157,6 +184,7 @@ public class IconPainter extends GlimpseDataPainter2D
         this.pickResultBuffer = BufferUtil.newByteBuffer( BufferUtil.SIZEOF_BYTE * COMPONENTS_PER_COLOR * ( WIDTH_BUFFER * 2 + 1 ) * ( HEIGHT_BUFFER * 2 + 1 ) );
         this.pickListeners = new CopyOnWriteArrayList<SpatialSelectionListener<PickResult>>( );
         this.pickNotificationThread = Executors.newSingleThreadExecutor( );
+        this.pendingPicks = new LinkedList<PendingPick>( );
 
         this.initialGroupSize = initialGroupSize;
     }
@@ -234,6 +262,115 @@ public class IconPainter extends GlimpseDataPainter2D
         }
     }
 
+    /**
+     * Indicates whether picks are answered from an index of icon placements on the CPU
+     * rather than by rendering icons into an offscreen pick buffer.
+     */
+    public boolean isCpuPickingEnabled( )
+    {
+        this.lock.lock( );
+        try
+        {
+            return this.cpuPickingEnabled;
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * @see #setCpuPickingEnabled( boolean, boolean )
+     */
+    public void setCpuPickingEnabled( boolean enable )
+    {
+        setCpuPickingEnabled( enable, true );
+    }
+
+    /**
+     * Chooses between the OpenGL and CPU pick engines. The OpenGL engine renders each visible
+     * icon group into a small offscreen buffer around the mouse and reads it back, which stalls
+     * the pipeline once per group on each pick. The CPU engine keeps the position, rotation and
+     * scale of each icon in a quadtree per group and tests icon outlines against the pick area
+     * directly.
+     *
+     * If alphaTest is true, the CPU engine only picks an icon if a non-transparent pixel of its
+     * image falls inside the pick area (as the OpenGL engine does). Otherwise the whole
+     * rectangle of the icon is pickable.
+     *
+     * Enabling CPU picking for a painter which already contains icons builds the index from the
+     * existing icon placements.
+     *
+     * @param enable true to use the CPU pick engine, false to use the OpenGL pick engine
+     * @param alphaTest whether the CPU pick engine should ignore transparent parts of icons
+     */
+    public void setCpuPickingEnabled( boolean enable, boolean alphaTest )
+    {
+        this.lock.lock( );
+        try
+        {
+            this.cpuPickAlphaTest = alphaTest;
+
+            if ( this.cpuPickingEnabled == enable ) return;
+
+            this.cpuPickingEnabled = enable;
+
+            for ( IconGroup group : iconGroupMap.values( ) )
+            {
+                if ( enable )
+                {
+                    group.createPickIndex( );
+                }
+                else
+                {
+                    group.pickIndex = null;
+                }
+            }
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * Indicates whether the OpenGL pick engine reads the pick buffer back asynchronously.
+     */
+    public boolean isAsyncPickReadback( )
+    {
+        this.lock.lock( );
+        try
+        {
+            return this.asyncPickReadback;
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * If true, the OpenGL pick engine copies the pick buffer for each icon group into a pixel
+     * buffer object and examines the results on a later frame, so that picking does not stall
+     * the OpenGL pipeline. Listeners are then notified one (or occasionally more) frames after
+     * the mouse moves, so this is only suitable for canvases which are repainted continuously
+     * (for example, by an animator): otherwise the pick for the last mouse move is not reported
+     * until something else causes a repaint. If false (the default), the pick buffer is read
+     * back synchronously after each icon group is drawn.
+     */
+    public void setAsyncPickReadback( boolean async )
+    {
+        this.lock.lock( );
+        try
+        {
+            this.asyncPickReadback = async;
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
     public void setPickingDisabled( )
     {
         this.lock.lock( );
@@ -249,6 +386,7 @@ public class IconPainter extends GlimpseDataPainter2D
             this.pickMouseEvent = null;
             this.pickTarget = null;
             this.pickMouseListener = null;
+            this.pendingPicks.clear( );
         }
         finally
         {
@@ -264,6 +402,7 @@ public class IconPainter extends GlimpseDataPainter2D
      */
     public void setGlobalScale( float scale )
     {
+        this.globalScale = scale;
         this.geometryShader.setGlobalScale( scale );
     }
 
@@ -576,7 +715,17 @@ public class IconPainter extends GlimpseDataPainter2D
             // dispose of any buffers queued for deletion
             disposeOldBuffers( gl );
 
-            if ( this.pickSupportEnabled )
+            // deliver the results of asynchronous picks from previous frames
+            if ( this.pickReadback != null )
+            {
+                checkPendingPicks( gl );
+            }
+
+            if ( this.pickSupportEnabled && this.cpuPickingEnabled )
+            {
+                pickToIndex( context, bounds, axis );
+            }
+            else if ( this.pickSupportEnabled )
             {
                 // allocate the offscreen pick buffer if it does not exist
                 if ( this.pickFrameBuffer == null )
@@ -584,6 +733,11 @@ public class IconPainter extends GlimpseDataPainter2D
                     this.pickFrameBuffer = new GLSimpleFrameBufferObject( WIDTH_BUFFER * 2 + 1, HEIGHT_BUFFER * 2 + 1, context.getGLContext( ) );
                 }
 
+                if ( this.asyncPickReadback && this.pickReadback == null )
+                {
+                    this.pickReadback = new GLAsyncReadback( );
+                }
+
                 pickTo( context, bounds, axis );
             }
 
@@ -667,7 +821,7 @@ public class IconPainter extends GlimpseDataPainter2D
                         group.getPickColorCoords( ).bind( colorCoordsAttributeIndex, gl );
                         group.getBufferIconPlacement( ).bind( GLVertexAttribute.ATTRIB_POSITION_4D, gl );
 
-                        gl.glDrawArrays( GL.GL_POINTS, 0, group.getCurrentSize( ) );
+                        drawIconGroup( gl, group );
                     }
                 }
                 finally
@@ -682,6 +836,32 @@ public class IconPainter extends GlimpseDataPainter2D
         }
     }
 
+    // draws the icons in the group once for each TextureAtlas page they come from,
+    // with that page bound (the geometry shader discards icons from other pages)
+    protected void drawIconGroup( GL gl, IconGroup group )
+    {
+        TextureAtlas atlas = group.getAtlas( );
+        BitSet pages = group.getPages( );
+
+        if ( pages.cardinality( ) <= 1 )
+        {
+            if ( !pages.isEmpty( ) ) atlas.bindPage( pages.nextSetBit( 0 ) );
+
+            this.geometryShader.setPageIndex( gl, -1 );
+            gl.glDrawArrays( GL.GL_POINTS, 0, group.getCurrentSize( ) );
+        }
+        else
+        {
+            for ( int page = pages.nextSetBit( 0 ); page >= 0; page = pages.nextSetBit( page + 1 ) )
+            {
+                atlas.bindPage( page );
+
+                this.geometryShader.setPageIndex( gl, page );
+                gl.glDrawArrays( GL.GL_POINTS, 0, group.getCurrentSize( ) );
+            }
+        }
+    }
+
     protected void pickTo( GlimpseContext context, GlimpseBounds bounds, Axis2D axis )
     {
         // check whether mouse has moved since last draw
@@ -692,6 +872,9 @@ public class IconPainter extends GlimpseDataPainter2D
         GLContext glContext = context.getGLContext( );
         GL gl = context.getGL( );
 
+        boolean async = this.asyncPickReadback && this.pickReadback != null;
+        PendingPick pendingPick = async ? new PendingPick( TargetStackUtil.newTargetStack( context.getTargetStack( ) ) ) : null;
+
         this.setPickOrthoProjection( gl, bounds, axis, this.pickMouseEvent.getX( ), bounds.getHeight( ) - this.pickMouseEvent.getY( ) );
 
         // in pick mode the pick color is drawn in place of non-transparent areas of the texture
@@ -725,9 +908,16 @@ public class IconPainter extends GlimpseDataPainter2D
 
                         resetPickFrameBuffer( glContext );
 
-                        gl.glDrawArrays( GL.GL_POINTS, 0, group.getCurrentSize( ) );
+                        drawIconGroup( gl, group );
 
-                        checkPickFrameBuffer( context, group, pickedIcons );
+                        if ( async )
+                        {
+                            pendingPick.add( group, this.pickReadback.readPixels( gl, 0, 0, WIDTH_BUFFER * 2 + 1, HEIGHT_BUFFER * 2 + 1 ) );
+                        }
+                        else
+                        {
+                            checkPickFrameBuffer( context, group, pickedIcons );
+                        }
                     }
                 }
                 finally
@@ -745,7 +935,103 @@ public class IconPainter extends GlimpseDataPainter2D
             gl.glViewport( bounds.getX( ), bounds.getY( ), bounds.getWidth( ), bounds.getHeight( ) );
         }
 
-        notifySpatialSelectionListeners( pickedIcons );
+        if ( async )
+        {
+            this.pendingPicks.add( pendingPick );
+        }
+        else
+        {
+            notifySpatialSelectionListeners( pickedIcons );
+        }
+    }
+
+    // notify listeners of picks from previous frames whose pick buffer readbacks have completed
+    protected void checkPendingPicks( GL gl )
+    {
+        this.pickReadback.poll( gl );
+
+        while ( !this.pendingPicks.isEmpty( ) && this.pendingPicks.getFirst( ).isDone( ) )
+        {
+            PendingPick pendingPick = this.pendingPicks.removeFirst( );
+
+            Set<PickResult> pickedIcons = new HashSet<PickResult>( );
+
+            for ( int i = 0; i < pendingPick.groups.size( ); i++ )
+            {
+                try
+                {
+                    ByteBuffer buffer = pendingPick.pixels.get( i ).get( );
+                    checkPickBuffer( buffer, pendingPick.groups.get( i ), pendingPick.stack, pickedIcons );
+                }
+                catch ( Exception e )
+                {
+                    logWarning( logger, "Trouble reading pick buffer.", e );
+                }
+            }
+
+            notifySpatialSelectionListeners( pickedIcons );
+        }
+    }
+
+    protected void pickToIndex( GlimpseContext context, GlimpseBounds bounds, Axis2D axis )
+    {
+        // check whether mouse has moved since last draw
+        if ( this.pickMouseEvent == null ) return;
+
+        GlimpseTargetStack stack = TargetStackUtil.newTargetStack( context.getTargetStack( ) );
+
+        int clickX = this.pickMouseEvent.getX( );
+        int clickY = bounds.getHeight( ) - this.pickMouseEvent.getY( );
+
+        notifySpatialSelectionListeners( pick( stack, axis, clickX, clickY ) );
+    }
+
+    /**
+     * Finds the icons under the provided pixel location using the CPU pick index. Icons are
+     * picked if they cover any pixel in the same small box around the location that the
+     * OpenGL pick engine draws into.
+     *
+     * Pixel coordinates are measured from the lower left corner of the GlimpseLayout the painter
+     * is drawn in (so a mouse event y coordinate must be subtracted from the layout height).
+     * Icons added since the last repaint are included, though icon groups which have never been
+     * painted may not yet have their images loaded in the TextureAtlas and are ignored.
+     *
+     * @param stack the target stack reported in each PickResult
+     * @param axis the axis the painter is drawn with
+     * @param pixelX the pick location x pixel
+     * @param pixelY the pick location y pixel
+     * @throws IllegalStateException if CPU picking is not enabled
+     */
+    public Set<PickResult> pick( GlimpseTargetStack stack, Axis2D axis, int pixelX, int pixelY )
+    {
+        this.lock.lock( );
+        try
+        {
+            if ( !this.cpuPickingEnabled ) throw new IllegalStateException( "CPU picking is not enabled for this IconPainter." );
+
+            Set<PickResult> pickedIcons = new HashSet<PickResult>( );
+
+            for ( Map.Entry<TextureAtlas,Set<IconGroup>> entry : this.iconGroupsByAtlas.entrySet( ) )
+            {
+                TextureAtlas atlas = entry.getKey( );
+
+                // icon images are looked up at most once per call
+                Map<Object,IconShape> shapes = new HashMap<Object,IconShape>( );
+
+                for ( IconGroup group : entry.getValue( ) )
+                {
+                    if ( !group.isVisible( ) || group.pickIndex == null ) continue;
+
+                    group.pickIndex.pick( atlas, shapes, stack, axis, pixelX, pixelY, pickedIcons );
+                }
+            }
+
+            return pickedIcons;
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
     }
 
     // set the frame buffer background to transparent (which we will interpret
@@ -793,12 +1079,23 @@ public class IconPainter extends GlimpseDataPainter2D
 
         context.getGL( ).glReadPixels( 0, 0, width, height, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, pickResultBuffer.rewind( ) );
 
+        checkPickBuffer( pickResultBuffer, group, stack, resultSet );
+    }
+
+    // look through pick buffer pixels and and append unique icons to the result set
+    protected void checkPickBuffer( ByteBuffer buffer, IconGroup group, GlimpseTargetStack stack, Set<PickResult> resultSet )
+    {
+        int width = WIDTH_BUFFER * 2 + 1;
+        int height = HEIGHT_BUFFER * 2 + 1;
+
+        buffer.rewind( );
+
         for ( int i = 0; i < width * height; i++ )
         {
-            int r = pickResultBuffer.get( );
-            int g = pickResultBuffer.get( );
-            int b = pickResultBuffer.get( );
-            int a = pickResultBuffer.get( );
+            int r = buffer.get( );
+            int g = buffer.get( );
+            int b = buffer.get( );
+            int a = buffer.get( );
 
             if ( a != 0 )
             {
@@ -880,6 +1177,8 @@ public class IconPainter extends GlimpseDataPainter2D
         disposeOldBuffers( context.getGL( ) );
 
         if ( pickFrameBuffer != null ) pickFrameBuffer.dispose( context );
+
+        if ( pickReadback != null ) pickReadback.dispose( context.getGL( ) );
     }
 
     public class PickResult
@@ -969,6 +1268,37 @@ public class IconPainter extends GlimpseDataPainter2D
         }
     }
 
+    // the pick buffer readbacks for each icon group from one asynchronous pick
+    private final class PendingPick
+    {
+        private GlimpseTargetStack stack;
+        private List<IconGroup> groups;
+        private List<Future<ByteBuffer>> pixels;
+
+        public PendingPick( GlimpseTargetStack stack )
+        {
+            this.stack = stack;
+            this.groups = new ArrayList<IconGroup>( );
+            this.pixels = new ArrayList<Future<ByteBuffer>>( );
+        }
+
+        public void add( IconGroup group, Future<ByteBuffer> future )
+        {
+            this.groups.add( group );
+            this.pixels.add( future );
+        }
+
+        public boolean isDone( )
+        {
+            for ( Future<ByteBuffer> future : this.pixels )
+            {
+                if ( !future.isDone( ) ) return false;
+            }
+
+            return true;
+        }
+    }
+
     private abstract class AddIcons
     {
         protected Object iconId;
@@ -977,6 +1307,8 @@ public class IconPainter extends GlimpseDataPainter2D
 
         public abstract void addPlacementValues( IconGroup group );
 
+        public abstract void addPickIndexValues( IconPickIndex index );
+
         public void addIcons( IconGroup group )
         {
             final int size = getSize( );
@@ -995,6 +1327,9 @@ public class IconPainter extends GlimpseDataPainter2D
                 group.iconIds.add( iconId );
             }
 
+            final int page = imageData.getPage( );
+            group.pages.set( page );
+
             group.pixelCoordsValues.mutate( new Mutator( )
             {
                 @Override
@@ -1045,6 +1380,8 @@ public class IconPainter extends GlimpseDataPainter2D
                     // pickable icons per group (which is more than
                     // we can display without performance degradation
                     // anyway, so should be no problem)
+                    //
+                    // the fourth component holds the texture atlas page
                     data.limit( currentSize * length );
                     data.position( ( currentSize - size ) * length );
                     for ( int i = 0; i < size; i++ )
@@ -1057,7 +1394,7 @@ public class IconPainter extends GlimpseDataPainter2D
 
                         //System.out.printf( "%d %d %d%n", r, g, b );
 
-                        data.put( r ).put( g ).put( b );
+                        data.put( r ).put( g ).put( b ).put( ( byte ) page );
                     }
                 }
             } );
@@ -1112,6 +1449,14 @@ public class IconPainter extends GlimpseDataPainter2D
                 }
             } );
         }
+
+        public void addPickIndexValues( IconPickIndex index )
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                index.add( iconId, positionX[i], positionY[i], rotation[i], scale[i] );
+            }
+        }
     }
 
     private final class AddIconsInterleaved extends AddIcons
@@ -1149,6 +1494,14 @@ public class IconPainter extends GlimpseDataPainter2D
                 }
             } );
         }
+
+        public void addPickIndexValues( IconPickIndex index )
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                index.add( iconId, positions[i * 4], positions[i * 4 + 1], positions[i * 4 + 2], positions[i * 4 + 3] );
+            }
+        }
     }
 
     private final class AddIconsBuffer extends AddIcons
@@ -1190,6 +1543,208 @@ public class IconPainter extends GlimpseDataPainter2D
                 }
             } );
         }
+
+        public void addPickIndexValues( IconPickIndex index )
+        {
+            for ( int i = 0; i < vertexCount; i++ )
+            {
+                int j = offset + i * 4;
+                index.add( iconId, positions.get( j ), positions.get( j + 1 ), positions.get( j + 2 ), positions.get( j + 3 ) );
+            }
+        }
+    }
+
+    // the size and shape of an icon image, looked up from the TextureAtlas once per pick
+    private static final class IconShape
+    {
+        private int bufferedWidth;
+        private int bufferedHeight;
+        private int originX;
+        private int originY;
+        private int bufferX;
+        private int bufferY;
+
+        // distance in pixels from the icon center to its furthest corner
+        private double radius;
+
+        private ImageAlphaMask mask;
+
+        public IconShape( ImageData data )
+        {
+            this.bufferedWidth = data.getBufferedWidth( );
+            this.bufferedHeight = data.getBufferedHeight( );
+            this.bufferX = data.getBufferX( );
+            this.bufferY = data.getBufferY( );
+            this.originX = data.getCenterX( ) + this.bufferX;
+            this.originY = data.getCenterY( ) + this.bufferY;
+
+            double dx = Math.max( originX, bufferedWidth - originX );
+            double dy = Math.max( originY, bufferedHeight - originY );
+            this.radius = Math.sqrt( dx * dx + dy * dy );
+        }
+    }
+
+    /**
+     * CPU side copy of the icon placements in an IconGroup, indexed by position in axis space.
+     * Icon indices match those assigned by the IconGroup, and therefore the OpenGL pick colors.
+     */
+    private final class IconPickIndex
+    {
+        private Object groupId;
+
+        private float[] placements;
+        private List<Object> iconIds;
+        private Set<Object> distinctIconIds;
+        private float maxScale;
+        private int size;
+
+        private QuadTreeInts tree;
+
+        public IconPickIndex( Object groupId, int initialIconSpace )
+        {
+            this.groupId = groupId;
+            this.placements = new float[Math.max( 1, initialIconSpace ) * 4];
+            this.iconIds = new ArrayList<Object>( initialIconSpace );
+            this.distinctIconIds = new LinkedHashSet<Object>( );
+
+            this.tree = new QuadTreeInts( PICK_INDEX_MAX_BUCKET_SIZE )
+            {
+                @Override
+                protected final float x( int i )
+                {
+                    return placements[i * 4];
+                }
+
+                @Override
+                protected final float y( int i )
+                {
+                    return placements[i * 4 + 1];
+                }
+            };
+        }
+
+        public void add( Object iconId, float positionX, float positionY, float rotation, float scale )
+        {
+            if ( ( this.size + 1 ) * 4 > this.placements.length )
+            {
+                float[] newPlacements = new float[( int ) ( this.placements.length * DEFAULT_GROWTH_FACTOR ) + 4];
+                System.arraycopy( this.placements, 0, newPlacements, 0, this.size * 4 );
+                this.placements = newPlacements;
+            }
+
+            int j = this.size * 4;
+            this.placements[j] = positionX;
+            this.placements[j + 1] = positionY;
+            this.placements[j + 2] = rotation;
+            this.placements[j + 3] = scale;
+
+            this.iconIds.add( iconId );
+            this.distinctIconIds.add( iconId );
+            this.maxScale = Math.max( this.maxScale, Math.abs( scale ) );
+
+            this.tree.add( this.size++ );
+        }
+
+        public void pick( TextureAtlas atlas, Map<Object,IconShape> shapes, GlimpseTargetStack stack, Axis2D axis, int clickX, int clickY, Set<PickResult> resultSet )
+        {
+            if ( this.size == 0 ) return;
+
+            // the largest distance in pixels an icon in this group can extend from its position
+            double maxRadius = 0;
+            for ( Object iconId : this.distinctIconIds )
+            {
+                IconShape shape = getShape( atlas, shapes, iconId );
+                if ( shape != null ) maxRadius = Math.max( maxRadius, shape.radius );
+            }
+            maxRadius *= Math.abs( globalScale ) * this.maxScale;
+
+            Axis1D axisX = axis.getAxisX( );
+            Axis1D axisY = axis.getAxisY( );
+
+            // the pick box covers the same pixels as the offscreen pick buffer
+            double minPixelX = clickX - WIDTH_BUFFER;
+            double maxPixelX = clickX + WIDTH_BUFFER + 1;
+            double minPixelY = clickY - HEIGHT_BUFFER;
+            double maxPixelY = clickY + HEIGHT_BUFFER + 1;
+
+            double x1 = axisX.screenPixelToValue( minPixelX - maxRadius );
+            double x2 = axisX.screenPixelToValue( maxPixelX + maxRadius );
+            double y1 = axisY.screenPixelToValue( minPixelY - maxRadius );
+            double y2 = axisY.screenPixelToValue( maxPixelY + maxRadius );
+
+            IntsArray candidates = new IntsArray( );
+            this.tree.search( ( float ) Math.min( x1, x2 ), ( float ) Math.max( x1, x2 ), ( float ) Math.min( y1, y2 ), ( float ) Math.max( y1, y2 ), candidates );
+
+            for ( int c = 0; c < candidates.n; c++ )
+            {
+                int index = candidates.a[c];
+                Object iconId = this.iconIds.get( index );
+
+                IconShape shape = getShape( atlas, shapes, iconId );
+                if ( shape == null ) continue;
+
+                int j = index * 4;
+                double iconX = axisX.valueToScreenPixelUnits( this.placements[j] );
+                double iconY = axisY.valueToScreenPixelUnits( this.placements[j + 1] );
+                double rotation = this.placements[j + 2];
+                double scale = globalScale * this.placements[j + 3];
+
+                if ( scale == 0 ) continue;
+
+                if ( isPicked( shape, iconX, iconY, rotation, scale, minPixelX, maxPixelX, minPixelY, maxPixelY ) )
+                {
+                    resultSet.add( new PickResult( groupId, iconId, index, stack ) );
+                }
+            }
+        }
+
+        // test the center of each pixel in the pick box against the rotated and scaled icon,
+        // mirroring the rasterization of the icon into the offscreen pick buffer
+        protected boolean isPicked( IconShape shape, double iconX, double iconY, double rotation, double scale, double minPixelX, double maxPixelX, double minPixelY, double maxPixelY )
+        {
+            // quick reject based on the icon's bounding circle
+            double r = shape.radius * Math.abs( scale );
+            if ( iconX + r < minPixelX || iconX - r > maxPixelX || iconY + r < minPixelY || iconY - r > maxPixelY ) return false;
+
+            double cosa = Math.cos( rotation );
+            double sina = Math.sin( rotation );
+
+            for ( double py = minPixelY + 0.5; py < maxPixelY; py++ )
+            {
+                for ( double px = minPixelX + 0.5; px < maxPixelX; px++ )
+                {
+                    double dx = px - iconX;
+                    double dy = py - iconY;
+
+                    // undo the rotation and scale applied by the geometry shader
+                    double u = ( dx * cosa + dy * sina ) / scale + shape.originX;
+                    double v = ( -dx * sina + dy * cosa ) / scale + shape.originY;
+
+                    if ( u < 0 || u >= shape.bufferedWidth || v < 0 || v >= shape.bufferedHeight ) continue;
+
+                    if ( !cpuPickAlphaTest ) return true;
+
+                    if ( shape.mask.isOpaque( ( int ) u - shape.bufferX, ( int ) v - shape.bufferY ) ) return true;
+                }
+            }
+
+            return false;
+        }
+
+        protected IconShape getShape( TextureAtlas atlas, Map<Object,IconShape> shapes, Object iconId )
+        {
+            if ( shapes.containsKey( iconId ) ) return shapes.get( iconId );
+
+            IconShape shape = null;
+            if ( atlas.isImageLoaded( iconId ) )
+            {
+                shape = new IconShape( atlas.getImageData( iconId ) );
+                if ( cpuPickAlphaTest ) shape.mask = atlas.getImageAlphaMask( iconId );
+            }
+
+            shapes.put( iconId, shape );
+            return shape;
+        }
     }
 
     private final class IconGroup
@@ -1210,8 +1765,14 @@ public class IconPainter extends GlimpseDataPainter2D
 
         private GLByteBuffer pickColorValues;
 
+        // the texture atlas pages holding images used by icons in the group
+        private BitSet pages;
+
         private Collection<AddIcons> addQueue;
 
+        // null unless cpu picking is enabled
+        private IconPickIndex pickIndex;
+
         public IconGroup( Object id, TextureAtlas atlas, int initialIconSpace )
         {
             this.id = id;
@@ -1224,12 +1785,15 @@ public class IconPainter extends GlimpseDataPainter2D
             this.iconPlacementValues = new GLFloatBuffer( initialIconSpace, 4 );
             this.pixelCoordsValues = new GLFloatBuffer( initialIconSpace, 4 );
             this.texCoordsValues = new GLFloatBuffer( initialIconSpace, 4 );
-            this.pickColorValues = new GLByteBuffer( initialIconSpace, 3 );
+            this.pickColorValues = new GLByteBuffer( initialIconSpace, 4 );
+            this.pages = new BitSet( );
 
             this.addQueue = new LinkedList<AddIcons>( );
 
             this.currentSize = 0;
             this.maxSize = initialIconSpace;
+
+            if ( cpuPickingEnabled ) this.pickIndex = new IconPickIndex( id, initialIconSpace );
         }
 
         public final Object getId( )
@@ -1282,19 +1846,60 @@ public class IconPainter extends GlimpseDataPainter2D
             return this.pickColorValues;
         }
 
+        public final BitSet getPages( )
+        {
+            return this.pages;
+        }
+
         public void addIcons( Object iconId, float[] positionX, float[] positionY, float rotation[], float[] scale )
         {
-            this.addQueue.add( new AddIconsSeparate( iconId, positionX, positionY, rotation, scale ) );
+            this.enqueue( new AddIconsSeparate( iconId, positionX, positionY, rotation, scale ) );
         }
 
         public void addIcons( Object iconId, float[] positions )
         {
-            this.addQueue.add( new AddIconsInterleaved( iconId, positions ) );
+            this.enqueue( new AddIconsInterleaved( iconId, positions ) );
         }
 
         public void addIcons( Object iconId, FloatBuffer positions, int offset, int vertexCount )
         {
-            this.addQueue.add( new AddIconsBuffer( iconId, positions, offset, vertexCount ) );
+            this.enqueue( new AddIconsBuffer( iconId, positions, offset, vertexCount ) );
+        }
+
+        protected void enqueue( AddIcons addIcons )
+        {
+            this.addQueue.add( addIcons );
+
+            // icons are assigned indices in the order they are queued, so the pick index
+            // can be updated immediately even though the gl buffers are not
+            if ( this.pickIndex != null ) addIcons.addPickIndexValues( this.pickIndex );
+        }
+
+        public void createPickIndex( )
+        {
+            final IconPickIndex index = new IconPickIndex( this.id, this.maxSize );
+
+            // icons which have already been moved into the gl buffers
+            this.iconPlacementValues.read( new Mutator( )
+            {
+                @Override
+                public void mutate( FloatBuffer data, int length )
+                {
+                    for ( int i = 0; i < currentSize; i++ )
+                    {
+                        int j = i * length;
+                        index.add( iconIds.get( i ), data.get( j ), data.get( j + 1 ), data.get( j + 2 ), data.get( j + 3 ) );
+                    }
+                }
+            } );
+
+            // icons which are still waiting to be added
+            for ( AddIcons addIcons : this.addQueue )
+            {
+                addIcons.addPickIndexValues( index );
+            }
+
+            this.pickIndex = index;
         }
 
         public void addIcon( Object iconId, final float positionX, final float positionY, final float rotation, float scale )
@@ -1335,7 +1940,7 @@ public class IconPainter extends GlimpseDataPainter2D
             GLFloatBuffer placementValues_temp = new GLFloatBuffer( newSize, 4 );
             GLFloatBuffer pixelCoordsValues_temp = new GLFloatBuffer( newSize, 4 );
             GLFloatBuffer texCoordsValues_temp = new GLFloatBuffer( newSize, 4 );
-            GLByteBuffer pickColorValues_temp = new GLByteBuffer( newSize, 3 );
+            GLByteBuffer pickColorValues_temp = new GLByteBuffer( newSize, 4 );
 
             // copy existing data to the new buffers
             copy( this.iconPlacementValues, placementValues_temp );
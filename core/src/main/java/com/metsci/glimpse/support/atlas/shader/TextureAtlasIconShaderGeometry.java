@@ -46,6 +46,8 @@ public class TextureAtlasIconShaderGeometry extends SimpleGeometryShader
     
     protected ShaderArg globalScale;
 
+    protected ShaderArg pageIndex;
+
     public TextureAtlasIconShaderGeometry( )
     {
         super( "Texture Atlas Icon Geometry Shader", "shaders/atlas/texture_atlas_icon_shader.gs", GL.GL_POINTS, GL.GL_TRIANGLE_STRIP, 4 );
@@ -58,6 +60,9 @@ public class TextureAtlasIconShaderGeometry extends SimpleGeometryShader
         
         this.globalScale = getArg( "globalScale" );
         this.globalScale.setValue( 1 );
+
+        this.pageIndex = getArg( "pageIndex" );
+        this.pageIndex.setValue( -1 );
     }
 
     public void updateViewport( GlimpseBounds bounds )
@@ -75,4 +80,15 @@ public class TextureAtlasIconShaderGeometry extends SimpleGeometryShader
     {
         this.globalScale.setValue( scale );
     }
+
+    /**
+     * Restricts drawing to icons from the given {@link com.metsci.glimpse.support.atlas.TextureAtlas}
+     * page (as encoded in the fourth component of the pick color attribute). A negative page draws
+     * all icons. Must be called while the shader is in use.
+     */
+    public void setPageIndex( GL gl, int page )
+    {
+        this.pageIndex.setValue( page );
+        this.updateArgValues( gl );
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.atlas.shader;
+
+import javax.media.opengl.GL;
+
+import com.metsci.glimpse.gl.shader.Shader;
+import com.metsci.glimpse.gl.shader.ShaderArg;
+import com.metsci.glimpse.gl.shader.ShaderType;
+
+/**
+ * Fragment shader which draws signed distance field glyphs from a TextureAtlas.
+ * Intended to be used with {@link TextureAtlasIconShaderVertex} and
+ * {@link TextureAtlasIconShaderGeometry}, which position each glyph quad.
+ *
+ * @see com.metsci.glimpse.support.font.sdf.SdfTextPainter
+ */
+public class TextureAtlasSdfShaderFragment extends Shader
+{
+    protected int textureUnit;
+    protected ShaderArg textureUnitArg;
+    protected ShaderArg colorArg;
+    protected ShaderArg thresholdArg;
+
+    public TextureAtlasSdfShaderFragment( int textureUnit )
+    {
+        super( "Texture Atlas Signed Distance Field Fragment Shader", ShaderType.fragment, "shaders/atlas/texture_atlas_sdf_shader.fs" );
+        this.textureUnit = textureUnit;
+
+        this.colorArg = getArg( "color" );
+        this.colorArg.setValue( new float[] { 0.0f, 0.0f, 0.0f, 1.0f } );
+
+        this.thresholdArg = getArg( "threshold" );
+        this.thresholdArg.setValue( 0.5f );
+    }
+
+    @Override
+    public boolean preLink( GL gl, int glProgramHandle )
+    {
+        this.textureUnitArg = getArg( "tex" );
+        this.textureUnitArg.setValue( textureUnit );
+
+        return true;
+    }
+
+    @Override
+    public void preDisplay( GL gl )
+    {
+    }
+
+    @Override
+    public void postDisplay( GL gl )
+    {
+    }
+
+    /**
+     * Sets the distance field value treated as the glyph edge. Values below
+     * 0.5 embolden the text and values above 0.5 thin it.
+     */
+    public void setThreshold( float threshold )
+    {
+        this.thresholdArg.setValue( threshold );
+    }
+
+    /**
+     * Updates the text color. May be called between draw calls while the
+     * pipeline is in use, in which case the new value is pushed immediately.
+     */
+    public void setColor( GL gl, float[] color )
+    {
+        this.colorArg.setValue( color );
+        this.updateArgValues( gl );
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.atlas.support;
+
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+
+/**
+ * An immutable record of which pixels of an image in the TextureAtlas are not fully
+ * transparent. Used to test icon picks on the CPU with the same result as the
+ * alpha test performed by the pick mode of the icon fragment shader.
+ * 
+ * Pixel coordinates are relative to the lower left pixel of the image (not including
+ * the buffer around the edge of the image), matching the convention used for the
+ * image center in {@link ImageData}.
+ */
+public class ImageAlphaMask
+{
+    private int width;
+    private int height;
+    private BitSet opaque;
+
+    /**
+     * Extracts the alpha mask of the width x height region of image whose upper left
+     * corner (in Java2D coordinates) is at x, y.
+     */
+    public ImageAlphaMask( BufferedImage image, int x, int y, int width, int height )
+    {
+        this.width = width;
+        this.height = height;
+        this.opaque = new BitSet( width * height );
+
+        int[] argb = image.getRGB( x, y, width, height, null, 0, width );
+
+        for ( int row = 0; row < height; row++ )
+        {
+            // Java2D rows run top to bottom, mask rows run bottom to top
+            int maskRow = height - 1 - row;
+
+            for ( int col = 0; col < width; col++ )
+            {
+                if ( ( argb[row * width + col] >>> 24 ) != 0 )
+                {
+                    this.opaque.set( maskRow * width + col );
+                }
+            }
+        }
+    }
+
+    public final int getWidth( )
+    {
+        return width;
+    }
+
+    public final int getHeight( )
+    {
+        return height;
+    }
+
+    /**
+     * @return true if the pixel at x, y (relative to the lower left pixel of the image)
+     *         is not fully transparent, false if it is transparent or outside the image
+     */
+    public final boolean isOpaque( int x, int y )
+    {
+        if ( x < 0 || x >= width || y < 0 || y >= height ) return false;
+
+        return opaque.get( y * width + x );
+    }
+}
@@ -48,6 +48,15 @@ public class ImageData
         return delegate.getId( );
     }
     
+    /**
+     * @return the index of the TextureAtlas page holding the image
+     * @see com.metsci.glimpse.support.atlas.TextureAtlas#bindPage( int )
+     */
+    public final int getPage( )
+    {
+        return delegate.getPage( );
+    }
+
     public final int getBufferX( )
     {
         return delegate.getBufferX( );
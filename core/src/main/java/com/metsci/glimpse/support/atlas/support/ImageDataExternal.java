@@ -26,6 +26,9 @@
  */
 package com.metsci.glimpse.support.atlas.support;
 
+import java.awt.image.BufferedImage;
+import java.util.concurrent.Future;
+
 /**
  * Metadata for images waiting in the queue to be added to the TextureAtlas.
  * 
@@ -49,6 +52,10 @@ public class ImageDataExternal
     // the Graphics2D routine used to draw the image
     private ImageDrawer drawer;
 
+    // the image rasterized off the OpenGL thread, or null if the
+    // drawer should be run directly onto the TextureAtlas page
+    private Future<BufferedImage> raster;
+
     public ImageDataExternal( Object id, int centerX, int centerY, int width, int height, ImageDrawer drawer )
     {
         this.id = id;
@@ -88,4 +95,14 @@ public class ImageDataExternal
     {
         return drawer;
     }
+
+    public void setRaster( Future<BufferedImage> raster )
+    {
+        this.raster = raster;
+    }
+
+    public Future<BufferedImage> getRaster( )
+    {
+        return raster;
+    }
 }
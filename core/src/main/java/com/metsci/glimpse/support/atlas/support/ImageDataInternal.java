@@ -47,6 +47,9 @@ public class ImageDataInternal
     private int centerX;
     private int centerY;
     
+    // the index of the texture atlas page which holds the image
+    private int page;
+
     // the x and y location of the lower left of the image relative to the whole texture atlas
     private int locationX;
     private int locationY;
@@ -64,8 +67,14 @@ public class ImageDataInternal
     private boolean delete = false; // whether the texture is no longer needed
     
     public ImageDataInternal( Object id, int centerX, int centerY, int bufferX, int bufferY, int width, int height )
+    {
+        this( id, 0, centerX, centerY, bufferX, bufferY, width, height );
+    }
+
+    public ImageDataInternal( Object id, int page, int centerX, int centerY, int bufferX, int bufferY, int width, int height )
     {
         this.id = id;
+        this.page = page;
         
         this.centerX = centerX;
         this.centerY = centerY;
@@ -87,6 +96,11 @@ public class ImageDataInternal
         return id;
     }
     
+    public int getPage( )
+    {
+        return page;
+    }
+
     public int getBufferX( )
     {
         return bufferX;
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.atlas.support;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Allocates rectangular regions of a single fixed-size TextureAtlas page.
+ * 
+ * Unlike {@link com.sun.opengl.impl.packrect.RectanglePacker}, a PagePacker never grows
+ * and never moves a region once it has been allocated. Free space is tracked as a list
+ * of disjoint rectangles: allocations take the best fitting free rectangle and split off
+ * the remainder (guillotine style) and freed regions are merged back with neighboring
+ * free rectangles which share a full edge.
+ * 
+ * Coordinates have their origin at the upper left of the page, like Java2D.
+ */
+public class PagePacker
+{
+    private int width;
+    private int height;
+
+    private List<Rectangle> free;
+    private int usedArea;
+
+    public PagePacker( int width, int height )
+    {
+        this.width = width;
+        this.height = height;
+
+        this.free = new ArrayList<Rectangle>( );
+        this.free.add( new Rectangle( 0, 0, width, height ) );
+    }
+
+    public int getWidth( )
+    {
+        return width;
+    }
+
+    public int getHeight( )
+    {
+        return height;
+    }
+
+    /**
+     * @return the fraction of the page area currently allocated
+     */
+    public float getUsage( )
+    {
+        return usedArea / ( float ) ( width * height );
+    }
+
+    /**
+     * Allocates a width x height region of the page.
+     * 
+     * @return the allocated region, or null if no free space large enough remains
+     */
+    public Rectangle allocate( int w, int h )
+    {
+        int bestIndex = -1;
+        long bestArea = Long.MAX_VALUE;
+
+        for ( int i = 0; i < free.size( ); i++ )
+        {
+            Rectangle r = free.get( i );
+            if ( r.width < w || r.height < h ) continue;
+
+            long area = ( long ) r.width * r.height;
+            if ( area < bestArea )
+            {
+                bestArea = area;
+                bestIndex = i;
+            }
+        }
+
+        if ( bestIndex < 0 ) return null;
+
+        Rectangle r = free.remove( bestIndex );
+
+        int leftoverX = r.width - w;
+        int leftoverY = r.height - h;
+
+        // split along the shorter leftover axis, which keeps the larger
+        // leftover piece as square as possible
+        if ( leftoverX < leftoverY )
+        {
+            addFree( r.x + w, r.y, leftoverX, h );
+            addFree( r.x, r.y + h, r.width, leftoverY );
+        }
+        else
+        {
+            addFree( r.x + w, r.y, leftoverX, r.height );
+            addFree( r.x, r.y + h, w, leftoverY );
+        }
+
+        usedArea += w * h;
+
+        return new Rectangle( r.x, r.y, w, h );
+    }
+
+    /**
+     * Returns a region previously returned by {@link #allocate( int, int )} to the pool of free space.
+     */
+    public void free( Rectangle region )
+    {
+        usedArea -= region.width * region.height;
+
+        // merging only joins rectangles sharing a full edge, which cannot always
+        // undo the splits made by allocate( ), so start over once the page is empty
+        if ( usedArea == 0 )
+        {
+            free.clear( );
+            free.add( new Rectangle( 0, 0, width, height ) );
+            return;
+        }
+
+        Rectangle merged = new Rectangle( region );
+
+        // repeatedly absorb free neighbors which share a full edge with the region
+        boolean changed = true;
+        while ( changed )
+        {
+            changed = false;
+
+            for ( int i = 0; i < free.size( ); i++ )
+            {
+                Rectangle r = free.get( i );
+
+                if ( r.y == merged.y && r.height == merged.height && ( r.x + r.width == merged.x || merged.x + merged.width == r.x ) )
+                {
+                    merged = merged.union( r );
+                }
+                else if ( r.x == merged.x && r.width == merged.width && ( r.y + r.height == merged.y || merged.y + merged.height == r.y ) )
+                {
+                    merged = merged.union( r );
+                }
+                else
+                {
+                    continue;
+                }
+
+                free.remove( i );
+                changed = true;
+                break;
+            }
+        }
+
+        free.add( merged );
+    }
+
+    private void addFree( int x, int y, int w, int h )
+    {
+        if ( w > 0 && h > 0 ) free.add( new Rectangle( x, y, w, h ) );
+    }
+}
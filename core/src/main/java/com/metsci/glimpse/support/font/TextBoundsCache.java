@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.font;
+
+import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sun.opengl.util.j2d.TextRenderer;
+
+/**
+ * Remembers the measured bounds of recently drawn strings so that painters which
+ * draw the same labels every frame (axis tick labels, for example) do not ask the
+ * {@link TextRenderer} to lay them out again.<p>
+ *
+ * The cache is tied to a single TextRenderer at a time. Passing a different
+ * renderer (for instance after a font change) silently clears it. The returned
+ * rectangles are shared and must not be modified by callers.
+ */
+public class TextBoundsCache
+{
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    protected final Map<String, Rectangle2D> bounds;
+    protected TextRenderer renderer;
+
+    public TextBoundsCache( )
+    {
+        this( DEFAULT_MAX_ENTRIES );
+    }
+
+    public TextBoundsCache( final int maxEntries )
+    {
+        if ( maxEntries < 1 ) throw new IllegalArgumentException( String.format( "maxEntries must be positive: %d", maxEntries ) );
+
+        this.bounds = new LinkedHashMap<String, Rectangle2D>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, Rectangle2D> eldest )
+            {
+                return size( ) > maxEntries;
+            }
+        };
+    }
+
+    public Rectangle2D getBounds( TextRenderer renderer, String text )
+    {
+        if ( this.renderer != renderer )
+        {
+            this.bounds.clear( );
+            this.renderer = renderer;
+        }
+
+        Rectangle2D textBounds = this.bounds.get( text );
+        if ( textBounds == null )
+        {
+            textBounds = renderer.getBounds( text );
+            this.bounds.put( text, textBounds );
+        }
+
+        return textBounds;
+    }
+
+    public void clear( )
+    {
+        this.bounds.clear( );
+        this.renderer = null;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.font.sdf;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Converts an anti-aliased coverage mask into a signed distance field.<p>
+ *
+ * The output image is white with the distance to the nearest glyph edge encoded
+ * in the alpha channel: 0.5 lies on the edge, values above 0.5 are inside the
+ * glyph and values below 0.5 are outside. Distances are clamped to the provided
+ * spread (in pixels), so the mask should be padded by at least that many pixels.<p>
+ *
+ * Because the shape is stored as a distance rather than as coverage, it can be
+ * drawn at any scale with a single texture lookup and a smoothstep in the fragment
+ * shader, without re-rasterizing.
+ */
+public class SdfDistanceField
+{
+    // coverage values at or above this threshold (out of 255) are considered inside
+    private static final int INSIDE_THRESHOLD = 128;
+
+    /**
+     * @param mask a TYPE_BYTE_GRAY image where non-zero pixels are covered by the shape
+     * @param spread the maximum distance (in pixels) represented in the output
+     * @return a TYPE_INT_ARGB image with the signed distance stored in the alpha channel
+     */
+    public static BufferedImage createDistanceField( BufferedImage mask, int spread )
+    {
+        int width = mask.getWidth( );
+        int height = mask.getHeight( );
+
+        Raster in = mask.getRaster( );
+        boolean[] inside = new boolean[width * height];
+        for ( int y = 0; y < height; y++ )
+        {
+            for ( int x = 0; x < width; x++ )
+            {
+                inside[y * width + x] = in.getSample( x, y, 0 ) >= INSIDE_THRESHOLD;
+            }
+        }
+
+        int[] offsets = sortedOffsets( spread );
+        int offsetCount = offsets.length / 2;
+
+        BufferedImage out = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+        WritableRaster raster = out.getRaster( );
+        int[] pixel = new int[] { 255, 255, 255, 0 };
+
+        for ( int y = 0; y < height; y++ )
+        {
+            for ( int x = 0; x < width; x++ )
+            {
+                boolean state = inside[y * width + x];
+
+                // offsets are sorted by distance, so the first pixel found
+                // with the opposite state is the nearest edge
+                float distance = spread;
+                for ( int i = 0; i < offsetCount; i++ )
+                {
+                    int sx = x + offsets[2 * i];
+                    int sy = y + offsets[2 * i + 1];
+
+                    // pixels outside the mask are treated as outside the shape
+                    boolean other = sx >= 0 && sy >= 0 && sx < width && sy < height && inside[sy * width + sx];
+                    if ( other != state )
+                    {
+                        // the edge lies roughly halfway between the two pixel centers
+                        float dx = offsets[2 * i];
+                        float dy = offsets[2 * i + 1];
+                        distance = Math.min( spread, ( float ) Math.sqrt( dx * dx + dy * dy ) - 0.5f );
+                        break;
+                    }
+                }
+
+                float signed = state ? distance : -distance;
+                float value = 0.5f + 0.5f * signed / spread;
+                pixel[3] = Math.max( 0, Math.min( 255, Math.round( value * 255 ) ) );
+                raster.setPixel( x, y, pixel );
+            }
+        }
+
+        return out;
+    }
+
+    // returns interleaved (dx,dy) pairs within the spread radius, nearest first
+    private static int[] sortedOffsets( int spread )
+    {
+        int size = 2 * spread + 1;
+        Integer[] order = new Integer[size * size];
+        final int[] distSq = new int[size * size];
+        int count = 0;
+
+        for ( int dy = -spread; dy <= spread; dy++ )
+        {
+            for ( int dx = -spread; dx <= spread; dx++ )
+            {
+                int d = dx * dx + dy * dy;
+                if ( d == 0 || d > ( spread + 1 ) * ( spread + 1 ) ) continue;
+
+                int index = ( dy + spread ) * size + ( dx + spread );
+                distSq[index] = d;
+                order[count++] = index;
+            }
+        }
+
+        order = Arrays.copyOf( order, count );
+        Arrays.sort( order, new Comparator<Integer>( )
+        {
+            @Override
+            public int compare( Integer o1, Integer o2 )
+            {
+                return distSq[o1] - distSq[o2];
+            }
+        } );
+
+        int[] offsets = new int[2 * count];
+        for ( int i = 0; i < count; i++ )
+        {
+            offsets[2 * i] = order[i] % size - spread;
+            offsets[2 * i + 1] = order[i] / size - spread;
+        }
+
+        return offsets;
+    }
+}
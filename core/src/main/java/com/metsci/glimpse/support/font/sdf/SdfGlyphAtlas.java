@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.font.sdf;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.metsci.glimpse.support.atlas.TextureAtlas;
+
+/**
+ * Stores signed distance field renderings of individual glyphs in a {@link TextureAtlas}.<p>
+ *
+ * Unlike {@link com.metsci.glimpse.support.font.AttributedTextRenderer}, which rasterizes
+ * whole strings into its backing store, glyphs are rasterized once (at a single base font
+ * size) the first time they are requested. Any string made from previously seen glyphs
+ * can then be laid out using the cached {@link SdfGlyphMetrics} and drawn at any size
+ * without further rasterization or Java2D measurement.<p>
+ *
+ * Glyphs are queued for addition to the TextureAtlas when first requested, so (as with
+ * any TextureAtlas image) texture coordinates are only available after the next call to
+ * {@link TextureAtlas#beginRendering( )}.
+ *
+ * @see com.metsci.glimpse.support.font.sdf.SdfTextPainter
+ */
+public class SdfGlyphAtlas
+{
+    public static final int DEFAULT_BASE_SIZE = 48;
+    public static final int DEFAULT_SPREAD = 6;
+
+    // glyphs in this range are looked up in an array rather than a map
+    private static final int FAST_LOOKUP_SIZE = 256;
+
+    protected ReentrantLock lock;
+
+    protected TextureAtlas atlas;
+
+    protected Font font;
+    protected FontRenderContext frc;
+    protected int baseSize;
+    protected int spread;
+
+    protected float ascent;
+    protected float descent;
+    protected float lineHeight;
+
+    protected SdfGlyphMetrics[] fastGlyphs;
+    protected Map<Integer, SdfGlyphMetrics> glyphs;
+
+    /**
+     * @param atlas the TextureAtlas which will hold the glyph distance fields (may be shared with icons)
+     * @param font the font to rasterize (its size is ignored, glyphs are rendered at baseSize)
+     * @param baseSize the font size (in pixels) at which glyphs are rasterized
+     * @param spread the distance (in pixels at baseSize) captured around the edge of each glyph
+     */
+    public SdfGlyphAtlas( TextureAtlas atlas, Font font, int baseSize, int spread )
+    {
+        this.lock = new ReentrantLock( );
+        this.atlas = atlas;
+        this.baseSize = baseSize;
+        this.spread = spread;
+
+        this.font = font.deriveFont( ( float ) baseSize );
+        this.frc = new FontRenderContext( null, true, true );
+
+        LineMetrics lineMetrics = this.font.getLineMetrics( "Hg", frc );
+        this.ascent = lineMetrics.getAscent( );
+        this.descent = lineMetrics.getDescent( );
+        this.lineHeight = lineMetrics.getHeight( );
+
+        this.fastGlyphs = new SdfGlyphMetrics[FAST_LOOKUP_SIZE];
+        this.glyphs = new HashMap<Integer, SdfGlyphMetrics>( );
+    }
+
+    public SdfGlyphAtlas( Font font )
+    {
+        this( new TextureAtlas( ), font, DEFAULT_BASE_SIZE, DEFAULT_SPREAD );
+    }
+
+    public TextureAtlas getTextureAtlas( )
+    {
+        return atlas;
+    }
+
+    public Font getFont( )
+    {
+        return font;
+    }
+
+    /**
+     * @return the font size (in pixels) at which glyphs are rasterized, all metrics are relative to this size
+     */
+    public int getBaseSize( )
+    {
+        return baseSize;
+    }
+
+    public int getSpread( )
+    {
+        return spread;
+    }
+
+    public float getAscent( )
+    {
+        return ascent;
+    }
+
+    public float getDescent( )
+    {
+        return descent;
+    }
+
+    public float getLineHeight( )
+    {
+        return lineHeight;
+    }
+
+    /**
+     * Returns the metrics for the provided glyph, rasterizing it and queuing it for
+     * addition to the TextureAtlas if it has not been requested before.
+     */
+    public SdfGlyphMetrics getGlyph( int codePoint )
+    {
+        this.lock.lock( );
+        try
+        {
+            SdfGlyphMetrics glyph = codePoint < FAST_LOOKUP_SIZE ? fastGlyphs[codePoint] : glyphs.get( codePoint );
+
+            if ( glyph == null )
+            {
+                glyph = createGlyph( codePoint );
+
+                if ( codePoint < FAST_LOOKUP_SIZE )
+                {
+                    fastGlyphs[codePoint] = glyph;
+                }
+                else
+                {
+                    glyphs.put( codePoint, glyph );
+                }
+            }
+
+            return glyph;
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * Ensures that all the glyphs in the provided text have been rasterized.
+     */
+    public void loadGlyphs( CharSequence text )
+    {
+        int length = text.length( );
+        for ( int i = 0; i < length; )
+        {
+            int codePoint = Character.codePointAt( text, i );
+            getGlyph( codePoint );
+            i += Character.charCount( codePoint );
+        }
+    }
+
+    /**
+     * @return the horizontal advance of the text in pixels at the base font size
+     */
+    public float getAdvance( CharSequence text )
+    {
+        float advance = 0;
+
+        int length = text.length( );
+        for ( int i = 0; i < length; )
+        {
+            int codePoint = Character.codePointAt( text, i );
+            advance += getGlyph( codePoint ).getAdvance( );
+            i += Character.charCount( codePoint );
+        }
+
+        return advance;
+    }
+
+    /**
+     * @return the horizontal advance of the text in pixels when drawn at the provided font size
+     */
+    public float getAdvance( CharSequence text, float size )
+    {
+        return getAdvance( text ) * size / baseSize;
+    }
+
+    protected SdfGlyphMetrics createGlyph( int codePoint )
+    {
+        GlyphVector vector = font.createGlyphVector( frc, Character.toChars( codePoint ) );
+        float advance = vector.getGlyphMetrics( 0 ).getAdvanceX( );
+        Rectangle bounds = vector.getPixelBounds( frc, 0, 0 );
+
+        // whitespace only contributes an advance
+        if ( bounds.isEmpty( ) )
+        {
+            return new SdfGlyphMetrics( null, codePoint, advance, 0, 0, 0, 0 );
+        }
+
+        int width = bounds.width + 2 * spread;
+        int height = bounds.height + 2 * spread;
+
+        BufferedImage mask = new BufferedImage( width, height, BufferedImage.TYPE_BYTE_GRAY );
+        Graphics2D g = mask.createGraphics( );
+        try
+        {
+            g.setRenderingHint( RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON );
+            g.setRenderingHint( RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON );
+            g.setColor( Color.WHITE );
+            g.drawGlyphVector( vector, spread - bounds.x, spread - bounds.y );
+        }
+        finally
+        {
+            g.dispose( );
+        }
+
+        BufferedImage field = SdfDistanceField.createDistanceField( mask, spread );
+
+        // the glyph origin relative to the lower left pixel of the image
+        int originX = spread - bounds.x;
+        int originY = height - ( spread - bounds.y );
+
+        GlyphImageId id = new GlyphImageId( this, codePoint );
+        atlas.loadImage( id, field, originX, originY );
+
+        return new SdfGlyphMetrics( id, codePoint, advance, width, height, originX, originY );
+    }
+
+    // identifies glyph images in a (possibly shared) TextureAtlas
+    private static final class GlyphImageId
+    {
+        private final SdfGlyphAtlas owner;
+        private final int codePoint;
+
+        public GlyphImageId( SdfGlyphAtlas owner, int codePoint )
+        {
+            this.owner = owner;
+            this.codePoint = codePoint;
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return 31 * System.identityHashCode( owner ) + codePoint;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj ) return true;
+            if ( obj == null || getClass( ) != obj.getClass( ) ) return false;
+            GlyphImageId other = ( GlyphImageId ) obj;
+            return owner == other.owner && codePoint == other.codePoint;
+        }
+
+        @Override
+        public String toString( )
+        {
+            return "glyph " + new String( Character.toChars( codePoint ) ) + " (" + owner.font.getFontName( ) + ")";
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.font.sdf;
+
+/**
+ * Layout metrics for a single glyph in a {@link SdfGlyphAtlas}. All values are
+ * in pixels at the atlas base font size and are captured once when the glyph is
+ * first rasterized, so text can be laid out afterwards without touching Java2D.
+ *
+ * @see SdfGlyphAtlas#getGlyph( int )
+ */
+public class SdfGlyphMetrics
+{
+    // the key of the distance field image in the underlying TextureAtlas
+    private final Object imageId;
+
+    private final int codePoint;
+
+    // horizontal distance to the origin of the next glyph
+    private final float advance;
+
+    // the size of the distance field image (including the spread padding)
+    private final int imageWidth;
+    private final int imageHeight;
+
+    // the location of the glyph origin (on the baseline) relative
+    // to the lower left pixel of the distance field image
+    private final int originX;
+    private final int originY;
+
+    public SdfGlyphMetrics( Object imageId, int codePoint, float advance, int imageWidth, int imageHeight, int originX, int originY )
+    {
+        this.imageId = imageId;
+        this.codePoint = codePoint;
+        this.advance = advance;
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.originX = originX;
+        this.originY = originY;
+    }
+
+    /**
+     * @return the TextureAtlas image id for this glyph, or null if the glyph has no visible pixels (whitespace)
+     */
+    public Object getImageId( )
+    {
+        return imageId;
+    }
+
+    public boolean isBlank( )
+    {
+        return imageId == null;
+    }
+
+    public int getCodePoint( )
+    {
+        return codePoint;
+    }
+
+    public float getAdvance( )
+    {
+        return advance;
+    }
+
+    public int getImageWidth( )
+    {
+        return imageWidth;
+    }
+
+    public int getImageHeight( )
+    {
+        return imageHeight;
+    }
+
+    public int getOriginX( )
+    {
+        return originX;
+    }
+
+    public int getOriginY( )
+    {
+        return originY;
+    }
+}
@@ -0,0 +1,762 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.font.sdf;
+
+import java.awt.Font;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLContext;
+
+import com.metsci.glimpse.axis.Axis2D;
+import com.metsci.glimpse.context.GlimpseBounds;
+import com.metsci.glimpse.context.GlimpseContext;
+import com.metsci.glimpse.gl.attribute.GLBuffer;
+import com.metsci.glimpse.gl.attribute.GLFloatBuffer;
+import com.metsci.glimpse.gl.attribute.GLFloatBuffer.Mutator;
+import com.metsci.glimpse.gl.attribute.GLVertexAttribute;
+import com.metsci.glimpse.gl.shader.Pipeline;
+import com.metsci.glimpse.painter.base.GlimpseDataPainter2D;
+import com.metsci.glimpse.support.atlas.TextureAtlas;
+import com.metsci.glimpse.support.atlas.shader.TextureAtlasIconShaderGeometry;
+import com.metsci.glimpse.support.atlas.shader.TextureAtlasIconShaderVertex;
+import com.metsci.glimpse.support.atlas.shader.TextureAtlasSdfShaderFragment;
+import com.metsci.glimpse.support.atlas.support.ImageData;
+import com.metsci.glimpse.support.atlas.support.TextureAtlasUpdateListener;
+import com.sun.opengl.util.texture.TextureCoords;
+
+/**
+ * A painter for efficiently painting large numbers of text labels at fixed
+ * locations in data (axis) space.<p>
+ *
+ * Each glyph is drawn from a signed distance field stored in a {@link SdfGlyphAtlas},
+ * so labels stay sharp at any size and no string-level rasterization or measurement
+ * happens while drawing. Labels are organized into groups which share a color, and
+ * each group is drawn with a single glDrawArrays call per atlas page its glyphs occupy,
+ * regardless of how many labels or distinct strings it contains.<p>
+ *
+ * Like {@link com.metsci.glimpse.support.atlas.painter.IconPainter}, individual labels
+ * cannot be removed from a group, but entire groups may be cleared, removed or hidden.
+ */
+public class SdfTextPainter extends GlimpseDataPainter2D
+{
+    private static final int DEFAULT_INITIAL_GROUP_SIZE = 64;
+    private static final float DEFAULT_GROWTH_FACTOR = 1.6f;
+
+    // shader fields
+    protected TextureAtlasIconShaderVertex vertexShader;
+    protected TextureAtlasSdfShaderFragment fragmentShader;
+    protected TextureAtlasIconShaderGeometry geometryShader;
+    protected Pipeline pipeline;
+
+    // gl attribute arrays used to pass information to shader
+    protected int pixelCoordsAttributeIndex = 1;
+    protected int texCoordsAttributeIndex = 2;
+    protected int colorCoordsAttributeIndex = 3;
+
+    protected SdfGlyphAtlas glyphAtlas;
+    protected TextureAtlasUpdateListener atlasListener;
+
+    // map from group key (which can be anything) to internal label group data
+    protected Map<Object, LabelGroup> labelGroupMap;
+
+    // buffers ready to be disposed of next time we're in paintTo()
+    protected Collection<GLBuffer> oldBuffers;
+
+    protected ReentrantLock lock;
+
+    public SdfTextPainter( SdfGlyphAtlas glyphAtlas )
+    {
+        this.vertexShader = new TextureAtlasIconShaderVertex( pixelCoordsAttributeIndex, texCoordsAttributeIndex, colorCoordsAttributeIndex );
+        this.fragmentShader = new TextureAtlasSdfShaderFragment( 0 );
+        this.geometryShader = new TextureAtlasIconShaderGeometry( );
+        this.pipeline = new Pipeline( "Pipeline", geometryShader, vertexShader, fragmentShader );
+
+        this.lock = new ReentrantLock( );
+        this.labelGroupMap = new LinkedHashMap<Object, LabelGroup>( );
+        this.oldBuffers = new LinkedList<GLBuffer>( );
+
+        this.glyphAtlas = glyphAtlas;
+        this.atlasListener = createAtlasListener( );
+        this.glyphAtlas.getTextureAtlas( ).addListener( this.atlasListener );
+    }
+
+    public SdfTextPainter( Font font )
+    {
+        this( new SdfGlyphAtlas( font ) );
+    }
+
+    public SdfGlyphAtlas getGlyphAtlas( )
+    {
+        return glyphAtlas;
+    }
+
+    /**
+     * Sets the global scale factor for all labels (across all groups) rendered by this painter.
+     *
+     * @param scale the scale factor to apply to the size of all labels
+     */
+    public void setGlobalScale( float scale )
+    {
+        this.geometryShader.setGlobalScale( scale );
+    }
+
+    /**
+     * Adjusts the distance field value treated as the glyph edge. The default of 0.5
+     * matches the rasterized glyph outline. Lower values embolden text and higher values
+     * thin it.
+     */
+    public void setEdgeThreshold( float threshold )
+    {
+        this.fragmentShader.setThreshold( threshold );
+    }
+
+    /**
+     * Creates a group of labels drawn with the provided color and default font size (in pixels).
+     * If the group already exists, its color and default size are updated.
+     */
+    public void addLabelGroup( Object labelGroupId, float[] color, float size )
+    {
+        this.lock.lock( );
+        try
+        {
+            LabelGroup group = this.labelGroupMap.get( labelGroupId );
+            if ( group == null )
+            {
+                group = new LabelGroup( labelGroupId, DEFAULT_INITIAL_GROUP_SIZE );
+                this.labelGroupMap.put( labelGroupId, group );
+            }
+
+            group.setColor( color );
+            group.setSize( size );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    public void setLabelGroupColor( Object labelGroupId, float[] color )
+    {
+        this.lock.lock( );
+        try
+        {
+            getLabelGroup( labelGroupId ).setColor( color );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * @see #addLabel( Object, String, float, float, int, int, boolean, boolean, float, float )
+     */
+    public void addLabel( Object labelGroupId, String text, float positionX, float positionY )
+    {
+        addLabel( labelGroupId, text, positionX, positionY, 0, 0, false, false, 0.0f, Float.NaN );
+    }
+
+    /**
+     * @see #addLabel( Object, String, float, float, int, int, boolean, boolean, float, float )
+     */
+    public void addLabel( Object labelGroupId, String text, float positionX, float positionY, boolean centerX, boolean centerY )
+    {
+        addLabel( labelGroupId, text, positionX, positionY, 0, 0, centerX, centerY, 0.0f, Float.NaN );
+    }
+
+    /**
+     * Adds a label to the provided group. By default, the left end of the label baseline is placed at
+     * the provided position in axis space. The label may be offset by a fixed number of pixels, centered
+     * horizontally or vertically, and rotated around its anchor point.
+     *
+     * The glyphs in the text are rasterized immediately (on the calling thread) if they have not been
+     * seen before, but the label itself is not laid out until the next paint.
+     *
+     * @param labelGroupId a group previously created with {@link #addLabelGroup( Object, float[], float )}
+     * @param text the label text
+     * @param positionX a position in axis space to place the label at
+     * @param positionY a position in axis space to place the label at
+     * @param offsetX a pixel offset applied to the label (before rotation)
+     * @param offsetY a pixel offset applied to the label (before rotation)
+     * @param centerX whether the label should be centered horizontally on its anchor point
+     * @param centerY whether the label should be centered vertically on its anchor point
+     * @param rotation rotation around the anchor point (CCW radians; 0 implies no rotation)
+     * @param size font size in pixels, or NaN to use the default size of the group
+     */
+    public void addLabel( Object labelGroupId, String text, float positionX, float positionY, int offsetX, int offsetY, boolean centerX, boolean centerY, float rotation, float size )
+    {
+        // rasterize any new glyphs outside the painter lock
+        this.glyphAtlas.loadGlyphs( text );
+
+        this.lock.lock( );
+        try
+        {
+            getLabelGroup( labelGroupId ).addLabel( new Label( text, positionX, positionY, offsetX, offsetY, centerX, centerY, rotation, size ) );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * Removes all the labels from the provided group (the group itself remains).
+     */
+    public void clearLabelGroup( Object labelGroupId )
+    {
+        this.lock.lock( );
+        try
+        {
+            getLabelGroup( labelGroupId ).clear( );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    public void removeLabelGroup( Object labelGroupId )
+    {
+        this.lock.lock( );
+        try
+        {
+            LabelGroup group = this.labelGroupMap.remove( labelGroupId );
+            if ( group != null ) group.dispose( );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * Toggles whether or not a particular label group is displayed. Hiding a label group will not
+     * remove its underlying data.
+     */
+    public void showLabelGroup( Object labelGroupId, boolean show )
+    {
+        this.lock.lock( );
+        try
+        {
+            getLabelGroup( labelGroupId ).setVisible( show );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    @Override
+    public void paintTo( GlimpseContext context, GlimpseBounds bounds, Axis2D axis )
+    {
+        this.lock.lock( );
+        try
+        {
+            // dispose of any buffers queued for deletion
+            disposeOldBuffers( context.getGL( ) );
+
+            super.paintTo( context, bounds, axis );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    @Override
+    public void paintTo( GL gl, GlimpseBounds bounds, Axis2D axis )
+    {
+        if ( this.labelGroupMap.isEmpty( ) ) return;
+
+        if ( !this.pipeline.isLinked( gl ) )
+        {
+            this.pipeline.beginUse( gl );
+            this.pipeline.endUse( gl );
+        }
+
+        // update geometry shader uniform variables
+        this.geometryShader.updateViewport( bounds );
+
+        TextureAtlas atlas = this.glyphAtlas.getTextureAtlas( );
+
+        this.pipeline.beginUse( gl );
+        try
+        {
+            // uploads any newly rasterized glyphs
+            atlas.beginRendering( );
+            try
+            {
+                for ( LabelGroup group : this.labelGroupMap.values( ) )
+                {
+                    // lay out any labels waiting to be added to the group
+                    // we do this here because texture coordinates might not
+                    // be known until the atlas.beginRendering( ) call
+                    group.layoutQueuedLabels( );
+
+                    if ( !group.isVisible( ) || group.getCurrentSize( ) == 0 ) continue;
+
+                    this.fragmentShader.setColor( gl, group.getColor( ) );
+
+                    group.getBufferTexCoords( ).bind( texCoordsAttributeIndex, gl );
+                    group.getBufferPixelCoords( ).bind( pixelCoordsAttributeIndex, gl );
+                    group.getBufferGlyphPlacement( ).bind( GLVertexAttribute.ATTRIB_POSITION_4D, gl );
+                    group.getBufferPages( ).bind( colorCoordsAttributeIndex, gl );
+
+                    drawLabelGroup( gl, atlas, group );
+                }
+            }
+            finally
+            {
+                atlas.endRendering( );
+            }
+        }
+        finally
+        {
+            this.pipeline.endUse( gl );
+        }
+    }
+
+    // draws the glyphs in the group once for each TextureAtlas page they come from,
+    // with that page bound (the geometry shader discards glyphs from other pages)
+    protected void drawLabelGroup( GL gl, TextureAtlas atlas, LabelGroup group )
+    {
+        BitSet pages = group.getPages( );
+
+        if ( pages.cardinality( ) <= 1 )
+        {
+            if ( !pages.isEmpty( ) ) atlas.bindPage( pages.nextSetBit( 0 ) );
+
+            this.geometryShader.setPageIndex( gl, -1 );
+            gl.glDrawArrays( GL.GL_POINTS, 0, group.getCurrentSize( ) );
+        }
+        else
+        {
+            for ( int page = pages.nextSetBit( 0 ); page >= 0; page = pages.nextSetBit( page + 1 ) )
+            {
+                atlas.bindPage( page );
+
+                this.geometryShader.setPageIndex( gl, page );
+                gl.glDrawArrays( GL.GL_POINTS, 0, group.getCurrentSize( ) );
+            }
+        }
+    }
+
+    @Override
+    public void dispose( GLContext context )
+    {
+        this.glyphAtlas.getTextureAtlas( ).removeListener( this.atlasListener );
+
+        for ( LabelGroup group : labelGroupMap.values( ) )
+        {
+            group.dispose( );
+        }
+
+        disposeOldBuffers( context.getGL( ) );
+
+        this.pipeline.dispose( context );
+    }
+
+    protected LabelGroup getLabelGroup( Object labelGroupId )
+    {
+        LabelGroup group = this.labelGroupMap.get( labelGroupId );
+        if ( group == null )
+        {
+            throw new IllegalArgumentException( String.format( "Label group \"%s\" does not exist.", labelGroupId ) );
+        }
+
+        return group;
+    }
+
+    protected TextureAtlasUpdateListener createAtlasListener( )
+    {
+        return new TextureAtlasUpdateListener( )
+        {
+            public void reorganized( )
+            {
+                lock.lock( );
+                try
+                {
+                    for ( LabelGroup group : labelGroupMap.values( ) )
+                    {
+                        group.reloadTextureCoordinates( );
+                    }
+                }
+                finally
+                {
+                    lock.unlock( );
+                }
+            }
+        };
+    }
+
+    protected void disposeOldBuffers( GL gl )
+    {
+        for ( GLBuffer oldBuffer : this.oldBuffers )
+        {
+            oldBuffer.dispose( gl );
+        }
+
+        this.oldBuffers.clear( );
+    }
+
+    protected static class Label
+    {
+        protected final String text;
+        protected final float positionX;
+        protected final float positionY;
+        protected final int offsetX;
+        protected final int offsetY;
+        protected final boolean centerX;
+        protected final boolean centerY;
+        protected final float rotation;
+        protected final float size;
+
+        public Label( String text, float positionX, float positionY, int offsetX, int offsetY, boolean centerX, boolean centerY, float rotation, float size )
+        {
+            this.text = text;
+            this.positionX = positionX;
+            this.positionY = positionY;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.centerX = centerX;
+            this.centerY = centerY;
+            this.rotation = rotation;
+            this.size = size;
+        }
+    }
+
+    protected class LabelGroup
+    {
+        protected Object id;
+
+        protected boolean visible;
+        protected float[] color;
+        protected float size;
+
+        // number of glyphs (not labels) currently in the buffers
+        protected int currentSize;
+
+        // atlas image id of each glyph in the buffers, used to rebuild
+        // texture coordinates when the atlas is reorganized
+        protected List<Object> glyphIds;
+
+        // atlas pages holding at least one glyph in the group
+        protected BitSet pages;
+
+        protected GLFloatBuffer glyphPlacementValues;
+        protected GLFloatBuffer pixelCoordsValues;
+        protected GLFloatBuffer texCoordsValues;
+
+        // atlas page of each glyph, in the fourth component (the layout
+        // TextureAtlasIconShaderGeometry expects in the pick color attribute)
+        protected GLFloatBuffer pageValues;
+
+        protected List<Label> layoutQueue;
+
+        public LabelGroup( Object id, int initialGlyphSpace )
+        {
+            this.id = id;
+            this.visible = true;
+            this.color = new float[] { 0.0f, 0.0f, 0.0f, 1.0f };
+            this.size = glyphAtlas.getBaseSize( );
+
+            this.glyphIds = new ArrayList<Object>( );
+            this.pages = new BitSet( );
+
+            this.glyphPlacementValues = new GLFloatBuffer( initialGlyphSpace, 4 );
+            this.pixelCoordsValues = new GLFloatBuffer( initialGlyphSpace, 4 );
+            this.texCoordsValues = new GLFloatBuffer( initialGlyphSpace, 4 );
+            this.pageValues = new GLFloatBuffer( initialGlyphSpace, 4 );
+
+            this.layoutQueue = new ArrayList<Label>( );
+        }
+
+        public Object getId( )
+        {
+            return id;
+        }
+
+        public void setVisible( boolean visible )
+        {
+            this.visible = visible;
+        }
+
+        public boolean isVisible( )
+        {
+            return visible;
+        }
+
+        public void setColor( float[] color )
+        {
+            // copy so that the shader argument sees a new value
+            this.color = new float[] { color[0], color[1], color[2], color.length > 3 ? color[3] : 1.0f };
+        }
+
+        public float[] getColor( )
+        {
+            return color;
+        }
+
+        public void setSize( float size )
+        {
+            this.size = size;
+        }
+
+        public int getCurrentSize( )
+        {
+            return currentSize;
+        }
+
+        public GLFloatBuffer getBufferGlyphPlacement( )
+        {
+            return glyphPlacementValues;
+        }
+
+        public GLFloatBuffer getBufferPixelCoords( )
+        {
+            return pixelCoordsValues;
+        }
+
+        public GLFloatBuffer getBufferTexCoords( )
+        {
+            return texCoordsValues;
+        }
+
+        public GLFloatBuffer getBufferPages( )
+        {
+            return pageValues;
+        }
+
+        public BitSet getPages( )
+        {
+            return pages;
+        }
+
+        public void addLabel( Label label )
+        {
+            this.layoutQueue.add( label );
+        }
+
+        public void clear( )
+        {
+            this.layoutQueue.clear( );
+            this.glyphIds.clear( );
+            this.pages.clear( );
+            this.currentSize = 0;
+        }
+
+        public void layoutQueuedLabels( )
+        {
+            if ( layoutQueue.isEmpty( ) ) return;
+
+            // count the visible glyphs so the buffers only need to grow once
+            int glyphCount = 0;
+            for ( Label label : layoutQueue )
+            {
+                String text = label.text;
+                for ( int i = 0; i < text.length( ); )
+                {
+                    int codePoint = text.codePointAt( i );
+                    if ( !glyphAtlas.getGlyph( codePoint ).isBlank( ) ) glyphCount++;
+                    i += Character.charCount( codePoint );
+                }
+            }
+
+            ensureCapacity( currentSize + glyphCount );
+
+            final int startIndex = currentSize;
+            final int endIndex = currentSize + glyphCount;
+            final TextureAtlas atlas = glyphAtlas.getTextureAtlas( );
+            final float baseSize = glyphAtlas.getBaseSize( );
+            final float centerOffsetY = ( glyphAtlas.getAscent( ) - glyphAtlas.getDescent( ) ) / 2;
+
+            final float[] placement = new float[4];
+            final float[] pixelCoords = new float[4];
+
+            glyphPlacementValues.mutate( new Mutator( )
+            {
+                @Override
+                public void mutate( final FloatBuffer placementData, int length )
+                {
+                    pixelCoordsValues.mutate( new Mutator( )
+                    {
+                        @Override
+                        public void mutate( FloatBuffer pixelData, int length )
+                        {
+                            placementData.limit( endIndex * length );
+                            placementData.position( startIndex * length );
+
+                            pixelData.limit( endIndex * length );
+                            pixelData.position( startIndex * length );
+
+                            for ( Label label : layoutQueue )
+                            {
+                                float labelSize = Float.isNaN( label.size ) ? size : label.size;
+                                float scale = labelSize / baseSize;
+
+                                // pen position relative to the anchor in base font pixels
+                                float penX = label.offsetX / scale;
+                                float penY = label.offsetY / scale;
+                                if ( label.centerX ) penX -= glyphAtlas.getAdvance( label.text ) / 2;
+                                if ( label.centerY ) penY -= centerOffsetY;
+
+                                placement[0] = label.positionX;
+                                placement[1] = label.positionY;
+                                placement[2] = label.rotation;
+                                placement[3] = scale;
+
+                                String text = label.text;
+                                for ( int i = 0; i < text.length( ); )
+                                {
+                                    int codePoint = text.codePointAt( i );
+                                    i += Character.charCount( codePoint );
+
+                                    SdfGlyphMetrics glyph = glyphAtlas.getGlyph( codePoint );
+
+                                    if ( !glyph.isBlank( ) )
+                                    {
+                                        ImageData imageData = atlas.getImageData( glyph.getImageId( ) );
+
+                                        // same layout as IconPainter, with the glyph origin shifted by the pen position
+                                        pixelCoords[0] = imageData.getWidth( ) + imageData.getBufferX( ) * 2;
+                                        pixelCoords[1] = imageData.getHeight( ) + imageData.getBufferY( ) * 2;
+                                        pixelCoords[2] = imageData.getCenterX( ) + imageData.getBufferX( ) - penX;
+                                        pixelCoords[3] = imageData.getCenterY( ) + imageData.getBufferY( ) - penY;
+
+                                        placementData.put( placement );
+                                        pixelData.put( pixelCoords );
+
+                                        glyphIds.add( glyph.getImageId( ) );
+                                    }
+
+                                    penX += glyph.getAdvance( );
+                                }
+                            }
+                        }
+                    } );
+                }
+            } );
+
+            layoutQueue.clear( );
+            currentSize = endIndex;
+
+            loadTextureCoordinates( startIndex );
+        }
+
+        public void reloadTextureCoordinates( )
+        {
+            loadTextureCoordinates( 0 );
+        }
+
+        protected void loadTextureCoordinates( final int startIndex )
+        {
+            final TextureAtlas atlas = glyphAtlas.getTextureAtlas( );
+
+            // a reorganized atlas may have moved glyphs to different pages
+            if ( startIndex == 0 ) pages.clear( );
+
+            texCoordsValues.mutate( new Mutator( )
+            {
+                @Override
+                public void mutate( final FloatBuffer texData, int length )
+                {
+                    pageValues.mutate( new Mutator( )
+                    {
+                        @Override
+                        public void mutate( FloatBuffer pageData, int length )
+                        {
+                            texData.limit( currentSize * length );
+                            texData.position( startIndex * length );
+
+                            pageData.limit( currentSize * length );
+                            pageData.position( startIndex * length );
+
+                            Object prevGlyphId = null;
+                            TextureCoords texCoords = null;
+                            int page = 0;
+
+                            for ( int i = startIndex; i < currentSize; i++ )
+                            {
+                                Object glyphId = glyphIds.get( i );
+
+                                // looking up texture coordinates in the atlas involves acquiring a lock,
+                                // so avoid repeat lookups for runs of the same glyph
+                                if ( glyphId != prevGlyphId )
+                                {
+                                    ImageData imageData = atlas.getImageData( glyphId );
+                                    texCoords = imageData.getTextureCoordinates( );
+                                    page = imageData.getPage( );
+                                    pages.set( page );
+                                }
+
+                                texData.put( texCoords.left( ) );
+                                texData.put( texCoords.right( ) );
+                                texData.put( texCoords.top( ) );
+                                texData.put( texCoords.bottom( ) );
+
+                                pageData.put( 0 ).put( 0 ).put( 0 ).put( page );
+
+                                prevGlyphId = glyphId;
+                            }
+                        }
+                    } );
+                }
+            } );
+        }
+
+        protected void ensureCapacity( int glyphCount )
+        {
+            int maxSize = glyphPlacementValues.getMaxVertices( );
+            if ( glyphCount <= maxSize ) return;
+
+            int newSize = Math.max( glyphCount, ( int ) ( maxSize * DEFAULT_GROWTH_FACTOR ) );
+
+            // ensureCapacity( ) copies existing data into the larger buffer
+            glyphPlacementValues.ensureCapacity( newSize );
+            pixelCoordsValues.ensureCapacity( newSize );
+            texCoordsValues.ensureCapacity( newSize );
+            pageValues.ensureCapacity( newSize );
+        }
+
+        public void dispose( )
+        {
+            oldBuffers.add( this.glyphPlacementValues );
+            oldBuffers.add( this.pixelCoordsValues );
+            oldBuffers.add( this.texCoordsValues );
+            oldBuffers.add( this.pageValues );
+        }
+    }
+}
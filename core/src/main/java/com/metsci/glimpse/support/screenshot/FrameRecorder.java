@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.screenshot;
+
+import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLContext;
+
+import com.metsci.glimpse.canvas.GlimpseCanvas;
+import com.metsci.glimpse.context.GlimpseBounds;
+import com.metsci.glimpse.context.GlimpseContext;
+import com.metsci.glimpse.gl.GLAsyncReadback;
+import com.metsci.glimpse.layout.GlimpseLayout;
+import com.metsci.glimpse.painter.base.GlimpsePainterImpl;
+import com.sun.opengl.util.BufferUtil;
+
+/**
+ * Records every frame painted by a GlimpseCanvas without stalling rendering.<p>
+ *
+ * Once attached to a canvas, the recorder paints after all other layouts and begins
+ * an asynchronous read of the frame (see {@link GLAsyncReadback}) into one of a fixed
+ * number of reusable buffers. Frames are handed to a {@link FrameEncoder} on background
+ * threads as they arrive. If every buffer is still waiting to be read back or encoded,
+ * the frame is dropped rather than waiting for the encoder to catch up.<p>
+ *
+ * A FrameRecorder records a single sequence:
+ *
+ * <pre>
+ * FrameRecorder recorder = new FrameRecorder( new PngSequenceEncoder( directory ) );
+ * recorder.attach( canvas );
+ * recorder.start( );
+ * ...
+ * recorder.stop( );
+ * recorder.awaitTermination( 10, TimeUnit.SECONDS );
+ * recorder.detach( );
+ * </pre>
+ */
+public class FrameRecorder extends GlimpsePainterImpl
+{
+    private static final Logger logger = Logger.getLogger( FrameRecorder.class.getName( ) );
+
+    public static final int DEFAULT_QUEUE_SIZE = 8;
+
+    protected FrameEncoder encoder;
+    protected int queueSize;
+
+    protected GLAsyncReadback readback;
+
+    // buffers which are not holding a frame, refilled by the encoder threads
+    protected BlockingQueue<ByteBuffer> freeBuffers;
+    protected volatile int allocatedBuffers;
+
+    // indices of frames which are still being read back, claimed either when the frame
+    // is delivered or by finish( ) (which counts it as dropped), so each is counted once
+    protected Set<Long> pendingFrames;
+
+    protected ExecutorService encodeExecutor;
+    protected AtomicBoolean finishing;
+    protected CountDownLatch finished;
+
+    protected GlimpseCanvas canvas;
+    protected GlimpseLayout layout;
+
+    protected volatile boolean started;
+    protected volatile boolean stopRequested;
+
+    // only accessed from the OpenGL thread
+    protected boolean stopped;
+    protected long nextFrameIndex;
+
+    protected AtomicLong encodedFrameCount;
+    protected AtomicLong droppedFrameCount;
+    protected AtomicLong failedFrameCount;
+
+    public FrameRecorder( FrameEncoder encoder )
+    {
+        this( encoder, DEFAULT_QUEUE_SIZE );
+    }
+
+    /**
+     * @param queueSize the maximum number of frames which may be waiting to be read back or encoded at once
+     */
+    public FrameRecorder( FrameEncoder encoder, int queueSize )
+    {
+        this.encoder = encoder;
+        this.queueSize = queueSize;
+
+        this.readback = new GLAsyncReadback( queueSize );
+        this.freeBuffers = new LinkedBlockingQueue<ByteBuffer>( );
+        this.pendingFrames = Collections.newSetFromMap( new ConcurrentHashMap<Long, Boolean>( ) );
+        this.finishing = new AtomicBoolean( );
+        this.finished = new CountDownLatch( 1 );
+
+        this.encodedFrameCount = new AtomicLong( );
+        this.droppedFrameCount = new AtomicLong( );
+        this.failedFrameCount = new AtomicLong( );
+    }
+
+    /**
+     * Adds this recorder to the provided canvas, on top of all other layouts. The
+     * recorder does not receive or block mouse events.
+     */
+    public void attach( GlimpseCanvas canvas )
+    {
+        if ( this.canvas != null ) throw new IllegalStateException( "FrameRecorder is already attached to a canvas." );
+
+        this.layout = new GlimpseLayout( );
+        this.layout.setEventConsumer( false );
+        this.layout.setEventGenerator( false );
+        this.layout.addPainter( this );
+
+        this.canvas = canvas;
+        this.canvas.addLayout( this.layout, Integer.MAX_VALUE );
+    }
+
+    public void detach( )
+    {
+        if ( this.canvas == null ) return;
+
+        this.canvas.removeLayout( this.layout );
+        this.canvas = null;
+        this.layout = null;
+    }
+
+    /**
+     * Begins recording with the next frame painted.
+     */
+    public void start( )
+    {
+        if ( started ) throw new IllegalStateException( "FrameRecorder has already been started." );
+        if ( stopRequested ) throw new IllegalStateException( "FrameRecorder has been stopped." );
+
+        ThreadFactory threadFactory = newThreadFactory( "frame-recorder-encoder-" );
+
+        if ( encoder.isSequential( ) )
+        {
+            encodeExecutor = Executors.newSingleThreadExecutor( threadFactory );
+        }
+        else
+        {
+            encodeExecutor = Executors.newFixedThreadPool( Runtime.getRuntime( ).availableProcessors( ), threadFactory );
+        }
+
+        started = true;
+    }
+
+    /**
+     * Stops recording. Frames still being read back can only be delivered on the OpenGL
+     * thread, so the attached canvas is painted once more (see {@link GlimpseCanvas#paint( )})
+     * rather than waiting for it to be repainted. The encoder is closed once all frames
+     * are encoded.<p>
+     *
+     * If the canvas only schedules the paint, recording was never started, or the recorder
+     * is no longer attached to a canvas, the encoder is closed immediately and frames still
+     * being read back are counted as dropped.
+     *
+     * @see #awaitTermination(long, TimeUnit)
+     */
+    public void stop( )
+    {
+        stopRequested = true;
+
+        GlimpseCanvas canvas = this.canvas;
+
+        if ( started && canvas != null && !canvas.isDisposed( ) )
+        {
+            try
+            {
+                // paintTo( ) delivers the remaining frames and calls finish( )
+                canvas.paint( );
+            }
+            catch ( RuntimeException e )
+            {
+                logWarning( logger, "Unable to paint canvas to deliver the last recorded frames.", e );
+            }
+        }
+
+        // does nothing if the paint above (or an earlier one) already finished recording
+        finish( );
+    }
+
+    /**
+     * Waits until recording has stopped and every frame has been encoded.
+     *
+     * @return true if recording finished, false if the timeout elapsed first
+     */
+    public boolean awaitTermination( long timeout, TimeUnit unit ) throws InterruptedException
+    {
+        return finished.await( timeout, unit );
+    }
+
+    public boolean isRecording( )
+    {
+        return started && finished.getCount( ) > 0;
+    }
+
+    public long getEncodedFrameCount( )
+    {
+        return encodedFrameCount.get( );
+    }
+
+    /**
+     * @return the number of frames which were not captured because the queue was full,
+     *         or which were still being read back when recording stopped
+     */
+    public long getDroppedFrameCount( )
+    {
+        return droppedFrameCount.get( );
+    }
+
+    /**
+     * @return the number of frames which were captured but could not be encoded
+     */
+    public long getFailedFrameCount( )
+    {
+        return failedFrameCount.get( );
+    }
+
+    /**
+     * @return the number of frames currently being read back or waiting to be encoded
+     */
+    public int getQueueDepth( )
+    {
+        return allocatedBuffers - freeBuffers.size( );
+    }
+
+    @Override
+    protected void paintTo( GlimpseContext context, GlimpseBounds bounds )
+    {
+        if ( !started || stopped || finishing.get( ) ) return;
+
+        GL gl = context.getGL( );
+
+        // deliver frames from earlier paints which have finished reading back
+        readback.poll( gl );
+
+        if ( stopRequested )
+        {
+            readback.flush( gl );
+            stopped = true;
+            finish( );
+            return;
+        }
+
+        final int width = bounds.getWidth( );
+        final int height = bounds.getHeight( );
+
+        ByteBuffer buffer = takeBuffer( width * height * 4 );
+        if ( buffer == null )
+        {
+            droppedFrameCount.incrementAndGet( );
+            return;
+        }
+
+        final long frameIndex = nextFrameIndex++;
+        pendingFrames.add( frameIndex );
+
+        readback.readPixels( gl, bounds.getX( ), bounds.getY( ), width, height, buffer, new GLAsyncReadback.Listener( )
+        {
+            @Override
+            public void pixelsRead( ByteBuffer pixels, int width, int height )
+            {
+                // finish( ) has already counted this frame as dropped
+                if ( !pendingFrames.remove( frameIndex ) )
+                {
+                    freeBuffers.add( pixels );
+                    return;
+                }
+
+                try
+                {
+                    encodeExecutor.execute( new EncodeTask( pixels, width, height, frameIndex ) );
+                }
+                catch ( RejectedExecutionException e )
+                {
+                    // stop( ) finished recording before this frame was delivered
+                    droppedFrameCount.incrementAndGet( );
+                    freeBuffers.add( pixels );
+                }
+            }
+        } );
+    }
+
+    @Override
+    protected void dispose( GLContext context )
+    {
+        readback.dispose( context.getGL( ) );
+    }
+
+    //////////////////////////////////////////////////////////////
+    ///           Internals Only Beyond This Point             ///
+    //////////////////////////////////////////////////////////////
+
+    protected static ThreadFactory newThreadFactory( final String prefix )
+    {
+        final AtomicInteger count = new AtomicInteger( );
+
+        return new ThreadFactory( )
+        {
+            @Override
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable );
+                thread.setName( prefix + count.getAndIncrement( ) );
+                thread.setDaemon( true );
+                return thread;
+            }
+        };
+    }
+
+    // returns a free buffer of at least the given size, or null if all buffers are in use
+    protected ByteBuffer takeBuffer( int size )
+    {
+        ByteBuffer buffer = freeBuffers.poll( );
+
+        if ( buffer == null )
+        {
+            if ( allocatedBuffers >= queueSize ) return null;
+
+            allocatedBuffers++;
+        }
+        else if ( buffer.capacity( ) >= size )
+        {
+            return buffer;
+        }
+
+        // the canvas has grown, or this is a new buffer
+        return BufferUtil.newByteBuffer( size );
+    }
+
+    // called once the last frame has been handed to the encoder (or recording
+    // was never started), later calls do nothing
+    protected void finish( )
+    {
+        if ( !finishing.compareAndSet( false, true ) ) return;
+
+        // frames still being read back will not be delivered, since paintTo( ) does nothing
+        // once finishing (this is empty if paintTo( ) flushed the readback before finishing)
+        for ( Long frameIndex : pendingFrames )
+        {
+            if ( pendingFrames.remove( frameIndex ) ) droppedFrameCount.incrementAndGet( );
+        }
+
+        if ( encodeExecutor != null ) encodeExecutor.shutdown( );
+
+        Thread thread = newThreadFactory( "frame-recorder-close-" ).newThread( new Runnable( )
+        {
+            @Override
+            public void run( )
+            {
+                try
+                {
+                    if ( encodeExecutor != null ) encodeExecutor.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+                    encoder.close( );
+                }
+                catch ( Exception e )
+                {
+                    logWarning( logger, "Trouble closing frame encoder.", e );
+                }
+                finally
+                {
+                    finished.countDown( );
+                }
+            }
+        } );
+
+        thread.start( );
+    }
+
+    protected class EncodeTask implements Runnable
+    {
+        protected ByteBuffer pixels;
+        protected int width;
+        protected int height;
+        protected long frameIndex;
+
+        public EncodeTask( ByteBuffer pixels, int width, int height, long frameIndex )
+        {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.frameIndex = frameIndex;
+        }
+
+        @Override
+        public void run( )
+        {
+            try
+            {
+                encoder.encode( pixels, width, height, frameIndex );
+                encodedFrameCount.incrementAndGet( );
+            }
+            catch ( Exception e )
+            {
+                failedFrameCount.incrementAndGet( );
+                logWarning( logger, "Unable to encode frame " + frameIndex + ".", e );
+            }
+            finally
+            {
+                freeBuffers.add( pixels );
+            }
+        }
+    }
+}
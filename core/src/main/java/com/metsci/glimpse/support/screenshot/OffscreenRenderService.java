@@ -0,0 +1,589 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.screenshot;
+
+import static com.metsci.glimpse.gl.util.GLPBufferUtils.createPixelBuffer;
+import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+import javax.media.opengl.GLContext;
+import javax.media.opengl.GLException;
+import javax.media.opengl.GLPbuffer;
+
+import com.metsci.glimpse.axis.Axis2D;
+import com.metsci.glimpse.gl.GLAsyncReadback;
+import com.metsci.glimpse.layout.GlimpseLayout;
+
+/**
+ * Renders GlimpseLayouts to images offscreen for server-side image generation
+ * (reports, thumbnails, etc.).<p>
+ *
+ * The service owns a fixed number of render threads, each with its own OpenGL
+ * context and frame buffer (see {@link ScreenshotUtil}). The contexts share
+ * textures and buffers with a common context, so painters may be rendered from
+ * any thread. Submitted {@link RenderJob}s are taken from a single queue, so a
+ * service with one render thread draws jobs sequentially into one frame buffer
+ * while a service with several renders different layouts concurrently. Jobs which
+ * paint the same GlimpseLayout are serialized on the layout's lock.<p>
+ *
+ * Pixels are read back without stalling the render thread (see {@link GLAsyncReadback})
+ * and converted and encoded on a separate pool of encoder threads.<p>
+ *
+ * Only pbuffers and the EXT_framebuffer_object extension are required, so the
+ * service runs under a software OpenGL implementation (such as Mesa on a headless
+ * X server).
+ */
+public class OffscreenRenderService
+{
+    private static final Logger logger = Logger.getLogger( OffscreenRenderService.class.getName( ) );
+
+    /**
+     * Describes one image to be rendered: the layout to paint, the size of the image
+     * and (optionally) the axis bounds to paint it with and a file to write it to.
+     * Subclasses may override {@link #prepare()} to apply other state before painting.
+     */
+    public static class RenderJob
+    {
+        protected GlimpseLayout layout;
+        protected int width;
+        protected int height;
+
+        protected Axis2D axis;
+        protected double minX, maxX, minY, maxY;
+
+        protected File outputFile;
+        protected String outputFormat;
+
+        public RenderJob( GlimpseLayout layout, int width, int height )
+        {
+            this.layout = layout;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Sets the bounds to apply to the provided axis before the layout is painted.
+         */
+        public RenderJob setAxisBounds( Axis2D axis, double minX, double maxX, double minY, double maxY )
+        {
+            this.axis = axis;
+            this.minX = minX;
+            this.maxX = maxX;
+            this.minY = minY;
+            this.maxY = maxY;
+            return this;
+        }
+
+        /**
+         * Sets a file which the image will be written to (in a format understood by
+         * {@link ImageIO}, such as "png") before the job completes.
+         */
+        public RenderJob setOutputFile( File outputFile, String outputFormat )
+        {
+            this.outputFile = outputFile;
+            this.outputFormat = outputFormat;
+            return this;
+        }
+
+        public GlimpseLayout getLayout( )
+        {
+            return layout;
+        }
+
+        public int getWidth( )
+        {
+            return width;
+        }
+
+        public int getHeight( )
+        {
+            return height;
+        }
+
+        public File getOutputFile( )
+        {
+            return outputFile;
+        }
+
+        public String getOutputFormat( )
+        {
+            return outputFormat;
+        }
+
+        /**
+         * Called on a render thread, with the lock of the layout held, immediately
+         * before the layout is painted.
+         */
+        protected void prepare( )
+        {
+            if ( axis != null )
+            {
+                axis.set( minX, maxX, minY, maxY );
+                axis.validate( );
+            }
+        }
+    }
+
+    protected GLContext sharedContext;
+
+    // pbuffer created to provide the shared context (when none was given),
+    // destroyed once the last render thread has released its own context
+    protected GLPbuffer sharedPbuffer;
+
+    protected BlockingQueue<PendingJob> queue;
+    protected List<Thread> renderThreads;
+    protected ExecutorService encodeExecutor;
+
+    protected volatile boolean isShutdown;
+
+    // render threads which are still running, and the number which
+    // created their context (see the constructor)
+    protected AtomicInteger liveRenderThreads;
+    protected AtomicInteger initializedRenderThreads;
+    protected CountDownLatch initializedLatch;
+    protected volatile Exception initializeFailure;
+
+    // statistics, see getThroughput( ) and getMeanLatencyMillis( )
+    protected long startTimeNanos;
+    protected AtomicLong submittedCount;
+    protected AtomicLong completedCount;
+    protected AtomicLong failedCount;
+    protected AtomicLong totalLatencyNanos;
+    protected AtomicLong maxLatencyNanos;
+
+    public OffscreenRenderService( int renderThreadCount, int encodeThreadCount )
+    {
+        this( renderThreadCount, encodeThreadCount, null );
+    }
+
+    /**
+     * @param renderThreadCount the number of OpenGL contexts (and threads) to render with
+     * @param encodeThreadCount the number of threads to convert and encode images with
+     * @param context an existing context to share textures and buffers with, or null
+     * @throws GLException if none of the render threads could create an OpenGL context
+     */
+    public OffscreenRenderService( int renderThreadCount, int encodeThreadCount, GLContext context )
+    {
+        if ( renderThreadCount < 1 ) throw new IllegalArgumentException( "At least one render thread is required." );
+
+        if ( context == null )
+        {
+            this.sharedPbuffer = createPixelBuffer( 1, 1 );
+            if ( this.sharedPbuffer == null ) throw new GLException( "Unable to create a pbuffer for offscreen rendering." );
+            context = this.sharedPbuffer.getContext( );
+        }
+
+        this.sharedContext = context;
+
+        this.queue = new LinkedBlockingQueue<PendingJob>( );
+        this.encodeExecutor = Executors.newFixedThreadPool( encodeThreadCount, newThreadFactory( "offscreen-render-encoder-" ) );
+
+        this.startTimeNanos = System.nanoTime( );
+        this.submittedCount = new AtomicLong( );
+        this.completedCount = new AtomicLong( );
+        this.failedCount = new AtomicLong( );
+        this.totalLatencyNanos = new AtomicLong( );
+        this.maxLatencyNanos = new AtomicLong( );
+
+        this.liveRenderThreads = new AtomicInteger( renderThreadCount );
+        this.initializedRenderThreads = new AtomicInteger( );
+        this.initializedLatch = new CountDownLatch( renderThreadCount );
+
+        ThreadFactory renderThreadFactory = newThreadFactory( "offscreen-render-" );
+        this.renderThreads = new ArrayList<Thread>( renderThreadCount );
+        for ( int i = 0; i < renderThreadCount; i++ )
+        {
+            Thread thread = renderThreadFactory.newThread( new RenderLoop( ) );
+            this.renderThreads.add( thread );
+            thread.start( );
+        }
+
+        // without any render threads, submitted jobs would never complete
+        try
+        {
+            this.initializedLatch.await( );
+        }
+        catch ( InterruptedException e )
+        {
+            shutdown( );
+            Thread.currentThread( ).interrupt( );
+            throw new GLException( "Interrupted while creating offscreen rendering contexts.", e );
+        }
+
+        if ( this.initializedRenderThreads.get( ) == 0 )
+        {
+            shutdown( );
+            throw new GLException( "Unable to create any offscreen rendering contexts.", this.initializeFailure );
+        }
+    }
+
+    /**
+     * Queues a job for rendering. The returned Future completes once the image
+     * has been read back and (if requested) written to the job's output file.
+     */
+    public Future<BufferedImage> submit( RenderJob job )
+    {
+        if ( isShutdown ) throw new IllegalStateException( "OffscreenRenderService has been shut down." );
+
+        PendingJob pending = new PendingJob( job );
+        submittedCount.incrementAndGet( );
+        queue.add( pending );
+        return pending;
+    }
+
+    /**
+     * Stops the render and encoder threads. Jobs which have not started rendering are cancelled.
+     * Each render thread releases its OpenGL context, frame buffer and readback buffers as it exits.
+     */
+    public void shutdown( )
+    {
+        isShutdown = true;
+
+        for ( Thread thread : renderThreads )
+        {
+            thread.interrupt( );
+        }
+
+        encodeExecutor.shutdown( );
+
+        PendingJob pending;
+        while ( ( pending = queue.poll( ) ) != null )
+        {
+            pending.cancel( false );
+        }
+    }
+
+    public boolean isShutdown( )
+    {
+        return isShutdown;
+    }
+
+    public long getSubmittedCount( )
+    {
+        return submittedCount.get( );
+    }
+
+    public long getCompletedCount( )
+    {
+        return completedCount.get( );
+    }
+
+    public long getFailedCount( )
+    {
+        return failedCount.get( );
+    }
+
+    /**
+     * @return the number of jobs which have been submitted but have not yet completed or failed
+     */
+    public long getPendingCount( )
+    {
+        return submittedCount.get( ) - completedCount.get( ) - failedCount.get( );
+    }
+
+    /**
+     * @return the number of jobs completed per second since the service was created
+     */
+    public double getThroughput( )
+    {
+        double elapsedSeconds = 1e-9 * ( System.nanoTime( ) - startTimeNanos );
+        return elapsedSeconds > 0 ? completedCount.get( ) / elapsedSeconds : 0;
+    }
+
+    /**
+     * @return the mean time between submitting a job and its completion
+     */
+    public double getMeanLatencyMillis( )
+    {
+        long completed = completedCount.get( );
+        return completed > 0 ? 1e-6 * totalLatencyNanos.get( ) / completed : 0;
+    }
+
+    /**
+     * @return the longest time between submitting a job and its completion
+     */
+    public double getMaxLatencyMillis( )
+    {
+        return 1e-6 * maxLatencyNanos.get( );
+    }
+
+    //////////////////////////////////////////////////////////////
+    ///           Internals Only Beyond This Point             ///
+    //////////////////////////////////////////////////////////////
+
+    protected static ThreadFactory newThreadFactory( final String prefix )
+    {
+        final AtomicInteger count = new AtomicInteger( );
+
+        return new ThreadFactory( )
+        {
+            @Override
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable );
+                thread.setName( prefix + count.getAndIncrement( ) );
+                thread.setDaemon( true );
+                return thread;
+            }
+        };
+    }
+
+    protected void render( ScreenshotUtil screenshot, PendingJob pending )
+    {
+        // the job was cancelled while waiting in the queue
+        if ( pending.isDone( ) ) return;
+
+        RenderJob job = pending.job;
+        GlimpseLayout layout = job.getLayout( );
+
+        layout.getLock( ).lock( );
+        try
+        {
+            job.prepare( );
+            screenshot.captureScreenshotAsync( layout, job.getWidth( ), job.getHeight( ), pending );
+        }
+        catch ( Exception e )
+        {
+            pending.fail( e );
+        }
+        finally
+        {
+            layout.getLock( ).unlock( );
+        }
+    }
+
+    // called as each render thread exits, the last one releases the shared
+    // context and fails any jobs left in the queue (if the render threads
+    // died without the service being shut down, nothing else will run them)
+    protected void renderThreadExited( )
+    {
+        if ( liveRenderThreads.decrementAndGet( ) > 0 ) return;
+
+        isShutdown = true;
+
+        PendingJob pending;
+        while ( ( pending = queue.poll( ) ) != null )
+        {
+            pending.fail( new IllegalStateException( "OffscreenRenderService has no remaining render threads." ) );
+        }
+
+        if ( sharedPbuffer != null )
+        {
+            try
+            {
+                sharedPbuffer.destroy( );
+            }
+            catch ( Exception e )
+            {
+                logWarning( logger, "Trouble destroying shared offscreen rendering context.", e );
+            }
+        }
+    }
+
+    protected void recordLatency( long latencyNanos )
+    {
+        totalLatencyNanos.addAndGet( latencyNanos );
+
+        long max;
+        do
+        {
+            max = maxLatencyNanos.get( );
+        }
+        while ( latencyNanos > max && !maxLatencyNanos.compareAndSet( max, latencyNanos ) );
+    }
+
+    // each render thread owns a context and frame buffer for its whole lifetime
+    protected class RenderLoop implements Runnable
+    {
+        @Override
+        public void run( )
+        {
+            ScreenshotUtil screenshot;
+            try
+            {
+                screenshot = new ScreenshotUtil( sharedContext );
+                initializedRenderThreads.incrementAndGet( );
+            }
+            catch ( Exception e )
+            {
+                logWarning( logger, "Unable to create offscreen rendering context.", e );
+                initializeFailure = e;
+                renderThreadExited( );
+                return;
+            }
+            finally
+            {
+                initializedLatch.countDown( );
+            }
+
+            try
+            {
+                while ( !isShutdown )
+                {
+                    PendingJob pending = queue.poll( );
+
+                    if ( pending == null )
+                    {
+                        // the queue is empty, so deliver the images still being read back
+                        // instead of leaving them until the next job arrives
+                        screenshot.flush( );
+                        pending = queue.take( );
+                    }
+
+                    render( screenshot, pending );
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                // shutting down
+            }
+            finally
+            {
+                try
+                {
+                    screenshot.flush( );
+                }
+                catch ( Exception e )
+                {
+                    logWarning( logger, "Trouble delivering images during shutdown.", e );
+                }
+
+                try
+                {
+                    screenshot.dispose( );
+                }
+                catch ( Exception e )
+                {
+                    logWarning( logger, "Trouble releasing offscreen rendering context.", e );
+                }
+
+                renderThreadExited( );
+            }
+        }
+    }
+
+    protected class PendingJob extends FutureTask<BufferedImage> implements GLAsyncReadback.Listener
+    {
+        protected final RenderJob job;
+        protected final long submitTimeNanos;
+
+        public PendingJob( RenderJob job )
+        {
+            super( new Callable<BufferedImage>( )
+            {
+                @Override
+                public BufferedImage call( ) throws Exception
+                {
+                    return null;
+                }
+            } );
+
+            this.job = job;
+            this.submitTimeNanos = System.nanoTime( );
+        }
+
+        // called on the render thread once the pixels are available
+        @Override
+        public void pixelsRead( final ByteBuffer pixels, final int width, final int height )
+        {
+            try
+            {
+                encodeExecutor.execute( new Runnable( )
+                {
+                    @Override
+                    public void run( )
+                    {
+                        try
+                        {
+                            BufferedImage image = GLAsyncReadback.toBufferedImage( pixels, width, height );
+
+                            File file = job.getOutputFile( );
+                            if ( file != null && !ImageIO.write( image, job.getOutputFormat( ), file ) )
+                            {
+                                throw new IllegalArgumentException( String.format( "No ImageIO writer for format \"%s\".", job.getOutputFormat( ) ) );
+                            }
+
+                            complete( image );
+                        }
+                        catch ( Exception e )
+                        {
+                            fail( e );
+                        }
+                    }
+                } );
+            }
+            catch ( Exception e )
+            {
+                // the encoder pool has been shut down
+                fail( e );
+            }
+        }
+
+        protected void complete( BufferedImage image )
+        {
+            if ( isDone( ) ) return;
+
+            set( image );
+            completedCount.incrementAndGet( );
+            recordLatency( System.nanoTime( ) - submitTimeNanos );
+        }
+
+        protected void fail( Exception e )
+        {
+            if ( isDone( ) ) return;
+
+            setException( e );
+            failedCount.incrementAndGet( );
+        }
+
+        @Override
+        public boolean cancel( boolean mayInterruptIfRunning )
+        {
+            boolean cancelled = super.cancel( mayInterruptIfRunning );
+            if ( cancelled ) failedCount.incrementAndGet( );
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.screenshot;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.imageio.ImageIO;
+
+import com.metsci.glimpse.gl.GLAsyncReadback;
+
+/**
+ * Writes each frame to a separate, sequentially numbered PNG file
+ * (for example frame_000000.png, frame_000001.png, ...). Frames are
+ * independent, so they may be encoded concurrently.
+ */
+public class PngSequenceEncoder implements FrameEncoder
+{
+    protected File directory;
+    protected String prefix;
+
+    public PngSequenceEncoder( File directory )
+    {
+        this( directory, "frame_" );
+    }
+
+    public PngSequenceEncoder( File directory, String prefix )
+    {
+        this.directory = directory;
+        this.prefix = prefix;
+    }
+
+    public File getFile( long frameIndex )
+    {
+        return new File( directory, String.format( "%s%06d.png", prefix, frameIndex ) );
+    }
+
+    @Override
+    public boolean isSequential( )
+    {
+        return false;
+    }
+
+    @Override
+    public void encode( ByteBuffer pixels, int width, int height, long frameIndex ) throws IOException
+    {
+        BufferedImage image = GLAsyncReadback.toBufferedImage( pixels, width, height );
+        ImageIO.write( image, "png", getFile( frameIndex ) );
+    }
+
+    @Override
+    public void close( ) throws IOException
+    {
+        // nothing to do, each frame is a complete file
+    }
+}
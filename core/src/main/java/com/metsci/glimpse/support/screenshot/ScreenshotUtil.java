@@ -30,31 +30,42 @@ import static com.metsci.glimpse.gl.util.GLPBufferUtils.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Future;
 
+import javax.media.opengl.GL;
 import javax.media.opengl.GLContext;
 import javax.media.opengl.GLException;
+import javax.media.opengl.GLPbuffer;
 
 import com.metsci.glimpse.canvas.FrameBufferGlimpseCanvas;
 import com.metsci.glimpse.context.GlimpseContext;
+import com.metsci.glimpse.gl.GLAsyncReadback;
 import com.metsci.glimpse.gl.GLSimpleFrameBufferObject;
 import com.metsci.glimpse.layout.GlimpseLayout;
 import com.sun.opengl.util.Screenshot;
 
 public class ScreenshotUtil
 {
+    protected GLPbuffer pbuffer;
     protected GLContext context;
     protected FrameBufferGlimpseCanvas frameBuffer;
+    protected GLAsyncReadback readback;
 
     public ScreenshotUtil( )
     {
-        this.context = createPixelBuffer( 1, 1 ).getContext( );
+        this.pbuffer = createPixelBuffer( 1, 1 );
+        this.context = pbuffer.getContext( );
         this.frameBuffer = new FrameBufferGlimpseCanvas( 1, 1, context );
+        this.readback = new GLAsyncReadback( );
     }
 
     public ScreenshotUtil( GLContext _context )
     {
-        this.context = createPixelBuffer( 1, 1, _context ).getContext( );
+        this.pbuffer = createPixelBuffer( 1, 1, _context );
+        this.context = pbuffer.getContext( );
         this.frameBuffer = new FrameBufferGlimpseCanvas( 1, 1, this.context );
+        this.readback = new GLAsyncReadback( );
     }
 
     public FrameBufferGlimpseCanvas getGlimpseCanvas( )
@@ -87,4 +98,88 @@ public class ScreenshotUtil
         fbo.unbind( glContext );
         glContext.release( );
     }
+
+    /**
+     * Paints the provided layout and begins reading back the result without waiting for the GPU
+     * to finish drawing. Screenshots are delivered (through the returned Future and the listener,
+     * which may be null) during a later call to this method or to {@link #flush( )}, so a
+     * sequence of captures is pipelined rather than stalling on each one.
+     *
+     * @see GLAsyncReadback#toBufferedImage( ByteBuffer, int, int )
+     */
+    public Future<ByteBuffer> captureScreenshotAsync( GlimpseLayout layout, int width, int height, GLAsyncReadback.Listener listener ) throws GLException
+    {
+        // resize the frame buffer canvas if necessary
+        frameBuffer.resize( width, height );
+
+        GlimpseContext context = frameBuffer.getGlimpseContext( );
+        GLSimpleFrameBufferObject fbo = frameBuffer.getFrameBuffer( );
+        GLContext glContext = context.getGLContext( );
+        GL gl = glContext.getGL( );
+
+        glContext.makeCurrent( );
+        try
+        {
+            // deliver any earlier screenshots which have finished
+            readback.poll( gl );
+
+            fbo.bind( glContext );
+            try
+            {
+                layout.paintTo( context );
+
+                return readback.readPixels( gl, 0, 0, width, height, listener );
+            }
+            finally
+            {
+                fbo.unbind( glContext );
+            }
+        }
+        finally
+        {
+            glContext.release( );
+        }
+    }
+
+    /**
+     * Delivers all screenshots started by {@link #captureScreenshotAsync( GlimpseLayout, int, int, GLAsyncReadback.Listener )},
+     * waiting for the GPU if necessary.
+     */
+    public void flush( ) throws GLException
+    {
+        GLContext glContext = frameBuffer.getGlimpseContext( ).getGLContext( );
+
+        glContext.makeCurrent( );
+        try
+        {
+            readback.flush( glContext.getGL( ) );
+        }
+        finally
+        {
+            glContext.release( );
+        }
+    }
+
+    /**
+     * Releases the pixel buffers used for asynchronous readback, the frame buffer and the
+     * pbuffer context created by this ScreenshotUtil. Screenshots which have not been
+     * delivered (see {@link #flush( )}) are cancelled.
+     */
+    public void dispose( ) throws GLException
+    {
+        GLContext glContext = frameBuffer.getGlimpseContext( ).getGLContext( );
+
+        glContext.makeCurrent( );
+        try
+        {
+            readback.dispose( glContext.getGL( ) );
+        }
+        finally
+        {
+            glContext.release( );
+        }
+
+        frameBuffer.dispose( null );
+        pbuffer.destroy( );
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.screenshot;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes frames to an uncompressed YUV4MPEG2 (.y4m) video file with 4:4:4
+ * chroma sampling. The format is a simple header followed by raw frames, so
+ * encoding is cheap; the result can be played or transcoded by common tools
+ * (ffmpeg, mplayer, vlc).<p>
+ *
+ * Every frame must be the same size as the first. Frames of any other size
+ * are rejected with an IOException.
+ */
+public class Y4mVideoEncoder implements FrameEncoder
+{
+    protected OutputStream out;
+    protected int frameRate;
+
+    protected int width = -1;
+    protected int height = -1;
+
+    // reused Y, Cb and Cr planes for a single frame
+    protected byte[] planes;
+
+    public Y4mVideoEncoder( File file, int frameRate ) throws IOException
+    {
+        this.out = new BufferedOutputStream( new FileOutputStream( file ), 1 << 20 );
+        this.frameRate = frameRate;
+    }
+
+    @Override
+    public boolean isSequential( )
+    {
+        return true;
+    }
+
+    @Override
+    public void encode( ByteBuffer pixels, int width, int height, long frameIndex ) throws IOException
+    {
+        if ( this.width < 0 )
+        {
+            this.width = width;
+            this.height = height;
+            this.planes = new byte[width * height * 3];
+
+            out.write( String.format( "YUV4MPEG2 W%d H%d F%d:1 Ip A1:1 C444\n", width, height, frameRate ).getBytes( "US-ASCII" ) );
+        }
+        else if ( this.width != width || this.height != height )
+        {
+            throw new IOException( String.format( "Frame size %dx%d does not match video size %dx%d.", width, height, this.width, this.height ) );
+        }
+
+        int size = width * height;
+
+        for ( int y = 0; y < height; y++ )
+        {
+            // the pixels are bottom row first, the video is top row first
+            int in = ( height - 1 - y ) * width * 4;
+            int i = y * width;
+
+            for ( int x = 0; x < width; x++, i++, in += 4 )
+            {
+                int r = pixels.get( in ) & 0xff;
+                int g = pixels.get( in + 1 ) & 0xff;
+                int b = pixels.get( in + 2 ) & 0xff;
+
+                // ITU-R BT.601 studio range
+                planes[i] = ( byte ) ( ( ( 66 * r + 129 * g + 25 * b + 128 ) >> 8 ) + 16 );
+                planes[size + i] = ( byte ) ( ( ( -38 * r - 74 * g + 112 * b + 128 ) >> 8 ) + 128 );
+                planes[2 * size + i] = ( byte ) ( ( ( 112 * r - 94 * g - 18 * b + 128 ) >> 8 ) + 128 );
+            }
+        }
+
+        out.write( "FRAME\n".getBytes( "US-ASCII" ) );
+        out.write( planes );
+    }
+
+    @Override
+    public void close( ) throws IOException
+    {
+        out.close( );
+    }
+}
@@ -38,12 +38,13 @@ import java.util.logging.Logger;
 import javax.media.opengl.GL;
 import javax.media.opengl.GLContext;
 
+import com.metsci.glimpse.gl.GLResourceManager;
 import com.metsci.glimpse.gl.texture.DrawableTexture;
 import com.metsci.glimpse.support.projection.InvertibleProjection;
 import com.metsci.glimpse.support.projection.Projection;
 import com.sun.opengl.util.BufferUtil;
 
-public abstract class TextureProjected2D implements DrawableTexture
+public abstract class TextureProjected2D implements DrawableTexture, GLResourceManager.Resource
 {
     public static final int NUM_DIMENSIONS = 2;
     public static final int VERTICES_PER_QUAD = 4;
@@ -104,6 +105,10 @@ public abstract class TextureProjected2D implements DrawableTexture
     protected int dataSizeX;
     protected int dataSizeY;
 
+    // tracks the GPU memory used by this texture, set when it is first uploaded
+    protected GLResourceManager resourceManager;
+    protected Object resourceOwner = this;
+
     public TextureProjected2D( int dataSizeX, int dataSizeY, boolean useVertexZCoord )
     {
         this.useVertexZCoord = useVertexZCoord;
@@ -165,6 +170,16 @@ public abstract class TextureProjected2D implements DrawableTexture
         }
     }
 
+    /**
+     * Sets the object reported as responsible for this texture's GPU memory.
+     *
+     * @see GLResourceManager#getBytesByOwner()
+     */
+    public void setResourceOwner( Object owner )
+    {
+        this.resourceOwner = owner;
+    }
+
     public void makeProjectionDirty( )
     {
         this.projectionDirty = true;
@@ -224,6 +239,14 @@ public abstract class TextureProjected2D implements DrawableTexture
             {
                 prepare_setData( gl );
                 dirty = false;
+
+                // textures backed by external data (data == null) are not ours to manage
+                if ( resourceManager == null && data != null ) resourceManager = GLResourceManager.getCurrent( );
+                if ( resourceManager != null ) resourceManager.allocated( this, resourceOwner, data.capacity( ) );
+            }
+            else if ( glAllocated && resourceManager != null )
+            {
+                resourceManager.used( this );
             }
 
             if ( glAllocated && projectionDirty )
@@ -301,6 +324,43 @@ public abstract class TextureProjected2D implements DrawableTexture
         {
             gl.glDeleteBuffers( texCoordHandles.length, texCoordHandles, 0 );
         }
+
+        if ( resourceManager != null ) resourceManager.released( this );
+    }
+
+    @Override
+    public boolean evict( GL gl )
+    {
+        // don't wait for (or deadlock with) a thread which is using the texture
+        if ( !lock.tryLock( ) ) return false;
+        try
+        {
+            if ( textureHandles != null && textureHandles.length != 0 )
+            {
+                gl.glDeleteTextures( textureHandles.length, textureHandles, 0 );
+                textureHandles = null;
+            }
+
+            if ( vertexCoordHandles != null && vertexCoordHandles.length != 0 )
+            {
+                gl.glDeleteBuffers( vertexCoordHandles.length, vertexCoordHandles, 0 );
+                vertexCoordHandles = null;
+            }
+
+            if ( texCoordHandles != null && texCoordHandles.length != 0 )
+            {
+                gl.glDeleteBuffers( texCoordHandles.length, texCoordHandles, 0 );
+                texCoordHandles = null;
+            }
+
+            // prepare( ) will reallocate and upload the data and coordinates again
+            glAllocated = false;
+            return true;
+        }
+        finally
+        {
+            lock.unlock( );
+        }
     }
 
     protected void prepare_glState( GL gl )
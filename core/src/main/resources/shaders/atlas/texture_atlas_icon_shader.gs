@@ -8,6 +8,10 @@ uniform float viewportHeight;
 // icons can be globally scaled by a constant factor
 uniform float globalScale;
 
+// only icons on this texture atlas page are drawn
+// (if negative, icons are drawn regardless of page)
+uniform float pageIndex;
+
 // height should include any border around the image
 // and offset should also move to the edge of the image+border
 // order in vector: width, height, offsetX, offsetY
@@ -16,8 +20,8 @@ varying in vec4 vpixelCoords[];
 // order in vector: minX, maxX, minY, maxY
 varying in vec4 vtexCoords[];
 
-// vector containing picking color
-varying in vec3 vpickColor[];
+// vector containing picking color and texture atlas page
+varying in vec4 vpickColor[];
 
 varying out vec2 TexCoord;
 
@@ -26,7 +30,10 @@ varying out vec3 pickColor;
 
 void main()
 {
-    pickColor = vpickColor[0];
+    // icons on other pages are drawn in a separate pass with their page bound
+    if ( pageIndex >= 0.0 && vpickColor[0].a != pageIndex ) return;
+
+    pickColor = vpickColor[0].rgb;
 
     // extract rotation and scale from the vertex
     float rotation = gl_PositionIn[0].z;
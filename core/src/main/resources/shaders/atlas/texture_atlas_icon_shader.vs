@@ -2,11 +2,11 @@
 
 attribute vec4 pixelCoords;
 attribute vec4 texCoords;
-attribute vec3 pickColor;
+attribute vec4 pickColor;
 
 varying vec4 vpixelCoords;
 varying vec4 vtexCoords;
-varying vec3 vpickColor; 
+varying vec4 vpickColor;
 
 void main( )
 {
@@ -18,7 +18,7 @@ void main( )
     // order in vector: minX, maxX, minY, maxY
     vtexCoords = texCoords;
     
-    // pass through picking color
+    // pass through picking color (and texture atlas page in the fourth component)
     vpickColor = pickColor;
 
     // transform vertex (this will have to change with later OpenGL versions)
@@ -0,0 +1,26 @@
+#version 120
+
+uniform sampler2D tex;
+
+// text color (not premultiplied)
+uniform vec4 color;
+
+// distance field value which lies on the glyph edge
+uniform float threshold;
+
+varying vec2 TexCoord;
+
+varying vec3 pickColor;
+
+void main()
+{
+    // the signed distance is stored in the alpha channel
+    float distance = texture2D( tex, TexCoord.st ).a;
+
+    // anti-alias over roughly one screen pixel regardless of scale
+    float width = fwidth( distance );
+    float alpha = color.a * smoothstep( threshold - width, threshold + width, distance );
+
+    // the TextureAtlas uses premultiplied alpha blending
+    gl_FragColor = vec4( color.rgb * alpha, alpha );
+}
@@ -26,27 +26,51 @@
  */
 package com.metsci.glimpse.charts.bathy;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.Comparator;
-import java.util.NavigableSet;
-import java.util.TreeSet;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.logging.Logger;
 
 import com.metsci.glimpse.axis.Axis2D;
-import com.metsci.glimpse.support.projection.Projection;
 import com.metsci.glimpse.support.projection.LatLonProjection;
+import com.metsci.glimpse.support.projection.Projection;
 import com.metsci.glimpse.support.texture.FloatTextureProjected2D;
+import com.metsci.glimpse.support.texture.FloatTextureProjected2D.MutatorFloat2D;
 import com.metsci.glimpse.util.geo.LatLonGeo;
 import com.metsci.glimpse.util.geo.projection.GeoProjection;
+import com.metsci.glimpse.util.primitives.FloatsArray;
 import com.metsci.glimpse.util.vector.Vector2d;
 
+import static com.metsci.glimpse.util.logging.LoggerUtils.*;
+
 /**
+ * Gridded bathymetry loaded from whitespace separated longitude, latitude, depth text.<p>
+ *
+ * Files whose samples are ordered row by row (as ETOPO extracts are) are streamed directly
+ * into the final depth grid. Other files are gridded by sorting their coordinates. The
+ * gridded result can be written to, and quickly reloaded from, a binary cache file.
+ *
  * @author ulman
  */
 public class BathymetryData
 {
+    private static final Logger logger = Logger.getLogger( BathymetryData.class.getName( ) );
+
+    protected static final int CACHE_MAGIC = 0x42415459;
+    protected static final int CACHE_VERSION = 1;
+
+    protected static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18 };
+
     protected double widthStep;
     protected double heightStep;
 
@@ -58,6 +82,10 @@ public class BathymetryData
 
     protected GeoProjection projection;
 
+    // depths indexed by x + imageWidth * y
+    protected float[] grid;
+
+    // lazily created copy of grid, see getData( )
     protected double[][] data;
 
     public BathymetryData( InputStream in, GeoProjection projection ) throws IOException
@@ -67,116 +95,249 @@ public class BathymetryData
         read( in, projection );
     }
 
-    private static class Row
+    protected BathymetryData( GeoProjection projection )
     {
-        public float centerLat;
-        public float centerLon;
-        public float depth;
+        this.projection = projection;
+    }
 
-        public Row( float centerLat, float centerLon, float depth )
+    /**
+     * Loads bathymetry from a text file, using cacheFile if it is newer than the text file.
+     * Otherwise the text file is parsed and the cache file is (re)written.
+     */
+    public static BathymetryData load( File file, File cacheFile, GeoProjection projection ) throws IOException
+    {
+        if ( cacheFile.isFile( ) && cacheFile.lastModified( ) >= file.lastModified( ) )
         {
-            this.centerLat = centerLat;
-            this.centerLon = centerLon;
-            this.depth = depth;
+            InputStream in = new FileInputStream( cacheFile );
+            try
+            {
+                return readCache( in, projection );
+            }
+            catch ( IOException e )
+            {
+                logWarning( logger, "Unable to read bathymetry cache %s. Rebuilding cache.", e, cacheFile );
+            }
+            finally
+            {
+                in.close( );
+            }
         }
-    }
 
-    protected void read( InputStream in, GeoProjection tp ) throws IOException
-    {
-        BufferedReader reader = new BufferedReader( new InputStreamReader( in ) );
+        BathymetryData bathymetry;
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            bathymetry = new BathymetryData( in, projection );
+        }
+        finally
+        {
+            in.close( );
+        }
 
-        // create a sorted set to store all the rows from the data input file of the form:
-        // latitude longitude depth
-        NavigableSet<Row> rows = new TreeSet<Row>( new Comparator<Row>( )
+        // the data was parsed successfully, so failing to write the cache is not fatal
+        try
         {
-            @Override
-            public int compare( Row o1, Row o2 )
+            OutputStream out = new FileOutputStream( cacheFile );
+            try
             {
-                int latComparison = Double.compare( o1.centerLat, o2.centerLat );
-                return ( latComparison != 0 ? latComparison : Double.compare( o1.centerLon, o2.centerLon ) );
+                bathymetry.writeCache( out );
             }
-        } );
+            finally
+            {
+                out.close( );
+            }
+        }
+        catch ( IOException e )
+        {
+            logWarning( logger, "Unable to write bathymetry cache %s.", e, cacheFile );
+        }
 
-        // read lines from the input stream into the set
-        String line = null;
+        return bathymetry;
+    }
 
-        while ( ( line = reader.readLine( ) ) != null )
+    /**
+     * Reads bathymetry previously written with {@link #writeCache(OutputStream)}.
+     */
+    public static BathymetryData readCache( InputStream stream, GeoProjection projection ) throws IOException
+    {
+        DataInputStream in = new DataInputStream( new BufferedInputStream( stream ) );
+
+        if ( in.readInt( ) != CACHE_MAGIC ) throw new IOException( "Not a bathymetry cache file" );
+        int version = in.readInt( );
+        if ( version != CACHE_VERSION ) throw new IOException( String.format( "Unsupported bathymetry cache version: %d", version ) );
+
+        BathymetryData bathymetry = new BathymetryData( projection );
+        bathymetry.imageWidth = in.readInt( );
+        bathymetry.imageHeight = in.readInt( );
+        bathymetry.startLon = in.readDouble( );
+        bathymetry.startLat = in.readDouble( );
+        bathymetry.widthStep = in.readDouble( );
+        bathymetry.heightStep = in.readDouble( );
+
+        int size = bathymetry.imageWidth * bathymetry.imageHeight;
+        float[] grid = new float[size];
+
+        byte[] bytes = new byte[65536];
+        ByteBuffer buffer = ByteBuffer.wrap( bytes );
+        for ( int i = 0; i < size; )
         {
-            if ( line.trim( ).isEmpty( ) ) continue;
-
-            String[] tokens = line.trim( ).split( "[ ]+" );
+            int count = Math.min( size - i, bytes.length / 4 );
+            in.readFully( bytes, 0, count * 4 );
+            buffer.clear( );
+            buffer.asFloatBuffer( ).get( grid, i, count );
+            i += count;
+        }
 
-            float lon = Float.parseFloat( tokens[0] );
-            float lat = Float.parseFloat( tokens[1] );
-            float depth = Float.parseFloat( tokens[2] );
+        bathymetry.grid = grid;
+        return bathymetry;
+    }
 
-            rows.add( new Row( lat, lon, depth ) );
+    public void writeCache( OutputStream stream ) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( stream ) );
+
+        out.writeInt( CACHE_MAGIC );
+        out.writeInt( CACHE_VERSION );
+        out.writeInt( imageWidth );
+        out.writeInt( imageHeight );
+        out.writeDouble( startLon );
+        out.writeDouble( startLat );
+        out.writeDouble( widthStep );
+        out.writeDouble( heightStep );
+
+        byte[] bytes = new byte[65536];
+        ByteBuffer buffer = ByteBuffer.wrap( bytes );
+        for ( int i = 0; i < grid.length; )
+        {
+            int count = Math.min( grid.length - i, bytes.length / 4 );
+            buffer.clear( );
+            buffer.asFloatBuffer( ).put( grid, i, count );
+            out.write( bytes, 0, count * 4 );
+            i += count;
         }
 
-        // create a set with only unique latitudes (in sorted order)
-        NavigableSet<Row> uniqueLatitudes = new TreeSet<Row>( new Comparator<Row>( )
+        out.flush( );
+    }
+
+    protected void read( InputStream in, GeoProjection tp ) throws IOException
+    {
+        SampleReader reader = new SampleReader( in );
+
+        if ( !reader.next( ) ) throw new IOException( "No bathymetry samples found" );
+
+        // optimistically assume the samples form a grid ordered row by row: lines with the
+        // same latitude, with longitudes which repeat exactly from row to row
+        FloatsArray rowLons = new FloatsArray( );
+        FloatsArray rowLats = new FloatsArray( );
+        FloatsArray depths = new FloatsArray( );
+
+        rowLons.append( reader.lon );
+        rowLats.append( reader.lat );
+        depths.append( reader.depth );
+
+        int rowWidth = -1;
+        int column = 1;
+        boolean ordered = true;
+
+        while ( reader.next( ) )
         {
-            @Override
-            public int compare( Row o1, Row o2 )
+            float rowLat = rowLats.a[rowLats.n - 1];
+
+            if ( rowWidth < 0 )
             {
-                return Double.compare( o1.centerLat, o2.centerLat );
+                if ( reader.lat == rowLat )
+                {
+                    // still in the first row, which defines the longitudes of every row
+                    rowLons.append( reader.lon );
+                    depths.append( reader.depth );
+                    column++;
+                    continue;
+                }
+
+                rowWidth = column;
+                column = 0;
             }
-        } );
 
-        // create a set with only unique longitudes (in sorted order)
-        NavigableSet<Row> uniqueLongitudes = new TreeSet<Row>( new Comparator<Row>( )
-        {
-            @Override
-            public int compare( Row o1, Row o2 )
+            if ( column == 0 )
+            {
+                if ( reader.lat == rowLat || reader.lon != rowLons.a[0] )
+                {
+                    ordered = false;
+                    break;
+                }
+
+                rowLats.append( reader.lat );
+            }
+            else if ( reader.lat != rowLat || reader.lon != rowLons.a[column] )
             {
-                return Double.compare( o1.centerLon, o2.centerLon );
+                ordered = false;
+                break;
             }
-        } );
 
-        uniqueLatitudes.addAll( rows );
-        uniqueLongitudes.addAll( rows );
+            depths.append( reader.depth );
+            column = ( column + 1 ) % rowWidth;
+        }
 
-        // retrieve the number of unique latitudes and longitudes from the sets
-        imageHeight = uniqueLatitudes.size( );
-        imageWidth = uniqueLongitudes.size( );
+        if ( rowWidth < 0 ) rowWidth = column;
 
-        // calculate the average step size moving along latitude and longitude
-        widthStep = 0;
-        Row prevRow = null;
-        for ( Row row : uniqueLongitudes )
+        if ( ordered && column == 0 && isStrictlyMonotonic( rowLons ) && isStrictlyMonotonic( rowLats ) )
         {
-            if ( prevRow != null )
-            {
-                widthStep += row.centerLon - prevRow.centerLon;
-            }
+            setGrid( rowLons, rowLats, depths );
+        }
+        else
+        {
+            readUnordered( reader, rowLons, rowLats, depths, rowWidth, ordered );
+        }
+    }
+
+    /**
+     * Grids samples by sorting their coordinates. The samples consumed before the input
+     * was found not to be ordered are reconstructed from the rows read so far.
+     */
+    protected void readUnordered( SampleReader reader, FloatsArray rowLons, FloatsArray rowLats, FloatsArray depths, int rowWidth, boolean endOfStream ) throws IOException
+    {
+        int n = depths.n;
+
+        FloatsArray lons = new FloatsArray( Math.max( 16, 2 * n ) );
+        FloatsArray lats = new FloatsArray( Math.max( 16, 2 * n ) );
 
-            prevRow = row;
+        for ( int i = 0; i < n; i++ )
+        {
+            lons.append( rowLons.a[i % rowWidth] );
+            lats.append( rowLats.a[i / rowWidth] );
         }
-        widthStep = widthStep / ( uniqueLongitudes.size( ) - 1 );
 
-        heightStep = 0;
-        prevRow = null;
-        for ( Row row : uniqueLatitudes )
+        // the sample which broke the ordering has been read but not yet stored
+        if ( !endOfStream )
         {
-            if ( prevRow != null )
+            do
             {
-                heightStep += row.centerLat - prevRow.centerLat;
+                lons.append( reader.lon );
+                lats.append( reader.lat );
+                depths.append( reader.depth );
             }
-
-            prevRow = row;
+            while ( reader.next( ) );
         }
-        heightStep = heightStep / ( uniqueLatitudes.size( ) - 1 );
 
-        // find the lat and lon of the starting corner
-        startLon = uniqueLongitudes.first( ).centerLon - 0.5 * widthStep;
-        startLat = uniqueLatitudes.first( ).centerLat - 0.5 * heightStep;
+        float[] uniqueLons = getSortedUnique( lons );
+        float[] uniqueLats = getSortedUnique( lats );
+
+        imageWidth = uniqueLons.length;
+        imageHeight = uniqueLats.length;
+
+        widthStep = ( ( double ) uniqueLons[imageWidth - 1] - uniqueLons[0] ) / ( imageWidth - 1 );
+        heightStep = ( ( double ) uniqueLats[imageHeight - 1] - uniqueLats[0] ) / ( imageHeight - 1 );
 
-        data = new double[imageWidth][imageHeight];
+        startLon = uniqueLons[0] - 0.5 * widthStep;
+        startLat = uniqueLats[0] - 0.5 * heightStep;
 
-        for ( Row row : rows )
+        grid = new float[imageWidth * imageHeight];
+
+        // iterate backwards so that the first of any duplicate samples is kept
+        for ( int i = depths.n - 1; i >= 0; i-- )
         {
-            int x = ( int ) Math.floor( ( row.centerLon - startLon ) / widthStep );
-            int y = ( int ) Math.floor( ( row.centerLat - startLat ) / heightStep );
+            int x = ( int ) Math.floor( ( lons.a[i] - startLon ) / widthStep );
+            int y = ( int ) Math.floor( ( lats.a[i] - startLat ) / heightStep );
 
             if ( x < 0 ) x = 0;
             if ( x >= imageWidth ) x = imageWidth - 1;
@@ -184,10 +345,95 @@ public class BathymetryData
             if ( y < 0 ) y = 0;
             if ( y >= imageHeight ) y = imageHeight - 1;
 
-            data[x][y] = row.depth;
+            grid[x + imageWidth * y] = depths.a[i];
         }
     }
 
+    /**
+     * Uses the row ordered depths as the grid, reordering rows and columns if latitudes
+     * or longitudes are decreasing.
+     */
+    protected void setGrid( FloatsArray lons, FloatsArray lats, FloatsArray depths )
+    {
+        imageWidth = lons.n;
+        imageHeight = lats.n;
+
+        float[] grid = depths.n == depths.a.length ? depths.a : Arrays.copyOf( depths.a, depths.n );
+
+        boolean reverseX = imageWidth > 1 && lons.a[1] < lons.a[0];
+        boolean reverseY = imageHeight > 1 && lats.a[1] < lats.a[0];
+
+        if ( reverseX )
+        {
+            for ( int y = 0; y < imageHeight; y++ )
+            {
+                int rowStart = y * imageWidth;
+                for ( int i = 0, j = imageWidth - 1; i < j; i++, j-- )
+                {
+                    swap( grid, rowStart + i, rowStart + j );
+                }
+            }
+        }
+
+        if ( reverseY )
+        {
+            for ( int i = 0, j = imageHeight - 1; i < j; i++, j-- )
+            {
+                for ( int x = 0; x < imageWidth; x++ )
+                {
+                    swap( grid, i * imageWidth + x, j * imageWidth + x );
+                }
+            }
+        }
+
+        float minLon = reverseX ? lons.a[imageWidth - 1] : lons.a[0];
+        float maxLon = reverseX ? lons.a[0] : lons.a[imageWidth - 1];
+        float minLat = reverseY ? lats.a[imageHeight - 1] : lats.a[0];
+        float maxLat = reverseY ? lats.a[0] : lats.a[imageHeight - 1];
+
+        widthStep = ( ( double ) maxLon - minLon ) / ( imageWidth - 1 );
+        heightStep = ( ( double ) maxLat - minLat ) / ( imageHeight - 1 );
+
+        startLon = minLon - 0.5 * widthStep;
+        startLat = minLat - 0.5 * heightStep;
+
+        this.grid = grid;
+    }
+
+    protected static void swap( float[] array, int i, int j )
+    {
+        float temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    protected static boolean isStrictlyMonotonic( FloatsArray values )
+    {
+        if ( values.n < 2 ) return true;
+
+        boolean increasing = values.a[1] > values.a[0];
+        for ( int i = 1; i < values.n; i++ )
+        {
+            if ( increasing ? values.a[i] <= values.a[i - 1] : values.a[i] >= values.a[i - 1] ) return false;
+        }
+
+        return true;
+    }
+
+    protected static float[] getSortedUnique( FloatsArray values )
+    {
+        float[] sorted = Arrays.copyOf( values.a, values.n );
+        Arrays.sort( sorted );
+
+        int n = 0;
+        for ( int i = 0; i < sorted.length; i++ )
+        {
+            if ( n == 0 || sorted[i] != sorted[n - 1] ) sorted[n++] = sorted[i];
+        }
+
+        return Arrays.copyOf( sorted, n );
+    }
+
     public FloatTextureProjected2D getTexture( )
     {
         // create an OpenGL texture wrapper object
@@ -196,7 +442,14 @@ public class BathymetryData
         Projection projection = getProjection( );
 
         texture.setProjection( projection );
-        texture.setData( data );
+        texture.mutate( new MutatorFloat2D( )
+        {
+            @Override
+            public void mutate( FloatBuffer data, int dataSizeX, int dataSizeY )
+            {
+                data.put( grid );
+            }
+        } );
 
         return texture;
     }
@@ -280,8 +533,195 @@ public class BathymetryData
         return Math.max( swCorner.getY( ), neCorner.getY( ) );
     }
 
-    public double[][] getData( )
+    /**
+     * @return the depth grid, indexed by [longitude index][latitude index]
+     * @deprecated copies the grid on first use; prefer {@link #getGrid()}
+     */
+    @Deprecated
+    public synchronized double[][] getData( )
     {
+        if ( data == null )
+        {
+            data = new double[imageWidth][imageHeight];
+            for ( int y = 0; y < imageHeight; y++ )
+            {
+                for ( int x = 0; x < imageWidth; x++ )
+                {
+                    data[x][y] = grid[x + imageWidth * y];
+                }
+            }
+        }
+
         return data;
     }
+
+    /**
+     * @return the depth grid in row major order, with longitude varying fastest and rows
+     *         in order of increasing latitude (the layout used by {@link FloatTextureProjected2D})
+     */
+    public float[] getGrid( )
+    {
+        return grid;
+    }
+
+    /**
+     * Reads lon/lat/depth samples one line at a time without creating Strings.
+     */
+    protected static class SampleReader
+    {
+        protected InputStream in;
+        protected byte[] buffer;
+        protected int position;
+        protected int limit;
+        protected boolean endOfStream;
+        protected int lineNumber;
+
+        public float lon;
+        public float lat;
+        public float depth;
+
+        public SampleReader( InputStream in )
+        {
+            this.in = in;
+            this.buffer = new byte[65536];
+        }
+
+        /**
+         * @return false if there are no more samples
+         */
+        public boolean next( ) throws IOException
+        {
+            while ( true )
+            {
+                int lineEnd = findLineEnd( );
+                if ( lineEnd < 0 ) return false;
+
+                int lineStart = position;
+                position = lineEnd + 1;
+                lineNumber++;
+
+                int p = skipWhitespace( lineStart, lineEnd );
+                if ( p == lineEnd ) continue;
+
+                int end = skipToken( p, lineEnd );
+                lon = ( float ) parseDouble( p, end );
+
+                p = skipWhitespace( end, lineEnd );
+                end = skipToken( p, lineEnd );
+                lat = ( float ) parseDouble( p, end );
+
+                p = skipWhitespace( end, lineEnd );
+                end = skipToken( p, lineEnd );
+                depth = ( float ) parseDouble( p, end );
+
+                return true;
+            }
+        }
+
+        /**
+         * @return the index of the end of the next line (which may be the end of the stream), or -1
+         */
+        protected int findLineEnd( ) throws IOException
+        {
+            int searchFrom = position;
+            while ( true )
+            {
+                for ( int i = searchFrom; i < limit; i++ )
+                {
+                    if ( buffer[i] == '\n' ) return i;
+                }
+
+                if ( endOfStream ) return position < limit ? limit : -1;
+
+                // move the partial line to the front of the buffer, growing it if the line fills it
+                int partial = limit - position;
+                if ( partial == buffer.length ) buffer = Arrays.copyOf( buffer, buffer.length * 2 );
+                System.arraycopy( buffer, position, buffer, 0, partial );
+                position = 0;
+                limit = partial;
+                searchFrom = partial;
+
+                int count = in.read( buffer, limit, buffer.length - limit );
+                if ( count < 0 )
+                    endOfStream = true;
+                else
+                    limit += count;
+            }
+        }
+
+        protected int skipWhitespace( int p, int end )
+        {
+            while ( p < end && buffer[p] <= ' ' )
+            {
+                p++;
+            }
+
+            return p;
+        }
+
+        protected int skipToken( int p, int end )
+        {
+            while ( p < end && buffer[p] > ' ' )
+            {
+                p++;
+            }
+
+            return p;
+        }
+
+        protected double parseDouble( int from, int to ) throws IOException
+        {
+            if ( from == to ) throw new IOException( String.format( "Expected longitude, latitude and depth on line %d", lineNumber ) );
+
+            int i = from;
+            boolean negative = buffer[i] == '-';
+            if ( negative || buffer[i] == '+' ) i++;
+
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean fraction = false;
+
+            for ( ; i < to; i++ )
+            {
+                byte b = buffer[i];
+
+                if ( b >= '0' && b <= '9' )
+                {
+                    if ( ++digits > 18 ) return parseDoubleSlow( from, to );
+                    mantissa = mantissa * 10 + ( b - '0' );
+                    if ( fraction ) exponent--;
+                }
+                else if ( b == '.' && !fraction )
+                {
+                    fraction = true;
+                }
+                else
+                {
+                    // exponents and anything unusual
+                    return parseDoubleSlow( from, to );
+                }
+            }
+
+            if ( digits == 0 ) return parseDoubleSlow( from, to );
+
+            // exact operands and a single correctly rounded division
+            double value = exponent == 0 ? mantissa : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+
+        protected double parseDoubleSlow( int from, int to ) throws IOException
+        {
+            String token = new String( buffer, from, to - from, "US-ASCII" );
+
+            try
+            {
+                return Double.parseDouble( token );
+            }
+            catch ( NumberFormatException e )
+            {
+                throw new IOException( String.format( "Unable to parse \"%s\" on line %d", token, lineNumber ), e );
+            }
+        }
+    }
 }
@@ -26,77 +26,69 @@
  */
 package com.metsci.glimpse.charts.bathy;
 
-import java.util.Arrays;
+import java.util.List;
 
 import com.metsci.glimpse.util.geo.projection.GeoProjection;
+import com.metsci.glimpse.util.primitives.FloatsArray;
 
 /**
  * @author ulman
  */
 public class ContourData
 {
-    private RecordVertices contours;
+    protected List<ContourLevel> levels;
+
+    protected float[] coordsX;
+    protected float[] coordsY;
 
     public ContourData( BathymetryData bathymetryData, GeoProjection tp, double[] levels )
     {
-        // sort the levels array
-        Arrays.sort( levels );
-
-        contours = new RecordVertices( tp );
-
-        try
-        {
-            Conrec contourCalculator = new Conrec( contours );
-            double[][] bathyData = bathymetryData.getData( );
-            int sizeX = bathyData.length;
-            int sizeY = bathyData[0].length;
-            contourCalculator.contour( bathyData, 0, sizeX - 1, 0, sizeY - 1, getLongitudes( bathymetryData ), getLatitudes( bathymetryData ), levels.length, levels );
-        }
-        catch ( Exception e1 )
-        {
-            e1.printStackTrace( );
-        }
+        this( new ContourGenerator( bathymetryData, tp ).getContourLevels( levels ) );
     }
 
-    public float[] getCoordsX( )
+    /**
+     * @see ContourGenerator#getContours(double[])
+     */
+    public ContourData( List<ContourLevel> levels )
     {
-        return contours.getCoordsX( );
+        this.levels = levels;
     }
 
-    public float[] getCoordsY( )
+    public List<ContourLevel> getContourLevels( )
     {
-        return contours.getCoordsY( );
+        return levels;
     }
 
-    protected double[] getLatitudes( BathymetryData bathymetryDataSet )
+    /**
+     * @return the x coordinates of the end points of each contour line segment
+     */
+    public synchronized float[] getCoordsX( )
     {
-        double startLat = bathymetryDataSet.getStartLat( );
-        double heightStep = bathymetryDataSet.getHeightStep( );
-        int imageHeight = bathymetryDataSet.getImageHeight( );
-
-        double[] latitudes = new double[imageHeight];
-
-        for ( int i = 0; i < imageHeight; i++ )
-        {
-            latitudes[i] = startLat + ( i + 0.5 ) * heightStep;
-        }
-
-        return latitudes;
+        buildCoords( );
+        return coordsX;
     }
 
-    protected double[] getLongitudes( BathymetryData bathymetryDataSet )
+    /**
+     * @return the y coordinates of the end points of each contour line segment
+     */
+    public synchronized float[] getCoordsY( )
     {
-        double startLon = bathymetryDataSet.getStartLon( );
-        double widthStep = bathymetryDataSet.getWidthStep( );
-        int imageWidth = bathymetryDataSet.getImageWidth( );
+        buildCoords( );
+        return coordsY;
+    }
 
-        double[] longitudes = new double[imageWidth];
+    protected void buildCoords( )
+    {
+        if ( coordsX != null ) return;
 
-        for ( int i = 0; i < imageWidth; i++ )
+        FloatsArray x = new FloatsArray( );
+        FloatsArray y = new FloatsArray( );
+        for ( ContourLevel level : levels )
         {
-            longitudes[i] = startLon + ( i + 0.5 ) * widthStep;
+            level.appendSegments( x, y );
         }
 
-        return longitudes;
+        coordsX = x.copyOf( );
+        coordsY = y.copyOf( );
     }
 }
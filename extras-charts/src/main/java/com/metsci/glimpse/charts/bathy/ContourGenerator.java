@@ -0,0 +1,530 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.bathy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.metsci.glimpse.util.geo.LatLonGeo;
+import com.metsci.glimpse.util.geo.projection.GeoProjection;
+import com.metsci.glimpse.util.primitives.FloatsArray;
+import com.metsci.glimpse.util.primitives.IntsArray;
+import com.metsci.glimpse.util.vector.Vector2d;
+
+/**
+ * Contours a {@link BathymetryData} grid using the {@link Conrec} algorithm.<p>
+ *
+ * The grid is split into bands of rows which are contoured in parallel, emitting projected
+ * vertices directly into primitive float arrays. Results are cached per contour level, so
+ * adding a level to a set of previously requested levels only contours the new level.
+ * Optionally, the line segments of each level are joined into polylines, which roughly
+ * halves the number of vertices which must be uploaded and drawn.
+ */
+public class ContourGenerator
+{
+    protected static final int MIN_ROWS_PER_BAND = 32;
+
+    // see Conrec for a description of this lookup table
+    protected static final int[][][] castab =
+        {
+            {
+                { 0, 0, 8 }, { 0, 2, 5 }, { 7, 6, 9 }
+            },
+            {
+                { 0, 3, 4 }, { 1, 3, 1 }, { 4, 3, 0 }
+            },
+            {
+                { 9, 6, 7 }, { 5, 2, 0 }, { 8, 0, 0 }
+            }
+        };
+
+    private static ExecutorService executor;
+
+    protected final float[] grid;
+    protected final int width;
+    protected final int height;
+
+    protected final double[] longitudes;
+    protected final double[] latitudes;
+
+    protected final GeoProjection projection;
+    protected final boolean joinSegments;
+
+    protected final Map<Double, ContourLevel> cache;
+
+    public ContourGenerator( BathymetryData data, GeoProjection projection )
+    {
+        this( data, projection, false );
+    }
+
+    public ContourGenerator( BathymetryData data, GeoProjection projection, boolean joinSegments )
+    {
+        this.grid = data.getGrid( );
+        this.width = data.getImageWidth( );
+        this.height = data.getImageHeight( );
+        this.projection = projection;
+        this.joinSegments = joinSegments;
+        this.cache = new HashMap<Double, ContourLevel>( );
+
+        this.longitudes = new double[width];
+        for ( int i = 0; i < width; i++ )
+        {
+            longitudes[i] = data.getStartLon( ) + ( i + 0.5 ) * data.getWidthStep( );
+        }
+
+        this.latitudes = new double[height];
+        for ( int j = 0; j < height; j++ )
+        {
+            latitudes[j] = data.getStartLat( ) + ( j + 0.5 ) * data.getHeightStep( );
+        }
+    }
+
+    protected static synchronized ExecutorService getExecutor( )
+    {
+        if ( executor == null )
+        {
+            final AtomicInteger count = new AtomicInteger( );
+
+            executor = Executors.newFixedThreadPool( Runtime.getRuntime( ).availableProcessors( ), new ThreadFactory( )
+            {
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable );
+                    thread.setName( "contour-generator-" + count.getAndIncrement( ) );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+        }
+
+        return executor;
+    }
+
+    public boolean isJoinSegments( )
+    {
+        return joinSegments;
+    }
+
+    /**
+     * @return contours for the provided levels, contouring only those levels which are not cached
+     */
+    public ContourData getContours( double[] levels )
+    {
+        return new ContourData( getContourLevels( levels ) );
+    }
+
+    public ContourLevel getContourLevel( double level )
+    {
+        return getContourLevels( new double[] { level } ).get( 0 );
+    }
+
+    /**
+     * @return the contours for each of the provided levels, in increasing level order
+     */
+    public synchronized List<ContourLevel> getContourLevels( double[] levels )
+    {
+        double[] sortedLevels = Arrays.copyOf( levels, levels.length );
+        Arrays.sort( sortedLevels );
+
+        List<Double> missingLevels = new ArrayList<Double>( );
+        for ( double level : sortedLevels )
+        {
+            if ( !cache.containsKey( level ) && !missingLevels.contains( level ) ) missingLevels.add( level );
+        }
+
+        if ( !missingLevels.isEmpty( ) )
+        {
+            for ( ContourLevel contourLevel : contourLevels( missingLevels ) )
+            {
+                cache.put( contourLevel.getLevel( ), contourLevel );
+            }
+        }
+
+        List<ContourLevel> result = new ArrayList<ContourLevel>( sortedLevels.length );
+        for ( double level : sortedLevels )
+        {
+            result.add( cache.get( level ) );
+        }
+
+        return result;
+    }
+
+    public synchronized void removeContourLevel( double level )
+    {
+        cache.remove( level );
+    }
+
+    public synchronized void clearCache( )
+    {
+        cache.clear( );
+    }
+
+    protected List<ContourLevel> contourLevels( List<Double> levels )
+    {
+        final double[] z = new double[levels.size( )];
+        for ( int k = 0; k < z.length; k++ )
+        {
+            z[k] = levels.get( k );
+        }
+
+        int bandCount = Math.max( 1, Math.min( Runtime.getRuntime( ).availableProcessors( ) * 4, ( height - 1 ) / MIN_ROWS_PER_BAND ) );
+        int rowsPerBand = Math.max( 1, ( height - 1 + bandCount - 1 ) / bandCount );
+
+        // each band of rows is contoured for all levels in a single pass over its cells
+        List<Callable<FloatsArray[]>> bandTasks = new ArrayList<Callable<FloatsArray[]>>( );
+        for ( int fromRow = 0; fromRow < height - 1; fromRow += rowsPerBand )
+        {
+            final int taskFromRow = fromRow;
+            final int taskToRow = Math.min( height - 1, fromRow + rowsPerBand );
+
+            bandTasks.add( new Callable<FloatsArray[]>( )
+            {
+                @Override
+                public FloatsArray[] call( )
+                {
+                    FloatsArray[] vertices = new FloatsArray[z.length];
+                    for ( int k = 0; k < z.length; k++ )
+                    {
+                        vertices[k] = new FloatsArray( );
+                    }
+
+                    contourRows( z, taskFromRow, taskToRow, vertices );
+                    return vertices;
+                }
+            } );
+        }
+
+        final List<FloatsArray[]> bands = invokeAll( bandTasks );
+
+        List<Callable<ContourLevel>> levelTasks = new ArrayList<Callable<ContourLevel>>( );
+        for ( int k = 0; k < z.length; k++ )
+        {
+            final int levelIndex = k;
+
+            levelTasks.add( new Callable<ContourLevel>( )
+            {
+                @Override
+                public ContourLevel call( )
+                {
+                    FloatsArray vertices = new FloatsArray( );
+                    for ( FloatsArray[] band : bands )
+                    {
+                        vertices.append( band[levelIndex] );
+                    }
+
+                    if ( joinSegments )
+                    {
+                        return joinSegments( z[levelIndex], vertices.a, vertices.n / 2 );
+                    }
+                    else
+                    {
+                        return new ContourLevel( z[levelIndex], vertices.a, vertices.n / 2 );
+                    }
+                }
+            } );
+        }
+
+        return invokeAll( levelTasks );
+    }
+
+    protected static <T> List<T> invokeAll( List<Callable<T>> tasks )
+    {
+        try
+        {
+            List<T> results = new ArrayList<T>( tasks.size( ) );
+            for ( Future<T> future : getExecutor( ).invokeAll( tasks ) )
+            {
+                results.add( future.get( ) );
+            }
+            return results;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new RuntimeException( "Interrupted while generating contours", e );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause( );
+            if ( cause instanceof RuntimeException ) throw ( RuntimeException ) cause;
+            if ( cause instanceof Error ) throw ( Error ) cause;
+            throw new RuntimeException( "Unable to generate contours", cause );
+        }
+    }
+
+    /**
+     * Contours the grid cells whose lower left corner lies in rows [fromRow, toRow), appending
+     * the projected end points of each line segment for level z[k] to vertices[k]. This is the inner
+     * loop of {@link Conrec#contour(double[][], int, int, int, int, double[], double[], int, double[])}
+     * using local scratch space so that bands may run concurrently. Levels must be in increasing order.
+     */
+    protected void contourRows( double[] z, int fromRow, int toRow, FloatsArray[] vertices )
+    {
+        int[] sh = new int[5];
+        double[] xh = new double[5];
+        double[] yh = new double[5];
+        double[] h = new double[5];
+
+        for ( int j = fromRow; j < toRow; j++ )
+        {
+            int row0 = j * width;
+            int row1 = row0 + width;
+
+            double y0 = latitudes[j];
+            double y1 = latitudes[j + 1];
+
+            for ( int i = 0; i < width - 1; i++ )
+            {
+                double d_i0j0 = grid[row0 + i];
+                double d_i1j0 = grid[row0 + i + 1];
+                double d_i1j1 = grid[row1 + i + 1];
+                double d_i0j1 = grid[row1 + i];
+
+                double dmin = Math.min( Math.min( d_i0j0, d_i0j1 ), Math.min( d_i1j0, d_i1j1 ) );
+                double dmax = Math.max( Math.max( d_i0j0, d_i0j1 ), Math.max( d_i1j0, d_i1j1 ) );
+
+                if ( !( z[0] <= dmax && dmin <= z[z.length - 1] ) ) continue;
+
+                double x0 = longitudes[i];
+                double x1 = longitudes[i + 1];
+
+                for ( int k = 0; k < z.length; k++ )
+                {
+                    double z_k = z[k];
+
+                    if ( !( dmin <= z_k && z_k <= dmax ) || ( dmin == z_k && z_k == dmax ) ) continue;
+
+                    // corners 1 to 4 counterclockwise from the lower left, and the centre as 0
+                    h[1] = d_i0j0 - z_k;
+                    xh[1] = x0;
+                    yh[1] = y0;
+
+                    h[2] = d_i1j0 - z_k;
+                    xh[2] = x1;
+                    yh[2] = y0;
+
+                    h[3] = d_i1j1 - z_k;
+                    xh[3] = x1;
+                    yh[3] = y1;
+
+                    h[4] = d_i0j1 - z_k;
+                    xh[4] = x0;
+                    yh[4] = y1;
+
+                    h[0] = 0.25 * ( h[1] + h[2] + h[3] + h[4] );
+                    xh[0] = 0.5 * ( x0 + x1 );
+                    yh[0] = 0.5 * ( y0 + y1 );
+
+                    for ( int m = 0; m <= 4; m++ )
+                    {
+                        sh[m] = h[m] > 0.0 ? 1 : ( h[m] < 0.0 ? -1 : 0 );
+                    }
+
+                    for ( int m = 1; m <= 4; m++ )
+                    {
+                        int m1 = m;
+                        int m2 = 0;
+                        int m3 = m == 4 ? 1 : m + 1;
+
+                        switch ( castab[sh[m1] + 1][sh[m2] + 1][sh[m3] + 1] )
+                        {
+                        case 1: // Line between vertices 1 and 2
+                            emit( xh[m1], yh[m1], vertices[k] );
+                            emit( xh[m2], yh[m2], vertices[k] );
+                            break;
+                        case 2: // Line between vertices 2 and 3
+                            emit( xh[m2], yh[m2], vertices[k] );
+                            emit( xh[m3], yh[m3], vertices[k] );
+                            break;
+                        case 3: // Line between vertices 3 and 1
+                            emit( xh[m3], yh[m3], vertices[k] );
+                            emit( xh[m1], yh[m1], vertices[k] );
+                            break;
+                        case 4: // Line between vertex 1 and side 2-3
+                            emit( xh[m1], yh[m1], vertices[k] );
+                            emitSection( m2, m3, h, xh, yh, vertices[k] );
+                            break;
+                        case 5: // Line between vertex 2 and side 3-1
+                            emit( xh[m2], yh[m2], vertices[k] );
+                            emitSection( m3, m1, h, xh, yh, vertices[k] );
+                            break;
+                        case 6: // Line between vertex 3 and side 1-2
+                            emit( xh[m3], yh[m3], vertices[k] );
+                            emitSection( m1, m2, h, xh, yh, vertices[k] );
+                            break;
+                        case 7: // Line between sides 1-2 and 2-3
+                            emitSection( m1, m2, h, xh, yh, vertices[k] );
+                            emitSection( m2, m3, h, xh, yh, vertices[k] );
+                            break;
+                        case 8: // Line between sides 2-3 and 3-1
+                            emitSection( m2, m3, h, xh, yh, vertices[k] );
+                            emitSection( m3, m1, h, xh, yh, vertices[k] );
+                            break;
+                        case 9: // Line between sides 3-1 and 1-2
+                            emitSection( m3, m1, h, xh, yh, vertices[k] );
+                            emitSection( m1, m2, h, xh, yh, vertices[k] );
+                            break;
+                        default:
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    protected void emitSection( int p1, int p2, double[] h, double[] xh, double[] yh, FloatsArray vertices )
+    {
+        double x = ( h[p2] * xh[p1] - h[p1] * xh[p2] ) / ( h[p2] - h[p1] );
+        double y = ( h[p2] * yh[p1] - h[p1] * yh[p2] ) / ( h[p2] - h[p1] );
+        emit( x, y, vertices );
+    }
+
+    protected void emit( double lon, double lat, FloatsArray vertices )
+    {
+        Vector2d vertex = projection.project( LatLonGeo.fromDeg( lat, lon ) );
+        vertices.append( ( float ) vertex.getX( ) );
+        vertices.append( ( float ) vertex.getY( ) );
+    }
+
+    /**
+     * Joins line segments which share end points into line strips. Segments computed from
+     * the same grid edge have bit identical end points, so no tolerance is needed.
+     */
+    protected static ContourLevel joinSegments( double level, float[] segments, int vertexCount )
+    {
+        int endpointCount = vertexCount;
+
+        // open addressing hash table from end point coordinates to a chain of end points
+        int capacity = Integer.highestOneBit( Math.max( 16, endpointCount * 2 ) - 1 ) << 1;
+        long[] keys = new long[capacity];
+        int[] heads = new int[capacity];
+        Arrays.fill( heads, -1 );
+        int[] next = new int[endpointCount];
+
+        for ( int e = 0; e < endpointCount; e++ )
+        {
+            long key = key( segments, e );
+            int slot = slot( keys, heads, key );
+            keys[slot] = key;
+            next[e] = heads[slot];
+            heads[slot] = e;
+        }
+
+        boolean[] used = new boolean[endpointCount / 2];
+        FloatsArray vertices = new FloatsArray( Math.max( 16, vertexCount ) );
+        IntsArray stripFirsts = new IntsArray( );
+        IntsArray stripCounts = new IntsArray( );
+        IntsArray forward = new IntsArray( );
+        IntsArray backward = new IntsArray( );
+
+        for ( int segment = 0; segment < used.length; segment++ )
+        {
+            if ( used[segment] ) continue;
+            used[segment] = true;
+
+            forward.n = 0;
+            backward.n = 0;
+            extend( segments, 2 * segment + 1, keys, heads, next, used, forward );
+            extend( segments, 2 * segment, keys, heads, next, used, backward );
+
+            stripFirsts.append( vertices.n / 2 );
+            stripCounts.append( backward.n + 2 + forward.n );
+
+            for ( int i = backward.n - 1; i >= 0; i-- )
+            {
+                appendVertex( segments, backward.a[i], vertices );
+            }
+            appendVertex( segments, 2 * segment, vertices );
+            appendVertex( segments, 2 * segment + 1, vertices );
+            for ( int i = 0; i < forward.n; i++ )
+            {
+                appendVertex( segments, forward.a[i], vertices );
+            }
+        }
+
+        return new ContourLevel( level, vertices.a, vertices.n / 2, Arrays.copyOf( stripFirsts.a, stripFirsts.n ), Arrays.copyOf( stripCounts.a, stripCounts.n ) );
+    }
+
+    /**
+     * Follows unused segments connected to the free end point e, appending the far end point of each.
+     */
+    protected static void extend( float[] segments, int e, long[] keys, int[] heads, int[] next, boolean[] used, IntsArray path )
+    {
+        while ( true )
+        {
+            long key = key( segments, e );
+            int match = heads[slot( keys, heads, key )];
+
+            while ( match >= 0 && used[match / 2] )
+            {
+                match = next[match];
+            }
+
+            if ( match < 0 ) return;
+
+            used[match / 2] = true;
+            e = match ^ 1;
+            path.append( e );
+        }
+    }
+
+    protected static int slot( long[] keys, int[] heads, long key )
+    {
+        int mask = keys.length - 1;
+        int slot = ( int ) ( ( key ^ ( key >>> 29 ) ) * 0x9E3779B97F4A7C15L >>> 32 ) & mask;
+
+        while ( heads[slot] >= 0 && keys[slot] != key )
+        {
+            slot = ( slot + 1 ) & mask;
+        }
+
+        return slot;
+    }
+
+    protected static long key( float[] segments, int e )
+    {
+        return ( ( long ) Float.floatToIntBits( segments[2 * e] ) << 32 ) | ( Float.floatToIntBits( segments[2 * e + 1] ) & 0xFFFFFFFFL );
+    }
+
+    protected static void appendVertex( float[] segments, int e, FloatsArray vertices )
+    {
+        vertices.append( segments[2 * e] );
+        vertices.append( segments[2 * e + 1] );
+    }
+}
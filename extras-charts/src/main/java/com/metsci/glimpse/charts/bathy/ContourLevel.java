@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.bathy;
+
+import com.metsci.glimpse.util.primitives.FloatsArray;
+
+/**
+ * The projected contour lines for a single contour level, as produced by {@link ContourGenerator}.<p>
+ *
+ * Vertices are stored as interleaved x, y pairs. If the level has not been joined into
+ * polylines, each consecutive pair of vertices is an independent line segment (suitable for
+ * {@code GL_LINES}). Otherwise the vertices form line strips described by
+ * {@link #getStripFirsts()} and {@link #getStripCounts()}.
+ */
+public class ContourLevel
+{
+    protected final double level;
+
+    protected final float[] vertices;
+    protected final int vertexCount;
+
+    protected final int[] stripFirsts;
+    protected final int[] stripCounts;
+
+    public ContourLevel( double level, float[] vertices, int vertexCount )
+    {
+        this( level, vertices, vertexCount, null, null );
+    }
+
+    public ContourLevel( double level, float[] vertices, int vertexCount, int[] stripFirsts, int[] stripCounts )
+    {
+        this.level = level;
+        this.vertices = vertices;
+        this.vertexCount = vertexCount;
+        this.stripFirsts = stripFirsts;
+        this.stripCounts = stripCounts;
+    }
+
+    public double getLevel( )
+    {
+        return level;
+    }
+
+    /**
+     * @return interleaved x, y vertex coordinates (only the first 2 * {@link #getVertexCount()} are valid)
+     */
+    public float[] getVertices( )
+    {
+        return vertices;
+    }
+
+    public int getVertexCount( )
+    {
+        return vertexCount;
+    }
+
+    public boolean isJoined( )
+    {
+        return stripFirsts != null;
+    }
+
+    /**
+     * @return the index of the first vertex of each line strip, or null if the level is not joined
+     */
+    public int[] getStripFirsts( )
+    {
+        return stripFirsts;
+    }
+
+    /**
+     * @return the number of vertices in each line strip, or null if the level is not joined
+     */
+    public int[] getStripCounts( )
+    {
+        return stripCounts;
+    }
+
+    public int getSegmentCount( )
+    {
+        return isJoined( ) ? vertexCount - stripFirsts.length : vertexCount / 2;
+    }
+
+    /**
+     * Appends the level as independent line segments, expanding line strips if necessary.
+     */
+    public void appendSegments( FloatsArray coordsX, FloatsArray coordsY )
+    {
+        if ( !isJoined( ) )
+        {
+            for ( int i = 0; i < vertexCount; i++ )
+            {
+                coordsX.append( vertices[2 * i] );
+                coordsY.append( vertices[2 * i + 1] );
+            }
+        }
+        else
+        {
+            for ( int strip = 0; strip < stripFirsts.length; strip++ )
+            {
+                int first = stripFirsts[strip];
+                int last = first + stripCounts[strip] - 1;
+
+                for ( int i = first; i < last; i++ )
+                {
+                    coordsX.append( vertices[2 * i] );
+                    coordsY.append( vertices[2 * i + 1] );
+                    coordsX.append( vertices[2 * i + 2] );
+                    coordsY.append( vertices[2 * i + 3] );
+                }
+            }
+        }
+    }
+}
@@ -27,6 +27,7 @@
 package com.metsci.glimpse.charts.bathy;
 
 import java.nio.FloatBuffer;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.media.opengl.GL;
 import javax.media.opengl.GLContext;
@@ -35,6 +36,7 @@ import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.context.GlimpseBounds;
 import com.metsci.glimpse.context.GlimpseContext;
 import com.metsci.glimpse.painter.base.GlimpsePainter2D;
+import com.metsci.glimpse.util.primitives.IntsArray;
 import com.sun.opengl.util.BufferUtil;
 
 /**
@@ -51,12 +53,26 @@ public class ContourPainter extends GlimpsePainter2D
     protected boolean initialized;
     protected int[] bufferHandle;
 
+    protected ReentrantLock dataBufferLock = new ReentrantLock( );
+    protected volatile boolean newData = false;
+
     protected FloatBuffer dataBuffer;
     protected int totalPointCount;
 
+    // independent segments (drawn as GL_LINES) are stored first in the buffer, followed by
+    // the line strips of any joined contour levels
+    protected int segmentPointCount;
+    protected int[] stripFirsts = new int[0];
+    protected int[] stripCounts = new int[0];
+
+    // the counts matching the data last uploaded to the device
+    protected int glSegmentPointCount;
+    protected int[] glStripFirsts = new int[0];
+    protected int[] glStripCounts = new int[0];
+
     public ContourPainter( ContourData data )
     {
-        this( data.getCoordsX( ), data.getCoordsY( ) );
+        setContourData( data );
     }
 
     public ContourPainter( float[] coordsX, float[] coordsY )
@@ -66,6 +82,7 @@ public class ContourPainter extends GlimpsePainter2D
 
         int size = Math.min( coordsX.length, coordsY.length );
         this.totalPointCount = size;
+        this.segmentPointCount = size;
         this.dataBuffer = BufferUtil.newFloatBuffer( size * 2 );
 
         for ( int i = 0; i < size; i++ )
@@ -74,6 +91,60 @@ public class ContourPainter extends GlimpsePainter2D
         }
     }
 
+    /**
+     * Replaces the displayed contours. The new vertices are uploaded on the next paint.
+     */
+    public void setContourData( ContourData data )
+    {
+        int segmentCount = 0;
+        int totalCount = 0;
+        for ( ContourLevel level : data.getContourLevels( ) )
+        {
+            if ( !level.isJoined( ) ) segmentCount += level.getVertexCount( );
+            totalCount += level.getVertexCount( );
+        }
+
+        FloatBuffer buffer = BufferUtil.newFloatBuffer( totalCount * 2 );
+        IntsArray firsts = new IntsArray( );
+        IntsArray counts = new IntsArray( );
+
+        for ( ContourLevel level : data.getContourLevels( ) )
+        {
+            if ( !level.isJoined( ) ) buffer.put( level.getVertices( ), 0, level.getVertexCount( ) * 2 );
+        }
+
+        for ( ContourLevel level : data.getContourLevels( ) )
+        {
+            if ( !level.isJoined( ) ) continue;
+
+            int offset = buffer.position( ) / 2;
+            for ( int i = 0; i < level.getStripFirsts( ).length; i++ )
+            {
+                firsts.append( offset + level.getStripFirsts( )[i] );
+                counts.append( level.getStripCounts( )[i] );
+            }
+
+            buffer.put( level.getVertices( ), 0, level.getVertexCount( ) * 2 );
+        }
+
+        this.dataBufferLock.lock( );
+        try
+        {
+            this.coordsX = null;
+            this.coordsY = null;
+            this.dataBuffer = buffer;
+            this.totalPointCount = totalCount;
+            this.segmentPointCount = segmentCount;
+            this.stripFirsts = firsts.copyOf( );
+            this.stripCounts = counts.copyOf( );
+            this.newData = true;
+        }
+        finally
+        {
+            this.dataBufferLock.unlock( );
+        }
+    }
+
     @Override
     public void paintTo( GlimpseContext context, GlimpseBounds bounds, Axis2D axis )
     {
@@ -84,14 +155,32 @@ public class ContourPainter extends GlimpsePainter2D
             bufferHandle = new int[1];
             gl.glGenBuffers( 1, bufferHandle, 0 );
 
-            gl.glBindBuffer( GL.GL_ARRAY_BUFFER, bufferHandle[0] );
-
-            // copy data from the host memory buffer to the device
-            gl.glBufferData( GL.GL_ARRAY_BUFFER, totalPointCount * 2 * BYTES_PER_FLOAT, dataBuffer.rewind( ), GL.GL_STATIC_DRAW );
-
-            glHandleError( gl );
-
             initialized = true;
+            newData = true;
+        }
+
+        if ( newData )
+        {
+            this.dataBufferLock.lock( );
+            try
+            {
+                gl.glBindBuffer( GL.GL_ARRAY_BUFFER, bufferHandle[0] );
+
+                // copy data from the host memory buffer to the device
+                gl.glBufferData( GL.GL_ARRAY_BUFFER, totalPointCount * 2 * BYTES_PER_FLOAT, dataBuffer.rewind( ), GL.GL_STATIC_DRAW );
+
+                glHandleError( gl );
+
+                glSegmentPointCount = segmentPointCount;
+                glStripFirsts = stripFirsts;
+                glStripCounts = stripCounts;
+
+                newData = false;
+            }
+            finally
+            {
+                this.dataBufferLock.unlock( );
+            }
         }
 
         gl.glBindBuffer( GL.GL_ARRAY_BUFFER, bufferHandle[0] );
@@ -109,7 +198,13 @@ public class ContourPainter extends GlimpsePainter2D
         gl.glBlendFunc( GL.GL_SRC_ALPHA, GL.GL_ONE_MINUS_SRC_ALPHA );
         gl.glEnable( GL.GL_BLEND );
 
-        gl.glDrawArrays( GL.GL_LINES, 0, totalPointCount );
+        gl.glDrawArrays( GL.GL_LINES, 0, glSegmentPointCount );
+
+        // glMultiDrawArrays is avoided for the same reason as in PolygonPainter
+        for ( int i = 0; i < glStripFirsts.length; i++ )
+        {
+            gl.glDrawArrays( GL.GL_LINE_STRIP, glStripFirsts[i], glStripCounts[i] );
+        }
 
         gl.glDisable( GL.GL_BLEND );
         gl.glDisable( GL.GL_LINE_SMOOTH );
@@ -35,8 +35,7 @@ import java.awt.image.Raster;
 import java.awt.image.SampleModel;
 import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -75,77 +74,70 @@ import static com.metsci.glimpse.util.geo.datum.Datum.*;
  */
 public final class BsbRasterData
 {
+    private static final Pattern TOKEN_PATTERN = Pattern.compile( "^\\w{3,}/", Pattern.MULTILINE );
+
     private final String _imageName;
     private final String _header;
 
     private final Set<Pair<IntPoint2d, LatLonGeo>> _registrationPoints;
-    private final byte[] _imageData;
     private final IndexColorModel _colorModel;
     private final int _width_PIXELS;
     private final int _height_PIXELS;
 
-    private BsbRasterData( String imageName, String header, int width_PIXELS, int height_PIXELS, byte[] imageData, IndexColorModel colorModel, Set<Pair<IntPoint2d, LatLonGeo>> registrationPoints )
+    // image data is decoded from the reader when first needed
+    private final BsbRasterReader _reader;
+    private byte[] _imageData;
+
+    private BsbRasterData( BsbRasterReader reader )
     {
-        this._imageName = imageName;
-        this._header = header;
-
-        this._imageData = imageData;
-        this._colorModel = colorModel;
-        this._width_PIXELS = width_PIXELS;
-        this._height_PIXELS = height_PIXELS;
-        this._registrationPoints = registrationPoints;
+        this._imageName = reader.getName( );
+        this._header = reader.getHeader( );
+
+        this._reader = reader;
+        this._colorModel = reader.getColorModel( );
+        this._width_PIXELS = reader.getWidth( );
+        this._height_PIXELS = reader.getHeight( );
+        this._registrationPoints = reader.getRegistrationPoints( );
     }
 
     public static BsbRasterData readImage( InputStream in ) throws IOException
     {
-        BufferedInputStream bis = new BufferedInputStream( in );
-        DataInputStream dis = new DataInputStream( bis );
-
-        String header = extractAsciiHeader( dis );
-        int[] dim = extractDimension( header );
-        IndexColorModel icm = extractColorModel( header );
+        return new BsbRasterData( BsbRasterReader.open( in ) );
+    }
 
-        byte colorDepth = dis.readByte( );
+    /**
+     * Reads a BSB file by memory mapping it, which avoids copying the encoded image data.
+     */
+    public static BsbRasterData readImage( File file ) throws IOException
+    {
+        return new BsbRasterData( BsbRasterReader.open( file ) );
+    }
 
-        byte[] ucData = new byte[dim[0] * dim[1]];
-        decodeImageData( dis, ucData, colorDepth, dim[1] );
+    private synchronized byte[] getImageData( )
+    {
+        if ( _imageData == null )
+        {
+            _imageData = new byte[_width_PIXELS * _height_PIXELS];
+            _reader.decodeImage( _imageData );
+        }
 
-        return new BsbRasterData( extractImageName( header ), header, dim[0], dim[1], ucData, icm, extractRegistrationPoints( header ) );
+        return _imageData;
     }
 
-    public IndexColorModel getColorModel( )
+    public BsbRasterReader getReader( )
     {
-        return _colorModel;
+        return _reader;
     }
 
-    private static String extractAsciiHeader( DataInputStream stream ) throws IOException
+    public IndexColorModel getColorModel( )
     {
-        StringBuilder builder = new StringBuilder( );
-
-        byte thisByte = 0;
-        byte lastByte = 0;
-
-        while ( true )
-        {
-            if ( lastByte == 26 && thisByte == 0 )
-            {
-                break;
-            }
-            else
-            {
-                lastByte = thisByte;
-                thisByte = stream.readByte( );
-                builder.append( ( char ) thisByte );
-            }
-        }
-        return builder.toString( );
+        return _colorModel;
     }
 
-    private static Vector<Pair<String, String>> extractTokenData( String header, String tokenPattern )
+    static Vector<Pair<String, String>> extractTokenData( String header, String tokenPattern )
     {
-        Pattern pattern = Pattern.compile( "^\\w{3,}/", Pattern.MULTILINE );
-        Matcher matcher = pattern.matcher( header );
-        String[] items = pattern.split( header );
+        Matcher matcher = TOKEN_PATTERN.matcher( header );
+        String[] items = TOKEN_PATTERN.split( header );
 
         Vector<Pair<String, String>> results = new Vector<Pair<String, String>>( );
         for ( int i = 1; i < items.length; i++ )
@@ -160,7 +152,7 @@ public final class BsbRasterData
         return results;
     }
 
-    private static int[] extractDimension( String header )
+    static int[] extractDimension( String header )
     {
         Vector<Pair<String, String>> allTokenData = extractTokenData( header, "BSB" );
         String tokenData = allTokenData.get( 0 ).second( );
@@ -175,7 +167,7 @@ public final class BsbRasterData
         return new int[] { width_PIXELS, height_PIXELS };
     }
 
-    private static String extractImageName( String header )
+    static String extractImageName( String header )
     {
         Vector<Pair<String, String>> allTokenData = extractTokenData( header, "BSB" );
         String tokenData = allTokenData.get( 0 ).second( );
@@ -185,7 +177,7 @@ public final class BsbRasterData
         return s.match( ).group( 1 );
     }
 
-    private static Set<Pair<IntPoint2d, LatLonGeo>> extractRegistrationPoints( String header )
+    static Set<Pair<IntPoint2d, LatLonGeo>> extractRegistrationPoints( String header )
     {
         Set<Pair<IntPoint2d, LatLonGeo>> refPoints = new HashSet<Pair<IntPoint2d, LatLonGeo>>( );
 
@@ -206,7 +198,7 @@ public final class BsbRasterData
         return refPoints;
     }
 
-    private static IndexColorModel extractColorModel( String header )
+    static IndexColorModel extractColorModel( String header )
     {
         Vector<Pair<String, String>> allTokenData = extractTokenData( header, "DAY" );
 
@@ -243,49 +235,6 @@ public final class BsbRasterData
         return new Color( rd, gn, bl );
     }
 
-    private static void decodeImageData( DataInputStream stream, byte[] cData, int numColorBits, int numRows ) throws IOException
-    {
-        byte colorMask = ( byte ) ( ( ( ( 1 << numColorBits ) ) - 1 ) << 7 - numColorBits );
-        byte countMask = ( byte ) ( ( 1 << 7 - numColorBits ) - 1 );
-
-        int nextByte = 0;
-        int iPix = 0;
-        for ( int i = 0; i < numRows; i++ )
-        {
-            readRowNumber( stream );
-            while ( ( nextByte = stream.readUnsignedByte( ) ) != 0 )
-            {
-                byte colorValue = ( byte ) ( ( nextByte & colorMask ) >> ( 7 - numColorBits ) );
-                int runLength = ( nextByte & countMask );
-
-                while ( ( nextByte & 0x80 ) != 0 )
-                {
-                    nextByte = stream.readUnsignedByte( );
-                    runLength = runLength * 128 + ( nextByte & 0x7f );
-                }
-
-                for ( int j = 0; j < runLength + 1; j++ )
-                {
-                    cData[iPix++] = colorValue;
-                }
-            }
-        }
-    }
-
-    private static int readRowNumber( DataInputStream stream ) throws IOException
-    {
-        int nextByte;
-        int lineNumber = 0;
-        do
-        {
-            nextByte = stream.readUnsignedByte( );
-            lineNumber = lineNumber * 128 + ( nextByte & 0x7f );
-        }
-        while ( ( nextByte & 0x80 ) != 0 );
-
-        return lineNumber;
-    }
-
     private double distance( double x1, double y1, double x2, double y2 )
     {
         double dx = x1 - x2;
@@ -401,7 +350,7 @@ public final class BsbRasterData
     {
         // Create a data buffer using the byte buffer of pixel data.
         // The pixel data is not copied; the data buffer uses the byte buffer array.
-        DataBuffer dbuf = new DataBufferByte( _imageData, _width_PIXELS * _height_PIXELS, 0 );
+        DataBuffer dbuf = new DataBufferByte( getImageData( ), _width_PIXELS * _height_PIXELS, 0 );
 
         // The number of banks should be 1
         dbuf.getNumBanks( ); // 1
@@ -464,13 +413,8 @@ public final class BsbRasterData
             @Override
             public void mutate( ByteBuffer data, int dataSizeX, int dataSizeY )
             {
-                for ( int y = 0; y < dataSizeY; y++ )
-                {
-                    for ( int x = 0; x < dataSizeX; x++ )
-                    {
-                        data.put( _imageData[x + dataSizeX * y] );
-                    }
-                }
+                // decode straight into the texture's buffer rather than through an intermediate array
+                _reader.decodeImage( data );
             }
         } );
 
@@ -0,0 +1,452 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.raster;
+
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.metsci.glimpse.util.Pair;
+import com.metsci.glimpse.util.geo.LatLonGeo;
+
+/**
+ * Random access reader for BSB raster chart files. Rather than decoding the entire image
+ * up front (as {@link BsbRasterData#readImage(InputStream)} does), the file is memory mapped
+ * and individual rows are decoded on demand using the row offset index stored at the end of
+ * the file. If the index is missing or invalid, row offsets are found with a quick scan
+ * through the run length encoded data.<p>
+ *
+ * Rows may be decoded concurrently from multiple threads, and whole images are decoded
+ * with rows split across a shared pool of daemon threads.
+ *
+ * @see BsbTileCache
+ */
+public class BsbRasterReader
+{
+    // minimum number of rows decoded by each task when decoding a whole image
+    protected static final int MIN_ROWS_PER_TASK = 32;
+
+    private static ExecutorService executor;
+
+    protected final ByteBuffer buffer;
+
+    protected final String header;
+    protected final String imageName;
+    protected final int width;
+    protected final int height;
+    protected final int colorDepth;
+    protected final IndexColorModel colorModel;
+    protected final Set<Pair<IntPoint2d, LatLonGeo>> registrationPoints;
+
+    // offset into buffer of the start of each row (its row number)
+    protected final int[] rowOffsets;
+
+    protected static synchronized ExecutorService getExecutor( )
+    {
+        if ( executor == null )
+        {
+            final AtomicInteger count = new AtomicInteger( );
+
+            executor = Executors.newFixedThreadPool( Runtime.getRuntime( ).availableProcessors( ), new ThreadFactory( )
+            {
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable );
+                    thread.setName( "bsb-decoder-" + count.getAndIncrement( ) );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+        }
+
+        return executor;
+    }
+
+    public static BsbRasterReader open( File file ) throws IOException
+    {
+        FileInputStream in = new FileInputStream( file );
+        try
+        {
+            FileChannel channel = in.getChannel( );
+            return new BsbRasterReader( channel.map( MapMode.READ_ONLY, 0, channel.size( ) ) );
+        }
+        finally
+        {
+            in.close( );
+        }
+    }
+
+    /**
+     * Reads the (still run length encoded) contents of the stream into memory. The stream
+     * is read to its end but not closed.
+     */
+    public static BsbRasterReader open( InputStream in ) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream( );
+        byte[] bytes = new byte[65536];
+
+        int count;
+        while ( ( count = in.read( bytes ) ) >= 0 )
+        {
+            out.write( bytes, 0, count );
+        }
+
+        return new BsbRasterReader( ByteBuffer.wrap( out.toByteArray( ) ) );
+    }
+
+    public BsbRasterReader( ByteBuffer buffer ) throws IOException
+    {
+        this.buffer = buffer;
+
+        int dataStart = findHeaderEnd( buffer );
+
+        this.header = readAscii( buffer, 0, dataStart );
+        int[] dim = BsbRasterData.extractDimension( header );
+        this.width = dim[0];
+        this.height = dim[1];
+        this.imageName = BsbRasterData.extractImageName( header );
+        this.colorModel = BsbRasterData.extractColorModel( header );
+        this.registrationPoints = BsbRasterData.extractRegistrationPoints( header );
+
+        if ( dataStart >= buffer.limit( ) ) throw new IOException( "BSB file contains no image data" );
+        this.colorDepth = buffer.get( dataStart );
+        if ( colorDepth < 1 || colorDepth > 7 ) throw new IOException( String.format( "Unsupported BSB color depth: %d", colorDepth ) );
+
+        int[] offsets = readRowIndex( buffer, dataStart + 1, height );
+        this.rowOffsets = offsets != null ? offsets : scanRowOffsets( buffer, dataStart + 1, height );
+    }
+
+    public String getHeader( )
+    {
+        return header;
+    }
+
+    public String getName( )
+    {
+        return imageName;
+    }
+
+    public int getWidth( )
+    {
+        return width;
+    }
+
+    public int getHeight( )
+    {
+        return height;
+    }
+
+    public int getColorDepth( )
+    {
+        return colorDepth;
+    }
+
+    public IndexColorModel getColorModel( )
+    {
+        return colorModel;
+    }
+
+    public Set<Pair<IntPoint2d, LatLonGeo>> getRegistrationPoints( )
+    {
+        return registrationPoints;
+    }
+
+    /**
+     * Decodes every step-th pixel of a row, starting at fromX and stopping before toX, into
+     * consecutive elements of dest. Pixels missing from a truncated row are left unchanged.
+     */
+    public void decodeRow( int row, int fromX, int toX, int step, byte[] dest, int destOffset )
+    {
+        int shift = 7 - colorDepth;
+        int colorMask = ( ( 1 << colorDepth ) - 1 ) << shift;
+        int countMask = ( 1 << shift ) - 1;
+
+        toX = Math.min( toX, width );
+
+        int p = rowOffsets[row];
+        int limit = buffer.limit( );
+
+        // skip the row number
+        while ( p < limit && ( buffer.get( p++ ) & 0x80 ) != 0 );
+
+        int x = 0;
+        int nextX = fromX;
+        int i = destOffset;
+
+        while ( nextX < toX && p < limit )
+        {
+            int nextByte = buffer.get( p++ ) & 0xff;
+            if ( nextByte == 0 ) break;
+
+            byte colorValue = ( byte ) ( ( nextByte & colorMask ) >> shift );
+            int runLength = nextByte & countMask;
+
+            while ( ( nextByte & 0x80 ) != 0 && p < limit )
+            {
+                nextByte = buffer.get( p++ ) & 0xff;
+                runLength = runLength * 128 + ( nextByte & 0x7f );
+            }
+
+            x = Math.min( x + runLength + 1, toX );
+
+            if ( step == 1 )
+            {
+                if ( nextX < x )
+                {
+                    Arrays.fill( dest, i, i + x - nextX, colorValue );
+                    i += x - nextX;
+                    nextX = x;
+                }
+            }
+            else
+            {
+                while ( nextX < x )
+                {
+                    dest[i++] = colorValue;
+                    nextX += step;
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes an entire row into dest, starting at destOffset.
+     */
+    public void decodeRow( int row, byte[] dest, int destOffset )
+    {
+        decodeRow( row, 0, width, 1, dest, destOffset );
+    }
+
+    /**
+     * Decodes the entire image into dest (which must hold at least width * height bytes),
+     * one row after another starting with the top row, decoding rows in parallel.
+     */
+    public void decodeImage( final byte[] dest )
+    {
+        decodeRowsInParallel( new RowDecoder( )
+        {
+            @Override
+            public void decodeRows( int fromRow, int toRow )
+            {
+                for ( int row = fromRow; row < toRow; row++ )
+                {
+                    decodeRow( row, dest, row * width );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Decodes the entire image directly into dest, starting at index 0 and ignoring
+     * (and leaving unchanged) its position and limit. Rows are decoded in parallel.
+     */
+    public void decodeImage( final ByteBuffer dest )
+    {
+        decodeRowsInParallel( new RowDecoder( )
+        {
+            @Override
+            public void decodeRows( int fromRow, int toRow )
+            {
+                // each task writes through its own view of the buffer
+                ByteBuffer view = dest.duplicate( );
+                view.clear( );
+
+                byte[] row = new byte[width];
+                for ( int y = fromRow; y < toRow; y++ )
+                {
+                    decodeRow( y, row, 0 );
+
+                    view.position( y * width );
+                    view.put( row );
+                }
+            }
+        } );
+    }
+
+    protected void decodeRowsInParallel( RowDecoder decoder )
+    {
+        int numThreads = Runtime.getRuntime( ).availableProcessors( );
+
+        // a few tasks per thread evens out rows which compress differently
+        int rowsPerTask = Math.max( MIN_ROWS_PER_TASK, ( height + 4 * numThreads - 1 ) / ( 4 * numThreads ) );
+
+        if ( numThreads == 1 || height <= rowsPerTask )
+        {
+            decoder.decodeRows( 0, height );
+            return;
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>( );
+        for ( int fromRow = 0; fromRow < height; fromRow += rowsPerTask )
+        {
+            final RowDecoder taskDecoder = decoder;
+            final int taskFromRow = fromRow;
+            final int taskToRow = Math.min( height, fromRow + rowsPerTask );
+
+            tasks.add( new Callable<Object>( )
+            {
+                @Override
+                public Object call( )
+                {
+                    taskDecoder.decodeRows( taskFromRow, taskToRow );
+                    return null;
+                }
+            } );
+        }
+
+        try
+        {
+            for ( Future<Object> future : getExecutor( ).invokeAll( tasks ) )
+            {
+                future.get( );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new RuntimeException( "Interrupted while decoding BSB image", e );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause( );
+            if ( cause instanceof RuntimeException ) throw ( RuntimeException ) cause;
+            if ( cause instanceof Error ) throw ( Error ) cause;
+            throw new RuntimeException( "Unable to decode BSB image", cause );
+        }
+    }
+
+    protected static interface RowDecoder
+    {
+        /**
+         * Decodes rows fromRow (inclusive) to toRow (exclusive).
+         */
+        public void decodeRows( int fromRow, int toRow );
+    }
+
+    protected static int findHeaderEnd( ByteBuffer buffer ) throws IOException
+    {
+        // the ascii header is terminated by the bytes 26 (control-z) and 0
+        int limit = buffer.limit( );
+        for ( int i = 1; i < limit; i++ )
+        {
+            if ( buffer.get( i ) == 0 && buffer.get( i - 1 ) == 26 ) return i + 1;
+        }
+
+        throw new IOException( "Unable to find end of BSB header" );
+    }
+
+    protected static String readAscii( ByteBuffer buffer, int from, int to )
+    {
+        StringBuilder builder = new StringBuilder( to - from );
+        for ( int i = from; i < to; i++ )
+        {
+            builder.append( ( char ) buffer.get( i ) );
+        }
+
+        return builder.toString( );
+    }
+
+    /**
+     * Reads the table of row offsets at the end of the file: the last four bytes give the
+     * offset of the table, which contains one four byte offset per row.
+     *
+     * @return the row offsets, or null if the table is missing or inconsistent
+     */
+    protected static int[] readRowIndex( ByteBuffer buffer, int dataStart, int height )
+    {
+        int limit = buffer.limit( );
+        if ( limit - dataStart < 4 * ( height + 1 ) ) return null;
+
+        int indexOffset = buffer.getInt( limit - 4 );
+        if ( indexOffset < dataStart || indexOffset > limit - 4 - 4 * height ) return null;
+
+        int[] offsets = new int[height];
+        int previous = dataStart;
+        for ( int i = 0; i < height; i++ )
+        {
+            int offset = buffer.getInt( indexOffset + 4 * i );
+            if ( offset < previous || offset >= indexOffset ) return null;
+
+            offsets[i] = offset;
+            previous = offset;
+        }
+
+        return offsets;
+    }
+
+    /**
+     * Finds row offsets by walking the run length encoded rows without expanding them.
+     */
+    protected static int[] scanRowOffsets( ByteBuffer buffer, int dataStart, int height ) throws IOException
+    {
+        int limit = buffer.limit( );
+        int[] offsets = new int[height];
+
+        int p = dataStart;
+        for ( int i = 0; i < height; i++ )
+        {
+            if ( p >= limit ) throw new IOException( String.format( "BSB image data ends after %d of %d rows", i, height ) );
+
+            offsets[i] = p;
+
+            // row number
+            while ( p < limit && ( buffer.get( p++ ) & 0x80 ) != 0 );
+
+            // runs, terminated by a zero byte
+            while ( p < limit )
+            {
+                int nextByte = buffer.get( p++ ) & 0xff;
+                if ( nextByte == 0 ) break;
+
+                while ( ( nextByte & 0x80 ) != 0 && p < limit )
+                {
+                    nextByte = buffer.get( p++ ) & 0xff;
+                }
+            }
+        }
+
+        return offsets;
+    }
+}
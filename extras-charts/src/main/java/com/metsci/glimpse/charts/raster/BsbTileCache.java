@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.raster;
+
+import static com.metsci.glimpse.util.logging.LoggerUtils.*;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * A memory bounded, least recently used cache of decoded tiles from a BSB raster chart.<p>
+ *
+ * Tiles form a pyramid: level 0 is the full resolution image and each higher level samples
+ * every other row and column of the level below (color indices cannot be averaged, so overview
+ * levels use nearest neighbor sampling). Because only the sampled rows are decoded, overview
+ * tiles are cheaper to build than full resolution ones.<p>
+ *
+ * Tiles are decoded asynchronously by {@link #requestTiles(int, int, int, int, int)}. Each
+ * row of requested tiles is decoded as one task, so that each source row is only expanded once,
+ * and separate rows of tiles are decoded in parallel.
+ */
+public class BsbTileCache
+{
+    private static final Logger logger = Logger.getLogger( BsbTileCache.class.getName( ) );
+
+    public static final int DEFAULT_TILE_SIZE = 512;
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = 64 * 1024 * 1024;
+
+    protected final BsbRasterReader reader;
+    protected final int tileSize;
+    protected final int levelCount;
+    protected long memoryBudgetBytes;
+
+    // access ordered, so iteration starts with the least recently used tile
+    protected final LinkedHashMap<TileKey, Tile> tiles;
+    protected final Set<TileKey> pending;
+    protected long memoryUsedBytes;
+
+    public BsbTileCache( BsbRasterReader reader )
+    {
+        this( reader, DEFAULT_TILE_SIZE, DEFAULT_MEMORY_BUDGET_BYTES );
+    }
+
+    public BsbTileCache( BsbRasterReader reader, int tileSize, long memoryBudgetBytes )
+    {
+        this.reader = reader;
+        this.tileSize = tileSize;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+
+        this.tiles = new LinkedHashMap<TileKey, Tile>( 16, 0.75f, true );
+        this.pending = new HashSet<TileKey>( );
+
+        int levels = 1;
+        while ( getLevelWidth( levels - 1 ) > tileSize || getLevelHeight( levels - 1 ) > tileSize )
+        {
+            levels++;
+        }
+        this.levelCount = levels;
+    }
+
+    public BsbRasterReader getReader( )
+    {
+        return reader;
+    }
+
+    public int getTileSize( )
+    {
+        return tileSize;
+    }
+
+    /**
+     * @return the number of pyramid levels, the last of which fits in a single tile
+     */
+    public int getLevelCount( )
+    {
+        return levelCount;
+    }
+
+    public int getLevelWidth( int level )
+    {
+        return ( reader.getWidth( ) + ( 1 << level ) - 1 ) >> level;
+    }
+
+    public int getLevelHeight( int level )
+    {
+        return ( reader.getHeight( ) + ( 1 << level ) - 1 ) >> level;
+    }
+
+    public int getTileCountX( int level )
+    {
+        return ( getLevelWidth( level ) + tileSize - 1 ) / tileSize;
+    }
+
+    public int getTileCountY( int level )
+    {
+        return ( getLevelHeight( level ) + tileSize - 1 ) / tileSize;
+    }
+
+    public synchronized long getMemoryUsedBytes( )
+    {
+        return memoryUsedBytes;
+    }
+
+    public synchronized long getMemoryBudgetBytes( )
+    {
+        return memoryBudgetBytes;
+    }
+
+    public synchronized void setMemoryBudgetBytes( long memoryBudgetBytes )
+    {
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        evict( );
+    }
+
+    /**
+     * @return the cached tile, or null if it has not been decoded yet
+     */
+    public synchronized Tile getTile( int level, int tileX, int tileY )
+    {
+        return tiles.get( new TileKey( level, tileX, tileY ) );
+    }
+
+    /**
+     * Decodes (if necessary) and returns a tile on the calling thread.
+     */
+    public Tile loadTile( int level, int tileX, int tileY )
+    {
+        Tile tile = getTile( level, tileX, tileY );
+        if ( tile != null ) return tile;
+
+        Tile[] decoded = decodeTiles( level, tileY, tileX, tileX );
+        put( decoded );
+        return decoded[0];
+    }
+
+    /**
+     * Asynchronously decodes any tiles in the given (inclusive) range of tile indices which
+     * are neither cached nor already being decoded.
+     */
+    public void requestTiles( int level, int minTileX, int minTileY, int maxTileX, int maxTileY )
+    {
+        minTileX = Math.max( 0, minTileX );
+        minTileY = Math.max( 0, minTileY );
+        maxTileX = Math.min( getTileCountX( level ) - 1, maxTileX );
+        maxTileY = Math.min( getTileCountY( level ) - 1, maxTileY );
+
+        for ( int tileY = minTileY; tileY <= maxTileY; tileY++ )
+        {
+            int missingMinX = Integer.MAX_VALUE;
+            int missingMaxX = Integer.MIN_VALUE;
+
+            synchronized ( this )
+            {
+                for ( int tileX = minTileX; tileX <= maxTileX; tileX++ )
+                {
+                    TileKey key = new TileKey( level, tileX, tileY );
+                    if ( tiles.containsKey( key ) || pending.contains( key ) ) continue;
+
+                    missingMinX = Math.min( missingMinX, tileX );
+                    missingMaxX = Math.max( missingMaxX, tileX );
+                }
+
+                if ( missingMinX > missingMaxX ) continue;
+
+                for ( int tileX = missingMinX; tileX <= missingMaxX; tileX++ )
+                {
+                    pending.add( new TileKey( level, tileX, tileY ) );
+                }
+            }
+
+            BsbRasterReader.getExecutor( ).execute( new DecodeTask( level, tileY, missingMinX, missingMaxX ) );
+        }
+    }
+
+    public synchronized void clear( )
+    {
+        tiles.clear( );
+        memoryUsedBytes = 0;
+    }
+
+    protected synchronized void put( Tile[] decoded )
+    {
+        for ( Tile tile : decoded )
+        {
+            TileKey key = tile.getKey( );
+            pending.remove( key );
+
+            Tile previous = tiles.put( key, tile );
+            if ( previous != null ) memoryUsedBytes -= previous.getSizeBytes( );
+            memoryUsedBytes += tile.getSizeBytes( );
+        }
+
+        evict( );
+    }
+
+    protected synchronized void evict( )
+    {
+        Iterator<Map.Entry<TileKey, Tile>> iterator = tiles.entrySet( ).iterator( );
+        while ( memoryUsedBytes > memoryBudgetBytes && iterator.hasNext( ) )
+        {
+            memoryUsedBytes -= iterator.next( ).getValue( ).getSizeBytes( );
+            iterator.remove( );
+        }
+    }
+
+    /**
+     * Decodes a horizontal run of tiles, expanding each sampled source row once.
+     */
+    protected Tile[] decodeTiles( int level, int tileY, int minTileX, int maxTileX )
+    {
+        int step = 1 << level;
+
+        int levelWidth = getLevelWidth( level );
+        int levelHeight = getLevelHeight( level );
+
+        int startX = minTileX * tileSize;
+        int endX = Math.min( levelWidth, ( maxTileX + 1 ) * tileSize );
+        int startY = tileY * tileSize;
+        int endY = Math.min( levelHeight, startY + tileSize );
+
+        int rowLength = endX - startX;
+        int tileHeight = endY - startY;
+
+        Tile[] decoded = new Tile[maxTileX - minTileX + 1];
+        for ( int i = 0; i < decoded.length; i++ )
+        {
+            int tileStartX = startX + i * tileSize;
+            int tileWidth = Math.min( tileSize, endX - tileStartX );
+            decoded[i] = new Tile( level, minTileX + i, tileY, tileStartX, startY, tileWidth, tileHeight );
+        }
+
+        byte[] row = new byte[rowLength];
+        for ( int y = startY; y < endY; y++ )
+        {
+            reader.decodeRow( y << level, startX << level, endX << level, step, row, 0 );
+
+            for ( int i = 0; i < decoded.length; i++ )
+            {
+                Tile tile = decoded[i];
+                System.arraycopy( row, i * tileSize, tile.data, ( y - startY ) * tile.width, tile.width );
+            }
+        }
+
+        return decoded;
+    }
+
+    protected class DecodeTask implements Runnable
+    {
+        protected final int level;
+        protected final int tileY;
+        protected final int minTileX;
+        protected final int maxTileX;
+
+        public DecodeTask( int level, int tileY, int minTileX, int maxTileX )
+        {
+            this.level = level;
+            this.tileY = tileY;
+            this.minTileX = minTileX;
+            this.maxTileX = maxTileX;
+        }
+
+        @Override
+        public void run( )
+        {
+            try
+            {
+                put( decodeTiles( level, tileY, minTileX, maxTileX ) );
+            }
+            catch ( RuntimeException e )
+            {
+                logWarning( logger, "Unable to decode BSB tiles (level %d row %d)", e, level, tileY );
+
+                synchronized ( BsbTileCache.this )
+                {
+                    for ( int tileX = minTileX; tileX <= maxTileX; tileX++ )
+                    {
+                        pending.remove( new TileKey( level, tileX, tileY ) );
+                    }
+                }
+            }
+        }
+    }
+
+    public static class TileKey
+    {
+        protected final int level;
+        protected final int tileX;
+        protected final int tileY;
+
+        public TileKey( int level, int tileX, int tileY )
+        {
+            this.level = level;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        public int getLevel( )
+        {
+            return level;
+        }
+
+        public int getTileX( )
+        {
+            return tileX;
+        }
+
+        public int getTileY( )
+        {
+            return tileY;
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return ( ( 31 + level ) * 31 + tileX ) * 31 + tileY;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj ) return true;
+            if ( obj == null ) return false;
+            if ( getClass( ) != obj.getClass( ) ) return false;
+            TileKey other = ( TileKey ) obj;
+            return level == other.level && tileX == other.tileX && tileY == other.tileY;
+        }
+
+        @Override
+        public String toString( )
+        {
+            return String.format( "level %d tile (%d, %d)", level, tileX, tileY );
+        }
+    }
+
+    /**
+     * A decoded tile of color indices, stored row major starting with the tile's top row.
+     */
+    public static class Tile
+    {
+        protected final TileKey key;
+
+        // position and size in pixels of this tile's pyramid level
+        protected final int x;
+        protected final int y;
+        protected final int width;
+        protected final int height;
+
+        protected final byte[] data;
+
+        public Tile( int level, int tileX, int tileY, int x, int y, int width, int height )
+        {
+            this.key = new TileKey( level, tileX, tileY );
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.data = new byte[width * height];
+        }
+
+        public TileKey getKey( )
+        {
+            return key;
+        }
+
+        public int getLevel( )
+        {
+            return key.level;
+        }
+
+        public int getX( )
+        {
+            return x;
+        }
+
+        public int getY( )
+        {
+            return y;
+        }
+
+        public int getWidth( )
+        {
+            return width;
+        }
+
+        public int getHeight( )
+        {
+            return height;
+        }
+
+        public byte[] getData( )
+        {
+            return data;
+        }
+
+        public int getSizeBytes( )
+        {
+            return data.length;
+        }
+    }
+}
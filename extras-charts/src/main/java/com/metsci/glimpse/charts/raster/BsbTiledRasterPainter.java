@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.raster;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLContext;
+
+import com.metsci.glimpse.axis.Axis2D;
+import com.metsci.glimpse.charts.raster.BsbTileCache.Tile;
+import com.metsci.glimpse.charts.raster.BsbTileCache.TileKey;
+import com.metsci.glimpse.context.GlimpseBounds;
+import com.metsci.glimpse.context.GlimpseContext;
+import com.metsci.glimpse.gl.texture.DrawableTexture;
+import com.metsci.glimpse.gl.texture.Texture;
+import com.metsci.glimpse.painter.texture.ShadedTexturePainter;
+import com.metsci.glimpse.support.projection.FlatProjection;
+import com.metsci.glimpse.support.texture.ByteTextureProjected2D;
+import com.metsci.glimpse.support.texture.ByteTextureProjected2D.MutatorByte2D;
+
+/**
+ * Displays a BSB raster chart by paging in tiles from a {@link BsbTileCache} as the
+ * axis is panned and zoomed. Only tiles intersecting the visible area are decoded, at the
+ * pyramid level whose resolution best matches the screen. Until a tile is available, the
+ * closest coarser cached tile is drawn in its place.<p>
+ *
+ * Like {@link ShadedTexturePainter}, a color map pipeline and color texture should be
+ * provided to translate color indices into colors.
+ *
+ * @see BsbRasterData#getColorTexture()
+ */
+public class BsbTiledRasterPainter extends ShadedTexturePainter
+{
+    public static final int DEFAULT_MAX_TEXTURES = 256;
+
+    protected BsbTileCache cache;
+
+    // the extent of the entire image in axis coordinates
+    protected FlatProjection projection;
+
+    protected int maxTextures;
+
+    // textures for tiles which have been drawn, least recently used first
+    protected LinkedHashMap<TileKey, ByteTextureProjected2D> textures;
+
+    public BsbTiledRasterPainter( BsbTileCache cache, FlatProjection projection )
+    {
+        this.cache = cache;
+        this.projection = projection;
+        this.maxTextures = DEFAULT_MAX_TEXTURES;
+        this.textures = new LinkedHashMap<TileKey, ByteTextureProjected2D>( 16, 0.75f, true );
+    }
+
+    public BsbTileCache getTileCache( )
+    {
+        return cache;
+    }
+
+    public void setProjection( FlatProjection projection )
+    {
+        lock.lock( );
+        try
+        {
+            this.projection = projection;
+
+            for ( ByteTextureProjected2D texture : textures.values( ) )
+            {
+                texture.setProjection( getTileProjection( texture ) );
+            }
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    public void setMaxTextures( int maxTextures )
+    {
+        lock.lock( );
+        try
+        {
+            this.maxTextures = maxTextures;
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    @Override
+    public void paintTo( GlimpseContext context, GlimpseBounds bounds, Axis2D axis )
+    {
+        GL gl = context.getGL( );
+
+        lock.lock( );
+        try
+        {
+            List<ByteTextureProjected2D> visible = updateTiles( bounds, axis );
+
+            gl.glMatrixMode( GL.GL_PROJECTION );
+            gl.glLoadIdentity( );
+            gl.glOrtho( axis.getMinX( ), axis.getMaxX( ), axis.getMinY( ), axis.getMaxY( ), -1, 1 );
+
+            if ( pipeline != null ) pipeline.beginUse( gl );
+            try
+            {
+                for ( TextureUnit<Texture> textureUnit : nonDrawableTextures )
+                {
+                    prepare( textureUnit, gl );
+                }
+
+                for ( ByteTextureProjected2D texture : visible )
+                {
+                    texture.draw( gl, DEFAULT_DRAWABLE_TEXTURE_UNIT );
+                }
+
+                for ( TextureUnit<DrawableTexture> textureUnit : drawableTextures )
+                {
+                    draw( textureUnit, gl );
+                }
+            }
+            finally
+            {
+                if ( pipeline != null ) pipeline.endUse( gl );
+            }
+
+            disposeUnusedTextures( context.getGLContext( ), visible.size( ) );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    /**
+     * Requests the tiles needed for the current view and returns the textures to draw,
+     * coarsest pyramid level first so that finer tiles are drawn on top.
+     */
+    protected List<ByteTextureProjected2D> updateTiles( GlimpseBounds bounds, Axis2D axis )
+    {
+        List<ByteTextureProjected2D> visible = new ArrayList<ByteTextureProjected2D>( );
+        if ( projection == null || bounds.getWidth( ) <= 0 || bounds.getHeight( ) <= 0 ) return visible;
+
+        BsbRasterReader reader = cache.getReader( );
+        int width = reader.getWidth( );
+        int height = reader.getHeight( );
+
+        // visible region in full resolution image pixels
+        double fracX0 = ( axis.getMinX( ) - projection.getMinX( ) ) / ( projection.getMaxX( ) - projection.getMinX( ) );
+        double fracX1 = ( axis.getMaxX( ) - projection.getMinX( ) ) / ( projection.getMaxX( ) - projection.getMinX( ) );
+        double fracY0 = ( axis.getMinY( ) - projection.getMinY( ) ) / ( projection.getMaxY( ) - projection.getMinY( ) );
+        double fracY1 = ( axis.getMaxY( ) - projection.getMinY( ) ) / ( projection.getMaxY( ) - projection.getMinY( ) );
+
+        double minPixelX = Math.max( 0, Math.min( fracX0, fracX1 ) * width );
+        double maxPixelX = Math.min( width, Math.max( fracX0, fracX1 ) * width );
+        double minPixelY = Math.max( 0, Math.min( fracY0, fracY1 ) * height );
+        double maxPixelY = Math.min( height, Math.max( fracY0, fracY1 ) * height );
+        if ( minPixelX >= maxPixelX || minPixelY >= maxPixelY ) return visible;
+
+        // choose the level with roughly one image pixel per screen pixel
+        double imagePixelsPerScreenPixel = Math.max( Math.abs( fracX1 - fracX0 ) * width / bounds.getWidth( ), Math.abs( fracY1 - fracY0 ) * height / bounds.getHeight( ) );
+        int level = 0;
+        while ( level < cache.getLevelCount( ) - 1 && ( 2 << level ) <= imagePixelsPerScreenPixel )
+        {
+            level++;
+        }
+
+        int tileSize = cache.getTileSize( );
+        int minTileX = ( int ) Math.floor( minPixelX ) / ( tileSize << level );
+        int maxTileX = ( int ) Math.ceil( maxPixelX - 1 ) / ( tileSize << level );
+        int minTileY = ( int ) Math.floor( minPixelY ) / ( tileSize << level );
+        int maxTileY = ( int ) Math.ceil( maxPixelY - 1 ) / ( tileSize << level );
+
+        cache.requestTiles( level, minTileX, minTileY, maxTileX, maxTileY );
+
+        for ( int tileY = minTileY; tileY <= maxTileY; tileY++ )
+        {
+            for ( int tileX = minTileX; tileX <= maxTileX; tileX++ )
+            {
+                // fall back to coarser levels until a loaded tile is found
+                for ( int l = level; l < cache.getLevelCount( ); l++ )
+                {
+                    int shift = l - level;
+                    ByteTextureProjected2D texture = getTexture( l, tileX >> shift, tileY >> shift );
+                    if ( texture != null )
+                    {
+                        if ( !visible.contains( texture ) ) visible.add( texture );
+                        break;
+                    }
+                }
+            }
+        }
+
+        Collections.sort( visible, new Comparator<ByteTextureProjected2D>( )
+        {
+            @Override
+            public int compare( ByteTextureProjected2D o1, ByteTextureProjected2D o2 )
+            {
+                return getLevel( o2 ) - getLevel( o1 );
+            }
+        } );
+
+        return visible;
+    }
+
+    protected ByteTextureProjected2D getTexture( int level, int tileX, int tileY )
+    {
+        TileKey key = new TileKey( level, tileX, tileY );
+
+        ByteTextureProjected2D texture = textures.get( key );
+        if ( texture != null ) return texture;
+
+        final Tile tile = cache.getTile( level, tileX, tileY );
+        if ( tile == null ) return null;
+
+        texture = new TileTexture( tile );
+        texture.mutate( new MutatorByte2D( )
+        {
+            @Override
+            public void mutate( ByteBuffer data, int dataSizeX, int dataSizeY )
+            {
+                data.put( tile.getData( ) );
+            }
+        } );
+        texture.setProjection( getTileProjection( texture ) );
+
+        textures.put( key, texture );
+        return texture;
+    }
+
+    protected FlatProjection getTileProjection( ByteTextureProjected2D texture )
+    {
+        Tile tile = ( ( TileTexture ) texture ).tile;
+        BsbRasterReader reader = cache.getReader( );
+
+        int level = tile.getLevel( );
+        double fracX0 = ( double ) ( tile.getX( ) << level ) / reader.getWidth( );
+        double fracX1 = ( double ) ( ( tile.getX( ) + tile.getWidth( ) ) << level ) / reader.getWidth( );
+        double fracY0 = ( double ) ( tile.getY( ) << level ) / reader.getHeight( );
+        double fracY1 = ( double ) ( ( tile.getY( ) + tile.getHeight( ) ) << level ) / reader.getHeight( );
+
+        double sizeX = projection.getMaxX( ) - projection.getMinX( );
+        double sizeY = projection.getMaxY( ) - projection.getMinY( );
+
+        return new FlatProjection( projection.getMinX( ) + fracX0 * sizeX, projection.getMinX( ) + fracX1 * sizeX, projection.getMinY( ) + fracY0 * sizeY, projection.getMinY( ) + fracY1 * sizeY );
+    }
+
+    protected int getLevel( ByteTextureProjected2D texture )
+    {
+        return ( ( TileTexture ) texture ).tile.getLevel( );
+    }
+
+    protected void disposeUnusedTextures( GLContext glContext, int numVisible )
+    {
+        // never dispose textures drawn this frame, which are the most recently used
+        int limit = Math.max( maxTextures, numVisible );
+
+        Iterator<Map.Entry<TileKey, ByteTextureProjected2D>> iterator = textures.entrySet( ).iterator( );
+        while ( textures.size( ) > limit && iterator.hasNext( ) )
+        {
+            iterator.next( ).getValue( ).dispose( glContext );
+            iterator.remove( );
+        }
+    }
+
+    @Override
+    public void dispose( GLContext context )
+    {
+        lock.lock( );
+        try
+        {
+            for ( ByteTextureProjected2D texture : textures.values( ) )
+            {
+                texture.dispose( context );
+            }
+
+            textures.clear( );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+
+        super.dispose( context );
+    }
+
+    protected static class TileTexture extends ByteTextureProjected2D
+    {
+        protected final Tile tile;
+
+        public TileTexture( Tile tile )
+        {
+            super( tile.getWidth( ), tile.getHeight( ) );
+            this.tile = tile;
+        }
+    }
+}
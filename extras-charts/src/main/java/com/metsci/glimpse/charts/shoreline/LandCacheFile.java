@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.shoreline;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.metsci.glimpse.util.primitives.IntsArray;
+
+/**
+ * A compact binary cache of the segments of a {@link LandShape}, which is read through a
+ * memory mapped buffer so that vertices are only touched when they are used. The accessors
+ * read vertices straight from the mapping; consumers which keep vertices (such as
+ * {@link LandShapePainter}, which builds a {@link LandTileStore} from the selected segments)
+ * hold their own heap copies.<p>
+ *
+ * A cache file is written once from any {@link LandShapeCapable} source (for example a
+ * {@link com.metsci.glimpse.charts.shoreline.gshhs.GshhsFile}) after its segments have been
+ * joined, and contains:
+ * <ul>
+ * <li>a file header with the {@link LandBox} and whether the fill is inverted</li>
+ * <li>a fixed size header per segment with its vertex counts, whether it is fillable and its bounding box</li>
+ * <li>the vertices of every segment followed by its ghost vertices, as int latitude/longitude micro-degrees</li>
+ * </ul>
+ */
+public class LandCacheFile implements LandShapeCapable
+{
+    protected static final int MAGIC = 0x4C4E4443;
+    protected static final int VERSION = 1;
+
+    protected static final int HEADER_SIZE = 64;
+    protected static final int SEGMENT_HEADER_SIZE = 32;
+
+    protected static final double MICRO_DEGREES = 1e6;
+
+    protected static final int FILLABLE_FLAG = 0x1;
+
+    protected final LandBox box;
+    protected final boolean fillInverted;
+    protected final int segmentCount;
+
+    protected final IntBuffer segmentHeaders;
+    protected final IntBuffer vertices;
+
+    public LandCacheFile( ByteBuffer buffer ) throws IOException
+    {
+        if ( buffer.limit( ) < HEADER_SIZE || buffer.getInt( 0 ) != MAGIC ) throw new IOException( "Not a land cache file" );
+
+        int version = buffer.getInt( 4 );
+        if ( version != VERSION ) throw new IOException( String.format( "Unsupported land cache version: %d", version ) );
+
+        this.segmentCount = buffer.getInt( 8 );
+        this.fillInverted = buffer.getInt( 12 ) != 0;
+
+        double northLat = buffer.getDouble( 16 );
+        double southLat = buffer.getDouble( 24 );
+        double eastLon = buffer.getDouble( 32 );
+        double westLon = buffer.getDouble( 40 );
+        boolean isSwCornerLand = buffer.getInt( 48 ) != 0;
+        this.box = new LandBox( northLat, southLat, eastLon, westLon, isSwCornerLand );
+
+        long verticesStart = HEADER_SIZE + ( long ) segmentCount * SEGMENT_HEADER_SIZE;
+        if ( verticesStart > buffer.limit( ) ) throw new IOException( "Land cache file is truncated" );
+
+        ByteBuffer view = buffer.duplicate( );
+        view.position( HEADER_SIZE ).limit( ( int ) verticesStart );
+        this.segmentHeaders = view.slice( ).asIntBuffer( );
+
+        view = buffer.duplicate( );
+        view.position( ( int ) verticesStart );
+        this.vertices = view.slice( ).asIntBuffer( );
+
+        if ( segmentCount > 0 )
+        {
+            int last = segmentCount - 1;
+            long end = ( long ) getFirstVertex( last ) + getVertexCount( last ) + getGhostVertexCount( last );
+            if ( end * 2 > vertices.limit( ) ) throw new IOException( "Land cache file is truncated" );
+        }
+    }
+
+    /**
+     * Memory maps a cache file written by {@link #write(LandShapeCapable, File)}.
+     */
+    public static LandCacheFile open( File file ) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try
+        {
+            FileChannel channel = raf.getChannel( );
+            return new LandCacheFile( channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size( ) ) );
+        }
+        finally
+        {
+            // the mapping remains valid after the channel is closed
+            raf.close( );
+        }
+    }
+
+    public static void write( LandShapeCapable source, File file ) throws IOException
+    {
+        write( source.toShape( ), file );
+    }
+
+    public static void write( LandShape shape, File file ) throws IOException
+    {
+        List<LandSegment> segments = shape.getSegments( );
+        LandBox box = shape.getLandBox( );
+
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ), 65536 ) );
+        try
+        {
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            out.writeInt( segments.size( ) );
+            out.writeInt( shape.isFillInverted( ) ? 1 : 0 );
+            out.writeDouble( box.northLat );
+            out.writeDouble( box.southLat );
+            out.writeDouble( box.eastLon );
+            out.writeDouble( box.westLon );
+            out.writeInt( box.isSwCornerLand ? 1 : 0 );
+            out.write( new byte[HEADER_SIZE - 52] );
+
+            int firstVertex = 0;
+            for ( LandSegment segment : segments )
+            {
+                int minLat = Integer.MAX_VALUE;
+                int maxLat = Integer.MIN_VALUE;
+                int minLon = Integer.MAX_VALUE;
+                int maxLon = Integer.MIN_VALUE;
+
+                for ( LandVertex vertex : segment.vertices )
+                {
+                    int lat = toMicroDegrees( vertex.lat );
+                    int lon = toMicroDegrees( vertex.lon );
+                    minLat = Math.min( minLat, lat );
+                    maxLat = Math.max( maxLat, lat );
+                    minLon = Math.min( minLon, lon );
+                    maxLon = Math.max( maxLon, lon );
+                }
+
+                out.writeInt( firstVertex );
+                out.writeInt( segment.vertices.size( ) );
+                out.writeInt( segment.ghostVertices.size( ) );
+                out.writeInt( segment.isFillable ? FILLABLE_FLAG : 0 );
+                out.writeInt( minLat );
+                out.writeInt( maxLat );
+                out.writeInt( minLon );
+                out.writeInt( maxLon );
+
+                firstVertex += segment.vertices.size( ) + segment.ghostVertices.size( );
+            }
+
+            for ( LandSegment segment : segments )
+            {
+                writeVertices( segment.vertices, out );
+                writeVertices( segment.ghostVertices, out );
+            }
+        }
+        finally
+        {
+            out.close( );
+        }
+    }
+
+    protected static void writeVertices( List<LandVertex> vertices, DataOutputStream out ) throws IOException
+    {
+        for ( LandVertex vertex : vertices )
+        {
+            out.writeInt( toMicroDegrees( vertex.lat ) );
+            out.writeInt( toMicroDegrees( vertex.lon ) );
+        }
+    }
+
+    protected static int toMicroDegrees( double degrees )
+    {
+        return ( int ) Math.round( degrees * MICRO_DEGREES );
+    }
+
+    public LandBox getLandBox( )
+    {
+        return box;
+    }
+
+    public boolean isFillInverted( )
+    {
+        return fillInverted;
+    }
+
+    public int getSegmentCount( )
+    {
+        return segmentCount;
+    }
+
+    protected int getFirstVertex( int segment )
+    {
+        return segmentHeaders.get( segment * 8 );
+    }
+
+    public int getVertexCount( int segment )
+    {
+        return segmentHeaders.get( segment * 8 + 1 );
+    }
+
+    public int getGhostVertexCount( int segment )
+    {
+        return segmentHeaders.get( segment * 8 + 2 );
+    }
+
+    public boolean isFillable( int segment )
+    {
+        return ( segmentHeaders.get( segment * 8 + 3 ) & FILLABLE_FLAG ) != 0;
+    }
+
+    /**
+     * @return true if the bounding box of the segment's (non-ghost) vertices intersects the given box
+     */
+    public boolean intersects( int segment, double southLat, double northLat, double westLon, double eastLon )
+    {
+        int base = segment * 8;
+        return segmentHeaders.get( base + 4 ) <= northLat * MICRO_DEGREES && southLat * MICRO_DEGREES <= segmentHeaders.get( base + 5 ) && segmentHeaders.get( base + 6 ) <= eastLon * MICRO_DEGREES && westLon * MICRO_DEGREES <= segmentHeaders.get( base + 7 );
+    }
+
+    /**
+     * @return the indices of the segments whose bounding boxes intersect the given box
+     */
+    public int[] getSegments( double southLat, double northLat, double westLon, double eastLon )
+    {
+        IntsArray result = new IntsArray( );
+        for ( int i = 0; i < segmentCount; i++ )
+        {
+            if ( intersects( i, southLat, northLat, westLon, eastLon ) ) result.append( i );
+        }
+
+        return result.copyOf( );
+    }
+
+    /**
+     * @param vertex index of a vertex of the segment; indices past {@link #getVertexCount(int)} refer to ghost vertices
+     */
+    public double getLatDeg( int segment, int vertex )
+    {
+        return vertices.get( 2 * ( getFirstVertex( segment ) + vertex ) ) / MICRO_DEGREES;
+    }
+
+    /**
+     * @param vertex index of a vertex of the segment; indices past {@link #getVertexCount(int)} refer to ghost vertices
+     */
+    public double getLonDeg( int segment, int vertex )
+    {
+        return vertices.get( 2 * ( getFirstVertex( segment ) + vertex ) + 1 ) / MICRO_DEGREES;
+    }
+
+    public LandSegment getSegment( int segment )
+    {
+        int vertexCount = getVertexCount( segment );
+        int ghostCount = getGhostVertexCount( segment );
+
+        List<LandVertex> segmentVertices = new ArrayList<LandVertex>( vertexCount );
+        for ( int i = 0; i < vertexCount; i++ )
+        {
+            segmentVertices.add( new LandVertex( getLatDeg( segment, i ), getLonDeg( segment, i ) ) );
+        }
+
+        if ( !isFillable( segment ) ) return LandSegment.newUnfillableSegment( segmentVertices );
+
+        List<LandVertex> ghostVertices = new ArrayList<LandVertex>( ghostCount );
+        for ( int i = vertexCount; i < vertexCount + ghostCount; i++ )
+        {
+            ghostVertices.add( new LandVertex( getLatDeg( segment, i ), getLonDeg( segment, i ) ) );
+        }
+
+        return LandSegment.newFillableSegment( segmentVertices, ghostVertices );
+    }
+
+    /**
+     * Creates a LandShape from all segments. This copies every vertex onto the heap; prefer
+     * {@link #toShape(int[])} with the segments from {@link #getSegments(double, double, double, double)}.
+     */
+    @Override
+    public LandShape toShape( )
+    {
+        List<LandSegment> segments = new ArrayList<LandSegment>( segmentCount );
+        for ( int i = 0; i < segmentCount; i++ )
+        {
+            segments.add( getSegment( i ) );
+        }
+
+        return new LandShape( segments, box, fillInverted );
+    }
+
+    public LandShape toShape( int[] segmentIndices )
+    {
+        List<LandSegment> segments = new ArrayList<LandSegment>( segmentIndices.length );
+        for ( int i : segmentIndices )
+        {
+            segments.add( getSegment( i ) );
+        }
+
+        return new LandShape( segments, box, fillInverted );
+    }
+}
@@ -87,6 +87,15 @@ public class LandShape
     private final boolean invertFill;
 
     public LandShape(List<LandSegment> segments, LandBox box)
+    {
+        this(segments, box, null);
+    }
+
+    /**
+     * @param invertFill whether land lies outside the fillable segments, or null to infer this
+     *                   from whether the southwest corner of the box is land
+     */
+    public LandShape(List<LandSegment> segments, LandBox box, Boolean invertFill)
     {
         assert segments != null;
 
@@ -104,8 +113,8 @@ public class LandShape
         };
 
         Shape rawSuShape = getRawFillShape(suConverter);
-        this.invertFill = (rawSuShape.contains(0, 0) != box.isSwCornerLand);
-        this.suShape = (invertFill ? invert(rawSuShape, suConverter) : rawSuShape);
+        this.invertFill = (invertFill != null ? invertFill : rawSuShape.contains(0, 0) != box.isSwCornerLand);
+        this.suShape = (this.invertFill ? invert(rawSuShape, suConverter) : rawSuShape);
     }
 
     public boolean isLand( double latDeg, double lonDeg )
@@ -211,4 +220,12 @@ public class LandShape
     {
         return box;
     }
+
+    /**
+     * @return true if the land is the area outside of the fillable segments (within the land box)
+     */
+    public boolean isFillInverted()
+    {
+        return invertFill;
+    }
 }
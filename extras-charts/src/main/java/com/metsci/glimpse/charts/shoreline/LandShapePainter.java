@@ -27,28 +27,32 @@
 package com.metsci.glimpse.charts.shoreline;
 
 import java.awt.Shape;
-import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D.Double;
 import java.awt.geom.Rectangle2D;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
+import javax.media.opengl.GL;
 import javax.media.opengl.GLContext;
 
 import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.charts.shoreline.LandShape.VertexConverter;
+import com.metsci.glimpse.charts.shoreline.LandTileStore.Level;
+import com.metsci.glimpse.charts.shoreline.LandTileStore.Tile;
 import com.metsci.glimpse.charts.shoreline.ndgc.NgdcFile2;
 import com.metsci.glimpse.context.GlimpseBounds;
 import com.metsci.glimpse.context.GlimpseContext;
 import com.metsci.glimpse.painter.base.GlimpsePainter2D;
-import com.metsci.glimpse.painter.shape.PolygonPainter;
-import com.metsci.glimpse.support.polygon.Polygon;
-import com.metsci.glimpse.support.polygon.Polygon.Interior;
-import com.metsci.glimpse.support.polygon.Polygon.Loop.LoopBuilder;
 import com.metsci.glimpse.util.geo.LatLonGeo;
 import com.metsci.glimpse.util.geo.projection.GeoProjection;
+import com.metsci.glimpse.util.primitives.FloatsArray;
 import com.metsci.glimpse.util.vector.Vector2d;
 
 
@@ -64,21 +68,65 @@ import com.metsci.glimpse.util.vector.Vector2d;
  * Coast Format: Mapgen
  * Coast Preview: No Preview
  * 
+ * Each load is stored in its own {@link LandTileStore} at several levels of detail. Each frame,
+ * only the tiles intersecting the visible area are drawn, at the coarsest level whose
+ * simplification error is below {@link #setMaxErrorPixels(double)} pixels.
  * 
  * @author ulman
  * @author cunningham
  */
 public class LandShapePainter extends GlimpsePainter2D
 {
-    protected static final int LAND_GROUP_ID = 1337;
+    //@formatter:off
+    protected static final byte[] halftone = {
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55,
+            (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55, (byte) 0x55, (byte) 0x55, (byte) 0x55 };
+    //@formatter:on
 
-    protected PolygonPainter polygonPainter;
-    protected int landPolygonCounter = 0;
     protected Rectangle2D bounds;
 
+    // the simplified, tiled levels of detail of each load (replaced, never modified)
+    protected volatile List<LandTileStore> stores;
+    protected volatile boolean newData = false;
+    protected ReentrantLock updateLock;
+
+    protected int levelCount = LandTileStore.DEFAULT_LEVEL_COUNT;
+    protected double maxErrorPixels = LandTileStore.DEFAULT_MAX_ERROR_PIXELS;
+
+    protected float[] fillColor;
+    protected boolean fillOn;
+    protected byte[] polyStipplePattern = halftone;
+    protected boolean polyStippleOn = false;
+
+    protected float[] lineColor;
+    protected float lineWidth;
+    protected boolean linesOn = true;
+    protected int lineStippleFactor = 1;
+    protected short lineStipplePattern = ( short ) 0x00FF;
+    protected boolean lineStippleOn = false;
+
+    // the stores whose levels are (lazily) loaded onto the device, accessed only from paintTo
+    protected List<LoadedStore> loadedStores;
+
     public LandShapePainter( )
     {
-        this.polygonPainter = new PolygonPainter( );
+        this.stores = Collections.emptyList( );
+        this.updateLock = new ReentrantLock( );
+        this.loadedStores = new ArrayList<LoadedStore>( );
         this.setFillColor( 151 / 255.0f, 152 / 255.0f, 107 / 255.0f, 1.0f );
         this.setLineColor( 112 / 255.0f, 140 / 255.0f, 76 / 255.0f, 1.0f );
         this.setLineWidth( 2 );
@@ -216,121 +264,412 @@ public class LandShapePainter extends GlimpsePainter2D
             }
         } );
 
-        //XXX Here we load every Shape segment as a different polygon
-        //XXX This won't work for shapes with holes, still need to figure this out
-        Polygon p = new Polygon( );
-        PathIterator iter = shape.getPathIterator( null );
-        double[] vertices = new double[6];
-        LoopBuilder b = new LoopBuilder( );
+        // each closed loop of the shape is tessellated as a separate polygon (see LandTileStore),
+        // so a loop inside another loop is filled rather than cut out as a hole
+        addLoops( LandTileStore.getLoops( shape ) );
+
+        return shape;
+    }
+
+    public void loadLandCache( LandCacheFile cache, GeoProjection geoProjection )
+    {
+        LandBox box = cache.getLandBox( );
+        loadLandCache( cache, box.southLat, box.northLat, box.westLon, box.eastLon, geoProjection );
+    }
 
-        while ( !iter.isDone( ) )
+    /**
+     * Loads the segments of a land cache file which intersect the given box. Unless the land
+     * cache fill is inverted, vertices are read and projected directly from the memory mapped
+     * file, skipping the LandShape path. The projected vertices of the selected segments are
+     * then copied onto the heap to build this load's {@link LandTileStore} (and the device
+     * buffers drawn from it); only segments outside the box are never read.
+     */
+    public void loadLandCache( LandCacheFile cache, double southLat, double northLat, double westLon, double eastLon, GeoProjection geoProjection )
+    {
+        int[] segments = cache.getSegments( southLat, northLat, westLon, eastLon );
+
+        if ( cache.isFillInverted( ) )
         {
-            iter.next( );
+            loadLandFile0( cache.toShape( segments ), geoProjection );
+            return;
+        }
 
-            int type = iter.currentSegment( vertices );
+        List<float[]> newLoops = new ArrayList<float[]>( );
+        FloatsArray loop = new FloatsArray( );
+        for ( int segment : segments )
+        {
+            if ( !cache.isFillable( segment ) ) continue;
 
-            if ( type == PathIterator.SEG_CLOSE )
-            {
-                p.add( b.complete( Interior.onRight ) );
-                addPolygon( p );
-                p = new Polygon( );
-                b = new LoopBuilder( );
-            }
-            else if ( type == PathIterator.SEG_LINETO )
-            {
-                b.addVertices( vertices, 1 );
-            }
-            else if ( type == PathIterator.SEG_MOVETO )
-            {
-                p.add( b.complete( Interior.onRight ) );
-                addPolygon( p );
-                p = new Polygon( );
-                b = new LoopBuilder( );
-                b.addVertices( vertices, 1 );
-            }
-            else
+            loop.n = 0;
+            int count = cache.getVertexCount( segment ) + cache.getGhostVertexCount( segment );
+            for ( int i = 0; i < count; i++ )
             {
-                throw new UnsupportedOperationException( "Shape Not Supported." );
+                Vector2d vector = geoProjection.project( LatLonGeo.fromDeg( cache.getLatDeg( segment, i ), cache.getLonDeg( segment, i ) ) );
+                loop.append( ( float ) vector.getX( ) );
+                loop.append( ( float ) vector.getY( ) );
             }
+
+            LandTileStore.addLoop( loop, newLoops );
         }
 
-        return shape;
+        addLoops( newLoops );
     }
 
-    protected void addPolygon( Polygon p )
+    /**
+     * Builds the simplified, tiled levels of detail of newly loaded loops (on the calling thread)
+     * in a store of their own, leaving the stores of earlier loads untouched. The full resolution
+     * loops are not retained.
+     */
+    protected void addLoops( List<float[]> newLoops )
     {
-        polygonPainter.addPolygon( LAND_GROUP_ID, landPolygonCounter++, Long.MIN_VALUE, Long.MAX_VALUE, p, 0.0f );
+        if ( newLoops.isEmpty( ) ) return;
+
+        LandTileStore newStore = new LandTileStore( newLoops, levelCount, LandTileStore.DEFAULT_MAX_TILE_VERTICES );
+
+        this.updateLock.lock( );
+        try
+        {
+            List<LandTileStore> newStores = new ArrayList<LandTileStore>( this.stores );
+            newStores.add( newStore );
+
+            this.stores = newStores;
+            this.newData = true;
+        }
+        finally
+        {
+            this.updateLock.unlock( );
+        }
+    }
+
+    /**
+     * @return the stores of each load, in the order they were loaded
+     */
+    public List<LandTileStore> getLandTileStores( )
+    {
+        return Collections.unmodifiableList( stores );
+    }
+
+    /**
+     * Sets the number of levels of detail used for shapes loaded after this call.
+     */
+    public void setLevelCount( int levelCount )
+    {
+        this.levelCount = levelCount;
+    }
+
+    /**
+     * Sets the maximum simplification error, in pixels, tolerated when choosing a level of detail.
+     */
+    public void setMaxErrorPixels( double maxErrorPixels )
+    {
+        this.maxErrorPixels = maxErrorPixels;
     }
 
     public void setLineColor( float r, float g, float b, float a )
     {
-        polygonPainter.setLineColor( LAND_GROUP_ID, r, g, b, a );
+        this.lineColor = new float[] { r, g, b, a };
     }
 
     public void setLineColor( float[] rgba )
     {
-        polygonPainter.setLineColor( LAND_GROUP_ID, rgba );
+        this.lineColor = rgba;
     }
 
     public void setLineWidth( int width )
     {
-        polygonPainter.setLineWidth( LAND_GROUP_ID, width );
+        this.lineWidth = width;
     }
 
     public void setShowLines( boolean show )
     {
-        polygonPainter.setShowLines( LAND_GROUP_ID, show );
+        this.linesOn = show;
     }
 
     public void setPolyDotted( byte[] stipple )
     {
-        polygonPainter.setPolyDotted( LAND_GROUP_ID, stipple );
+        this.polyStipplePattern = stipple;
+        this.polyStippleOn = true;
     }
 
     public void setPolyDotted( boolean dotted )
     {
-        polygonPainter.setPolyDotted( LAND_GROUP_ID, dotted );
+        this.polyStippleOn = dotted;
     }
 
     public void setLineDotted( boolean dotted )
     {
-        polygonPainter.setLineDotted( LAND_GROUP_ID, dotted );
+        this.lineStippleOn = dotted;
     }
 
     public void setLineDotted( int stippleFactor, short stipplePattern )
     {
-        polygonPainter.setLineDotted( LAND_GROUP_ID, stippleFactor, stipplePattern );
+        this.lineStippleFactor = stippleFactor;
+        this.lineStipplePattern = stipplePattern;
+        this.lineStippleOn = true;
     }
 
     public void setFill( boolean show )
     {
-        polygonPainter.setFill( LAND_GROUP_ID, show );
+        this.fillOn = show;
     }
 
     public void setFillColor( float[] rgba )
     {
-        polygonPainter.setFillColor( LAND_GROUP_ID, rgba );
+        this.fillColor = rgba;
     }
 
     public void setFillColor( float r, float g, float b, float a )
     {
-        polygonPainter.setFillColor( LAND_GROUP_ID, r, g, b, a );
+        this.fillColor = new float[] { r, g, b, a };
     }
 
     public void deleteAll( )
     {
-        polygonPainter.deleteAll( );
+        this.updateLock.lock( );
+        try
+        {
+            this.stores = Collections.emptyList( );
+            this.newData = true;
+        }
+        finally
+        {
+            this.updateLock.unlock( );
+        }
     }
 
     @Override
     public void dispose( GLContext context )
     {
-        polygonPainter.dispose( context );
+        deleteBuffers( context.getGL( ) );
+    }
+
+    protected void deleteBuffers( GL gl )
+    {
+        for ( LoadedStore loaded : loadedStores )
+        {
+            loaded.deleteBuffers( gl );
+        }
+
+        loadedStores.clear( );
+    }
+
+    protected void updateLoadedStores( GL gl )
+    {
+        List<LandTileStore> current;
+
+        this.updateLock.lock( );
+        try
+        {
+            current = this.stores;
+            newData = false;
+        }
+        finally
+        {
+            this.updateLock.unlock( );
+        }
+
+        // keep the device buffers of stores which are still present
+        List<LoadedStore> newLoadedStores = new ArrayList<LoadedStore>( current.size( ) );
+        for ( LandTileStore store : current )
+        {
+            LoadedStore loaded = null;
+            for ( LoadedStore candidate : loadedStores )
+            {
+                if ( candidate.store == store )
+                {
+                    loaded = candidate;
+                    break;
+                }
+            }
+
+            newLoadedStores.add( loaded != null ? loaded : new LoadedStore( store ) );
+        }
+
+        for ( LoadedStore loaded : loadedStores )
+        {
+            if ( !newLoadedStores.contains( loaded ) ) loaded.deleteBuffers( gl );
+        }
+
+        loadedStores = newLoadedStores;
     }
 
     @Override
     public void paintTo( GlimpseContext context, GlimpseBounds bounds, Axis2D axis )
     {
-        polygonPainter.paintTo( context, bounds, axis );
+        GL gl = context.getGL( );
+
+        if ( newData ) updateLoadedStores( gl );
+
+        if ( loadedStores.isEmpty( ) ) return;
+
+        // use the finer of the two axis scales to choose the level of detail
+        double pixelsPerValue = Math.max( axis.getAxisX( ).getPixelsPerValue( ), axis.getAxisY( ).getPixelsPerValue( ) );
+
+        boolean visible = false;
+        for ( LoadedStore loaded : loadedStores )
+        {
+            visible |= loaded.selectTiles( gl, pixelsPerValue, maxErrorPixels, axis );
+        }
+
+        if ( !visible ) return;
+
+        gl.glMatrixMode( GL.GL_PROJECTION );
+        gl.glLoadIdentity( );
+        gl.glOrtho( axis.getMinX( ), axis.getMaxX( ), axis.getMinY( ), axis.getMaxY( ), -1, 1 );
+
+        gl.glBlendFunc( GL.GL_SRC_ALPHA, GL.GL_ONE_MINUS_SRC_ALPHA );
+        gl.glEnable( GL.GL_BLEND );
+        gl.glEnable( GL.GL_LINE_SMOOTH );
+
+        gl.glEnableClientState( GL.GL_VERTEX_ARRAY );
+
+        if ( fillOn )
+        {
+            gl.glColor4fv( fillColor, 0 );
+
+            if ( polyStippleOn )
+            {
+                gl.glEnable( GL.GL_POLYGON_STIPPLE );
+                gl.glPolygonStipple( polyStipplePattern, 0 );
+            }
+
+            for ( LoadedStore loaded : loadedStores )
+            {
+                if ( loaded.visibleTiles.isEmpty( ) ) continue;
+
+                gl.glBindBuffer( GL.GL_ARRAY_BUFFER, loaded.fillHandles[loaded.levelIndex] );
+                gl.glVertexPointer( 2, GL.GL_FLOAT, 0, 0 );
+
+                for ( Tile tile : loaded.visibleTiles )
+                {
+                    // large counts cause problems on some ATI cards (see PolygonPainter)
+                    for ( int offset = 0; offset < tile.getFillCount( ); offset += 60000 )
+                    {
+                        gl.glDrawArrays( GL.GL_TRIANGLES, tile.getFillFirst( ) + offset, Math.min( 60000, tile.getFillCount( ) - offset ) );
+                    }
+                }
+            }
+
+            if ( polyStippleOn )
+            {
+                gl.glDisable( GL.GL_POLYGON_STIPPLE );
+            }
+        }
+
+        if ( linesOn )
+        {
+            gl.glColor4fv( lineColor, 0 );
+            gl.glLineWidth( lineWidth );
+
+            if ( lineStippleOn )
+            {
+                gl.glEnable( GL.GL_LINE_STIPPLE );
+                gl.glLineStipple( lineStippleFactor, lineStipplePattern );
+            }
+
+            for ( LoadedStore loaded : loadedStores )
+            {
+                if ( loaded.visibleTiles.isEmpty( ) ) continue;
+
+                gl.glBindBuffer( GL.GL_ARRAY_BUFFER, loaded.lineHandles[loaded.levelIndex] );
+                gl.glVertexPointer( 2, GL.GL_FLOAT, 0, 0 );
+
+                for ( Tile tile : loaded.visibleTiles )
+                {
+                    int[] firsts = tile.getStripFirsts( );
+                    int[] counts = tile.getStripCounts( );
+                    for ( int i = 0; i < firsts.length; i++ )
+                    {
+                        gl.glDrawArrays( GL.GL_LINE_STRIP, firsts[i], counts[i] );
+                    }
+                }
+            }
+
+            if ( lineStippleOn )
+            {
+                gl.glDisable( GL.GL_LINE_STIPPLE );
+            }
+        }
+
+        glHandleError( gl, "Land Draw Error" );
+
+        gl.glBindBuffer( GL.GL_ARRAY_BUFFER, 0 );
+        gl.glDisableClientState( GL.GL_VERTEX_ARRAY );
+        gl.glDisable( GL.GL_BLEND );
+        gl.glDisable( GL.GL_LINE_SMOOTH );
+    }
+
+    /**
+     * The device buffers of the levels of one {@link LandTileStore}, which are uploaded when first drawn.
+     */
+    protected class LoadedStore
+    {
+        protected final LandTileStore store;
+        protected final int[] fillHandles;
+        protected final int[] lineHandles;
+        protected final boolean[] levelLoaded;
+
+        // the level and tiles chosen for the current frame
+        protected int levelIndex;
+        protected final List<Tile> visibleTiles;
+
+        public LoadedStore( LandTileStore store )
+        {
+            int levels = store.getLevelCount( );
+
+            this.store = store;
+            this.fillHandles = new int[levels];
+            this.lineHandles = new int[levels];
+            this.levelLoaded = new boolean[levels];
+            this.visibleTiles = new ArrayList<Tile>( );
+        }
+
+        /**
+         * Chooses the level to draw, uploading it if necessary, and finds its visible tiles.
+         *
+         * @return whether any tiles are visible
+         */
+        public boolean selectTiles( GL gl, double pixelsPerValue, double maxErrorPixels, Axis2D axis )
+        {
+            visibleTiles.clear( );
+
+            Rectangle2D bounds = store.getBounds( );
+            if ( bounds.getMaxX( ) < axis.getMinX( ) || bounds.getMinX( ) > axis.getMaxX( ) || bounds.getMaxY( ) < axis.getMinY( ) || bounds.getMinY( ) > axis.getMaxY( ) ) return false;
+
+            levelIndex = store.getLevelIndex( pixelsPerValue, maxErrorPixels );
+            if ( !levelLoaded[levelIndex] ) loadLevel( gl, levelIndex );
+
+            store.getLevel( levelIndex ).getTiles( axis.getMinX( ), axis.getMinY( ), axis.getMaxX( ), axis.getMaxY( ), visibleTiles );
+            return !visibleTiles.isEmpty( );
+        }
+
+        protected void loadLevel( GL gl, int index )
+        {
+            Level level = store.getLevel( index );
+
+            int[] handles = new int[2];
+            gl.glGenBuffers( 2, handles, 0 );
+            fillHandles[index] = handles[0];
+            lineHandles[index] = handles[1];
+
+            gl.glBindBuffer( GL.GL_ARRAY_BUFFER, handles[0] );
+            gl.glBufferData( GL.GL_ARRAY_BUFFER, level.getFillVertexCount( ) * 2 * BYTES_PER_FLOAT, FloatBuffer.wrap( level.getFillVertices( ) ), GL.GL_STATIC_DRAW );
+
+            gl.glBindBuffer( GL.GL_ARRAY_BUFFER, handles[1] );
+            gl.glBufferData( GL.GL_ARRAY_BUFFER, level.getLineVertexCount( ) * 2 * BYTES_PER_FLOAT, FloatBuffer.wrap( level.getLineVertices( ) ), GL.GL_STATIC_DRAW );
+
+            glHandleError( gl, "Land Level Upload Error" );
+
+            levelLoaded[index] = true;
+        }
+
+        public void deleteBuffers( GL gl )
+        {
+            for ( int i = 0; i < levelLoaded.length; i++ )
+            {
+                if ( levelLoaded[i] ) gl.glDeleteBuffers( 2, new int[] { fillHandles[i], lineHandles[i] }, 0 );
+                levelLoaded[i] = false;
+            }
+        }
     }
 }
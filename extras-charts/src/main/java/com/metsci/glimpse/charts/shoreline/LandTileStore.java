@@ -0,0 +1,656 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.shoreline;
+
+import static com.metsci.glimpse.util.logging.LoggerUtils.*;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.media.opengl.glu.GLU;
+
+import com.metsci.glimpse.support.polygon.Polygon;
+import com.metsci.glimpse.support.polygon.Polygon.Interior;
+import com.metsci.glimpse.support.polygon.Polygon.Loop.LoopBuilder;
+import com.metsci.glimpse.support.polygon.PolygonTessellator;
+import com.metsci.glimpse.support.polygon.PolygonTessellator.TessellationException;
+import com.metsci.glimpse.support.polygon.SimpleVertexAccumulator;
+import com.metsci.glimpse.util.primitives.FloatsArray;
+import com.metsci.glimpse.util.primitives.IntsArray;
+
+/**
+ * Multi-resolution, spatially indexed storage for projected shoreline loops.<p>
+ *
+ * Level 0 holds the loops at full resolution. Each coarser level is simplified with the
+ * Douglas-Peucker algorithm using a tolerance four times larger than the previous level.
+ * The filled triangles and outline segments of each level are divided into tiles using a
+ * quadtree, so that only tiles intersecting the visible area need to be drawn. Tile bounds
+ * are loose: primitives are assigned to a tile by a single reference point and may extend
+ * beyond the tile's quadtree cell, so each tile records the bounds of its contents.
+ */
+public class LandTileStore
+{
+    private static final Logger logger = Logger.getLogger( LandTileStore.class.getName( ) );
+
+    public static final int DEFAULT_LEVEL_COUNT = 6;
+    public static final int DEFAULT_MAX_TILE_VERTICES = 16384;
+
+    // the tolerance of the coarsest level, as a fraction of the extent of the data
+    public static final double DEFAULT_COARSEST_TOLERANCE = 1.0 / 1024.0;
+
+    // the maximum simplification error, in pixels, allowed when choosing a level
+    public static final double DEFAULT_MAX_ERROR_PIXELS = 0.5;
+
+    protected static final int MAX_TREE_DEPTH = 16;
+
+    protected final Level[] levels;
+    protected final Rectangle2D bounds;
+
+    public LandTileStore( Collection<float[]> loops )
+    {
+        this( loops, DEFAULT_LEVEL_COUNT, DEFAULT_MAX_TILE_VERTICES );
+    }
+
+    /**
+     * @param loops closed loops of interleaved x, y projected coordinates (the closing vertex is not repeated)
+     */
+    public LandTileStore( Collection<float[]> loops, int levelCount, int maxTileVertices )
+    {
+        this.bounds = getBounds( loops );
+
+        double extent = Math.max( bounds.getWidth( ), bounds.getHeight( ) );
+        PolygonTessellator tessellator = new PolygonTessellator( new GLU( ) );
+
+        this.levels = new Level[levelCount];
+        for ( int i = 0; i < levelCount; i++ )
+        {
+            double tolerance = i == 0 ? 0 : extent * DEFAULT_COARSEST_TOLERANCE / Math.pow( 4, levelCount - 1 - i );
+            levels[i] = new Level( loops, tolerance, maxTileVertices, tessellator );
+        }
+
+        tessellator.destroy( );
+    }
+
+    /**
+     * Extracts the closed loops of a Shape, for example a {@link LandShape} fill shape.
+     */
+    public static List<float[]> getLoops( Shape shape )
+    {
+        List<float[]> loops = new ArrayList<float[]>( );
+        FloatsArray loop = new FloatsArray( );
+        double[] coords = new double[6];
+
+        for ( PathIterator iter = shape.getPathIterator( null ); !iter.isDone( ); iter.next( ) )
+        {
+            int type = iter.currentSegment( coords );
+
+            if ( type == PathIterator.SEG_MOVETO || type == PathIterator.SEG_CLOSE )
+            {
+                addLoop( loop, loops );
+                loop.n = 0;
+            }
+
+            if ( type == PathIterator.SEG_MOVETO || type == PathIterator.SEG_LINETO )
+            {
+                loop.append( ( float ) coords[0] );
+                loop.append( ( float ) coords[1] );
+            }
+            else if ( type != PathIterator.SEG_CLOSE )
+            {
+                throw new UnsupportedOperationException( "Shape Not Supported." );
+            }
+        }
+
+        addLoop( loop, loops );
+        return loops;
+    }
+
+    protected static void addLoop( FloatsArray loop, List<float[]> loops )
+    {
+        int n = loop.n;
+
+        // drop an explicit closing vertex
+        if ( n >= 4 && loop.a[0] == loop.a[n - 2] && loop.a[1] == loop.a[n - 1] ) n -= 2;
+
+        if ( n >= 6 ) loops.add( loop.copyOf( 0, n ) );
+    }
+
+    protected static Rectangle2D getBounds( Collection<float[]> loops )
+    {
+        Rectangle2D bounds = null;
+        for ( float[] loop : loops )
+        {
+            bounds = addBounds( bounds, loop, loop.length );
+        }
+
+        return bounds == null ? new Rectangle2D.Double( ) : bounds;
+    }
+
+    protected static Rectangle2D addBounds( Rectangle2D bounds, float[] vertices, int length )
+    {
+        for ( int i = 0; i < length; i += 2 )
+        {
+            if ( bounds == null )
+                bounds = new Rectangle2D.Double( vertices[i], vertices[i + 1], 0, 0 );
+            else
+                bounds.add( vertices[i], vertices[i + 1] );
+        }
+
+        return bounds;
+    }
+
+    public Rectangle2D getBounds( )
+    {
+        return bounds;
+    }
+
+    public int getLevelCount( )
+    {
+        return levels.length;
+    }
+
+    public Level getLevel( int index )
+    {
+        return levels[index];
+    }
+
+    /**
+     * @return the index of the coarsest level whose simplification error is no more than
+     *         maxErrorPixels at the given scale
+     */
+    public int getLevelIndex( double pixelsPerValue, double maxErrorPixels )
+    {
+        for ( int i = levels.length - 1; i > 0; i-- )
+        {
+            if ( levels[i].getTolerance( ) * pixelsPerValue <= maxErrorPixels ) return i;
+        }
+
+        return 0;
+    }
+
+    public int getLevelIndex( double pixelsPerValue )
+    {
+        return getLevelIndex( pixelsPerValue, DEFAULT_MAX_ERROR_PIXELS );
+    }
+
+    /**
+     * Simplifies a closed loop with the Douglas-Peucker algorithm. The loop is split at its first
+     * vertex and the vertex farthest from it, and each half is simplified independently.
+     *
+     * @return the simplified loop, or null if it collapses to fewer than three vertices
+     */
+    public static float[] simplify( float[] loop, double tolerance )
+    {
+        int n = loop.length / 2;
+        if ( tolerance <= 0 ) return n >= 3 ? loop : null;
+
+        // the loop may be smaller than the tolerance in its entirety
+        int far = 0;
+        double farDistance = -1;
+        for ( int i = 1; i < n; i++ )
+        {
+            double dx = loop[2 * i] - loop[0];
+            double dy = loop[2 * i + 1] - loop[1];
+            double distance = dx * dx + dy * dy;
+            if ( distance > farDistance )
+            {
+                far = i;
+                farDistance = distance;
+            }
+        }
+
+        if ( farDistance <= tolerance * tolerance ) return null;
+
+        boolean[] keep = new boolean[n + 1];
+        keep[0] = true;
+        keep[far] = true;
+        keep[n] = true;
+
+        // vertex index n refers to vertex 0, closing the loop
+        IntsArray stack = new IntsArray( );
+        stack.append( 0 );
+        stack.append( far );
+        stack.append( far );
+        stack.append( n );
+
+        double toleranceSquared = tolerance * tolerance;
+        while ( stack.n > 0 )
+        {
+            int to = stack.a[--stack.n];
+            int from = stack.a[--stack.n];
+
+            double x0 = loop[2 * from];
+            double y0 = loop[2 * from + 1];
+            double x1 = loop[2 * ( to % n )];
+            double y1 = loop[2 * ( to % n ) + 1];
+
+            double dx = x1 - x0;
+            double dy = y1 - y0;
+            double lengthSquared = dx * dx + dy * dy;
+
+            int worst = -1;
+            double worstDistance = toleranceSquared;
+            for ( int i = from + 1; i < to; i++ )
+            {
+                double px = loop[2 * i] - x0;
+                double py = loop[2 * i + 1] - y0;
+
+                double distance;
+                if ( lengthSquared == 0 )
+                {
+                    distance = px * px + py * py;
+                }
+                else
+                {
+                    double cross = px * dy - py * dx;
+                    distance = cross * cross / lengthSquared;
+                }
+
+                if ( distance > worstDistance )
+                {
+                    worst = i;
+                    worstDistance = distance;
+                }
+            }
+
+            if ( worst >= 0 )
+            {
+                keep[worst] = true;
+                stack.append( from );
+                stack.append( worst );
+                stack.append( worst );
+                stack.append( to );
+            }
+        }
+
+        FloatsArray simplified = new FloatsArray( );
+        for ( int i = 0; i < n; i++ )
+        {
+            if ( keep[i] )
+            {
+                simplified.append( loop[2 * i] );
+                simplified.append( loop[2 * i + 1] );
+            }
+        }
+
+        return simplified.n >= 6 ? simplified.copyOf( ) : null;
+    }
+
+    /**
+     * A single resolution of the shoreline: fill triangles and outline line strips stored
+     * contiguously per tile, and a quadtree over the tiles.
+     */
+    public static class Level
+    {
+        protected final double tolerance;
+
+        // interleaved x, y vertices of the triangles of all tiles
+        protected final FloatsArray fillVertices;
+        // interleaved x, y vertices of the line strips of all tiles
+        protected final FloatsArray lineVertices;
+
+        protected final List<Tile> tiles;
+        protected final Node root;
+
+        // source outline vertices, and the vertex following each one around its loop
+        private float[] outline;
+        private int[] nextVertex;
+        private float[] triangles;
+        private int maxTileVertices;
+
+        protected Level( Collection<float[]> loops, double tolerance, int maxTileVertices, PolygonTessellator tessellator )
+        {
+            this.tolerance = tolerance;
+            this.maxTileVertices = maxTileVertices;
+            this.fillVertices = new FloatsArray( );
+            this.lineVertices = new FloatsArray( );
+            this.tiles = new ArrayList<Tile>( );
+
+            FloatsArray outline = new FloatsArray( );
+            FloatsArray triangles = new FloatsArray( );
+            IntsArray nextVertex = new IntsArray( );
+
+            for ( float[] loop : loops )
+            {
+                float[] simplified = simplify( loop, tolerance );
+                if ( simplified == null ) continue;
+
+                int first = outline.n / 2;
+                int count = simplified.length / 2;
+                outline.append( simplified );
+                for ( int i = 1; i < count; i++ )
+                {
+                    nextVertex.append( first + i );
+                }
+                nextVertex.append( first );
+
+                triangles.append( tessellate( simplified, tessellator ) );
+            }
+
+            this.outline = outline.a;
+            this.nextVertex = nextVertex.a;
+            this.triangles = triangles.a;
+
+            IntsArray triangleIds = new IntsArray( triangles.n / 6 );
+            for ( int i = 0; i < triangles.n / 6; i++ )
+            {
+                triangleIds.append( i );
+            }
+
+            IntsArray segmentIds = new IntsArray( outline.n / 2 );
+            for ( int i = 0; i < outline.n / 2; i++ )
+            {
+                segmentIds.append( i );
+            }
+
+            Rectangle2D cell = addBounds( null, outline.a, outline.n );
+            if ( cell == null ) cell = new Rectangle2D.Double( );
+
+            this.root = buildNode( triangleIds, segmentIds, cell.getMinX( ), cell.getMinY( ), cell.getMaxX( ), cell.getMaxY( ), 0 );
+
+            // only the tiles are needed once the tree is built
+            this.outline = null;
+            this.nextVertex = null;
+            this.triangles = null;
+        }
+
+        protected static float[] tessellate( float[] loop, PolygonTessellator tessellator )
+        {
+            LoopBuilder builder = new LoopBuilder( );
+            builder.addVertices( loop, loop.length / 2 );
+
+            Polygon polygon = new Polygon( );
+            polygon.add( builder.complete( Interior.onRight ) );
+
+            try
+            {
+                SimpleVertexAccumulator accumulator = new SimpleVertexAccumulator( );
+                tessellator.tessellate( polygon, accumulator );
+                return accumulator.getVertices( );
+            }
+            catch ( TessellationException e )
+            {
+                logWarning( logger, "Problem tessellating polygon.", e );
+                return new float[0];
+            }
+        }
+
+        protected Node buildNode( IntsArray triangleIds, IntsArray segmentIds, double minX, double minY, double maxX, double maxY, int depth )
+        {
+            if ( triangleIds.n == 0 && segmentIds.n == 0 ) return null;
+
+            int vertexCount = triangleIds.n * 3 + segmentIds.n * 2;
+            if ( vertexCount <= maxTileVertices || depth >= MAX_TREE_DEPTH )
+            {
+                Tile tile = buildTile( triangleIds, segmentIds );
+                tiles.add( tile );
+                return new Node( tile );
+            }
+
+            double midX = ( minX + maxX ) / 2;
+            double midY = ( minY + maxY ) / 2;
+
+            IntsArray[] childTriangles = new IntsArray[4];
+            IntsArray[] childSegments = new IntsArray[4];
+            for ( int i = 0; i < 4; i++ )
+            {
+                childTriangles[i] = new IntsArray( );
+                childSegments[i] = new IntsArray( );
+            }
+
+            // triangles are assigned by centroid and segments by their first vertex
+            for ( int i = 0; i < triangleIds.n; i++ )
+            {
+                int t = triangleIds.a[i];
+                float x = ( triangles[6 * t] + triangles[6 * t + 2] + triangles[6 * t + 4] ) / 3;
+                float y = ( triangles[6 * t + 1] + triangles[6 * t + 3] + triangles[6 * t + 5] ) / 3;
+                childTriangles[quadrant( x, y, midX, midY )].append( t );
+            }
+
+            for ( int i = 0; i < segmentIds.n; i++ )
+            {
+                int s = segmentIds.a[i];
+                childSegments[quadrant( outline[2 * s], outline[2 * s + 1], midX, midY )].append( s );
+            }
+
+            Node[] children = new Node[4];
+            for ( int i = 0; i < 4; i++ )
+            {
+                double childMinX = ( i & 1 ) == 0 ? minX : midX;
+                double childMaxX = ( i & 1 ) == 0 ? midX : maxX;
+                double childMinY = ( i & 2 ) == 0 ? minY : midY;
+                double childMaxY = ( i & 2 ) == 0 ? midY : maxY;
+
+                children[i] = buildNode( childTriangles[i], childSegments[i], childMinX, childMinY, childMaxX, childMaxY, depth + 1 );
+            }
+
+            return new Node( children );
+        }
+
+        protected static int quadrant( float x, float y, double midX, double midY )
+        {
+            return ( x < midX ? 0 : 1 ) + ( y < midY ? 0 : 2 );
+        }
+
+        protected Tile buildTile( IntsArray triangleIds, IntsArray segmentIds )
+        {
+            Tile tile = new Tile( );
+
+            tile.fillFirst = fillVertices.n / 2;
+            for ( int i = 0; i < triangleIds.n; i++ )
+            {
+                int t = triangleIds.a[i];
+                for ( int v = 0; v < 3; v++ )
+                {
+                    tile.addVertex( fillVertices, triangles[6 * t + 2 * v], triangles[6 * t + 2 * v + 1] );
+                }
+            }
+            tile.fillCount = fillVertices.n / 2 - tile.fillFirst;
+
+            // segment ids are in increasing order, so consecutive segments of the same loop are joined
+            IntsArray firsts = new IntsArray( );
+            IntsArray counts = new IntsArray( );
+            for ( int i = 0; i < segmentIds.n; i++ )
+            {
+                int s = segmentIds.a[i];
+
+                if ( i == 0 || nextVertex[segmentIds.a[i - 1]] != s )
+                {
+                    firsts.append( lineVertices.n / 2 );
+                    counts.append( 1 );
+                    tile.addVertex( lineVertices, outline[2 * s], outline[2 * s + 1] );
+                }
+
+                int e = nextVertex[s];
+                tile.addVertex( lineVertices, outline[2 * e], outline[2 * e + 1] );
+                counts.a[counts.n - 1]++;
+            }
+
+            tile.stripFirsts = firsts.copyOf( );
+            tile.stripCounts = counts.copyOf( );
+            return tile;
+        }
+
+        public double getTolerance( )
+        {
+            return tolerance;
+        }
+
+        /**
+         * @return interleaved x, y triangle vertices, of which the first 2 * {@link #getFillVertexCount()} are valid
+         */
+        public float[] getFillVertices( )
+        {
+            return fillVertices.a;
+        }
+
+        public int getFillVertexCount( )
+        {
+            return fillVertices.n / 2;
+        }
+
+        /**
+         * @return interleaved x, y line strip vertices, of which the first 2 * {@link #getLineVertexCount()} are valid
+         */
+        public float[] getLineVertices( )
+        {
+            return lineVertices.a;
+        }
+
+        public int getLineVertexCount( )
+        {
+            return lineVertices.n / 2;
+        }
+
+        public List<Tile> getTiles( )
+        {
+            return tiles;
+        }
+
+        /**
+         * Appends the tiles whose contents may intersect the given rectangle.
+         */
+        public void getTiles( double minX, double minY, double maxX, double maxY, List<Tile> result )
+        {
+            if ( root != null ) root.getTiles( minX, minY, maxX, maxY, result );
+        }
+    }
+
+    /**
+     * The contents of one quadtree leaf: a contiguous run of triangle vertices and a set of
+     * line strips, referring to the vertex arrays of the owning {@link Level}.
+     */
+    public static class Tile
+    {
+        protected float minX = Float.POSITIVE_INFINITY;
+        protected float minY = Float.POSITIVE_INFINITY;
+        protected float maxX = Float.NEGATIVE_INFINITY;
+        protected float maxY = Float.NEGATIVE_INFINITY;
+
+        protected int fillFirst;
+        protected int fillCount;
+
+        protected int[] stripFirsts;
+        protected int[] stripCounts;
+
+        protected void addVertex( FloatsArray vertices, float x, float y )
+        {
+            vertices.append( x );
+            vertices.append( y );
+
+            minX = Math.min( minX, x );
+            minY = Math.min( minY, y );
+            maxX = Math.max( maxX, x );
+            maxY = Math.max( maxY, y );
+        }
+
+        public boolean intersects( double minX, double minY, double maxX, double maxY )
+        {
+            return this.minX <= maxX && minX <= this.maxX && this.minY <= maxY && minY <= this.maxY;
+        }
+
+        public int getFillFirst( )
+        {
+            return fillFirst;
+        }
+
+        public int getFillCount( )
+        {
+            return fillCount;
+        }
+
+        public int[] getStripFirsts( )
+        {
+            return stripFirsts;
+        }
+
+        public int[] getStripCounts( )
+        {
+            return stripCounts;
+        }
+    }
+
+    protected static class Node
+    {
+        protected float minX = Float.POSITIVE_INFINITY;
+        protected float minY = Float.POSITIVE_INFINITY;
+        protected float maxX = Float.NEGATIVE_INFINITY;
+        protected float maxY = Float.NEGATIVE_INFINITY;
+
+        protected final Node[] children;
+        protected final Tile tile;
+
+        protected Node( Tile tile )
+        {
+            this.tile = tile;
+            this.children = null;
+
+            this.minX = tile.minX;
+            this.minY = tile.minY;
+            this.maxX = tile.maxX;
+            this.maxY = tile.maxY;
+        }
+
+        protected Node( Node[] children )
+        {
+            this.tile = null;
+            this.children = children;
+
+            for ( Node child : children )
+            {
+                if ( child == null ) continue;
+
+                minX = Math.min( minX, child.minX );
+                minY = Math.min( minY, child.minY );
+                maxX = Math.max( maxX, child.maxX );
+                maxY = Math.max( maxY, child.maxY );
+            }
+        }
+
+        protected void getTiles( double minX, double minY, double maxX, double maxY, List<Tile> result )
+        {
+            if ( this.minX > maxX || minX > this.maxX || this.minY > maxY || minY > this.maxY ) return;
+
+            if ( tile != null )
+            {
+                result.add( tile );
+            }
+            else
+            {
+                for ( Node child : children )
+                {
+                    if ( child != null ) child.getTiles( minX, minY, maxX, maxY, result );
+                }
+            }
+        }
+    }
+}
@@ -116,6 +116,15 @@ public abstract class AnnotationHandler<V extends GeoObject> implements ContentH
         return null;
     }
 
+    /**
+     * Annotations are already split by zoom level, see EncChartPainter.
+     */
+    @Override
+    public double[] getViewRangeNM( )
+    {
+        return null;
+    }
+
     private double[] findCenterPoint( GeoProjection projection, V object )
     {
         GeoShape shape = object.getGeoShapes( ).iterator( ).next( );
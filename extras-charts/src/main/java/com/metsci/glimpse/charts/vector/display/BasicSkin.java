@@ -121,12 +121,16 @@ public class BasicSkin< V extends GeoObject > implements Skin< V >
                     if ( painterSpec instanceof PolygonPainterSpec )
                     {
                         PolygonPainterSpec polygonSpec = ( PolygonPainterSpec ) painterSpec;
-                        contentHandlerList.add( new PolygonHandler<V>( polygonSpec ) );
+                        PolygonHandler<V> polygonHandler = new PolygonHandler<V>( polygonSpec );
+                        polygonHandler.setDefaultViewRangeNM( enc.getMinViewNM( ), enc.getMaxViewNM( ) );
+                        contentHandlerList.add( polygonHandler );
                     }
                     else if ( painterSpec instanceof TrackPainterSpec )
                     {
                         TrackPainterSpec trackSpec = ( TrackPainterSpec ) painterSpec;
-                        contentHandlerList.add( new TrackHandler<V>( trackSpec ) );
+                        TrackHandler<V> trackHandler = new TrackHandler<V>( trackSpec );
+                        trackHandler.setDefaultViewRangeNM( enc.getMinViewNM( ), enc.getMaxViewNM( ) );
+                        contentHandlerList.add( trackHandler );
                     }
                     else if ( painterSpec instanceof AnnotationPainterSpec )
                     {
@@ -37,6 +37,14 @@ public interface ContentHandler<V extends GeoObject>
 {
     Integer getScaleMin( V object );
 
+    /**
+     * Range of view sizes, in nautical miles across the view, at which the content of
+     * this handler is drawn. The minimum is inclusive and the maximum exclusive.
+     *
+     * @return { minViewNM, maxViewNM }, or null if the content is drawn at every zoom level
+     */
+    double[] getViewRangeNM( );
+
     void paintEnc( GeoContext encContext, V object );
 
     void reset( );
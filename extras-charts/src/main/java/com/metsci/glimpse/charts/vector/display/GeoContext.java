@@ -71,6 +71,16 @@ public class GeoContext
         return annotationPainter;
     }
 
+    public void setPolyPainter( PolygonPainter polyPainter )
+    {
+        this.polyPainter = polyPainter;
+    }
+
+    public void setTrackPainter( TrackPainter trackPainter )
+    {
+        this.trackPainter = trackPainter;
+    }
+
     public void setAnnotationPainter( AnnotationPainter annotationPainter )
     {
         this.annotationPainter = annotationPainter;
@@ -65,6 +65,9 @@ public class PolygonHandler<V extends GeoObject> implements ContentHandler<V>
 
     private int polyId = 0;
 
+    private Double defaultMinViewNM;
+    private Double defaultMaxViewNM;
+
     public PolygonHandler( )
     {
         this( new PolygonPainterSpec( ) );
@@ -107,6 +110,22 @@ public class PolygonHandler<V extends GeoObject> implements ContentHandler<V>
         return null;
     }
 
+    /**
+     * Sets the view range used when the painter spec does not declare its own, typically
+     * the range declared by the enclosing FeatureSpec.
+     */
+    public void setDefaultViewRangeNM( Double minViewNM, Double maxViewNM )
+    {
+        this.defaultMinViewNM = minViewNM;
+        this.defaultMaxViewNM = maxViewNM;
+    }
+
+    @Override
+    public double[] getViewRangeNM( )
+    {
+        return EncPainterUtils.toViewRangeNM( polygonGroupAttributes.getMinViewNM( ) != null ? polygonGroupAttributes.getMinViewNM( ) : defaultMinViewNM, polygonGroupAttributes.getMaxViewNM( ) != null ? polygonGroupAttributes.getMaxViewNM( ) : defaultMaxViewNM );
+    }
+
     @Override
     public void reset( )
     {
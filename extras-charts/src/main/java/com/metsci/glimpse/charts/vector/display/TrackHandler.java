@@ -63,6 +63,9 @@ public class TrackHandler <V extends GeoObject> implements ContentHandler<V>
     private int trackIdOffset = 0;
     private int trackIdFactor = -1;// Integer.MAX_VALUE / ( encObjectTypes.length * shapeTypes.length );
 
+    private Double defaultMinViewNM;
+    private Double defaultMaxViewNM;
+
     public TrackHandler( )
     {
         this( new TrackPainterSpec( ) );
@@ -84,6 +87,22 @@ public class TrackHandler <V extends GeoObject> implements ContentHandler<V>
         return null;
     }
 
+    /**
+     * Sets the view range used when the painter spec does not declare its own, typically
+     * the range declared by the enclosing FeatureSpec.
+     */
+    public void setDefaultViewRangeNM( Double minViewNM, Double maxViewNM )
+    {
+        this.defaultMinViewNM = minViewNM;
+        this.defaultMaxViewNM = maxViewNM;
+    }
+
+    @Override
+    public double[] getViewRangeNM( )
+    {
+        return EncPainterUtils.toViewRangeNM( spec.getMinViewNM( ) != null ? spec.getMinViewNM( ) : defaultMinViewNM, spec.getMaxViewNM( ) != null ? spec.getMaxViewNM( ) : defaultMaxViewNM );
+    }
+
     @Override
     public void paintEnc( GeoContext geoContext, V object )
     {
@@ -53,6 +53,8 @@ import javax.xml.bind.annotation.XmlType;
  *     &lt;restriction base="{http://www.w3.org/2001/XMLSchema}anyType">
  *       &lt;sequence>
  *         &lt;element name="featuretype" type="{http://www.w3.org/2001/XMLSchema}string" maxOccurs="unbounded"/>
+ *         &lt;element name="minViewNM" type="{http://www.w3.org/2001/XMLSchema}double" minOccurs="0"/>
+ *         &lt;element name="maxViewNM" type="{http://www.w3.org/2001/XMLSchema}double" minOccurs="0"/>
  *         &lt;element name="shapespec" type="{http://geo.metsci.com}ShapeSpec" maxOccurs="unbounded"/>
  *       &lt;/sequence>
  *     &lt;/restriction>
@@ -65,12 +67,16 @@ import javax.xml.bind.annotation.XmlType;
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(name = "FeatureSpec", propOrder = {
     "featuretype",
+    "minViewNM",
+    "maxViewNM",
     "shapespec"
 })
 public class FeatureSpec {
 
     @XmlElement(required = true)
     protected List<String> featuretype;
+    protected Double minViewNM;
+    protected Double maxViewNM;
     @XmlElement(required = true)
     protected List<ShapeSpec> shapespec;
 
@@ -132,4 +138,52 @@ public class FeatureSpec {
         return this.shapespec;
     }
 
+    /**
+     * Gets the value of the minViewNM property.
+     *
+     * @return
+     *     possible object is
+     *     {@link Double }
+     *
+     */
+    public Double getMinViewNM() {
+        return minViewNM;
+    }
+
+    /**
+     * Sets the value of the minViewNM property.
+     *
+     * @param value
+     *     allowed object is
+     *     {@link Double }
+     *
+     */
+    public void setMinViewNM(Double value) {
+        this.minViewNM = value;
+    }
+
+    /**
+     * Gets the value of the maxViewNM property.
+     *
+     * @return
+     *     possible object is
+     *     {@link Double }
+     *
+     */
+    public Double getMaxViewNM() {
+        return maxViewNM;
+    }
+
+    /**
+     * Sets the value of the maxViewNM property.
+     *
+     * @param value
+     *     allowed object is
+     *     {@link Double }
+     *
+     */
+    public void setMaxViewNM(Double value) {
+        this.maxViewNM = value;
+    }
+
 }
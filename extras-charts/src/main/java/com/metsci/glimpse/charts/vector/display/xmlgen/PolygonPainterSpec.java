@@ -59,6 +59,8 @@ import javax.xml.bind.annotation.XmlType;
  *         &lt;element name="polyDotted" type="{http://www.w3.org/2001/XMLSchema}boolean" minOccurs="0"/>
  *         &lt;element name="fill" type="{http://www.w3.org/2001/XMLSchema}boolean" minOccurs="0"/>
  *         &lt;element name="fillColor" type="{http://geo.metsci.com}ColorSpec" minOccurs="0"/>
+ *         &lt;element name="minViewNM" type="{http://www.w3.org/2001/XMLSchema}double" minOccurs="0"/>
+ *         &lt;element name="maxViewNM" type="{http://www.w3.org/2001/XMLSchema}double" minOccurs="0"/>
  *       &lt;/all>
  *     &lt;/restriction>
  *   &lt;/complexContent>
@@ -83,6 +85,8 @@ public class PolygonPainterSpec {
     protected Boolean polyDotted;
     protected Boolean fill;
     protected ColorSpec fillColor;
+    protected Double minViewNM;
+    protected Double maxViewNM;
 
     /**
      * Gets the value of the showLines property.
@@ -322,4 +326,52 @@ public class PolygonPainterSpec {
         this.fillColor = value;
     }
 
+    /**
+     * Gets the value of the minViewNM property.
+     *
+     * @return
+     *     possible object is
+     *     {@link Double }
+     *
+     */
+    public Double getMinViewNM() {
+        return minViewNM;
+    }
+
+    /**
+     * Sets the value of the minViewNM property.
+     *
+     * @param value
+     *     allowed object is
+     *     {@link Double }
+     *
+     */
+    public void setMinViewNM(Double value) {
+        this.minViewNM = value;
+    }
+
+    /**
+     * Gets the value of the maxViewNM property.
+     *
+     * @return
+     *     possible object is
+     *     {@link Double }
+     *
+     */
+    public Double getMaxViewNM() {
+        return maxViewNM;
+    }
+
+    /**
+     * Sets the value of the maxViewNM property.
+     *
+     * @param value
+     *     allowed object is
+     *     {@link Double }
+     *
+     */
+    public void setMaxViewNM(Double value) {
+        this.maxViewNM = value;
+    }
+
 }
@@ -66,6 +66,8 @@ import javax.xml.bind.annotation.XmlType;
  *         &lt;element name="showLabelLine" type="{http://www.w3.org/2001/XMLSchema}boolean" minOccurs="0"/>
  *         &lt;element name="label" type="{http://www.w3.org/2001/XMLSchema}string" minOccurs="0"/>
  *         &lt;element name="showLabel" type="{http://www.w3.org/2001/XMLSchema}boolean" minOccurs="0"/>
+ *         &lt;element name="minViewNM" type="{http://www.w3.org/2001/XMLSchema}double" minOccurs="0"/>
+ *         &lt;element name="maxViewNM" type="{http://www.w3.org/2001/XMLSchema}double" minOccurs="0"/>
  *       &lt;/all>
  *     &lt;/restriction>
  *   &lt;/complexContent>
@@ -97,6 +99,8 @@ public class TrackPainterSpec {
     protected Boolean showLabelLine;
     protected String label;
     protected Boolean showLabel;
+    protected Double minViewNM;
+    protected Double maxViewNM;
 
     /**
      * Gets the value of the headPointColor property.
@@ -506,4 +510,52 @@ public class TrackPainterSpec {
         this.showLabel = value;
     }
 
+    /**
+     * Gets the value of the minViewNM property.
+     *
+     * @return
+     *     possible object is
+     *     {@link Double }
+     *
+     */
+    public Double getMinViewNM() {
+        return minViewNM;
+    }
+
+    /**
+     * Sets the value of the minViewNM property.
+     *
+     * @param value
+     *     allowed object is
+     *     {@link Double }
+     *
+     */
+    public void setMinViewNM(Double value) {
+        this.minViewNM = value;
+    }
+
+    /**
+     * Gets the value of the maxViewNM property.
+     *
+     * @return
+     *     possible object is
+     *     {@link Double }
+     *
+     */
+    public Double getMaxViewNM() {
+        return maxViewNM;
+    }
+
+    /**
+     * Sets the value of the maxViewNM property.
+     *
+     * @param value
+     *     allowed object is
+     *     {@link Double }
+     *
+     */
+    public void setMaxViewNM(Double value) {
+        this.maxViewNM = value;
+    }
+
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.vector.iteration;
+
+import com.metsci.glimpse.charts.vector.parser.objects.GeoObject;
+import com.metsci.glimpse.charts.vector.parser.objects.GeoShape;
+
+import java.util.Collection;
+
+
+/**
+ * A filter for filtering geoobjects by location. An object passes if the lon/lat
+ * bounding box of its shapes intersects the filter box. Objects without any
+ * vertices never pass.
+ *
+ * The filter box does not wrap across the antimeridian; to cover a view spanning
+ * it, combine two filters with a {@link GeoCompoundFilter}.
+ */
+public class GeoFilterByBoundingBox<V extends GeoObject> implements GeoFilter<V> {
+
+    private final double minLon;
+    private final double minLat;
+    private final double maxLon;
+    private final double maxLat;
+
+    public GeoFilterByBoundingBox(double minLon, double minLat, double maxLon, double maxLat) {
+        this.minLon = minLon;
+        this.minLat = minLat;
+        this.maxLon = maxLon;
+        this.maxLat = maxLat;
+    }
+
+    public double getMinLon() {
+        return minLon;
+    }
+
+    public double getMinLat() {
+        return minLat;
+    }
+
+    public double getMaxLon() {
+        return maxLon;
+    }
+
+    public double getMaxLat() {
+        return maxLat;
+    }
+
+    @Override
+    public boolean passGeoFilter(V geoObj) {
+        double[] bounds = getBounds(geoObj, null);
+        return bounds != null && intersects(bounds[0], bounds[1], bounds[2], bounds[3]);
+    }
+
+    public boolean intersects(double objMinLon, double objMinLat, double objMaxLon, double objMaxLat) {
+        return objMinLon <= maxLon && minLon <= objMaxLon && objMinLat <= maxLat && minLat <= objMaxLat;
+    }
+
+    /**
+     * Computes the lon/lat bounding box of all the shapes of a geoobject.
+     *
+     * @param geoObj
+     * @param buffer array of length 4 to fill, or null to allocate one
+     * @return { minLon, minLat, maxLon, maxLat }, or null if the object has no vertices
+     */
+    public static double[] getBounds(GeoObject geoObj, double[] buffer) {
+        double minLon = Double.POSITIVE_INFINITY;
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLon = Double.NEGATIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+
+        Collection<? extends GeoShape> shapes = geoObj.getGeoShapes();
+        if (shapes != null) {
+            for (GeoShape shape : shapes) {
+                double[] values = shape.getRawVertexArray();
+                int pointSize = shape.getPointSize();
+                if (values == null || pointSize < 2)
+                    continue;
+
+                for (int i = 0; i + 1 < values.length; i += pointSize) {
+                    double lon = values[i];
+                    double lat = values[i + 1];
+                    if (lon < minLon) minLon = lon;
+                    if (lon > maxLon) maxLon = lon;
+                    if (lat < minLat) minLat = lat;
+                    if (lat > maxLat) maxLat = lat;
+                }
+            }
+        }
+
+        if (!(minLon <= maxLon && minLat <= maxLat))
+            return null;
+
+        if (buffer == null)
+            buffer = new double[4];
+        buffer[0] = minLon;
+        buffer[1] = minLat;
+        buffer[2] = maxLon;
+        buffer[3] = maxLat;
+        return buffer;
+    }
+}
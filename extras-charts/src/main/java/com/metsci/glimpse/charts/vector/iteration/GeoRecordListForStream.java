@@ -36,6 +36,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Logger;
 
+import com.metsci.glimpse.charts.vector.parser.MetsciIndexedGeoReader;
 import com.metsci.glimpse.charts.vector.parser.objects.GeoObject;
 import com.metsci.glimpse.util.io.StreamOpener;
 
@@ -55,7 +56,7 @@ public class GeoRecordListForStream<V extends GeoObject> implements GeoFilterabl
 
 
     public GeoRecordListForStream(StreamToGeoObjectConverter<V> streamConverter, String resourceName) throws IOException {
-        DataInputStream geoStream = new DataInputStream(new BufferedInputStream(StreamOpener.fileThenResource.openForRead(resourceName)));
+        DataInputStream geoStream = MetsciIndexedGeoReader.openPayload(new BufferedInputStream(StreamOpener.fileThenResource.openForRead(resourceName)));
 
         recordList = new ArrayList<V>();
         readInFile(streamConverter, geoStream, recordList);
@@ -64,7 +65,7 @@ public class GeoRecordListForStream<V extends GeoObject> implements GeoFilterabl
     }
 
     public GeoRecordListForStream(StreamToGeoObjectConverter<V> streamConverter, InputStream stream) throws IOException {
-        DataInputStream encStream = new DataInputStream(stream);
+        DataInputStream encStream = MetsciIndexedGeoReader.openPayload(stream);
 
         recordList = new ArrayList<V>();
         readInFile(streamConverter, encStream, recordList);
@@ -93,7 +94,7 @@ public class GeoRecordListForStream<V extends GeoObject> implements GeoFilterabl
      * @throws IOException
      */
     public void add(StreamToGeoObjectConverter<V> streamConverter, InputStream stream) throws IOException {
-        DataInputStream geoStream = new DataInputStream(stream);
+        DataInputStream geoStream = MetsciIndexedGeoReader.openPayload(stream);
         readInFile(streamConverter, geoStream, recordList);
     }
 
@@ -105,7 +106,7 @@ public class GeoRecordListForStream<V extends GeoObject> implements GeoFilterabl
      * @throws IOException
      */
     public void add(StreamToGeoObjectConverter<V> streamConverter, String resourceName) throws IOException {
-        DataInputStream geoStream = new DataInputStream(new BufferedInputStream(StreamOpener.fileThenResource.openForRead(resourceName)));
+        DataInputStream geoStream = MetsciIndexedGeoReader.openPayload(new BufferedInputStream(StreamOpener.fileThenResource.openForRead(resourceName)));
 
         readInFile(streamConverter, geoStream, recordList);
         filteredRecordList = recordList;
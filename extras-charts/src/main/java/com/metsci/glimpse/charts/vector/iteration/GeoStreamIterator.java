@@ -37,6 +37,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Logger;
 
+import com.metsci.glimpse.charts.vector.parser.MetsciIndexedGeoReader;
 import com.metsci.glimpse.charts.vector.parser.objects.GeoObject;
 import com.metsci.glimpse.util.io.StreamOpener;
 
@@ -141,7 +142,7 @@ public class GeoStreamIterator<V extends GeoObject> implements GeoObjectIterator
         recordIndex = -1;
         if (fileIndex >= sourceStreamList.size())
             return false;
-        dis = new DataInputStream(sourceStreamList.get(fileIndex));
+        dis = MetsciIndexedGeoReader.openPayload(sourceStreamList.get(fileIndex));
         return true;
     }
 
@@ -26,20 +26,26 @@
  */
 package com.metsci.glimpse.charts.vector.painter;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.charts.vector.display.ContentHandler;
 import com.metsci.glimpse.charts.vector.display.GeoContext;
 import com.metsci.glimpse.charts.vector.display.Skin;
 import com.metsci.glimpse.charts.vector.parser.GeoReader;
+import com.metsci.glimpse.charts.vector.parser.MetsciIndexedGeoReader;
 import com.metsci.glimpse.charts.vector.parser.objects.GeoObject;
 import com.metsci.glimpse.context.GlimpseBounds;
 import com.metsci.glimpse.context.GlimpseContext;
@@ -75,13 +81,22 @@ public class EncChartPainter<V extends GeoObject> extends GlimpsePainter2D
     private GeoProjection projection;
 
     /**
-     * Painter to draw polygons
+     * Painter to draw polygons which are drawn at every zoom level
      */
     private PolygonPainter polygonPainter;
     /**
-     * Painter to draw points and lines
+     * Painter to draw points and lines which are drawn at every zoom level
      */
     private TrackPainter trackPainter;
+    /**
+     * Polygon and track painters for content which skins restrict to a range of zoom
+     * levels, one pair per distinct range.  Only the pairs whose range contains the
+     * current view level are drawn.
+     */
+    private List<ScaleBand> scaleBands = new CopyOnWriteArrayList<ScaleBand>( );
+    private DelegatePainter polygonLayer;
+    private DelegatePainter trackLayer;
+    private LookAndFeel laf;
     /**
      * Painters to draw text, based on zoom level
      */
@@ -104,6 +119,11 @@ public class EncChartPainter<V extends GeoObject> extends GlimpsePainter2D
 
     private DelegatePainter delegate;
 
+    /**
+     * Indices of the objects already added from each indexed reader, so panning
+     * only loads objects which have not been seen before.
+     */
+    private Map<MetsciIndexedGeoReader<V>, BitSet> loadedIndices = new IdentityHashMap<MetsciIndexedGeoReader<V>, BitSet>( );
 
     public EncChartPainter( GeoProjection projection, Skin<V> skin )
     {
@@ -129,10 +149,14 @@ public class EncChartPainter<V extends GeoObject> extends GlimpsePainter2D
 
 
         this.polygonPainter = new PolygonPainter( );
-        addPainter( polygonPainter );
+        this.polygonLayer = new DelegatePainter( );
+        polygonLayer.addPainter( polygonPainter );
+        addPainter( polygonLayer );
 
         this.trackPainter = new TrackPainter( );
-        addPainter( trackPainter );
+        this.trackLayer = new DelegatePainter( );
+        trackLayer.addPainter( trackPainter );
+        addPainter( trackLayer );
 
         this.annotationPainters = new AnnotationPaintersByZoomLevel( delegate, annotationZoomRangesInNM );
 
@@ -156,6 +180,7 @@ public class EncChartPainter<V extends GeoObject> extends GlimpsePainter2D
     {
         super.setLookAndFeel( laf );
         delegate.setLookAndFeel( laf );
+        this.laf = laf;
     }
 
     @Override
@@ -172,6 +197,11 @@ public class EncChartPainter<V extends GeoObject> extends GlimpsePainter2D
         double viewLevel = determineViewLevel( axis );
         annotationPainters.setPainterVisibilityAtViewLevel( viewLevel );
 
+        for ( ScaleBand band : scaleBands )
+        {
+            band.setVisible( !zoomAdjustDisplay || band.contains( viewLevel ) );
+        }
+
         delegate.paintTo( context );
 //        super.paintTo( context );
     }
@@ -182,6 +212,17 @@ public class EncChartPainter<V extends GeoObject> extends GlimpsePainter2D
         trackPainter.deleteAll( );
         annotationPainters.clearPainterData( );
 
+        for ( ScaleBand band : scaleBands )
+        {
+            band.polygonPainter.deleteAll( );
+            band.trackPainter.deleteAll( );
+        }
+
+        synchronized ( loadedIndices )
+        {
+            loadedIndices.clear( );
+        }
+
         for ( Skin<V> skin : skins )
         {
             skin.reset( );
@@ -204,6 +245,58 @@ public class EncChartPainter<V extends GeoObject> extends GlimpsePainter2D
         }
     }
 
+    /**
+     * Adds the objects from an indexed reader which intersect the given box and have
+     * not already been added. Intended to be called as the view changes (from an axis
+     * listener, for example) so that only the visible part of a chart is loaded.
+     */
+    public void addENCObjects( MetsciIndexedGeoReader<V> reader, double minLat, double maxLat, double minLon, double maxLon ) throws IOException
+    {
+        List<V> encObjects;
+        synchronized ( loadedIndices )
+        {
+            BitSet loaded = loadedIndices.get( reader );
+            if ( loaded == null )
+            {
+                loaded = new BitSet( reader.getObjectCount( ) );
+                loadedIndices.put( reader, loaded );
+            }
+
+            encObjects = reader.getNewObjects( minLon, minLat, maxLon, maxLat, loaded );
+        }
+
+        for ( V encObject : encObjects )
+        {
+            addENCObject( encObject );
+        }
+    }
+
+    /**
+     * Adds the objects from an indexed reader which intersect the area currently
+     * visible on the given axis and have not already been added.
+     */
+    public void addENCObjects( MetsciIndexedGeoReader<V> reader, Axis2D axis ) throws IOException
+    {
+        double minX = axis.getAxisX( ).getMin( );
+        double maxX = axis.getAxisX( ).getMax( );
+        double minY = axis.getAxisY( ).getMin( );
+        double maxY = axis.getAxisY( ).getMax( );
+
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY;
+        double maxLon = Double.NEGATIVE_INFINITY;
+        for ( LatLonGeo corner : new LatLonGeo[] { projection.unproject( minX, minY ), projection.unproject( minX, maxY ), projection.unproject( maxX, minY ), projection.unproject( maxX, maxY ) } )
+        {
+            minLat = Math.min( minLat, corner.getLatDeg( ) );
+            maxLat = Math.max( maxLat, corner.getLatDeg( ) );
+            minLon = Math.min( minLon, corner.getLonDeg( ) );
+            maxLon = Math.max( maxLon, corner.getLonDeg( ) );
+        }
+
+        addENCObjects( reader, minLat, maxLat, minLon, maxLon );
+    }
+
     public void addENCObjects( Iterator<V> encIterator ) throws Exception
     {
         while ( encIterator.hasNext( ) )
@@ -230,6 +323,19 @@ public class EncChartPainter<V extends GeoObject> extends GlimpsePainter2D
             AnnotationPainter annotationPainter = annotationPainters.getPainterAtViewLevel( scaledMinDouble );
             if ( annotationPainter != null )
             {
+                double[] viewRange = contentHandler.getViewRangeNM( );
+                if ( viewRange == null )
+                {
+                    encContext.setPolyPainter( polygonPainter );
+                    encContext.setTrackPainter( trackPainter );
+                }
+                else
+                {
+                    ScaleBand band = getScaleBand( viewRange[0], viewRange[1] );
+                    encContext.setPolyPainter( band.polygonPainter );
+                    encContext.setTrackPainter( band.trackPainter );
+                }
+
                 encContext.setAnnotationPainter( annotationPainter );
                 contentHandler.paintEnc( encContext, encObject );
             }
@@ -247,6 +353,26 @@ public class EncChartPainter<V extends GeoObject> extends GlimpsePainter2D
         annotationPainters.dispose( context );
     }
 
+    private synchronized ScaleBand getScaleBand( double minViewNM, double maxViewNM )
+    {
+        for ( ScaleBand band : scaleBands )
+        {
+            if ( band.minViewNM == minViewNM && band.maxViewNM == maxViewNM ) return band;
+        }
+
+        ScaleBand band = new ScaleBand( minViewNM, maxViewNM );
+        if ( laf != null )
+        {
+            band.polygonPainter.setLookAndFeel( laf );
+            band.trackPainter.setLookAndFeel( laf );
+        }
+
+        polygonLayer.addPainter( band.polygonPainter );
+        trackLayer.addPainter( band.trackPainter );
+        scaleBands.add( band );
+        return band;
+    }
+
     public void setZoomAdjustedDisplay( boolean enable )
     {
         this.zoomAdjustDisplay = enable;
@@ -267,6 +393,33 @@ public class EncChartPainter<V extends GeoObject> extends GlimpsePainter2D
         }
     }
 
+    private static class ScaleBand
+    {
+        private final double minViewNM;
+        private final double maxViewNM;
+        private final PolygonPainter polygonPainter;
+        private final TrackPainter trackPainter;
+
+        public ScaleBand( double minViewNM, double maxViewNM )
+        {
+            this.minViewNM = minViewNM;
+            this.maxViewNM = maxViewNM;
+            this.polygonPainter = new PolygonPainter( );
+            this.trackPainter = new TrackPainter( );
+        }
+
+        public boolean contains( double viewLevelInNM )
+        {
+            return minViewNM <= viewLevelInNM && viewLevelInNM < maxViewNM;
+        }
+
+        public void setVisible( boolean visible )
+        {
+            polygonPainter.setVisible( visible );
+            trackPainter.setVisible( visible );
+        }
+    }
+
     private static class AnnotationPaintersByZoomLevel extends PaintersByZoomLevel<AnnotationPainter>
     {
         public AnnotationPaintersByZoomLevel( DelegatePainter parent, double[] viewLevelsInNM )
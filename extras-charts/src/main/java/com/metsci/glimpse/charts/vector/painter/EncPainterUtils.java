@@ -371,6 +371,19 @@ public class EncPainterUtils
         return color;
     }
 
+    /**
+     * Converts an optional min/max view size from a skin spec into a { min, max } range,
+     * or null if neither bound is set.
+     */
+    public static double[] toViewRangeNM( Double minViewNM, Double maxViewNM )
+    {
+        if ( minViewNM == null && maxViewNM == null ) return null;
+
+        double min = minViewNM == null ? 0 : minViewNM.doubleValue( );
+        double max = maxViewNM == null ? Double.POSITIVE_INFINITY : maxViewNM.doubleValue( );
+        return new double[] { min, max };
+    }
+
     public static FeatureSpec createEnc( String objectType, ShapeSpec polyShape, ShapeSpec... shapes )
     {
         FeatureSpec enc = new FeatureSpec( );
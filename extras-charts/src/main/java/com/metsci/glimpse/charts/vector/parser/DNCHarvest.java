@@ -26,24 +26,17 @@
  */
 package com.metsci.glimpse.charts.vector.parser;
 
-import com.metsci.glimpse.charts.vector.iteration.DNCComparatorByFeatureName;
 import com.metsci.glimpse.charts.vector.parser.DNCHarvest.LibraryType;
 import com.metsci.glimpse.charts.vector.parser.ResourceLister.DefaultResourceFilter;
 import com.metsci.glimpse.charts.vector.parser.ResourceLister.ResourceFilter;
-import com.metsci.glimpse.charts.vector.parser.objects.DNCObject;
-import com.metsci.glimpse.charts.vector.parser.objects.GenericObject;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.io.BufferedOutputStream;
-import java.io.DataOutputStream;
-import java.io.FileOutputStream;
-import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
@@ -204,16 +197,8 @@ public class DNCHarvest {
             ogrInfo.addDNCGeoSource(dncRootSubDirPath);
         }
 
-        //ogrInfo.closeOutputWriter();
-        List<GenericObject> obList = ogrInfo.parse();
-        List<DNCObject> dncObjects = new ArrayList<DNCObject>(obList.size());
-        dncConverter.parseDNC(null, obList, dncObjects);
-
-
         File metsciOutFile = new File(dataLevelOutputDir, outputFileRootName + ".dnc");
-        DataOutputStream metsciOutStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(metsciOutFile)));
-        writeDNCObjectsToFile(metsciOutStream, dncObjects);
-        metsciOutStream.close();
+        dncConverter.parseDNC(ogrInfo.openConsoleReader(), metsciOutFile);
     }
 
     public void createDNCFileFromOGRInfoConsoleFile(File gdalConsoleFile) throws IOException {
@@ -233,14 +218,7 @@ public class DNCHarvest {
     }
 
     public void createDNCFileFromOGRInfoConsoleFile(File gdalConsoleFile, File metsciOutFile) throws IOException {
-        List<GenericObject> genericObjects = OGRReader.read(gdalConsoleFile);
-        List<DNCObject> dncObjects = new ArrayList<DNCObject>(genericObjects.size());
-        dncConverter.parseDNC(null, genericObjects, dncObjects);
-
-        //File metsciOutFile = new File(dataLevelOutputDir, outputFileRootName + ".dnc");
-        DataOutputStream metsciOutStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(metsciOutFile)));
-        writeDNCObjectsToFile(metsciOutStream, dncObjects);
-        metsciOutStream.close();
+        dncConverter.parseDNC(new BufferedReader(new FileReader(gdalConsoleFile)), metsciOutFile);
     }
 
 
@@ -272,13 +250,6 @@ public class DNCHarvest {
         }
     }
 
-    private void writeDNCObjectsToFile(DataOutputStream stream, List<DNCObject> dncObjects) throws IOException {
-        Collections.sort(dncObjects, new DNCComparatorByFeatureName() );
-        for (DNCObject DNC : dncObjects) {
-            DNCObject.write(stream, DNC);
-        }
-    }
-
     /**
      * Given a output dir, will create it if it doesn't exist.  Will clear it if it is not
      * empty and clearLocation parameter is true.
@@ -45,7 +45,7 @@ public class MetsciDNCReader implements GeoReader<DNCObject> {
     private List<DNCObject> recordList;
 
     public MetsciDNCReader(String resourceName) throws IOException {
-        DataInputStream encStream = new DataInputStream(StreamOpener.fileThenResource.openForRead(resourceName));
+        DataInputStream encStream = MetsciIndexedGeoReader.openPayload(StreamOpener.fileThenResource.openForRead(resourceName));
 
         recordList = new ArrayList<DNCObject>();
         readInFile(encStream, recordList);
@@ -53,7 +53,7 @@ public class MetsciDNCReader implements GeoReader<DNCObject> {
     }
 
     public MetsciDNCReader(InputStream stream) throws IOException {
-        DataInputStream encStream = new DataInputStream(stream);
+        DataInputStream encStream = MetsciIndexedGeoReader.openPayload(stream);
 
         recordList = new ArrayList<DNCObject>();
         readInFile(encStream, recordList);
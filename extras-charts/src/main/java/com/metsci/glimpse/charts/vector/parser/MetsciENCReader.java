@@ -45,7 +45,7 @@ public class MetsciENCReader implements GeoReader<ENCObject> {
     private List<ENCObject> recordList;
 
     public MetsciENCReader(String resourceName) throws IOException {
-        DataInputStream encStream = new DataInputStream(StreamOpener.fileThenResource.openForRead(resourceName));
+        DataInputStream encStream = MetsciIndexedGeoReader.openPayload(StreamOpener.fileThenResource.openForRead(resourceName));
 
         recordList = new ArrayList<ENCObject>();
         readInFile(encStream, recordList);
@@ -53,7 +53,7 @@ public class MetsciENCReader implements GeoReader<ENCObject> {
     }
 
     public MetsciENCReader(InputStream stream) throws IOException {
-        DataInputStream encStream = new DataInputStream(stream);
+        DataInputStream encStream = MetsciIndexedGeoReader.openPayload(stream);
 
         recordList = new ArrayList<ENCObject>();
         readInFile(encStream, recordList);
@@ -62,7 +62,7 @@ public class MetsciGeoReader<V extends GeoObject> implements GeoReader<V> {
     }
 
     public MetsciGeoReader(StreamToGeoObjectConverter<V> loader, String resourceName) throws IOException {
-        DataInputStream encStream = new DataInputStream(StreamOpener.fileThenResource.openForRead(resourceName));
+        DataInputStream encStream = MetsciIndexedGeoReader.openPayload(StreamOpener.fileThenResource.openForRead(resourceName));
 
         recordList = new ArrayList<V>();
         readInFile(loader, encStream, recordList);
@@ -70,7 +70,7 @@ public class MetsciGeoReader<V extends GeoObject> implements GeoReader<V> {
     }
 
     public MetsciGeoReader(StreamToGeoObjectConverter<V> loader, InputStream stream) throws IOException {
-        DataInputStream encStream = new DataInputStream(stream);
+        DataInputStream encStream = MetsciIndexedGeoReader.openPayload(stream);
 
         recordList = new ArrayList<V>();
         readInFile(loader, encStream, recordList);
@@ -0,0 +1,537 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.vector.parser;
+
+import com.metsci.glimpse.charts.vector.iteration.DNCObjectLoader;
+import com.metsci.glimpse.charts.vector.iteration.ENCObjectLoader;
+import com.metsci.glimpse.charts.vector.iteration.GeoFilterByBoundingBox;
+import com.metsci.glimpse.charts.vector.iteration.GeoFilterableRecordList;
+import com.metsci.glimpse.charts.vector.iteration.GeoRecordListForStream;
+import com.metsci.glimpse.charts.vector.iteration.StreamToGeoObjectConverter;
+import com.metsci.glimpse.charts.vector.parser.objects.DNCObject;
+import com.metsci.glimpse.charts.vector.parser.objects.ENCObject;
+import com.metsci.glimpse.charts.vector.parser.objects.GeoObject;
+import com.metsci.glimpse.util.io.StreamOpener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Reads a Metsci ENC/DNC binary stream which has been prefixed with a per-object
+ * bounding box and offset index (see {@link #writeIndexed(StreamToGeoObjectConverter, InputStream, File)}).
+ *
+ * The file is memory mapped and only the index is read up front. Objects are parsed
+ * on demand, so a view-driven loader can seek straight to the objects intersecting
+ * the visible area and load more of them as the view pans. A uniform grid over the
+ * index is used to find candidate objects without scanning every bounding box.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header  : int magic, int version, int count, int reserved,
+ *             double minLon, double minLat, double maxLon, double maxLat
+ *   index   : count x { long offset, int length, float minLon, float minLat, float maxLon, float maxLat }
+ *   payload : the original object stream, unchanged
+ * </pre>
+ * Offsets are relative to the start of the payload. Objects without vertices have
+ * NaN bounds and are only returned by the non-spatial accessors. Because the payload
+ * is unchanged, {@link MetsciGeoReader} and {@link GeoRecordListForStream} can still
+ * read indexed files sequentially.
+ */
+public class MetsciIndexedGeoReader<V extends GeoObject> implements GeoReader<V> {
+
+    public static final int MAGIC = 0x47454F49; // "GEOI"
+    public static final int VERSION = 1;
+
+    protected static final int HEADER_BYTES = 48;
+    protected static final int ENTRY_BYTES = 28;
+
+    protected static final int MAX_GRID_SIZE = 128;
+
+    private final StreamToGeoObjectConverter<V> loader;
+    private final ByteBuffer payload;
+
+    private final int count;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final float[] bounds;
+
+    private final double minLon;
+    private final double minLat;
+    private final double maxLon;
+    private final double maxLat;
+
+    private int gridCols;
+    private int gridRows;
+    private double cellWidth;
+    private double cellHeight;
+    private int[] cellStart;
+    private int[] cellItems;
+
+    private List<V> recordList;
+
+    public static MetsciIndexedGeoReader<ENCObject> createENCReader(File file) throws IOException {
+        return new MetsciIndexedGeoReader<ENCObject>(new ENCObjectLoader(), file);
+    }
+
+    public static MetsciIndexedGeoReader<DNCObject> createDNCReader(File file) throws IOException {
+        return new MetsciIndexedGeoReader<DNCObject>(new DNCObjectLoader(), file);
+    }
+
+    public MetsciIndexedGeoReader(StreamToGeoObjectConverter<V> loader, File file) throws IOException {
+        this.loader = loader;
+
+        ByteBuffer buffer;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not an indexed geo file: " + file);
+
+        int version = buffer.getInt(4);
+        if (version != VERSION)
+            throw new IOException("Unsupported version " + version + "; expecting value " + VERSION);
+
+        count = buffer.getInt(8);
+        minLon = buffer.getDouble(16);
+        minLat = buffer.getDouble(24);
+        maxLon = buffer.getDouble(32);
+        maxLat = buffer.getDouble(40);
+
+        long payloadStart = HEADER_BYTES + (long) count * ENTRY_BYTES;
+        if (count < 0 || payloadStart > buffer.capacity())
+            throw new IOException("Truncated index in " + file);
+
+        offsets = new int[count];
+        lengths = new int[count];
+        bounds = new float[4 * count];
+
+        long payloadSize = buffer.capacity() - payloadStart;
+        buffer.position(HEADER_BYTES);
+        for (int i = 0; i < count; i++) {
+            long offset = buffer.getLong();
+            int length = buffer.getInt();
+            if (offset < 0 || length < 0 || offset + length > payloadSize)
+                throw new IOException("Index entry " + i + " lies outside the payload of " + file);
+
+            offsets[i] = (int) offset;
+            lengths[i] = length;
+            bounds[4 * i] = buffer.getFloat();
+            bounds[4 * i + 1] = buffer.getFloat();
+            bounds[4 * i + 2] = buffer.getFloat();
+            bounds[4 * i + 3] = buffer.getFloat();
+        }
+
+        buffer.position((int) payloadStart);
+        payload = buffer.slice();
+
+        buildGrid();
+    }
+
+    public int getObjectCount() {
+        return count;
+    }
+
+    public double getMinLon() {
+        return minLon;
+    }
+
+    public double getMinLat() {
+        return minLat;
+    }
+
+    public double getMaxLon() {
+        return maxLon;
+    }
+
+    public double getMaxLat() {
+        return maxLat;
+    }
+
+    /**
+     * @return { minLon, minLat, maxLon, maxLat } of object i, widened to float precision,
+     *         or NaNs if the object has no vertices
+     */
+    public double[] getBounds(int i, double[] buffer) {
+        if (buffer == null)
+            buffer = new double[4];
+        for (int k = 0; k < 4; k++)
+            buffer[k] = bounds[4 * i + k];
+        return buffer;
+    }
+
+    /**
+     * Parses object i straight from the mapped file. Safe to call from multiple threads.
+     */
+    public V getObject(int i) throws IOException {
+        ByteBuffer record = payload.duplicate();
+        record.limit(offsets[i] + lengths[i]);
+        record.position(offsets[i]);
+        return loader.readNext(new DataInputStream(new ByteBufferInputStream(record)));
+    }
+
+    /**
+     * Returns the indices of the objects whose bounding boxes intersect the given box.
+     */
+    public BitSet getIndices(double queryMinLon, double queryMinLat, double queryMaxLon, double queryMaxLat) {
+        BitSet result = new BitSet(count);
+        if (count == 0 || queryMaxLon < minLon || maxLon < queryMinLon || queryMaxLat < minLat || maxLat < queryMinLat)
+            return result;
+
+        int col0 = getColumn(queryMinLon);
+        int col1 = getColumn(queryMaxLon);
+        int row0 = getRow(queryMinLat);
+        int row1 = getRow(queryMaxLat);
+
+        for (int row = row0; row <= row1; row++) {
+            for (int col = col0; col <= col1; col++) {
+                int cell = row * gridCols + col;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int i = cellItems[k];
+                    if (result.get(i))
+                        continue;
+
+                    int b = 4 * i;
+                    if (bounds[b] <= queryMaxLon && queryMinLon <= bounds[b + 2] && bounds[b + 1] <= queryMaxLat && queryMinLat <= bounds[b + 3])
+                        result.set(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads the objects intersecting the given box, in file order.
+     */
+    public List<V> getObjects(double queryMinLon, double queryMinLat, double queryMaxLon, double queryMaxLat) throws IOException {
+        return getObjects(getIndices(queryMinLon, queryMinLat, queryMaxLon, queryMaxLat));
+    }
+
+    public List<V> getObjects(GeoFilterByBoundingBox<V> filter) throws IOException {
+        return getObjects(filter.getMinLon(), filter.getMinLat(), filter.getMaxLon(), filter.getMaxLat());
+    }
+
+    /**
+     * Loads the objects intersecting the given box which are not yet set in
+     * <code>loaded</code>, and marks them as loaded. Calling this as the view pans
+     * loads each object at most once.
+     */
+    public List<V> getNewObjects(double queryMinLon, double queryMinLat, double queryMaxLon, double queryMaxLat, BitSet loaded) throws IOException {
+        BitSet indices = getIndices(queryMinLon, queryMinLat, queryMaxLon, queryMaxLat);
+        indices.andNot(loaded);
+        List<V> objects = getObjects(indices);
+        loaded.or(indices);
+        return objects;
+    }
+
+    public List<V> getObjects(BitSet indices) throws IOException {
+        List<V> objects = new ArrayList<V>(indices.cardinality());
+        for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1)) {
+            objects.add(getObject(i));
+        }
+        return objects;
+    }
+
+    @Override
+    public GeoFilterableRecordList<V> getGeoFilterableRecordList() {
+        return new GeoRecordListForStream<V>(new ArrayList<V>(getCollection()));
+    }
+
+    @Override
+    public synchronized Collection<V> getCollection() {
+        if (recordList == null) {
+            List<V> list = new ArrayList<V>(count);
+            try {
+                for (int i = 0; i < count; i++) {
+                    list.add(getObject(i));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            recordList = Collections.unmodifiableList(list);
+        }
+        return recordList;
+    }
+
+    private int getColumn(double lon) {
+        int col = (int) ((lon - minLon) / cellWidth);
+        return Math.max(0, Math.min(gridCols - 1, col));
+    }
+
+    private int getRow(double lat) {
+        int row = (int) ((lat - minLat) / cellHeight);
+        return Math.max(0, Math.min(gridRows - 1, row));
+    }
+
+    private void buildGrid() {
+        int size = (int) Math.ceil(Math.sqrt(count / 4.0));
+        gridCols = Math.max(1, Math.min(MAX_GRID_SIZE, size));
+        gridRows = gridCols;
+        cellWidth = Math.max((maxLon - minLon) / gridCols, Double.MIN_VALUE);
+        cellHeight = Math.max((maxLat - minLat) / gridRows, Double.MIN_VALUE);
+
+        int cellCount = gridCols * gridRows;
+        cellStart = new int[cellCount + 1];
+
+        // first pass counts the items per cell, second pass fills them in
+        for (int pass = 0; pass < 2; pass++) {
+            int[] fill = null;
+            if (pass == 1) {
+                for (int cell = 0; cell < cellCount; cell++)
+                    cellStart[cell + 1] += cellStart[cell];
+                cellItems = new int[cellStart[cellCount]];
+                fill = new int[cellCount];
+                System.arraycopy(cellStart, 0, fill, 0, cellCount);
+            }
+
+            for (int i = 0; i < count; i++) {
+                int b = 4 * i;
+                if (Float.isNaN(bounds[b]))
+                    continue;
+
+                int col0 = getColumn(bounds[b]);
+                int col1 = getColumn(bounds[b + 2]);
+                int row0 = getRow(bounds[b + 1]);
+                int row1 = getRow(bounds[b + 3]);
+                for (int row = row0; row <= row1; row++) {
+                    for (int col = col0; col <= col1; col++) {
+                        int cell = row * gridCols + col;
+                        if (pass == 0)
+                            cellStart[cell + 1]++;
+                        else
+                            cellItems[fill[cell]++] = i;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes an indexed copy of a Metsci ENC/DNC binary stream.
+     *
+     * @return the number of objects written
+     */
+    public static <T extends GeoObject> int writeIndexed(StreamToGeoObjectConverter<T> loader, String resourceName, File destFile) throws IOException {
+        InputStream stream = StreamOpener.fileThenResource.openForRead(resourceName);
+        try {
+            return writeIndexed(loader, stream, destFile);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Writes an indexed copy of a Metsci ENC/DNC binary stream. The source may itself
+     * already be indexed, in which case its index is rebuilt.
+     *
+     * @return the number of objects written
+     */
+    public static <T extends GeoObject> int writeIndexed(StreamToGeoObjectConverter<T> loader, InputStream source, File destFile) throws IOException {
+        DataInputStream in = openPayload(source);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[64 * 1024];
+        for (int n; (n = in.read(chunk)) >= 0;) {
+            bytes.write(chunk, 0, n);
+        }
+
+        PositionInputStream recordStream = new PositionInputStream(bytes.toByteArray());
+        DataInputStream records = new DataInputStream(recordStream);
+
+        List<long[]> extents = new ArrayList<long[]>();
+        List<float[]> boxes = new ArrayList<float[]>();
+        double[] box = new double[4];
+        double fileMinLon = Double.POSITIVE_INFINITY;
+        double fileMinLat = Double.POSITIVE_INFINITY;
+        double fileMaxLon = Double.NEGATIVE_INFINITY;
+        double fileMaxLat = Double.NEGATIVE_INFINITY;
+
+        while (records.available() > 0) {
+            int start = recordStream.position();
+            T geo = loader.readNext(records);
+            extents.add(new long[] { start, recordStream.position() - start });
+
+            if (GeoFilterByBoundingBox.getBounds(geo, box) == null) {
+                boxes.add(new float[] { Float.NaN, Float.NaN, Float.NaN, Float.NaN });
+            } else {
+                boxes.add(new float[] { floorFloat(box[0]), floorFloat(box[1]), ceilFloat(box[2]), ceilFloat(box[3]) });
+                fileMinLon = Math.min(fileMinLon, box[0]);
+                fileMinLat = Math.min(fileMinLat, box[1]);
+                fileMaxLon = Math.max(fileMaxLon, box[2]);
+                fileMaxLat = Math.max(fileMaxLat, box[3]);
+            }
+        }
+
+        if (fileMinLon > fileMaxLon) {
+            fileMinLon = fileMinLat = fileMaxLon = fileMaxLat = 0;
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(destFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(extents.size());
+            out.writeInt(0);
+            out.writeDouble(floorFloat(fileMinLon));
+            out.writeDouble(floorFloat(fileMinLat));
+            out.writeDouble(ceilFloat(fileMaxLon));
+            out.writeDouble(ceilFloat(fileMaxLat));
+
+            for (int i = 0; i < extents.size(); i++) {
+                long[] extent = extents.get(i);
+                float[] b = boxes.get(i);
+                out.writeLong(extent[0]);
+                out.writeInt((int) extent[1]);
+                out.writeFloat(b[0]);
+                out.writeFloat(b[1]);
+                out.writeFloat(b[2]);
+                out.writeFloat(b[3]);
+            }
+
+            bytes.writeTo(out);
+        } finally {
+            out.close();
+        }
+
+        return extents.size();
+    }
+
+    /**
+     * Returns a stream positioned at the first object record. If the stream starts
+     * with an index header, the header and index are skipped; otherwise the stream
+     * is returned from its start.
+     */
+    public static DataInputStream openPayload(InputStream stream) throws IOException {
+        InputStream in = stream.markSupported() ? stream : new BufferedInputStream(stream);
+        DataInputStream dis = new DataInputStream(in);
+
+        in.mark(4);
+        byte[] magic = new byte[4];
+        int n = 0;
+        for (int r; n < 4 && (r = in.read(magic, n, 4 - n)) >= 0;) {
+            n += r;
+        }
+
+        if (n == 4 && ByteBuffer.wrap(magic).getInt() == MAGIC) {
+            int version = dis.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported version " + version + "; expecting value " + VERSION);
+
+            int count = dis.readInt();
+            skipFully(dis, HEADER_BYTES - 12 + (long) count * ENTRY_BYTES);
+        } else {
+            in.reset();
+        }
+
+        return dis;
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0)
+                    throw new EOFException();
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    private static float floorFloat(double value) {
+        float f = (float) value;
+        return f > value ? Math.nextAfter(f, Double.NEGATIVE_INFINITY) : f;
+    }
+
+    private static float ceilFloat(double value) {
+        float f = (float) value;
+        return f < value ? Math.nextAfter(f, Double.POSITIVE_INFINITY) : f;
+    }
+
+    private static class PositionInputStream extends ByteArrayInputStream {
+
+        public PositionInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        public int position() {
+            return pos;
+        }
+    }
+
+    protected static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        public ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.vector.parser;
+
+import com.metsci.glimpse.charts.vector.parser.objects.GenericObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Streams an ogrinfo dump through a pool of parse and convert workers.
+ *
+ * The calling thread splits the dump at feature boundaries and hands batches of
+ * features to the workers, which parse them into {@link GenericObject}s and run them
+ * through a {@link Converter}. Results are handed to a {@link Sink} on the calling
+ * thread in the order the features appear in the dump. At most maxBatchesInFlight
+ * batches are queued or being converted at once, so memory use is bounded by the
+ * batch queue rather than by the size of the dump.
+ */
+public class OGRConversionPipeline<T> {
+
+    /**
+     * Converts a parsed feature. Called concurrently from the worker threads.
+     */
+    public interface Converter<T> {
+        /**
+         * @return the converted object, or null to drop the feature
+         */
+        T convert(GenericObject obj) throws Exception;
+    }
+
+    /**
+     * Receives the converted objects, in dump order, on the thread calling
+     * {@link OGRConversionPipeline#run(BufferedReader, Sink)}.
+     */
+    public interface Sink<T> {
+        void write(T obj) throws IOException;
+    }
+
+    public static final Converter<GenericObject> IDENTITY = new Converter<GenericObject>() {
+        @Override
+        public GenericObject convert(GenericObject obj) {
+            return obj;
+        }
+    };
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static ExecutorService executor;
+
+    private final Converter<T> converter;
+    private final int batchSize;
+    private final int maxBatchesInFlight;
+
+    public OGRConversionPipeline(Converter<T> converter) {
+        this(converter, DEFAULT_BATCH_SIZE, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public OGRConversionPipeline(Converter<T> converter, int batchSize, int maxBatchesInFlight) {
+        if (batchSize < 1 || maxBatchesInFlight < 1)
+            throw new IllegalArgumentException("batchSize and maxBatchesInFlight must be positive");
+
+        this.converter = converter;
+        this.batchSize = batchSize;
+        this.maxBatchesInFlight = maxBatchesInFlight;
+    }
+
+    protected static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            final AtomicInteger count = new AtomicInteger();
+
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable);
+                    thread.setName("ogr-conversion-" + count.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return executor;
+    }
+
+    /**
+     * Converts every feature in the dump and closes the reader.
+     *
+     * @return the number of objects handed to the sink
+     */
+    public int run(BufferedReader reader, Sink<T> sink) throws IOException {
+        LinkedList<Future<List<T>>> pending = new LinkedList<Future<List<T>>>();
+        int written = 0;
+        try {
+            List<List<String>> batch = new ArrayList<List<String>>(batchSize);
+            List<String> feature;
+            while ((feature = OGRReader.readFeature(reader)) != null) {
+                batch.add(feature);
+                if (batch.size() == batchSize) {
+                    pending.add(getExecutor().submit(new ConvertBatch(batch)));
+                    batch = new ArrayList<List<String>>(batchSize);
+
+                    while (pending.size() >= maxBatchesInFlight) {
+                        written += write(pending.removeFirst(), sink);
+                    }
+                }
+            }
+
+            if (!batch.isEmpty())
+                pending.add(getExecutor().submit(new ConvertBatch(batch)));
+
+            while (!pending.isEmpty()) {
+                written += write(pending.removeFirst(), sink);
+            }
+        } finally {
+            for (Future<List<T>> future : pending) {
+                future.cancel(true);
+            }
+            reader.close();
+        }
+        return written;
+    }
+
+    private int write(Future<List<T>> future, Sink<T> sink) throws IOException {
+        List<T> results;
+        try {
+            results = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while converting features", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new RuntimeException("Unable to convert features", cause);
+        }
+
+        for (T result : results) {
+            sink.write(result);
+        }
+        return results.size();
+    }
+
+    private class ConvertBatch implements Callable<List<T>> {
+
+        private final List<List<String>> features;
+
+        public ConvertBatch(List<List<String>> features) {
+            this.features = features;
+        }
+
+        @Override
+        public List<T> call() throws Exception {
+            List<T> results = new ArrayList<T>(features.size());
+            for (List<String> feature : features) {
+                T result = converter.convert(OGRReader.parseFeature(feature));
+                if (result != null)
+                    results.add(result);
+            }
+            return results;
+        }
+    }
+}
@@ -144,6 +144,14 @@ public class OGRInfo {
         }
     }
 
+    /**
+     * Opens the captured ogrinfo output for streaming, e.g. through an {@link OGRConversionPipeline}.
+     */
+    public BufferedReader openConsoleReader() throws IOException {
+        closeOutputWriter();
+        return new BufferedReader(new FileReader(gdalConsoleFile));
+    }
+
     public List<GenericObject> parse() throws IOException  {
         closeOutputWriter();
         if (gdalConsoleOutputReader == null)
@@ -26,6 +26,9 @@
  */
 package com.metsci.glimpse.charts.vector.parser;
 
+import static com.metsci.glimpse.util.logging.LoggerUtils.logFine;
+import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
+
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
@@ -40,6 +43,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.logging.Logger;
 
 import com.metsci.glimpse.charts.vector.parser.attributes.GenericAttribute;
 import com.metsci.glimpse.charts.vector.parser.objects.GenericObject;
@@ -54,6 +58,8 @@ import com.metsci.glimpse.util.io.StreamOpener;
  *
  */
 public class OGRReader {
+    private static final Logger logger = Logger.getLogger(OGRReader.class.getName());
+
     private static String[] shapes = new String[]{"POINT", "POLYGON", "LINESTRING", "MULTIPOINT"};
     private static Set<String> shapeSet = new HashSet<String>(Arrays.<String>asList(shapes));
 
@@ -74,58 +80,65 @@ public class OGRReader {
         return read(_fin);
     }
 
+    /**
+     * Parses the output of the ogrinfo program. Features are split off the reader
+     * on the calling thread and parsed in parallel, see {@link OGRConversionPipeline}.
+     */
     public static List<GenericObject> read(BufferedReader reader) throws IOException {
-        List<GenericObject> objectList = new LinkedList<GenericObject>();
-        GenericObject currentObject = null;
-
-        String currentLine = null;
-
-        // Read in each line
-
-        int lineNo = 0;
-        String featureLine = null;
-        String priorLine= null;
-        while((currentLine = reader.readLine()) != null){
-            lineNo++;
-            try {
-                // We found a new feature
-                if(currentLine.contains("OGRFeature")){
-                    featureLine = currentLine;
-                    // Add the object to our list
-                    currentObject = new GenericObject();
-                    objectList.add(currentObject);
-
-                    // Grab all of the associated attributes
-                    List<String> _attributes = new ArrayList<String>();
+        final List<GenericObject> objectList = new LinkedList<GenericObject>();
+        OGRConversionPipeline<GenericObject> pipeline = new OGRConversionPipeline<GenericObject>(OGRConversionPipeline.IDENTITY);
+        pipeline.run(reader, new OGRConversionPipeline.Sink<GenericObject>() {
+            @Override
+            public void write(GenericObject obj) {
+                objectList.add(obj);
+            }
+        });
+        return objectList;
+    }
 
+    /**
+     * Reads the lines of the next feature: the OGRFeature line followed by its attribute
+     * lines, up to the blank line which ends the feature.
+     *
+     * @return the lines of the feature, or null if there are no more features
+     */
+    public static List<String> readFeature(BufferedReader reader) throws IOException {
+        String currentLine;
+        while ((currentLine = reader.readLine()) != null) {
+            // We found a new feature
+            if (currentLine.contains("OGRFeature")) {
+                List<String> lines = new ArrayList<String>();
+                lines.add(currentLine);
+
+                // Grab all of the associated attributes
+                currentLine = reader.readLine();
+                while (currentLine != null && !currentLine.isEmpty()) {
+                    lines.add(currentLine);
                     currentLine = reader.readLine();
-                    while(currentLine != null && !currentLine.isEmpty()) { //  !(_line = _fin.readLine()).equals("")){
-                        _attributes.add(new String(currentLine));
-                        currentLine = reader.readLine();
-                    }
-
-                    try {
-                    // Append the attributes
-                    appendAttributes(currentObject, _attributes);
-                    } catch (ArrayIndexOutOfBoundsException aie) {
-                        System.out.println("OGRReader exception on line: " + lineNo);
-                        System.out.println("For feature: " + featureLine);
-                        System.out.println("Prior line: " + priorLine);
-                        System.out.println("For object: " + currentObject);
-                        throw aie;
-                    }
                 }
-                priorLine = currentLine;
-            } catch (NumberFormatException nfe) {
-                System.out.println("caught and ignoring: ");
-                nfe.printStackTrace();
+                return lines;
             }
-
         }
+        return null;
+    }
 
-        reader.close();
-
-        return objectList;
+    /**
+     * Parses the lines returned by {@link #readFeature(BufferedReader)}. Safe to call
+     * from multiple threads.
+     */
+    public static GenericObject parseFeature(List<String> featureLines) {
+        GenericObject currentObject = new GenericObject();
+        List<String> attributes = featureLines.subList(1, featureLines.size());
+        try {
+            // Append the attributes
+            appendAttributes(currentObject, attributes);
+        } catch (ArrayIndexOutOfBoundsException aie) {
+            logWarning(logger, "OGRReader exception for feature: %s, for object: %s", featureLines.get(0), currentObject);
+            throw aie;
+        } catch (NumberFormatException nfe) {
+            logWarning(logger, "Ignoring unparseable number in feature: %s", nfe, featureLines.get(0));
+        }
+        return currentObject;
     }
 
 
@@ -139,14 +152,14 @@ public class OGRReader {
 
             if (_entries.length < 3) {
                 if (_currentLine.trim().isEmpty()) {
-                    System.out.println("ignoring blank line");
+                    logFine(logger, "ignoring blank line");
                     continue;
                 } else if (lastAttribute != null && lastAttribute.getType().equals("(String)")) {
                     // Some text based attributes can be multiple lines long
                     boolean hasEquals = _currentLine.indexOf("=") >= 0;
                     if (! hasEquals) {
                         lastAttribute.appendValue(_currentLine);
-                        System.out.println("Assuming " + _currentLine + " is multiline.  Added to make " + lastAttribute.getValue());
+                        logFine(logger, "Assuming %s is multiline.  Added to make %s", _currentLine, lastAttribute.getValue());
                     }
                     continue;
                 } else {
@@ -160,7 +173,7 @@ public class OGRReader {
                 if (!hasEquals && lastAttribute != null && lastAttribute.getType().equals("(String)")) {
                     // The txt attribute can be multiple lines
                     lastAttribute.appendValue(_currentLine);
-                    System.out.println("Assuming " + _currentLine + " is multiline.  Added to make " + lastAttribute.getValue());
+                    logFine(logger, "Assuming %s is multiline.  Added to make %s", _currentLine, lastAttribute.getValue());
                 } else {
                     if (_entries.length < 4) {
                         throw new IllegalStateException("non shape attribute with less than 3 key value entries: " + _currentLine +", Entries: " + _entries);
@@ -26,14 +26,23 @@
  */
 package com.metsci.glimpse.charts.vector.parser;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-
-
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.metsci.glimpse.charts.vector.parser.objects.DNCFeatureCode;
 import com.metsci.glimpse.charts.vector.parser.objects.DNCObject;
 import com.metsci.glimpse.charts.vector.parser.objects.GenericObject;
 
@@ -61,6 +70,92 @@ public class OGRToDNCParser  {
         }
     }
 
+    /**
+     * Streams an ogrinfo dump straight to a metsci dnc file, converting features on a
+     * pool of worker threads. Objects are written sorted by feature name, as
+     * {@link DNCHarvest} always has, but only a small per-object index is held in
+     * memory: records are first written in dump order to a temporary file next to the
+     * output and then copied out in sorted order.
+     *
+     * @return the number of objects written
+     */
+    public int parseDNC(BufferedReader ogrDump, File metsciOutFile) throws IOException {
+        File unsortedFile = new File(metsciOutFile.getPath() + ".unsorted");
+        final List<Record> records = new ArrayList<Record>();
+
+        final DataOutputStream unsortedStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(unsortedFile)));
+        try {
+            OGRConversionPipeline<EncodedObject> pipeline = new OGRConversionPipeline<EncodedObject>(new OGRConversionPipeline.Converter<EncodedObject>() {
+                @Override
+                public EncodedObject convert(GenericObject obj) throws IOException {
+                    return encode(obj);
+                }
+            });
+
+            pipeline.run(ogrDump, new OGRConversionPipeline.Sink<EncodedObject>() {
+                private long offset = 0;
+
+                @Override
+                public void write(EncodedObject obj) throws IOException {
+                    records.add(new Record(obj.featureCode, offset, obj.bytes.length));
+                    unsortedStream.write(obj.bytes);
+                    offset += obj.bytes.length;
+                }
+            });
+        } finally {
+            unsortedStream.close();
+        }
+
+        try {
+            // Collections.sort is stable, so this matches sorting with DNCComparatorByFeatureName
+            Collections.sort(records, new Comparator<Record>() {
+                @Override
+                public int compare(Record r1, Record r2) {
+                    return r1.featureCode.name().compareToIgnoreCase(r2.featureCode.name());
+                }
+            });
+
+            RandomAccessFile unsorted = new RandomAccessFile(unsortedFile, "r");
+            DataOutputStream metsciOutStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(metsciOutFile)));
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                for (Record record : records) {
+                    if (buffer.length < record.length)
+                        buffer = new byte[record.length];
+                    unsorted.seek(record.offset);
+                    unsorted.readFully(buffer, 0, record.length);
+                    metsciOutStream.write(buffer, 0, record.length);
+                }
+            } finally {
+                metsciOutStream.close();
+                unsorted.close();
+            }
+        } finally {
+            unsortedFile.delete();
+        }
+
+        return records.size();
+    }
+
+    private EncodedObject encode(GenericObject genericObject) throws IOException {
+        DNCObject dncObject;
+        try {
+            dncObject = objectInterpreter.convertObject(genericObject);
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Conversion failed -- Generic Object Entry:" + genericObject.toString(), e);
+            throw e;
+        }
+
+        if (dncObject == null)
+            return null;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream stream = new DataOutputStream(bytes);
+        DNCObject.write(stream, dncObject);
+        stream.flush();
+        return new EncodedObject(dncObject.getFeatureCode(), bytes.toByteArray());
+    }
+
     private void writeDNCObjects(List<GenericObject> objList, List<DNCObject> dncList, boolean deleteGeneric) throws IOException {
         Iterator<GenericObject> _iterator = objList.iterator();
         while (_iterator.hasNext()) {
@@ -79,4 +174,26 @@ public class OGRToDNCParser  {
             }
         }
     }
+
+    private static class EncodedObject {
+        private final DNCFeatureCode featureCode;
+        private final byte[] bytes;
+
+        public EncodedObject(DNCFeatureCode featureCode, byte[] bytes) {
+            this.featureCode = featureCode;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class Record {
+        private final DNCFeatureCode featureCode;
+        private final long offset;
+        private final int length;
+
+        public Record(DNCFeatureCode featureCode, long offset, int length) {
+            this.featureCode = featureCode;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
 }
@@ -27,18 +27,17 @@
 package com.metsci.glimpse.charts.vector.parser;
 
 import java.io.IOException;
-
-
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.metsci.glimpse.charts.vector.parser.objects.ENCObject;
 import com.metsci.glimpse.charts.vector.parser.objects.GenericObject;
 
-import java.util.LinkedList;
-
 public class OGRToENCParser  {
 
     private static Logger logger = Logger.getLogger(OGRToENCParser.class.toString());
@@ -75,20 +74,52 @@ public class OGRToENCParser  {
         }
     }
 
+    /**
+     * Converts the objects on the {@link OGRConversionPipeline} worker threads. The meta
+     * objects have already been linked at this point, so each object converts
+     * independently; results are appended to encList in the original order.
+     */
     private void writeENCObjects(List<GenericObject> objList, List<ENCObject> encList, boolean deleteGeneric) throws IOException {
-        Iterator<GenericObject> _iterator = objList.iterator();
-        while (_iterator.hasNext()) {
-            GenericObject _currentObject = _iterator.next();
-            try {
-                ENCObject encObject = objectInterpreter.convertObject(_currentObject);
-                encList.add(encObject);
-                if (deleteGeneric)
-                    _iterator.remove();
-            } catch (Exception e) {
-                // Conversion failed somewhere so we just drop the entry
-                logger.log(Level.SEVERE, "Conversion failed -- Generic Object Entry:" + _currentObject.toString(), e);
-                System.exit(0);
+        List<GenericObject> objects = new ArrayList<GenericObject>(objList);
+        int chunkCount = Math.max(1, Math.min(objects.size(), 4 * Runtime.getRuntime().availableProcessors()));
+
+        List<Callable<List<ENCObject>>> tasks = new ArrayList<Callable<List<ENCObject>>>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            final List<GenericObject> chunk = objects.subList(i * objects.size() / chunkCount, (i + 1) * objects.size() / chunkCount);
+            tasks.add(new Callable<List<ENCObject>>() {
+                @Override
+                public List<ENCObject> call() throws Exception {
+                    List<ENCObject> converted = new ArrayList<ENCObject>(chunk.size());
+                    for (GenericObject _currentObject : chunk) {
+                        try {
+                            converted.add(objectInterpreter.convertObject(_currentObject));
+                        } catch (Exception e) {
+                            // fail the whole conversion, reported through invokeAll below
+                            logger.log(Level.SEVERE, "Conversion failed -- Generic Object Entry:" + _currentObject.toString(), e);
+                            throw e;
+                        }
+                    }
+                    return converted;
+                }
+            });
+        }
+
+        try {
+            for (Future<List<ENCObject>> future : OGRConversionPipeline.getExecutor().invokeAll(tasks)) {
+                encList.addAll(future.get());
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while converting ENC objects", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException("Unable to convert ENC objects", cause);
         }
+
+        if (deleteGeneric)
+            objList.clear();
     }
 }
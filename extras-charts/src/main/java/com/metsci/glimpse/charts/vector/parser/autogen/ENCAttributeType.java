@@ -240,7 +240,7 @@ public enum ENCAttributeType implements GeoAttributeType {
          code = c;
      }
 
-     public static ENCAttributeType getInstance(int c){
+     public static synchronized ENCAttributeType getInstance(int c){
          if(populate){
              for(ENCAttributeType p : ENCAttributeType.values())
                  lookupMap.put(p.code, p);
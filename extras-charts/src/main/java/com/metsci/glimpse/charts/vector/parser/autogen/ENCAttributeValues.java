@@ -1099,7 +1099,7 @@ public enum ENCAttributeValues{
          attributeValueID = avid;
      }
 
-     public static ENCAttributeValues getInstance(int aid, int avid){
+     public static synchronized ENCAttributeValues getInstance(int aid, int avid){
          long v1 = aid;
          long v2 = avid;
          if(populate){
@@ -455,7 +455,7 @@ public class ENCLibraryMaker {
         fout.write("\t\t code = c;\n");
         fout.write("\t }\n\n");
 
-        fout.write("\t public static ENCObjectType getInstance(int c){\n");
+        fout.write("\t public static synchronized ENCObjectType getInstance(int c){\n");
         fout.write("\t\t if(populate){\n");
         fout.write("\t\t\t for(ENCObjectType p : ENCObjectType.values())\n");
         fout.write("\t\t\t\t lookupMap.put(p.code, p);\n");
@@ -515,7 +515,7 @@ public class ENCLibraryMaker {
         fout.write("\t\t code = c;\n");
         fout.write("\t }\n\n");
 
-        fout.write("\t public static ENCAttributeType getInstance(int c){\n");
+        fout.write("\t public static synchronized ENCAttributeType getInstance(int c){\n");
         fout.write("\t\t if(populate){\n");
         fout.write("\t\t\t for(ENCAttributeType p : ENCAttributeType.values())\n");
         fout.write("\t\t\t\t lookupMap.put(p.code, p);\n");
@@ -604,7 +604,7 @@ public class ENCLibraryMaker {
         fout.write("\t\t attributeValueID = avid;\n");
         fout.write("\t }\n\n");
 
-        fout.write("\t public static ENCAttributeValues getInstance(int aid, int avid){\n");
+        fout.write("\t public static synchronized ENCAttributeValues getInstance(int aid, int avid){\n");
         fout.write("\t\t long v1 = aid;\n");
         fout.write("\t\t long v2 = avid;\n");
         fout.write("\t\t if(populate){\n");
@@ -766,7 +766,7 @@ public class ENCLibraryMaker {
 
 
         // Instance generator
-        fout.write("\t public static ENCUnit getInstance(int gid){\n");
+        fout.write("\t public static synchronized ENCUnit getInstance(int gid){\n");
         fout.write("\t\t if(populate){\n");
         fout.write("\t\t\t for(ENCUnit p : ENCUnit.values())\n");
         fout.write("\t\t\t\t lookupMap.put(p.ENCID, p);\n");
@@ -787,19 +787,23 @@ public class ENCLibraryMaker {
 
         // Conversion methods
         fout.write("\t public double convertTo(double value, ENCUnit type) throws Exception{\n");
-        fout.write("\t\t if(conversionMatrixA == null){populateTableA(); populateTableB();}\n");
+        fout.write("\t\t populateTables();\n");
         fout.write("\t\t if(conversionMatrixA[this.localID][type.localID] == 0)\n");
         fout.write("\t\t\t throw new Exception(\"Cannot perform conversion.\"); \n");
         fout.write("\t\t return conversionMatrixB[this.localID][type.localID] * value / conversionMatrixA[this.localID][type.localID];\n");
         fout.write("\t }\n\n");
 
         fout.write("\t public double convertFrom(double value, ENCUnit type) throws Exception{\n");
-        fout.write("\t\t if(conversionMatrixA == null){populateTableA(); populateTableB();}\n");
+        fout.write("\t\t populateTables();\n");
         fout.write("\t\t if(conversionMatrixA[type.localID][this.localID] == 0)\n");
         fout.write("\t\t\t throw new Exception(\"Cannot perform conversion.\"); \n");
         fout.write("\t\t return conversionMatrixB[type.localID][this.localID] * value / conversionMatrixA[type.localID][this.localID];\n");
         fout.write("\t }\n\n");
 
+        fout.write("\t private static synchronized void populateTables(){\n");
+        fout.write("\t\t if(conversionMatrixA == null){populateTableA(); populateTableB();}\n");
+        fout.write("\t }\n\n");
+
         fout.write("\t private static void populateTableA(){\n");
         // Write A-Matrix
         fout.write("\t\t conversionMatrixA = new double[][]{\n");
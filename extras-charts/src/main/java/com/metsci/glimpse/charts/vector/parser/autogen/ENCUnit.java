@@ -133,7 +133,7 @@ public enum ENCUnit{
          ENCID   = gid;
      }
 
-     public static ENCUnit getInstance(int gid){
+     public static synchronized ENCUnit getInstance(int gid){
          if(populate){
              for(ENCUnit p : ENCUnit.values())
                  lookupMap.put(p.ENCID, p);
@@ -153,19 +153,23 @@ public enum ENCUnit{
      }
 
      public double convertTo(double value, ENCUnit type) throws Exception{
-         if(conversionMatrixA == null){populateTableA(); populateTableB();}
+         populateTables();
          if(conversionMatrixA[this.localID][type.localID] == 0)
              throw new Exception("Cannot perform conversion.");
          return conversionMatrixB[this.localID][type.localID] * value / conversionMatrixA[this.localID][type.localID];
      }
 
      public double convertFrom(double value, ENCUnit type) throws Exception{
-         if(conversionMatrixA == null){populateTableA(); populateTableB();}
+         populateTables();
          if(conversionMatrixA[type.localID][this.localID] == 0)
              throw new Exception("Cannot perform conversion.");
          return conversionMatrixB[type.localID][this.localID] * value / conversionMatrixA[type.localID][this.localID];
      }
 
+     private static synchronized void populateTables(){
+         if(conversionMatrixA == null){populateTableA(); populateTableB();}
+     }
+
      private static void populateTableA(){
          conversionMatrixA = new double[][]{
             {1.0, 1.0, 0.025400050800101603, 1.0, 1.0, 1.0, 1.0, 0.025400050800101603, 0.025400050800101603, 0.025400050800101603, 1.0, 1.0, 1.0, 1.0, 0.02539995596155635, 0.02539995596155635, 0.02539995596155635, 0.02539995596155635, 1.0, 0.3333333333333333, 1.0, 1.0, 0.025399977896939232, 0.025399977896939232, 0.025399977896939232, 0.025399977896939232, 0.3333333333333333, 0.025399959187345576, 1.0, 1.0, 1.0, 0.025399959187345576, 1.0, 1.0, 1.0, 1.0, 4.778698245324127E-8, 1.0, 1.0, 1.0, 0.01, 1.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.025400050800101603, 0.025400050800101603, 0.025400050800101603, 1.0, 1.0, 1.0, 1.0, 1.0, 0.3333333333333333, 1.0, 0.01, 0.0, 0.0010, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0},
@@ -49,7 +49,7 @@ public class DNCAttributeType implements GeoAttributeType {
         }
     };
 
-    public static DNCAttributeType getInstance(String c) {
+    public static synchronized DNCAttributeType getInstance(String c) {
         DNCAttributeType type = lookupMap.get(c);
         if (type == null) {
             c = c.intern();
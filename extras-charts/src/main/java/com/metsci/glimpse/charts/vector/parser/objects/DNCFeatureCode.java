@@ -556,7 +556,7 @@ public enum DNCFeatureCode implements GeoFeatureType {
     private static boolean populate = true;
     private static Map<String, DNCFeatureCode> lookupMap = new HashMap<String, DNCFeatureCode>();
 
-    public static DNCFeatureCode fromKey(String c) {
+    public static synchronized DNCFeatureCode fromKey(String c) {
         if (populate) {
             for (DNCFeatureCode p : dncFeatureCodes) {
                 lookupMap.put(p.code, p);
@@ -225,7 +225,7 @@ public enum ENCObjectType implements GeoFeatureType {
         code = c;
     }
 
-    public static ENCObjectType getInstance(int c) {
+    public static synchronized ENCObjectType getInstance(int c) {
         if (populate) {
             for (ENCObjectType p : encObjectTypes) {
                 lookupMap.put(p.code, p);
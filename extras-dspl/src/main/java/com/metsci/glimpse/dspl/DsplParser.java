@@ -37,6 +37,7 @@ import javax.xml.namespace.QName;
 import com.metsci.glimpse.dspl.parser.ColumnBinaryParser;
 import com.metsci.glimpse.dspl.parser.CsvParser;
 import com.metsci.glimpse.dspl.parser.ExtendedCsvParser;
+import com.metsci.glimpse.dspl.parser.MappedColumnBinaryParser;
 import com.metsci.glimpse.dspl.parser.TableParser;
 import com.metsci.glimpse.dspl.parser.WildcardCsvParser;
 import com.metsci.glimpse.dspl.schema.Concept;
@@ -67,6 +68,7 @@ public class DsplParser
         parsers.put( "csvx", new ExtendedCsvParser( this ) );
         parsers.put( "csv*", new WildcardCsvParser( this ) );
         parsers.put( "bin", new ColumnBinaryParser( ) );
+        parsers.put( "mbin", new MappedColumnBinaryParser( ) );
     }
 
     public boolean isFailOnErrorMode( )
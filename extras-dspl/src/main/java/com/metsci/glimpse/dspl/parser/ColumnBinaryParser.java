@@ -469,7 +469,11 @@ public class ColumnBinaryParser implements TableParser, TableWriter
 
     protected BinaryTableParserInfo newParserInfo( Concept concept, ReadableDataChannel dataChannel ) throws IOException, JAXBException, DsplException
     {
-        HeaderInformation header = parseFirstLine( dataChannel );
+        return newParserInfo( concept, parseFirstLine( dataChannel ) );
+    }
+
+    protected BinaryTableParserInfo newParserInfo( Concept concept, HeaderInformation header ) throws IOException, JAXBException, DsplException
+    {
         String[] columnIds = header.getHeaderNames( );
         Concept[] concepts = getConcepts( columnIds, concept );
         Column[] columns = getColumns( columnIds, concept.getTable( ) );
@@ -481,7 +485,11 @@ public class ColumnBinaryParser implements TableParser, TableWriter
 
     protected BinaryTableParserInfo newParserInfo( Slice slice, ReadableDataChannel dataChannel ) throws IOException, JAXBException, DsplException
     {
-        HeaderInformation header = parseFirstLine( dataChannel );
+        return newParserInfo( slice, parseFirstLine( dataChannel ) );
+    }
+
+    protected BinaryTableParserInfo newParserInfo( Slice slice, HeaderInformation header ) throws IOException, JAXBException, DsplException
+    {
         String[] columnIds = header.getHeaderNames( );
         int numColumns = header.getNumColumns( );
         Concept[] concepts = new Concept[numColumns];
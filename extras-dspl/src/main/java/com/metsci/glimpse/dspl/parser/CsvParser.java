@@ -30,39 +30,63 @@ import static com.metsci.glimpse.dspl.parser.util.ParserUtils.*;
 import static com.metsci.glimpse.dspl.parser.util.QuoteAwareStringSplitter.*;
 import static com.metsci.glimpse.util.logging.LoggerUtils.*;
 
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import javax.xml.bind.JAXBException;
 
 import com.metsci.glimpse.dspl.DsplParser;
+import com.metsci.glimpse.dspl.parser.column.CompactInternStringTableColumn;
 import com.metsci.glimpse.dspl.parser.column.SliceColumnType;
+import com.metsci.glimpse.dspl.parser.column.TableColumn;
 import com.metsci.glimpse.dspl.parser.table.PropertyTableData;
 import com.metsci.glimpse.dspl.parser.table.SliceTableData;
+import com.metsci.glimpse.dspl.parser.util.CompiledDatePattern;
+import com.metsci.glimpse.dspl.parser.util.LineAlignedChunkReader;
+import com.metsci.glimpse.dspl.parser.util.LineAlignedChunkReader.Chunk;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.BooleanColumnParser;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.DateColumnParser;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.FloatColumnParser;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.IntegerColumnParser;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.ParserFactory;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.SimpleParserFactory;
-import com.metsci.glimpse.dspl.parser.util.ParserUtils.StringColumnParser;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.TableColumnParser;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.TableParserInfo;
+import com.metsci.glimpse.dspl.parser.util.TokenParsers;
 import com.metsci.glimpse.dspl.schema.Concept;
 import com.metsci.glimpse.dspl.schema.DataType;
 import com.metsci.glimpse.dspl.schema.Slice;
 import com.metsci.glimpse.dspl.schema.Table.Column;
 import com.metsci.glimpse.dspl.util.DsplException;
 import com.metsci.glimpse.dspl.util.DsplHelper;
+import com.metsci.glimpse.util.primitives.IntsArray;
 
 /**
  * The standard DSPL CSV parser capable of parsing CSV files which correspond to Google's
- * rules for CSV table files.
+ * rules for CSV table files.<p>
+ *
+ * Large files are split into newline aligned chunks which are tokenized and parsed in
+ * parallel, then merged back together in file order. Parallel parsing may be disabled
+ * with {@link #setParallel(boolean)}.
  *
  * @author ulman
  */
@@ -70,13 +94,67 @@ public class CsvParser implements TableParser
 {
     public static final Logger logger = Logger.getLogger( CsvParser.class.getName( ) );
 
+    public static final int DEFAULT_CHUNK_SIZE = LineAlignedChunkReader.DEFAULT_CHUNK_SIZE;
+
+    private static ExecutorService executor;
+
     protected ParserFactory factory;
     protected DsplParser dsplParser;
 
+    protected boolean parallel;
+    protected int chunkSize;
+
     public CsvParser( DsplParser dsplParser )
     {
         this.dsplParser = dsplParser;
         this.factory = createParserFactory( );
+        this.parallel = true;
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+    }
+
+    protected static synchronized ExecutorService getExecutor( )
+    {
+        if ( executor == null )
+        {
+            final AtomicInteger count = new AtomicInteger( );
+
+            executor = Executors.newFixedThreadPool( Runtime.getRuntime( ).availableProcessors( ), new ThreadFactory( )
+            {
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable );
+                    thread.setName( "dspl-csv-parser-" + count.getAndIncrement( ) );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+        }
+
+        return executor;
+    }
+
+    public boolean isParallel( )
+    {
+        return parallel;
+    }
+
+    public void setParallel( boolean parallel )
+    {
+        this.parallel = parallel;
+    }
+
+    public int getChunkSize( )
+    {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the approximate number of bytes of the table file handed to each parsing task.
+     */
+    public void setChunkSize( int chunkSize )
+    {
+        this.chunkSize = chunkSize;
     }
 
     public ParserFactory createParserFactory( )
@@ -105,6 +183,26 @@ public class CsvParser implements TableParser
     @Override
     public SliceTableData parse( Slice slice, InputStream stream ) throws IOException, JAXBException, DsplException
     {
+        Charset charset = Charset.defaultCharset( );
+
+        if ( parallel && isAsciiCompatible( charset ) )
+        {
+            LineAlignedChunkReader reader = new LineAlignedChunkReader( stream, chunkSize );
+
+            try
+            {
+                TableParserInfo info = newParserInfo( slice, readHeader( reader, charset ) );
+
+                parse( reader, charset, info );
+
+                return buildSliceTableData( slice, info, factory );
+            }
+            finally
+            {
+                stream.close( );
+            }
+        }
+
         BufferedReader in = new BufferedReader( new InputStreamReader( stream ) );
 
         try
@@ -136,6 +234,26 @@ public class CsvParser implements TableParser
     @Override
     public PropertyTableData parse( Concept concept, InputStream stream ) throws IOException, JAXBException, DsplException
     {
+        Charset charset = Charset.defaultCharset( );
+
+        if ( parallel && isAsciiCompatible( charset ) )
+        {
+            LineAlignedChunkReader reader = new LineAlignedChunkReader( stream, chunkSize );
+
+            try
+            {
+                TableParserInfo info = newParserInfo( concept, readHeader( reader, charset ) );
+
+                parse( reader, charset, info );
+
+                return buildPropertyTableData( concept, info, factory );
+            }
+            finally
+            {
+                stream.close( );
+            }
+        }
+
         BufferedReader in = new BufferedReader( new InputStreamReader( stream ) );
 
         try
@@ -184,6 +302,201 @@ public class CsvParser implements TableParser
         }
     }
 
+    /**
+     * Parses the rows remaining in the provided reader. If every column parser can be merged,
+     * chunks are parsed concurrently into separate parsers, which are then appended in order
+     * to the parsers in info. Otherwise, falls back to {@link #parse(BufferedReader, TableParserInfo)}.
+     */
+    protected void parse( LineAlignedChunkReader reader, Charset charset, TableParserInfo info ) throws IOException, DsplException
+    {
+        if ( !isParallelParsingSupported( info ) )
+        {
+            parse( new BufferedReader( new InputStreamReader( reader.getRemainingStream( ), charset ) ), info );
+            return;
+        }
+
+        CSVTableColumnParser[] parsers = ( CSVTableColumnParser[] ) info.getParsers( );
+
+        Chunk first = reader.nextChunk( );
+        if ( first == null ) return;
+
+        Chunk next = reader.nextChunk( );
+        if ( next == null )
+        {
+            // small file, not worth handing off to other threads
+            parseChunk( first, charset, parsers );
+            return;
+        }
+
+        ExecutorService executor = getExecutor( );
+        int maxPending = 2 * Runtime.getRuntime( ).availableProcessors( );
+        LinkedList<Future<CSVTableColumnParser[]>> pending = new LinkedList<Future<CSVTableColumnParser[]>>( );
+
+        try
+        {
+            pending.add( executor.submit( newChunkTask( first, charset, info ) ) );
+
+            while ( next != null )
+            {
+                pending.add( executor.submit( newChunkTask( next, charset, info ) ) );
+
+                // merge finished chunks in file order, limiting the number of chunks held in memory
+                while ( pending.size( ) >= maxPending )
+                {
+                    merge( parsers, getResult( pending.removeFirst( ) ) );
+                }
+
+                next = reader.nextChunk( );
+            }
+
+            while ( !pending.isEmpty( ) )
+            {
+                merge( parsers, getResult( pending.removeFirst( ) ) );
+            }
+        }
+        finally
+        {
+            for ( Future<CSVTableColumnParser[]> future : pending )
+            {
+                future.cancel( true );
+            }
+        }
+    }
+
+    protected Callable<CSVTableColumnParser[]> newChunkTask( final Chunk chunk, final Charset charset, final TableParserInfo info )
+    {
+        return new Callable<CSVTableColumnParser[]>( )
+        {
+            @Override
+            public CSVTableColumnParser[] call( ) throws Exception
+            {
+                CSVTableColumnParser[] parsers = getParsers( factory, info.getColumns( ), info.getDataTypes( ) );
+                parseChunk( chunk, charset, parsers );
+                return parsers;
+            }
+        };
+    }
+
+    protected void parseChunk( Chunk chunk, Charset charset, CSVTableColumnParser[] parsers ) throws IOException, DsplException
+    {
+        byte[] data = chunk.getData( );
+        int length = chunk.getLength( );
+
+        int size = parsers.length;
+        IntsArray starts = new IntsArray( size );
+        IntsArray ends = new IntsArray( size );
+
+        CSVByteRangeColumnParser[] byteParsers = new CSVByteRangeColumnParser[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( parsers[i] instanceof CSVByteRangeColumnParser ) byteParsers[i] = ( CSVByteRangeColumnParser ) parsers[i];
+        }
+
+        int lineStart = 0;
+        while ( lineStart < length )
+        {
+            // find the end of the line, treating "\r\n", "\n", and "\r" as terminators
+            int lineEnd = lineStart;
+            while ( lineEnd < length && data[lineEnd] != '\n' && data[lineEnd] != '\r' )
+            {
+                lineEnd++;
+            }
+
+            int nextStart = lineEnd + 1;
+            if ( lineEnd < length && data[lineEnd] == '\r' && nextStart < length && data[nextStart] == '\n' ) nextStart++;
+
+            int count = lineEnd == lineStart ? 0 : splitLine( data, lineStart, lineEnd, ',', Integer.MAX_VALUE, starts, ends );
+
+            if ( count == size )
+            {
+                for ( int i = 0; i < size; i++ )
+                {
+                    if ( byteParsers[i] != null )
+                        byteParsers[i].addData( data, starts.a[i], ends.a[i], charset );
+                    else
+                        parsers[i].addData( new String( data, starts.a[i], ends.a[i] - starts.a[i], charset ) );
+                }
+            }
+            else
+            {
+                String line = new String( data, lineStart, lineEnd - lineStart, charset );
+
+                if ( dsplParser.isFailOnErrorMode( ) )
+                {
+                    throw new DsplException( "Encountered row of incorrect size (expected %d found %d): [%s]", size, count, line );
+                }
+                else
+                {
+                    logWarning( logger, "Skipping row of incorrect size (expected %d found %d): [%s]", size, count, line );
+                }
+            }
+
+            lineStart = nextStart;
+        }
+    }
+
+    protected void merge( CSVTableColumnParser[] parsers, CSVTableColumnParser[] chunkParsers )
+    {
+        for ( int i = 0; i < parsers.length; i++ )
+        {
+            ( ( CSVMergeableColumnParser ) parsers[i] ).append( chunkParsers[i] );
+        }
+    }
+
+    protected CSVTableColumnParser[] getResult( Future<CSVTableColumnParser[]> future ) throws IOException, DsplException
+    {
+        try
+        {
+            return future.get( );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new DsplException( "Interrupted while parsing table", e );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause( );
+
+            if ( cause instanceof DsplException ) throw ( DsplException ) cause;
+            if ( cause instanceof IOException ) throw ( IOException ) cause;
+            if ( cause instanceof RuntimeException ) throw ( RuntimeException ) cause;
+            if ( cause instanceof Error ) throw ( Error ) cause;
+
+            throw new DsplException( "Problem parsing table", cause );
+        }
+    }
+
+    /**
+     * Chunks may only be parsed in parallel if the partial results of every column
+     * parser can be appended to one another.
+     */
+    protected boolean isParallelParsingSupported( TableParserInfo info )
+    {
+        for ( TableColumnParser parser : info.getParsers( ) )
+        {
+            if ( !( parser instanceof CSVMergeableColumnParser ) ) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Line terminators and delimiters can only be found by scanning bytes if they are
+     * encoded as single ASCII bytes which never appear inside other characters.
+     */
+    protected static boolean isAsciiCompatible( Charset charset )
+    {
+        String name = charset.name( );
+        return name.equals( "UTF-8" ) || name.equals( "US-ASCII" ) || name.startsWith( "ISO-8859-" ) || name.startsWith( "windows-125" );
+    }
+
+    protected BufferedReader readHeader( LineAlignedChunkReader reader, Charset charset ) throws IOException
+    {
+        String header = reader.readLine( charset );
+        return new BufferedReader( new StringReader( header == null ? "" : header ) );
+    }
+
     protected String[] parseFirstLine( BufferedReader in ) throws IOException, JAXBException
     {
         String line = in.readLine( );
@@ -222,6 +535,33 @@ public class CsvParser implements TableParser
         public void addGap( );
     }
 
+    /**
+     * A column parser whose contents can be appended to, allowing separately parsed
+     * sections of a table to be combined.
+     */
+    public interface CSVMergeableColumnParser extends CSVTableColumnParser
+    {
+        /**
+         * Appends all values parsed by other (which must be of the same class) after the values in this parser.
+         */
+        public void append( CSVTableColumnParser other );
+    }
+
+    /**
+     * A column parser which can parse a token directly from a range of bytes, avoiding
+     * a String allocation per table cell.
+     */
+    public interface CSVByteRangeColumnParser extends CSVTableColumnParser
+    {
+        /**
+         * @param bytes a line of the table, in an ASCII compatible encoding
+         * @param from the index of the first byte of the token (inclusive)
+         * @param to the index of the end of the token (exclusive)
+         * @param charset the encoding of bytes, for parsers which need to decode text
+         */
+        public void addData( byte[] bytes, int from, int to, Charset charset ) throws DsplException;
+    }
+
     public class CSVParserFactory extends SimpleParserFactory
     {
         @Override
@@ -261,22 +601,100 @@ public class CsvParser implements TableParser
         }
     }
 
-    protected class CSVStringColumnParser extends StringColumnParser implements CSVTableColumnParser
+    /**
+     * Interns the strings of each chunk into a per-chunk dictionary, producing a
+     * {@link CompactInternStringTableColumn}. Dictionaries are merged by {@link #append(CSVTableColumnParser)}.
+     */
+    protected class CSVStringColumnParser implements CSVMergeableColumnParser, CSVByteRangeColumnParser
     {
+        protected Object2IntOpenHashMap<String> indexByString;
+        protected List<String> uniqueStrings;
+        protected IntsArray indexByRow;
+
+        public CSVStringColumnParser( )
+        {
+            indexByString = new Object2IntOpenHashMap<String>( );
+            indexByString.defaultReturnValue( -1 );
+
+            uniqueStrings = new ArrayList<String>( );
+            indexByRow = new IntsArray( );
+        }
+
+        @Override
+        public TableColumn createTableColumn( Column column, Concept concept, DataType type )
+        {
+            String[] array = uniqueStrings.toArray( new String[uniqueStrings.size( )] );
+            return new CompactInternStringTableColumn( column, concept, indexByRow.n, array, indexByRow.copyOf( ) );
+        }
+
+        @Override
+        public String parse( String data )
+        {
+            return new String( data );
+        }
+
         @Override
         public void addData( String token )
         {
-            data.add( parse( token ) );
+            if ( token == null )
+            {
+                addGap( );
+            }
+            else
+            {
+                // don't store a substring, which might hang on to more characters than it needs
+                indexByRow.append( intern( new String( token ) ) );
+            }
+        }
+
+        @Override
+        public void addData( byte[] bytes, int from, int to, Charset charset )
+        {
+            indexByRow.append( intern( new String( bytes, from, to - from, charset ) ) );
         }
 
         @Override
         public void addGap( )
         {
-            data.add( null );
+            indexByRow.append( -1 );
+        }
+
+        @Override
+        public void append( CSVTableColumnParser other )
+        {
+            CSVStringColumnParser parser = ( CSVStringColumnParser ) other;
+
+            // map the other chunk's dictionary indices into this dictionary
+            int[] remap = new int[parser.uniqueStrings.size( )];
+            for ( int i = 0; i < remap.length; i++ )
+            {
+                remap[i] = intern( parser.uniqueStrings.get( i ) );
+            }
+
+            int n = parser.indexByRow.n;
+            indexByRow.ensureCapacity( indexByRow.n + n );
+            for ( int i = 0; i < n; i++ )
+            {
+                int index = parser.indexByRow.a[i];
+                indexByRow.append( index == -1 ? -1 : remap[index] );
+            }
+        }
+
+        protected int intern( String value )
+        {
+            int index = indexByString.getInt( value );
+            if ( index == -1 )
+            {
+                index = uniqueStrings.size( );
+                indexByString.put( value, index );
+                uniqueStrings.add( value );
+            }
+
+            return index;
         }
     }
 
-    protected class CSVIntegerColumnParser extends IntegerColumnParser implements CSVTableColumnParser
+    protected class CSVIntegerColumnParser extends IntegerColumnParser implements CSVMergeableColumnParser, CSVByteRangeColumnParser
     {
         @Override
         public void addData( String token ) throws DsplException
@@ -293,28 +711,59 @@ public class CsvParser implements TableParser
                 }
                 catch ( NumberFormatException e )
                 {
-                    if ( dsplParser.isFailOnErrorMode( ) )
-                    {
-                        throw new DsplException( "Problem parsing: %s", e, token );
-                    }
-                    else
-                    {
-                        logWarning( logger,  "Problem parsing token %s as type integer. Adding gap instead.", token );
-                        addGap( );
-                    }
+                    handleError( token, e );
+                }
+            }
+        }
+
+        @Override
+        public void addData( byte[] bytes, int from, int to, Charset charset ) throws DsplException
+        {
+            if ( from == to )
+            {
+                addGap( );
+            }
+            else
+            {
+                try
+                {
+                    data.append( TokenParsers.parseInt( bytes, from, to ) );
+                }
+                catch ( NumberFormatException e )
+                {
+                    handleError( new String( bytes, from, to - from, charset ), e );
                 }
             }
         }
 
+        protected void handleError( String token, NumberFormatException e ) throws DsplException
+        {
+            if ( dsplParser.isFailOnErrorMode( ) )
+            {
+                throw new DsplException( "Problem parsing: %s", e, token );
+            }
+            else
+            {
+                logWarning( logger,  "Problem parsing token %s as type integer. Adding gap instead.", token );
+                addGap( );
+            }
+        }
+
         //TODO we need a much better way to mark missing data
         @Override
         public void addGap( )
         {
             data.append( -1 );
         }
+
+        @Override
+        public void append( CSVTableColumnParser other )
+        {
+            data.append( ( ( CSVIntegerColumnParser ) other ).data );
+        }
     }
 
-    protected class CSVFloatColumnParser extends FloatColumnParser implements CSVTableColumnParser
+    protected class CSVFloatColumnParser extends FloatColumnParser implements CSVMergeableColumnParser, CSVByteRangeColumnParser
     {
         @Override
         public void addData( String token ) throws DsplException
@@ -327,32 +776,63 @@ public class CsvParser implements TableParser
             {
                 try
                 {
-                    data.append( Float.parseFloat( token ) );
+                    data.append( TokenParsers.parseFloat( token ) );
                 }
                 catch ( NumberFormatException e )
                 {
-                    if ( dsplParser.isFailOnErrorMode( ) )
-                    {
-                        throw new DsplException( "Problem parsing: %s", e, token );
-                    }
-                    else
-                    {
-                        logWarning( logger,  "Problem parsing token %s as type float. Adding gap instead.", token );
-                        addGap( );
-                    }
+                    handleError( token, e );
+                }
+            }
+        }
+
+        @Override
+        public void addData( byte[] bytes, int from, int to, Charset charset ) throws DsplException
+        {
+            if ( from == to )
+            {
+                addGap( );
+            }
+            else
+            {
+                try
+                {
+                    data.append( TokenParsers.parseFloat( bytes, from, to ) );
+                }
+                catch ( NumberFormatException e )
+                {
+                    handleError( new String( bytes, from, to - from, charset ), e );
                 }
             }
         }
 
+        protected void handleError( String token, NumberFormatException e ) throws DsplException
+        {
+            if ( dsplParser.isFailOnErrorMode( ) )
+            {
+                throw new DsplException( "Problem parsing: %s", e, token );
+            }
+            else
+            {
+                logWarning( logger,  "Problem parsing token %s as type float. Adding gap instead.", token );
+                addGap( );
+            }
+        }
+
         //TODO we need a much better way to mark missing data
         @Override
         public void addGap( )
         {
             data.append( -1 );
         }
+
+        @Override
+        public void append( CSVTableColumnParser other )
+        {
+            data.append( ( ( CSVFloatColumnParser ) other ).data );
+        }
     }
 
-    protected class CSVBooleanColumnParser extends BooleanColumnParser implements CSVTableColumnParser
+    protected class CSVBooleanColumnParser extends BooleanColumnParser implements CSVMergeableColumnParser, CSVByteRangeColumnParser
     {
         @Override
         public void addData( String token ) throws DsplException
@@ -363,22 +843,20 @@ public class CsvParser implements TableParser
             }
             else
             {
-                try
-                {
-                    data.append( Boolean.parseBoolean( token ) );
-                }
-                catch ( NumberFormatException e )
-                {
-                    if ( dsplParser.isFailOnErrorMode( ) )
-                    {
-                        throw new DsplException( "Problem parsing: %s", e, token );
-                    }
-                    else
-                    {
-                        logWarning( logger,  "Problem parsing token %s as type boolean. Adding gap instead.", token );
-                        addGap( );
-                    }
-                }
+                data.append( Boolean.parseBoolean( token ) );
+            }
+        }
+
+        @Override
+        public void addData( byte[] bytes, int from, int to, Charset charset ) throws DsplException
+        {
+            if ( from == to )
+            {
+                addGap( );
+            }
+            else
+            {
+                data.append( TokenParsers.parseBoolean( bytes, from, to ) );
             }
         }
 
@@ -388,13 +866,23 @@ public class CsvParser implements TableParser
         {
             data.append( false );
         }
+
+        @Override
+        public void append( CSVTableColumnParser other )
+        {
+            data.append( ( ( CSVBooleanColumnParser ) other ).data );
+        }
     }
 
-    protected class CSVDateColumnParser extends DateColumnParser implements CSVTableColumnParser
+    protected class CSVDateColumnParser extends DateColumnParser implements CSVMergeableColumnParser, CSVByteRangeColumnParser
     {
+        protected CompiledDatePattern compiledFormat;
+
         public CSVDateColumnParser( Column column )
         {
             super( column );
+
+            this.compiledFormat = new CompiledDatePattern( format );
         }
 
         @Override
@@ -408,29 +896,60 @@ public class CsvParser implements TableParser
             {
                 try
                 {
-                    data.append( dateFormat.parseMillis( token ) );
+                    data.append( compiledFormat.parseMillis( token ) );
                 }
                 catch ( IllegalArgumentException e )
                 {
-                    if ( dsplParser.isFailOnErrorMode( ) )
-                    {
-                        throw new DsplException( "Problem parsing: %s", e, token );
-                    }
-                    else
-                    {
-                        logWarning( logger,  "Trouble parsing date: %s. Adding gap instead.", token );
-                        addGap( );
-                    }
+                    handleError( token, e );
+                }
+            }
+        }
+
+        @Override
+        public void addData( byte[] bytes, int from, int to, Charset charset ) throws DsplException
+        {
+            if ( from == to )
+            {
+                addGap( );
+            }
+            else
+            {
+                try
+                {
+                    data.append( compiledFormat.parseMillis( bytes, from, to ) );
+                }
+                catch ( IllegalArgumentException e )
+                {
+                    handleError( new String( bytes, from, to - from, charset ), e );
                 }
             }
         }
 
+        protected void handleError( String token, IllegalArgumentException e ) throws DsplException
+        {
+            if ( dsplParser.isFailOnErrorMode( ) )
+            {
+                throw new DsplException( "Problem parsing: %s", e, token );
+            }
+            else
+            {
+                logWarning( logger,  "Trouble parsing date: %s. Adding gap instead.", token );
+                addGap( );
+            }
+        }
+
         //TODO we need a much better way to mark missing data
         @Override
         public void addGap( )
         {
             data.append( -1 );
         }
+
+        @Override
+        public void append( CSVTableColumnParser other )
+        {
+            data.append( ( ( CSVDateColumnParser ) other ).data );
+        }
     }
 
     protected TableParserInfo newParserInfo( Concept concept, BufferedReader in ) throws IOException, JAXBException, DsplException
@@ -115,6 +115,13 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
         }
     }
 
+    // the remainder and gap filling semantics above are only implemented for sequential parsing
+    @Override
+    protected boolean isParallelParsingSupported( TableParserInfo info )
+    {
+        return false;
+    }
+
     @Override
     public SliceTableData parse( Slice slice ) throws IOException, JAXBException, DsplException
     {
@@ -0,0 +1,568 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.parser;
+
+import static com.metsci.glimpse.dspl.parser.util.ParserUtils.getConstantTableColumns;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.JAXBException;
+
+import com.metsci.glimpse.dspl.parser.SimpleBinaryParser.HeaderInformation;
+import com.metsci.glimpse.dspl.parser.column.CompactInternStringTableColumn;
+import com.metsci.glimpse.dspl.parser.column.CompactStringTableColumn;
+import com.metsci.glimpse.dspl.parser.column.MappedTableColumn;
+import com.metsci.glimpse.dspl.parser.column.SliceColumnType;
+import com.metsci.glimpse.dspl.parser.column.TableColumn;
+import com.metsci.glimpse.dspl.parser.table.PropertyTableData;
+import com.metsci.glimpse.dspl.parser.table.SimplePropertyTableData;
+import com.metsci.glimpse.dspl.parser.table.SimpleSliceTableData;
+import com.metsci.glimpse.dspl.parser.table.SliceTableData;
+import com.metsci.glimpse.dspl.schema.Concept;
+import com.metsci.glimpse.dspl.schema.DataType;
+import com.metsci.glimpse.dspl.schema.Slice;
+import com.metsci.glimpse.dspl.schema.Table.Column;
+import com.metsci.glimpse.dspl.util.DsplException;
+import com.metsci.glimpse.util.io.datapipe.WritableDataChannel;
+
+/**
+ * A columnar binary table format designed to be memory mapped. Used as the default
+ * format for cached dspl tables (see {@link com.metsci.glimpse.dspl.parser.util.DsplCacheHelper}).<p>
+ *
+ * The file starts with a short header (magic number, format version, column and row
+ * counts), followed by one block per column and a footer index. Each column block
+ * starts on an 8 byte boundary. Float, integer, boolean, and date blocks contain the
+ * raw big-endian values. String blocks use the same layout as {@link ColumnBinaryParser}.
+ * The footer lists the id, data type, encoding, offset, and length of each block, and
+ * the file ends with the offset of the footer followed by the column count and magic
+ * number.<p>
+ *
+ * When reading from a {@link FileChannel}, numeric columns are not copied: they are
+ * returned as {@link MappedTableColumn} views over read-only mapped regions of the file,
+ * so opening a cached table takes constant time and data is paged in as it is used.
+ * String columns are still decoded onto the heap. Other channels are read fully into
+ * memory and then exposed through the same views.
+ */
+public class MappedColumnBinaryParser extends ColumnBinaryParser
+{
+    public static final int MAGIC = 0x1234CDF1;
+    public static final int VERSION = 1;
+
+    public static final int BLOCK_ALIGNMENT = 8;
+
+    // size of the trailer at the end of the file: footer offset, column count, magic
+    protected static final int TRAILER_SIZE = 16;
+
+    // how each column block is encoded
+    protected static final int ENCODING_RAW = 0;
+    protected static final int ENCODING_STRING = 1;
+    protected static final int ENCODING_INTERN_STRING = 2;
+
+    public MappedColumnBinaryParser( )
+    {
+        super( );
+    }
+
+    @Override
+    public void write( Slice slice, SliceTableData data, WritableByteChannel byteChannel ) throws IOException, DsplException, JAXBException
+    {
+        List<TableColumn> columnList = new ArrayList<TableColumn>( );
+
+        // constant columns have their value specified in the dspl metadata, so they are not written
+        addNonConstantColumns( columnList, data.getDimensionColumnIds( ), data, SliceColumnType.Dimension );
+        addNonConstantColumns( columnList, data.getMetricColumnIds( ), data, SliceColumnType.Metric );
+
+        write( columnList, data.getNumRows( ), byteChannel );
+    }
+
+    @Override
+    public void write( Concept concept, PropertyTableData data, WritableByteChannel byteChannel ) throws IOException, DsplException, JAXBException
+    {
+        List<TableColumn> columnList = new ArrayList<TableColumn>( );
+
+        for ( String conceptId : data.getColumnIds( ) )
+        {
+            TableColumn column = data.getColumn( conceptId );
+            if ( !column.isConstant( ) ) columnList.add( column );
+        }
+
+        write( columnList, data.getNumRows( ), byteChannel );
+    }
+
+    protected void addNonConstantColumns( List<TableColumn> columnList, Collection<String> ids, SliceTableData data, SliceColumnType type )
+    {
+        for ( String id : ids )
+        {
+            TableColumn column = type == SliceColumnType.Dimension ? data.getDimensionColumn( id ) : data.getMetricColumn( id );
+            if ( !column.isConstant( ) ) columnList.add( column );
+        }
+    }
+
+    protected void write( List<TableColumn> columnList, int numRows, WritableByteChannel byteChannel ) throws IOException, DsplException
+    {
+        PositionDataChannel dataChannel = new PositionDataChannel( byteChannel );
+
+        try
+        {
+            int numColumns = columnList.size( );
+
+            dataChannel.writeInt( MAGIC );
+            dataChannel.writeInt( VERSION );
+            dataChannel.writeInt( numColumns );
+            dataChannel.writeInt( numRows );
+
+            long[] offsets = new long[numColumns];
+            long[] lengths = new long[numColumns];
+            int[] encodings = new int[numColumns];
+
+            for ( int i = 0; i < numColumns; i++ )
+            {
+                dataChannel.align( BLOCK_ALIGNMENT );
+                offsets[i] = dataChannel.getPosition( );
+                encodings[i] = writeBlock( columnList.get( i ), dataChannel );
+                lengths[i] = dataChannel.getPosition( ) - offsets[i];
+            }
+
+            dataChannel.align( BLOCK_ALIGNMENT );
+            long footerOffset = dataChannel.getPosition( );
+
+            for ( int i = 0; i < numColumns; i++ )
+            {
+                TableColumn column = columnList.get( i );
+
+                dataChannel.writeString( column.getColumn( ).getId( ) );
+                dataChannel.writeInt( column.getType( ).ordinal( ) );
+                dataChannel.writeInt( encodings[i] );
+                dataChannel.writeLong( offsets[i] );
+                dataChannel.writeLong( lengths[i] );
+            }
+
+            dataChannel.writeLong( footerOffset );
+            dataChannel.writeInt( numColumns );
+            dataChannel.writeInt( MAGIC );
+        }
+        finally
+        {
+            dataChannel.flushBuffer( );
+            dataChannel.close( );
+        }
+    }
+
+    protected int writeBlock( TableColumn column, WritableDataChannel dataChannel ) throws DsplException, IOException
+    {
+        String columnFormat = column.getColumn( ).getFormat( );
+
+        switch ( column.getType( ) )
+        {
+        case STRING:
+            if ( columnFormat != null && columnFormat.contentEquals( "intern" ) )
+            {
+                writeInternStringArray( dataChannel, column.getStringData( ) );
+                return ENCODING_INTERN_STRING;
+            }
+            else
+            {
+                writeStringArray( dataChannel, column.getStringData( ) );
+                return ENCODING_STRING;
+            }
+        case CONCEPT:
+            writeStringArray( dataChannel, column.getStringData( ) );
+            return ENCODING_STRING;
+        case FLOAT:
+            dataChannel.writeFloatArray( column.getFloatData( ) );
+            return ENCODING_RAW;
+        case INTEGER:
+            dataChannel.writeIntArray( column.getIntegerData( ) );
+            return ENCODING_RAW;
+        case BOOLEAN:
+            dataChannel.writeBooleanArray( column.getBooleanData( ) );
+            return ENCODING_RAW;
+        case DATE:
+            dataChannel.writeLongArray( column.getDateData( ) );
+            return ENCODING_RAW;
+        default:
+            throw new DsplException( "Unknown Type %s provided.", column.getType( ) );
+        }
+    }
+
+    @Override
+    public PropertyTableData parse( Concept concept, InputStream stream ) throws IOException, JAXBException, DsplException
+    {
+        return parse( concept, toChannel( stream ) );
+    }
+
+    @Override
+    public SliceTableData parse( Slice slice, InputStream stream ) throws IOException, JAXBException, DsplException
+    {
+        return parse( slice, toChannel( stream ) );
+    }
+
+    @Override
+    public PropertyTableData parse( Concept concept, ReadableByteChannel byteChannel ) throws IOException, JAXBException, DsplException
+    {
+        try
+        {
+            BlockIndex index = readBlockIndex( byteChannel );
+            BinaryTableParserInfo info = newParserInfo( concept, index.header );
+
+            Map<String, TableColumn> map = new HashMap<String, TableColumn>( );
+            for ( int i = 0; i < info.getNumColumns( ); i++ )
+            {
+                Column column = info.getColumns( )[i];
+                map.put( column.getId( ), newTableColumn( index, i, column, info.getConcepts( )[i], info.getDataTypes( )[i] ) );
+            }
+
+            map.putAll( getConstantTableColumns( concept, info, factory, info.getNumRows( ) ) );
+
+            return new SimplePropertyTableData( concept, map );
+        }
+        finally
+        {
+            byteChannel.close( );
+        }
+    }
+
+    @Override
+    public SliceTableData parse( Slice slice, ReadableByteChannel byteChannel ) throws IOException, JAXBException, DsplException
+    {
+        try
+        {
+            BlockIndex index = readBlockIndex( byteChannel );
+            BinaryTableParserInfo info = newParserInfo( slice, index.header );
+
+            Map<String, TableColumn> dimensionMap = new HashMap<String, TableColumn>( );
+            Map<String, TableColumn> metricMap = new HashMap<String, TableColumn>( );
+
+            for ( int i = 0; i < info.getNumColumns( ); i++ )
+            {
+                Column column = info.getColumns( )[i];
+                TableColumn columnData = newTableColumn( index, i, column, info.getConcepts( )[i], info.getDataTypes( )[i] );
+
+                switch ( info.getSliceColumnTypes( )[i] )
+                {
+                case Dimension:
+                    dimensionMap.put( column.getId( ), columnData );
+                    break;
+                case Metric:
+                    metricMap.put( column.getId( ), columnData );
+                    break;
+                }
+            }
+
+            dimensionMap.putAll( getConstantTableColumns( slice, info, factory, SliceColumnType.Dimension, info.getNumRows( ) ) );
+            metricMap.putAll( getConstantTableColumns( slice, info, factory, SliceColumnType.Metric, info.getNumRows( ) ) );
+
+            return new SimpleSliceTableData( slice, dimensionMap, metricMap );
+        }
+        finally
+        {
+            byteChannel.close( );
+        }
+    }
+
+    protected TableColumn newTableColumn( BlockIndex index, int i, Column column, Concept concept, DataType type ) throws IOException, DsplException
+    {
+        if ( index.types[i] != type.ordinal( ) )
+        {
+            throw new DsplException( "Cached column %s has type %s but the schema specifies %s.", column.getId( ), DataType.values( )[index.types[i]], type );
+        }
+
+        ByteBuffer block = index.blocks[i];
+        int numRows = index.header.getNumRowsPerColumn( );
+
+        switch ( index.encodings[i] )
+        {
+        case ENCODING_RAW:
+            if ( !MappedTableColumn.isSupported( type ) ) throw new DsplException( "Column %s of type %s cannot be stored as raw values.", column.getId( ), type );
+            return new MappedTableColumn( column, concept, type, block, numRows );
+        case ENCODING_STRING:
+            return readStringBlock( block, column, concept, numRows );
+        case ENCODING_INTERN_STRING:
+            return readInternStringBlock( block, column, concept, numRows );
+        default:
+            throw new DsplException( "Unknown encoding %d for Column %s.", index.encodings[i], column.getId( ) );
+        }
+    }
+
+    protected TableColumn readStringBlock( ByteBuffer block, Column column, Concept concept, int numRows ) throws IOException
+    {
+        ByteBuffer in = block.duplicate( );
+
+        int byteCount = in.getInt( );
+
+        int[] stringStartIndices = new int[numRows];
+        in.asIntBuffer( ).get( stringStartIndices );
+        in.position( in.position( ) + numRows * 4 );
+
+        byte[] stringData = new byte[byteCount];
+        in.get( stringData );
+        String allStrings = new String( stringData, 0, byteCount, ENCODING );
+
+        return new CompactStringTableColumn( column, concept, numRows, allStrings, stringStartIndices );
+    }
+
+    protected TableColumn readInternStringBlock( ByteBuffer block, Column column, Concept concept, int numRows ) throws IOException
+    {
+        ByteBuffer in = block.duplicate( );
+
+        int nUnique = in.getInt( );
+
+        String[] uniqueStrings = new String[nUnique];
+        for ( int i = 0; i < nUnique; i++ )
+        {
+            int stringSize = in.getInt( );
+            if ( stringSize == 0 ) continue;
+
+            byte[] data = new byte[stringSize];
+            in.get( data );
+            uniqueStrings[i] = new String( data, ENCODING ).intern( );
+        }
+
+        int[] indexForRow = new int[numRows];
+        in.asIntBuffer( ).get( indexForRow );
+
+        return new CompactInternStringTableColumn( column, concept, numRows, uniqueStrings, indexForRow );
+    }
+
+    protected ReadableByteChannel toChannel( InputStream stream )
+    {
+        // Channels.newChannel( ) hides the FileChannel, which would prevent memory mapping
+        if ( stream instanceof FileInputStream )
+        {
+            return ( ( FileInputStream ) stream ).getChannel( );
+        }
+        else
+        {
+            return Channels.newChannel( stream );
+        }
+    }
+
+    /**
+     * Reads the header and footer and locates each column block. If the channel is a
+     * FileChannel the blocks are mapped, otherwise the whole channel is read into memory.
+     */
+    protected BlockIndex readBlockIndex( ReadableByteChannel byteChannel ) throws IOException, DsplException
+    {
+        if ( byteChannel instanceof FileChannel )
+        {
+            FileChannel fileChannel = ( FileChannel ) byteChannel;
+            long size = fileChannel.size( );
+            if ( size < 16 + TRAILER_SIZE ) throw new DsplException( "File is too small to be a %s file: %d bytes.", getClass( ).getSimpleName( ), size );
+
+            ByteBuffer header = readFully( fileChannel, 0, 16 );
+            ByteBuffer trailer = readFully( fileChannel, size - TRAILER_SIZE, TRAILER_SIZE );
+
+            long footerOffset = checkTrailer( trailer, size );
+            ByteBuffer footer = readFully( fileChannel, footerOffset, ( int ) ( size - TRAILER_SIZE - footerOffset ) );
+
+            BlockIndex index = readHeaderAndFooter( header, footer, trailer.getInt( 8 ) );
+
+            for ( int i = 0; i < index.blocks.length; i++ )
+            {
+                long offset = index.offsets[i];
+                long length = index.lengths[i];
+
+                if ( offset < 0 || length < 0 || offset + length > footerOffset ) throw new DsplException( "Column block %d is outside of the data region.", i );
+                if ( length > Integer.MAX_VALUE ) throw new DsplException( "Column block %d is too large to map: %d bytes.", i, length );
+
+                index.blocks[i] = fileChannel.map( MapMode.READ_ONLY, offset, length );
+            }
+
+            return index;
+        }
+        else
+        {
+            ByteBuffer data = readFully( byteChannel );
+            long size = data.limit( );
+            if ( size < 16 + TRAILER_SIZE ) throw new DsplException( "File is too small to be a %s file: %d bytes.", getClass( ).getSimpleName( ), size );
+
+            ByteBuffer trailer = slice( data, size - TRAILER_SIZE, TRAILER_SIZE );
+            long footerOffset = checkTrailer( trailer, size );
+
+            ByteBuffer header = slice( data, 0, 16 );
+            ByteBuffer footer = slice( data, footerOffset, size - TRAILER_SIZE - footerOffset );
+
+            BlockIndex index = readHeaderAndFooter( header, footer, trailer.getInt( 8 ) );
+
+            for ( int i = 0; i < index.blocks.length; i++ )
+            {
+                long offset = index.offsets[i];
+                long length = index.lengths[i];
+
+                if ( offset < 0 || length < 0 || offset + length > footerOffset ) throw new DsplException( "Column block %d is outside of the data region.", i );
+
+                index.blocks[i] = slice( data, offset, length );
+            }
+
+            return index;
+        }
+    }
+
+    protected long checkTrailer( ByteBuffer trailer, long size ) throws DsplException
+    {
+        long footerOffset = trailer.getLong( 0 );
+        int magic = trailer.getInt( 12 );
+
+        if ( magic != MAGIC ) throw new DsplException( "File does not contain proper trailer code: %s", Integer.toHexString( MAGIC ) );
+        if ( footerOffset < 16 || footerOffset > size - TRAILER_SIZE ) throw new DsplException( "Invalid footer offset: %d", footerOffset );
+
+        return footerOffset;
+    }
+
+    protected BlockIndex readHeaderAndFooter( ByteBuffer header, ByteBuffer footer, int trailerColumns ) throws IOException, DsplException
+    {
+        int magic = header.getInt( );
+        if ( magic != MAGIC ) throw new DsplException( "File does not contain proper header code: %s", Integer.toHexString( MAGIC ) );
+
+        int version = header.getInt( );
+        if ( version != VERSION ) throw new DsplException( "Unsupported %s version %d (expected %d).", getClass( ).getSimpleName( ), version, VERSION );
+
+        int numColumns = header.getInt( );
+        int numRows = header.getInt( );
+
+        if ( numColumns != trailerColumns ) throw new DsplException( "Header column count %d does not match footer column count %d.", numColumns, trailerColumns );
+
+        BlockIndex index = new BlockIndex( numColumns );
+        String[] headerStrings = new String[numColumns];
+
+        for ( int i = 0; i < numColumns; i++ )
+        {
+            byte[] idBytes = new byte[footer.getInt( )];
+            footer.get( idBytes );
+
+            headerStrings[i] = new String( idBytes, ENCODING );
+            index.types[i] = footer.getInt( );
+            index.encodings[i] = footer.getInt( );
+            index.offsets[i] = footer.getLong( );
+            index.lengths[i] = footer.getLong( );
+
+            if ( index.types[i] < 0 || index.types[i] >= DataType.values( ).length ) throw new DsplException( "Unknown type code %d for Column %s.", index.types[i], headerStrings[i] );
+        }
+
+        index.header = new HeaderInformation( numColumns, numRows, headerStrings );
+
+        return index;
+    }
+
+    protected static ByteBuffer readFully( FileChannel channel, long position, int length ) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( length );
+
+        while ( buffer.hasRemaining( ) )
+        {
+            int read = channel.read( buffer, position + buffer.position( ) );
+            if ( read < 0 ) throw new IOException( "Unexpected end of file." );
+        }
+
+        buffer.flip( );
+        return buffer;
+    }
+
+    protected static ByteBuffer readFully( ReadableByteChannel channel ) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( 64 * 1024 );
+
+        while ( channel.read( buffer ) >= 0 )
+        {
+            if ( !buffer.hasRemaining( ) )
+            {
+                ByteBuffer larger = ByteBuffer.allocate( buffer.capacity( ) * 2 );
+                buffer.flip( );
+                larger.put( buffer );
+                buffer = larger;
+            }
+        }
+
+        buffer.flip( );
+        return buffer;
+    }
+
+    protected static ByteBuffer slice( ByteBuffer data, long offset, long length )
+    {
+        ByteBuffer view = data.duplicate( );
+        view.position( ( int ) offset );
+        view.limit( ( int ) ( offset + length ) );
+        return view.slice( );
+    }
+
+    protected static class BlockIndex
+    {
+        protected HeaderInformation header;
+        protected int[] types;
+        protected int[] encodings;
+        protected long[] offsets;
+        protected long[] lengths;
+        protected ByteBuffer[] blocks;
+
+        public BlockIndex( int numColumns )
+        {
+            this.types = new int[numColumns];
+            this.encodings = new int[numColumns];
+            this.offsets = new long[numColumns];
+            this.lengths = new long[numColumns];
+            this.blocks = new ByteBuffer[numColumns];
+        }
+    }
+
+    /**
+     * A WritableDataChannel which keeps track of its logical position, so that
+     * column blocks can be aligned and their offsets recorded in the footer.
+     */
+    protected static class PositionDataChannel extends WritableDataChannel
+    {
+        public PositionDataChannel( WritableByteChannel channel ) throws IOException
+        {
+            super( channel );
+        }
+
+        public long getPosition( )
+        {
+            return getTotalBytesWritten( ) + _byteBuffer.position( );
+        }
+
+        public void align( int alignment ) throws IOException
+        {
+            while ( getPosition( ) % alignment != 0 )
+            {
+                writeByte( ( byte ) 0 );
+            }
+        }
+    }
+}
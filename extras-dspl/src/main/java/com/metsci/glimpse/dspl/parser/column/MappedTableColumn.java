@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.parser.column;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+import com.metsci.glimpse.dspl.schema.Concept;
+import com.metsci.glimpse.dspl.schema.DataType;
+import com.metsci.glimpse.dspl.schema.Table.Column;
+
+/**
+ * A TableColumn backed by a block of a (usually memory mapped) ByteBuffer rather than a
+ * Java array. Individual values are read directly from the buffer, so opening a column
+ * costs nothing and pages of a mapped file are only loaded when they are touched.<p>
+ *
+ * The array getters (getFloatData( ), etc.) are supported for compatibility, but copy the
+ * entire column onto the heap the first time they are called. Callers which only need
+ * to scan the data should prefer the indexed getters or the typed buffer views.<p>
+ *
+ * Supports FLOAT, INTEGER, BOOLEAN, and DATE columns. Values are stored big-endian,
+ * one byte per boolean and eight bytes per date (milliseconds).
+ *
+ * @see com.metsci.glimpse.dspl.parser.MappedColumnBinaryParser
+ */
+public class MappedTableColumn extends AbstractTableColumn
+{
+    protected final ByteBuffer data;
+
+    // lazily copied heap arrays, see class comment
+    protected Object array;
+
+    public MappedTableColumn( Column column, Concept concept, DataType type, ByteBuffer data, int size )
+    {
+        super( column, concept, type, size );
+
+        long expected = ( long ) size * getBytesPerValue( type );
+        if ( data.remaining( ) < expected ) throw new IllegalArgumentException( String.format( "Column %s requires %d bytes but only %d were provided.", column.getId( ), expected, data.remaining( ) ) );
+
+        this.data = data.slice( );
+    }
+
+    public static int getBytesPerValue( DataType type )
+    {
+        switch ( type )
+        {
+        case FLOAT:
+        case INTEGER:
+            return 4;
+        case DATE:
+            return 8;
+        case BOOLEAN:
+            return 1;
+        default:
+            throw new IllegalArgumentException( String.format( "DataType %s cannot be stored in a MappedTableColumn.", type ) );
+        }
+    }
+
+    public static boolean isSupported( DataType type )
+    {
+        return type == DataType.FLOAT || type == DataType.INTEGER || type == DataType.BOOLEAN || type == DataType.DATE;
+    }
+
+    @Override
+    public boolean isConstant( )
+    {
+        return false;
+    }
+
+    /**
+     * @return a read only view of the raw column bytes
+     */
+    public ByteBuffer getBuffer( )
+    {
+        return data.asReadOnlyBuffer( );
+    }
+
+    public FloatBuffer getFloatBuffer( )
+    {
+        if ( type != DataType.FLOAT ) throw new UnsupportedOperationException( "Float DataType is not supported by this TableColumn." );
+        return getBuffer( ).asFloatBuffer( );
+    }
+
+    public IntBuffer getIntegerBuffer( )
+    {
+        if ( type != DataType.INTEGER ) throw new UnsupportedOperationException( "Integer DataType is not supported by this TableColumn." );
+        return getBuffer( ).asIntBuffer( );
+    }
+
+    public LongBuffer getDateBuffer( )
+    {
+        if ( type != DataType.DATE ) throw new UnsupportedOperationException( "Date DataType is not supported by this TableColumn." );
+        return getBuffer( ).asLongBuffer( );
+    }
+
+    @Override
+    public float getFloatData( int i )
+    {
+        if ( type != DataType.FLOAT ) return super.getFloatData( i );
+        return data.getFloat( i << 2 );
+    }
+
+    @Override
+    public int getIntegerData( int i )
+    {
+        if ( type != DataType.INTEGER ) return super.getIntegerData( i );
+        return data.getInt( i << 2 );
+    }
+
+    @Override
+    public boolean getBooleanData( int i )
+    {
+        if ( type != DataType.BOOLEAN ) return super.getBooleanData( i );
+        return data.get( i ) != 0;
+    }
+
+    @Override
+    public long getDateData( int i )
+    {
+        if ( type != DataType.DATE ) return super.getDateData( i );
+        return data.getLong( i << 3 );
+    }
+
+    @Override
+    public synchronized float[] getFloatData( )
+    {
+        if ( type != DataType.FLOAT ) return super.getFloatData( );
+
+        if ( array == null )
+        {
+            float[] values = new float[size];
+            getFloatBuffer( ).get( values );
+            array = values;
+        }
+
+        return ( float[] ) array;
+    }
+
+    @Override
+    public synchronized int[] getIntegerData( )
+    {
+        if ( type != DataType.INTEGER ) return super.getIntegerData( );
+
+        if ( array == null )
+        {
+            int[] values = new int[size];
+            getIntegerBuffer( ).get( values );
+            array = values;
+        }
+
+        return ( int[] ) array;
+    }
+
+    @Override
+    public synchronized boolean[] getBooleanData( )
+    {
+        if ( type != DataType.BOOLEAN ) return super.getBooleanData( );
+
+        if ( array == null )
+        {
+            boolean[] values = new boolean[size];
+            for ( int i = 0; i < size; i++ )
+            {
+                values[i] = data.get( i ) != 0;
+            }
+            array = values;
+        }
+
+        return ( boolean[] ) array;
+    }
+
+    @Override
+    public synchronized long[] getDateData( )
+    {
+        if ( type != DataType.DATE ) return super.getDateData( );
+
+        if ( array == null )
+        {
+            long[] values = new long[size];
+            getDateBuffer( ).get( values );
+            array = values;
+        }
+
+        return ( long[] ) array;
+    }
+
+    @Override
+    public int hashCode( )
+    {
+        return 31 + ( ( column.getId( ) == null ) ? 0 : column.getId( ).hashCode( ) );
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj ) return true;
+        if ( obj == null ) return false;
+        if ( getClass( ) != obj.getClass( ) ) return false;
+        MappedTableColumn other = ( MappedTableColumn ) obj;
+        if ( column.getId( ) == null ) return other.column.getId( ) == null;
+        return column.getId( ).equals( other.column.getId( ) );
+    }
+}
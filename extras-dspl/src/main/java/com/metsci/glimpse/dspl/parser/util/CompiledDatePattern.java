@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.parser.util;
+
+import org.joda.time.Chronology;
+import org.joda.time.chrono.ISOChronology;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+/**
+ * A date parser for a Joda-Time pattern which, when the pattern consists only of fixed width
+ * numeric fields (yyyy, MM, dd, HH, mm, ss, S to SSS) and literal or quoted ASCII text, is compiled
+ * into a list of fields at fixed offsets. Matching tokens are then parsed directly from their
+ * characters without allocation. Other patterns, and tokens which do not exactly match the
+ * compiled layout, are parsed with {@link DateTimeFormatter#parseMillis(String)}, so results
+ * (including exceptions for invalid tokens) are the same as the formatter's.
+ */
+public class CompiledDatePattern
+{
+    protected static final int YEAR = 0;
+    protected static final int MONTH = 1;
+    protected static final int DAY = 2;
+    protected static final int HOUR = 3;
+    protected static final int MINUTE = 4;
+    protected static final int SECOND = 5;
+    protected static final int MILLIS = 6;
+
+    protected static final int NUM_FIELDS = 7;
+
+    // marks a position in the layout which must contain a digit
+    protected static final char DIGIT = 0;
+
+    protected final String pattern;
+    protected final DateTimeFormatter formatter;
+    protected final Chronology chronology;
+
+    // null if the pattern could not be compiled
+    protected final char[] layout;
+    protected final int[] fieldOffsets;
+    protected final int[] fieldWidths;
+
+    public CompiledDatePattern( String pattern )
+    {
+        this.pattern = pattern;
+        this.formatter = DateTimeFormat.forPattern( pattern );
+
+        // the formatter parses in the default time zone
+        this.chronology = ISOChronology.getInstance( );
+
+        this.fieldOffsets = new int[NUM_FIELDS];
+        this.fieldWidths = new int[NUM_FIELDS];
+        this.layout = compile( pattern, fieldOffsets, fieldWidths );
+    }
+
+    public String getPattern( )
+    {
+        return pattern;
+    }
+
+    public DateTimeFormatter getFormatter( )
+    {
+        return formatter;
+    }
+
+    /**
+     * @return whether the fixed offset fast path is available for this pattern
+     */
+    public boolean isCompiled( )
+    {
+        return layout != null;
+    }
+
+    public long parseMillis( CharSequence token ) throws IllegalArgumentException
+    {
+        if ( matches( token ) )
+        {
+            return toMillis( token );
+        }
+        else
+        {
+            return formatter.parseMillis( token.toString( ) );
+        }
+    }
+
+    /**
+     * Parses a token stored as bytes in an ASCII compatible encoding.
+     */
+    public long parseMillis( byte[] data, int from, int to ) throws IllegalArgumentException
+    {
+        if ( matches( data, from, to ) )
+        {
+            return toMillis( data, from );
+        }
+        else
+        {
+            return formatter.parseMillis( TokenParsers.toString( data, from, to ) );
+        }
+    }
+
+    protected boolean matches( CharSequence token )
+    {
+        if ( layout == null || token.length( ) != layout.length ) return false;
+
+        for ( int i = 0; i < layout.length; i++ )
+        {
+            char c = token.charAt( i );
+            char expected = layout[i];
+
+            if ( expected == DIGIT ? ( c < '0' || c > '9' ) : c != expected ) return false;
+        }
+
+        return true;
+    }
+
+    protected boolean matches( byte[] data, int from, int to )
+    {
+        if ( layout == null || to - from != layout.length ) return false;
+
+        for ( int i = 0; i < layout.length; i++ )
+        {
+            int c = data[from + i];
+            char expected = layout[i];
+
+            if ( expected == DIGIT ? ( c < '0' || c > '9' ) : c != expected ) return false;
+        }
+
+        return true;
+    }
+
+    protected long toMillis( CharSequence token )
+    {
+        return toMillis( readField( token, YEAR ), readField( token, MONTH ), readField( token, DAY ), readField( token, HOUR ), readField( token, MINUTE ), readField( token, SECOND ), readField( token, MILLIS ) );
+    }
+
+    protected long toMillis( byte[] data, int from )
+    {
+        return toMillis( readField( data, from, YEAR ), readField( data, from, MONTH ), readField( data, from, DAY ), readField( data, from, HOUR ), readField( data, from, MINUTE ), readField( data, from, SECOND ), readField( data, from, MILLIS ) );
+    }
+
+    protected int readField( CharSequence token, int field )
+    {
+        int value = 0;
+        int offset = fieldOffsets[field];
+        for ( int i = 0; i < fieldWidths[field]; i++ )
+        {
+            value = value * 10 + ( token.charAt( offset + i ) - '0' );
+        }
+
+        return value;
+    }
+
+    protected int readField( byte[] data, int from, int field )
+    {
+        int value = 0;
+        int offset = from + fieldOffsets[field];
+        for ( int i = 0; i < fieldWidths[field]; i++ )
+        {
+            value = value * 10 + ( data[offset + i] - '0' );
+        }
+
+        return value;
+    }
+
+    protected long toMillis( int year, int month, int day, int hour, int minute, int second, int fraction )
+    {
+        // fields missing from the pattern default to 1970-01-01T00:00:00.000, as when parsing with the formatter
+        if ( fieldWidths[YEAR] == 0 ) year = 1970;
+        if ( fieldWidths[MONTH] == 0 ) month = 1;
+        if ( fieldWidths[DAY] == 0 ) day = 1;
+
+        // fractional seconds: S is tenths, SS hundredths, SSS millis
+        int millis = fraction;
+        for ( int i = fieldWidths[MILLIS]; i > 0 && i < 3; i++ )
+        {
+            millis *= 10;
+        }
+
+        return chronology.getDateTimeMillis( year, month, day, hour, minute, second, millis );
+    }
+
+    /**
+     * @return the expected character (or {@link #DIGIT}) at each position of a matching
+     *         token, or null if the pattern cannot be compiled
+     */
+    protected static char[] compile( String pattern, int[] fieldOffsets, int[] fieldWidths )
+    {
+        StringBuilder layout = new StringBuilder( );
+
+        int i = 0;
+        while ( i < pattern.length( ) )
+        {
+            char c = pattern.charAt( i );
+
+            if ( ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) )
+            {
+                int count = 1;
+                while ( i + count < pattern.length( ) && pattern.charAt( i + count ) == c )
+                {
+                    count++;
+                }
+
+                int field = getField( c, count );
+                if ( field < 0 || fieldWidths[field] != 0 ) return null;
+
+                fieldOffsets[field] = layout.length( );
+                fieldWidths[field] = count;
+                for ( int j = 0; j < count; j++ )
+                {
+                    layout.append( DIGIT );
+                }
+
+                i += count;
+            }
+            else if ( c == '\'' )
+            {
+                // quoted literal text, with '' representing a single quote
+                int end = i + 1;
+                while ( true )
+                {
+                    if ( end >= pattern.length( ) ) return null;
+
+                    char q = pattern.charAt( end );
+                    if ( q == '\'' )
+                    {
+                        if ( end + 1 < pattern.length( ) && pattern.charAt( end + 1 ) == '\'' )
+                        {
+                            layout.append( '\'' );
+                            end += 2;
+                            continue;
+                        }
+
+                        break;
+                    }
+
+                    if ( q >= 128 || q == DIGIT ) return null;
+                    layout.append( q );
+                    end++;
+                }
+
+                // a lone '' outside quotes is also a single quote
+                if ( end == i + 1 ) layout.append( '\'' );
+
+                i = end + 1;
+            }
+            else if ( c >= 128 || c == DIGIT )
+            {
+                // non-ASCII literals are left to the formatter
+                return null;
+            }
+            else
+            {
+                layout.append( c );
+                i++;
+            }
+        }
+
+        return layout.toString( ).toCharArray( );
+    }
+
+    protected static int getField( char c, int count )
+    {
+        switch ( c )
+        {
+        case 'y':
+            return count == 4 ? YEAR : -1;
+        case 'M':
+            return count == 2 ? MONTH : -1;
+        case 'd':
+            return count == 2 ? DAY : -1;
+        case 'H':
+            return count == 2 ? HOUR : -1;
+        case 'm':
+            return count == 2 ? MINUTE : -1;
+        case 's':
+            return count == 2 ? SECOND : -1;
+        case 'S':
+            return count <= 3 ? MILLIS : -1;
+        default:
+            return -1;
+        }
+    }
+}
@@ -26,6 +26,8 @@
  */
 package com.metsci.glimpse.dspl.parser.util;
 
+import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
+
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
@@ -34,8 +36,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
@@ -68,8 +70,9 @@ public class DsplCacheHelper
 
     public static final String CACHE_FILE = "cache_data";
 
-    public static final String CACHE_FORMAT = "bin";
+    public static final String CACHE_FORMAT = "mbin";
     public static final String HASH_FILE = ".md5";
+    public static final String STAMP_FILE = ".stamp";
 
     public static PropertyTableData getTableData( Concept concept ) throws DsplException, JAXBException, IOException
     {
@@ -83,9 +86,6 @@ public class DsplCacheHelper
             DsplParser dsplParser = dataset.getParser( );
             if ( dsplParser == null ) return null;
 
-            String calculatedHash = getCalculatedHash( concept );
-            if ( calculatedHash == null ) return null;
-
             Table table = concept.getTable( );
             if ( table == null ) return null;
 
@@ -99,40 +99,98 @@ public class DsplCacheHelper
                 return parser.parse( concept );
             }
 
-            String cachedHash = getCachedHash( concept );
+            File cacheFile = getCacheFile( concept );
+            File cacheDirectory = getCacheDirectory( concept );
+            TableParser cacheParser = dsplParser.getTableParser( getExtension( cacheFile ) );
 
-            // the cache has not been created or the csv data has changed, load the data from the csv file and recreate the hash
-            if ( cachedHash == null || !cachedHash.equals( calculatedHash ) )
+            // compare file sizes and modification times first, only hashing the data if they differ
+            String calculatedStamp = getCalculatedStamp( concept );
+            String calculatedHash = null;
+
+            if ( cacheFile.exists( ) )
             {
-                PropertyTableData tableData = parser.parse( concept );
+                boolean fresh = calculatedStamp != null && calculatedStamp.equals( getCachedStamp( cacheDirectory ) );
 
-                File cacheFile = getCacheFile( concept );
-                FileOutputStream cacheFileStream = new FileOutputStream( cacheFile );
+                if ( !fresh )
+                {
+                    calculatedHash = getCalculatedHash( concept );
+                    if ( calculatedHash == null ) return null;
 
-                String cacheFormat = getExtension( cacheFile );
+                    String cachedHash = getCachedHash( concept );
+                    fresh = cachedHash != null && cachedHash.equals( calculatedHash );
 
-                TableParser cacheParser = dsplParser.getTableParser( cacheFormat );
+                    // the data files were touched but their contents did not change
+                    if ( fresh ) writeStamp( cacheDirectory, calculatedStamp );
+                }
 
-                if ( cacheParser instanceof TableWriter )
+                // load the data from the cache
+                if ( fresh )
                 {
-                    ( ( TableWriter ) cacheParser ).write( concept, tableData, cacheFileStream.getChannel( ) );
-                    writeHash( concept, calculatedHash );
+                    try
+                    {
+                        return cacheParser.parse( concept, new FileInputStream( cacheFile ).getChannel( ) );
+                    }
+                    catch ( DsplException e )
+                    {
+                        logWarning( logger, "Unable to read cached data for %s. Recreating cache.", e, concept.getId( ) );
+                    }
+                    catch ( IOException e )
+                    {
+                        logWarning( logger, "Unable to read cached data for %s. Recreating cache.", e, concept.getId( ) );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        // a truncated or corrupt cache file (for example, a BufferUnderflowException from the mapped parser)
+                        logWarning( logger, "Corrupt cached data for %s. Recreating cache.", e, concept.getId( ) );
+                    }
                 }
-                else
+            }
+
+            // the cache has not been created or the csv data has changed, load the data from the csv file and recreate the hash
+            if ( calculatedHash == null ) calculatedHash = getCalculatedHash( concept );
+            if ( calculatedHash == null ) return null;
+
+            PropertyTableData tableData = parser.parse( concept );
+
+            if ( cacheParser instanceof TableWriter )
+            {
+                // write the new cache beside the old one and rename it into place, because columns
+                // from an earlier load may still be memory mapped from the old cache file
+                File tempFile = getTempCacheFile( cacheFile );
+                try
                 {
-                    throw new DsplException( "Invalid cache format: %s. TableParser %s is not a TableWriter.", cacheFormat, cacheParser.getClass( ) );
+                    FileOutputStream out = new FileOutputStream( tempFile );
+                    try
+                    {
+                        ( ( TableWriter ) cacheParser ).write( concept, tableData, out.getChannel( ) );
+                    }
+                    finally
+                    {
+                        out.close( );
+                    }
+
+                    if ( replaceCacheFile( tempFile, cacheFile ) )
+                    {
+                        writeHash( concept, calculatedHash );
+                        writeStamp( cacheDirectory, calculatedStamp );
+                    }
+                    else
+                    {
+                        logWarning( logger, "Unable to replace cached data for %s.", concept.getId( ) );
+                    }
+                }
+                finally
+                {
+                    // does nothing once the temporary file has been renamed into place
+                    tempFile.delete( );
                 }
-
-                return tableData;
             }
-            // load the data from the cache
             else
             {
-                File cacheFile = getCacheFile( concept );
-                FileInputStream cacheFileStream = new FileInputStream( cacheFile );
-                TableParser cacheParser = dsplParser.getTableParser( getExtension( cacheFile ) );
-                return cacheParser.parse( concept, cacheFileStream.getChannel( ) );
+                throw new DsplException( "Invalid cache format: %s. TableParser %s is not a TableWriter.", getExtension( cacheFile ), cacheParser.getClass( ) );
             }
+
+            return tableData;
         }
         catch ( NoSuchAlgorithmException e )
         {
@@ -152,9 +210,6 @@ public class DsplCacheHelper
             DsplParser dsplParser = dataset.getParser( );
             if ( dsplParser == null ) return null;
 
-            String calculatedHash = getCalculatedHash( slice );
-            if ( calculatedHash == null ) return null;
-
             Table table = slice.getTable( );
             if ( table == null ) return null;
 
@@ -168,40 +223,98 @@ public class DsplCacheHelper
                 return parser.parse( slice );
             }
 
-            String cachedHash = getCachedHash( slice );
+            File cacheFile = getCacheFile( slice );
+            File cacheDirectory = getCacheDirectory( slice );
+            TableParser cacheParser = dsplParser.getTableParser( getExtension( cacheFile ) );
 
-            // the cache has not been created or the csv data has changed, load the data from the csv file and recreate the hash
-            if ( cachedHash == null || !cachedHash.equals( calculatedHash ) )
+            // compare file sizes and modification times first, only hashing the data if they differ
+            String calculatedStamp = getCalculatedStamp( slice );
+            String calculatedHash = null;
+
+            if ( cacheFile.exists( ) )
             {
-                SliceTableData tableData = parser.parse( slice );
+                boolean fresh = calculatedStamp != null && calculatedStamp.equals( getCachedStamp( cacheDirectory ) );
+
+                if ( !fresh )
+                {
+                    calculatedHash = getCalculatedHash( slice );
+                    if ( calculatedHash == null ) return null;
+
+                    String cachedHash = getCachedHash( slice );
+                    fresh = cachedHash != null && cachedHash.equals( calculatedHash );
+
+                    // the data files were touched but their contents did not change
+                    if ( fresh ) writeStamp( cacheDirectory, calculatedStamp );
+                }
 
-                File cacheFile = getCacheFile( slice );
-                OutputStream cacheFileStream = new FileOutputStream( cacheFile );
+                // load the data from the cache
+                if ( fresh )
+                {
+                    try
+                    {
+                        return cacheParser.parse( slice, new FileInputStream( cacheFile ).getChannel( ) );
+                    }
+                    catch ( DsplException e )
+                    {
+                        logWarning( logger, "Unable to read cached data for %s. Recreating cache.", e, slice.getId( ) );
+                    }
+                    catch ( IOException e )
+                    {
+                        logWarning( logger, "Unable to read cached data for %s. Recreating cache.", e, slice.getId( ) );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        // a truncated or corrupt cache file (for example, a BufferUnderflowException from the mapped parser)
+                        logWarning( logger, "Corrupt cached data for %s. Recreating cache.", e, slice.getId( ) );
+                    }
+                }
+            }
 
-                String cacheFormat = getExtension( cacheFile );
+            // the cache has not been created or the csv data has changed, load the data from the csv file and recreate the hash
+            if ( calculatedHash == null ) calculatedHash = getCalculatedHash( slice );
+            if ( calculatedHash == null ) return null;
 
-                TableParser cacheParser = dsplParser.getTableParser( cacheFormat );
+            SliceTableData tableData = parser.parse( slice );
 
-                if ( cacheParser instanceof TableWriter )
+            if ( cacheParser instanceof TableWriter )
+            {
+                // write the new cache beside the old one and rename it into place, because columns
+                // from an earlier load may still be memory mapped from the old cache file
+                File tempFile = getTempCacheFile( cacheFile );
+                try
                 {
-                    ( ( TableWriter ) cacheParser ).write( slice, tableData, cacheFileStream );
-                    writeHash( slice, calculatedHash );
+                    FileOutputStream out = new FileOutputStream( tempFile );
+                    try
+                    {
+                        ( ( TableWriter ) cacheParser ).write( slice, tableData, out.getChannel( ) );
+                    }
+                    finally
+                    {
+                        out.close( );
+                    }
+
+                    if ( replaceCacheFile( tempFile, cacheFile ) )
+                    {
+                        writeHash( slice, calculatedHash );
+                        writeStamp( cacheDirectory, calculatedStamp );
+                    }
+                    else
+                    {
+                        logWarning( logger, "Unable to replace cached data for %s.", slice.getId( ) );
+                    }
                 }
-                else
+                finally
                 {
-                    throw new DsplException( "Invalid cache format: %s. TableParser %s is not a TableWriter.", cacheFormat, cacheParser.getClass( ) );
+                    // does nothing once the temporary file has been renamed into place
+                    tempFile.delete( );
                 }
-
-                return tableData;
             }
-            // load the data from the cache
             else
             {
-                File cacheFile = getCacheFile( slice );
-                InputStream cacheFileStream = new FileInputStream( cacheFile );
-                TableParser cacheParser = dsplParser.getTableParser( getExtension( cacheFile ) );
-                return cacheParser.parse( slice, cacheFileStream );
+                throw new DsplException( "Invalid cache format: %s. TableParser %s is not a TableWriter.", getExtension( cacheFile ), cacheParser.getClass( ) );
             }
+
+            return tableData;
         }
         catch ( NoSuchAlgorithmException e )
         {
@@ -379,6 +492,144 @@ public class DsplCacheHelper
         }
     }
 
+    /**
+     * Describes the size and modification time of each source data file. If this matches
+     * the stamp stored with the cache, the cache is assumed to be up to date without hashing
+     * the data files.
+     *
+     * @return the stamp, or null if the data is not stored in local files (in which case
+     *         freshness must be checked by hashing)
+     */
+    public static String getCalculatedStamp( Slice slice ) throws DsplException, JAXBException, IOException
+    {
+        TableParser parser = slice.getDataSet( ).getParser( ).getTableParser( slice.getTable( ) );
+
+        if ( parser instanceof MultipleFileTableParser )
+        {
+            return getCalculatedStamp( getLocalFiles( ( ( MultipleFileTableParser ) parser ).getDataFiles( slice ) ) );
+        }
+        else
+        {
+            return getCalculatedStamp( getLocalTableFile( slice.getTable( ) ) );
+        }
+    }
+
+    public static String getCalculatedStamp( Concept concept ) throws DsplException, JAXBException, IOException
+    {
+        TableParser parser = concept.getDataSet( ).getParser( ).getTableParser( concept.getTable( ) );
+
+        if ( parser instanceof MultipleFileTableParser )
+        {
+            return getCalculatedStamp( getLocalFiles( ( ( MultipleFileTableParser ) parser ).getDataFiles( concept ) ) );
+        }
+        else
+        {
+            return getCalculatedStamp( getLocalTableFile( concept.getTable( ) ) );
+        }
+    }
+
+    protected static String getCalculatedStamp( File... files )
+    {
+        if ( files == null ) return null;
+
+        StringBuilder stamp = new StringBuilder( );
+
+        for ( File file : files )
+        {
+            if ( file == null || !file.isFile( ) ) return null;
+
+            if ( stamp.length( ) > 0 ) stamp.append( '\t' );
+            stamp.append( file.getAbsolutePath( ) ).append( '\t' ).append( file.length( ) ).append( '\t' ).append( file.lastModified( ) );
+        }
+
+        return stamp.toString( );
+    }
+
+    protected static File[] getLocalFiles( List<URL> urls )
+    {
+        File[] files = new File[urls.size( )];
+
+        for ( int i = 0; i < files.length; i++ )
+        {
+            URL url = urls.get( i );
+            if ( !"file".equals( url.getProtocol( ) ) ) return null;
+
+            try
+            {
+                files[i] = new File( url.toURI( ) );
+            }
+            catch ( URISyntaxException e )
+            {
+                return null;
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Mirrors the lookup performed by {@link DsplHelper#getLocalTableInputStream(DataSet, String)},
+     * but only for tables stored as plain files (not zip entries, classpath resources, or
+     * canonical datasets).
+     */
+    protected static File getLocalTableFile( Table table )
+    {
+        if ( table == null || table.getData( ) == null ) return null;
+
+        DataSet dataset = table.getDataSet( );
+        String namespace = dataset.getTargetNamespace( );
+        if ( namespace != null && ( namespace.startsWith( DsplHelper.canonicalGoogleNamespace ) || namespace.startsWith( DsplHelper.canonicalMetronNamespace ) ) ) return null;
+
+        String name = table.getData( ).getFile( ).getValue( );
+
+        File file = new File( name );
+        if ( file.isFile( ) ) return file;
+
+        File dataSetFile = dataset.getFile( );
+        if ( dataSetFile == null || dataSetFile.getName( ).endsWith( ".zip" ) ) return null;
+
+        file = new File( dataSetFile.getParentFile( ), name );
+        return file.isFile( ) ? file : null;
+    }
+
+    public static String getCachedStamp( File cacheDirectory ) throws IOException
+    {
+        File stampFile = new File( cacheDirectory, STAMP_FILE );
+        if ( !stampFile.isFile( ) ) return null;
+
+        BufferedReader in = new BufferedReader( new InputStreamReader( new FileInputStream( stampFile ) ) );
+        try
+        {
+            return in.readLine( );
+        }
+        finally
+        {
+            in.close( );
+        }
+    }
+
+    public static void writeStamp( File cacheDirectory, String stamp ) throws IOException
+    {
+        File stampFile = new File( cacheDirectory, STAMP_FILE );
+
+        // without a stamp, freshness is always checked by hashing
+        if ( stamp == null )
+        {
+            stampFile.delete( );
+            return;
+        }
+
+        BufferedWriter out = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( stampFile ) ) );
+        try
+        {
+            out.write( stamp );
+        }
+        finally
+        {
+            out.close( );
+        }
+    }
+
     public static String getCachedHash( Slice slice ) throws DsplException, JAXBException, IOException
     {
         return getCachedHash( slice.getDataSet( ), slice.getTable( ), slice.getId( ) );
@@ -433,6 +684,20 @@ public class DsplCacheHelper
         out.close( );
     }
 
+    protected static File getTempCacheFile( File cacheFile ) throws IOException
+    {
+        return File.createTempFile( cacheFile.getName( ), ".tmp", cacheFile.getParentFile( ) );
+    }
+
+    protected static boolean replaceCacheFile( File tempFile, File cacheFile )
+    {
+        // renameTo atomically replaces an existing file on POSIX systems, but fails on
+        // Windows (where a file which is still mapped cannot be deleted either)
+        if ( tempFile.renameTo( cacheFile ) ) return true;
+
+        return cacheFile.delete( ) && tempFile.renameTo( cacheFile );
+    }
+
     protected static String getExtension( File file )
     {
         if ( file == null ) return null;
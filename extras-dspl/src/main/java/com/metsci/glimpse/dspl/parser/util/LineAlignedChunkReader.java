@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.parser.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Reads an InputStream as a series of byte chunks which always end on a line boundary,
+ * so that each chunk can be parsed independently (and in parallel). Lines are terminated
+ * by '\n', '\r', or "\r\n", as for {@link java.io.BufferedReader#readLine()}.<p>
+ *
+ * Each chunk is a newly allocated array owned by the caller. A chunk is normally about
+ * chunkSize bytes long, but grows as needed to hold at least one complete line.
+ */
+public class LineAlignedChunkReader
+{
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    protected final InputStream in;
+    protected final int chunkSize;
+
+    // bytes which have been read from the stream but not yet returned
+    protected byte[] pending;
+    protected int pendingLength;
+    protected boolean endOfStream;
+
+    public LineAlignedChunkReader( InputStream in )
+    {
+        this( in, DEFAULT_CHUNK_SIZE );
+    }
+
+    public LineAlignedChunkReader( InputStream in, int chunkSize )
+    {
+        if ( chunkSize < 1 ) throw new IllegalArgumentException( String.format( "chunkSize must be positive: %d", chunkSize ) );
+
+        this.in = in;
+        this.chunkSize = chunkSize;
+        this.pending = new byte[0];
+        this.pendingLength = 0;
+    }
+
+    /**
+     * Reads a single line (for example a header row) and decodes it.
+     *
+     * @return the line without its terminator, or null if the stream is empty
+     */
+    public String readLine( Charset charset ) throws IOException
+    {
+        int searchFrom = 0;
+
+        while ( true )
+        {
+            for ( int i = searchFrom; i < pendingLength; i++ )
+            {
+                byte b = pending[i];
+                if ( b == '\n' || b == '\r' )
+                {
+                    // a '\r' at the very end of the buffer may be followed by a '\n'
+                    if ( b == '\r' && i == pendingLength - 1 && !endOfStream )
+                    {
+                        break;
+                    }
+
+                    String line = new String( pending, 0, i, charset );
+
+                    int next = i + 1;
+                    if ( b == '\r' && next < pendingLength && pending[next] == '\n' ) next++;
+
+                    consume( next );
+                    return line;
+                }
+            }
+
+            if ( endOfStream )
+            {
+                if ( pendingLength == 0 ) return null;
+
+                String line = new String( pending, 0, pendingLength, charset );
+                consume( pendingLength );
+                return line;
+            }
+
+            searchFrom = Math.max( 0, pendingLength - 1 );
+            fill( Math.max( pendingLength * 2, 8192 ) );
+        }
+    }
+
+    /**
+     * @return the next chunk of complete lines, or null if the stream has been exhausted
+     */
+    public Chunk nextChunk( ) throws IOException
+    {
+        byte[] buffer = new byte[Math.max( chunkSize, pendingLength )];
+        System.arraycopy( pending, 0, buffer, 0, pendingLength );
+        int length = pendingLength;
+        pendingLength = 0;
+
+        while ( true )
+        {
+            length = readFully( buffer, length );
+
+            if ( endOfStream )
+            {
+                pending = new byte[0];
+                return length == 0 ? null : new Chunk( buffer, length );
+            }
+
+            // cut after the last line terminator, preferring '\n' so "\r\n" is never split
+            int cut = lastIndexOf( buffer, length, ( byte ) '\n' );
+            if ( cut < 0 ) cut = lastIndexOf( buffer, length - 1, ( byte ) '\r' );
+
+            if ( cut >= 0 )
+            {
+                int remainder = length - ( cut + 1 );
+                pending = new byte[Math.max( remainder, 64 )];
+                pendingLength = remainder;
+                System.arraycopy( buffer, cut + 1, pending, 0, remainder );
+                return new Chunk( buffer, cut + 1 );
+            }
+
+            // a single line longer than the buffer, keep reading
+            byte[] larger = new byte[buffer.length * 2];
+            System.arraycopy( buffer, 0, larger, 0, length );
+            buffer = larger;
+        }
+    }
+
+    /**
+     * @return a stream containing all bytes not yet returned by this reader
+     */
+    public InputStream getRemainingStream( )
+    {
+        InputStream remaining = new ByteArrayInputStream( pending, 0, pendingLength );
+        pendingLength = 0;
+        return endOfStream ? remaining : new SequenceInputStream( remaining, in );
+    }
+
+    protected int readFully( byte[] buffer, int length ) throws IOException
+    {
+        while ( length < buffer.length )
+        {
+            int read = in.read( buffer, length, buffer.length - length );
+
+            if ( read < 0 )
+            {
+                endOfStream = true;
+                break;
+            }
+
+            length += read;
+        }
+
+        return length;
+    }
+
+    protected void fill( int capacity ) throws IOException
+    {
+        if ( pending.length < capacity )
+        {
+            byte[] larger = new byte[capacity];
+            System.arraycopy( pending, 0, larger, 0, pendingLength );
+            pending = larger;
+        }
+
+        int read = in.read( pending, pendingLength, pending.length - pendingLength );
+        if ( read < 0 )
+            endOfStream = true;
+        else
+            pendingLength += read;
+    }
+
+    protected void consume( int count )
+    {
+        System.arraycopy( pending, count, pending, 0, pendingLength - count );
+        pendingLength -= count;
+    }
+
+    protected static int lastIndexOf( byte[] buffer, int length, byte value )
+    {
+        for ( int i = length - 1; i >= 0; i-- )
+        {
+            if ( buffer[i] == value ) return i;
+        }
+
+        return -1;
+    }
+
+    public static class Chunk
+    {
+        protected final byte[] data;
+        protected final int length;
+
+        public Chunk( byte[] data, int length )
+        {
+            this.data = data;
+            this.length = length;
+        }
+
+        public byte[] getData( )
+        {
+            return data;
+        }
+
+        public int getLength( )
+        {
+            return length;
+        }
+    }
+}
@@ -32,6 +32,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.metsci.glimpse.util.primitives.IntsArray;
+
 public class QuoteAwareStringSplitter
 {
     protected static final char QUOTE = '\"';
@@ -157,4 +159,101 @@ public class QuoteAwareStringSplitter
 
         return items.toArray( new String[0] );
     }
+
+    /**
+     * Splits a line stored as bytes in an ASCII compatible encoding (such as UTF-8) without
+     * creating any Strings. Follows exactly the same rules as {@link #splitLine(String, char, int)}.
+     * The start (inclusive) and end (exclusive) byte offsets of each token are appended to
+     * the provided arrays, which are cleared first.
+     *
+     * @return the number of tokens found
+     */
+    public static int splitLine( byte[] line, int from, int to, char split, int limit, IntsArray starts, IntsArray ends ) throws IOException
+    {
+        starts.n = 0;
+        ends.n = 0;
+
+        int itemStartPos = from;
+        ParseMode mode = DEFAULT;
+        for ( int linePos = from; linePos < to; linePos++ )
+        {
+            if ( starts.n == limit - 1 )
+            {
+                linePos = to - 1;
+            }
+
+            byte c = line[linePos];
+
+            if ( linePos == to - 1 )
+            {
+                if ( c == QUOTE )
+                {
+                    addToken( starts, ends, itemStartPos, linePos );
+                }
+                else if ( c == split )
+                {
+                    addToken( starts, ends, itemStartPos, linePos );
+                    if ( starts.n < limit )
+                    {
+                        addToken( starts, ends, from, from );
+                    }
+                }
+                else
+                {
+                    addToken( starts, ends, itemStartPos, linePos + 1 );
+                }
+                break;
+            }
+
+            switch ( mode )
+            {
+
+            case BETWEEN_QUOTES:
+                if ( c == QUOTE )
+                {
+                    addToken( starts, ends, itemStartPos, linePos );
+                    mode = AFTER_END_QUOTE_BEFORE_COMMA;
+                    itemStartPos = linePos + 1;
+                }
+                break;
+
+            case AFTER_END_QUOTE_BEFORE_COMMA:
+                if ( c == QUOTE )
+                {
+                    throw new IOException( String.format( "Unable to parse: \"%s\"", new String( line, from, to - from ) ) );
+                }
+                else if ( c == split )
+                {
+                    itemStartPos = linePos + 1;
+                    mode = DEFAULT;
+                }
+                break;
+
+            case DEFAULT:
+                if ( c == QUOTE )
+                {
+                    itemStartPos = linePos + 1;
+                    mode = BETWEEN_QUOTES;
+                }
+                else if ( c == split )
+                {
+                    addToken( starts, ends, itemStartPos, linePos );
+                    itemStartPos = linePos + 1;
+                }
+                break;
+
+            default:
+                throw new RuntimeException( String.format( "Unexpected state while parsing: \"%s\"", new String( line, from, to - from ) ) );
+
+            }
+        }
+
+        return starts.n;
+    }
+
+    private static void addToken( IntsArray starts, IntsArray ends, int start, int end )
+    {
+        starts.append( start );
+        ends.append( end );
+    }
 }
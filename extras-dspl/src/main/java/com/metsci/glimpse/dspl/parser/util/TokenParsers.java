@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.parser.util;
+
+/**
+ * Parses numeric and boolean tokens directly from a range of a CharSequence or of an
+ * ASCII compatible byte array, without allocating intermediate Strings.<p>
+ *
+ * Results are identical to {@link Integer#parseInt(String)}, {@link Float#parseFloat(String)}
+ * and {@link Boolean#parseBoolean(String)}. Plain decimal floats (with an optional exponent)
+ * are handled by a fast path; anything else falls back to the JDK parser.
+ */
+public class TokenParsers
+{
+    protected static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+
+    protected static final double[] DOUBLE_POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    // integers up to these magnitudes are exactly representable
+    protected static final long MAX_EXACT_FLOAT_MANTISSA = 1L << 24;
+    protected static final long MAX_EXACT_DOUBLE_MANTISSA = 1L << 53;
+
+    // a double lies exactly halfway between two floats when its 29 extra mantissa bits are 100...0
+    protected static final long FLOAT_MIDPOINT_MASK = ( 1L << 29 ) - 1;
+    protected static final long FLOAT_MIDPOINT_BITS = 1L << 28;
+
+    public static int parseInt( byte[] data, int from, int to ) throws NumberFormatException
+    {
+        if ( from >= to ) throw numberFormatException( data, from, to );
+
+        int i = from;
+        boolean negative = false;
+
+        byte first = data[i];
+        if ( first == '-' || first == '+' )
+        {
+            negative = first == '-';
+            i++;
+            if ( i == to ) throw numberFormatException( data, from, to );
+        }
+
+        // accumulate negatively so that Integer.MIN_VALUE can be represented
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+
+        for ( ; i < to; i++ )
+        {
+            int digit = data[i] - '0';
+            if ( digit < 0 || digit > 9 ) throw numberFormatException( data, from, to );
+            if ( result < limit / 10 ) throw numberFormatException( data, from, to );
+            result *= 10;
+            if ( result < limit + digit ) throw numberFormatException( data, from, to );
+            result -= digit;
+        }
+
+        return negative ? result : -result;
+    }
+
+    public static int parseInt( CharSequence data ) throws NumberFormatException
+    {
+        return parseInt( data, 0, data.length( ) );
+    }
+
+    public static int parseInt( CharSequence data, int from, int to ) throws NumberFormatException
+    {
+        if ( from >= to ) throw numberFormatException( data, from, to );
+
+        int i = from;
+        boolean negative = false;
+
+        char first = data.charAt( i );
+        if ( first == '-' || first == '+' )
+        {
+            negative = first == '-';
+            i++;
+            if ( i == to ) throw numberFormatException( data, from, to );
+        }
+
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+
+        for ( ; i < to; i++ )
+        {
+            int digit = data.charAt( i ) - '0';
+            if ( digit < 0 || digit > 9 ) throw numberFormatException( data, from, to );
+            if ( result < limit / 10 ) throw numberFormatException( data, from, to );
+            result *= 10;
+            if ( result < limit + digit ) throw numberFormatException( data, from, to );
+            result -= digit;
+        }
+
+        return negative ? result : -result;
+    }
+
+    public static float parseFloat( byte[] data, int from, int to ) throws NumberFormatException
+    {
+        int i = from;
+        boolean negative = false;
+
+        if ( i < to && ( data[i] == '-' || data[i] == '+' ) )
+        {
+            negative = data[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int digits = 0;
+        int exponent = 0;
+
+        // integer part
+        for ( ; i < to; i++ )
+        {
+            int digit = data[i] - '0';
+            if ( digit < 0 || digit > 9 ) break;
+            digits++;
+            if ( mantissa == 0 && digit == 0 ) continue;
+            if ( ++significantDigits > 18 ) return parseFloatSlow( data, from, to );
+            mantissa = mantissa * 10 + digit;
+        }
+
+        // fractional part
+        if ( i < to && data[i] == '.' )
+        {
+            for ( i++; i < to; i++ )
+            {
+                int digit = data[i] - '0';
+                if ( digit < 0 || digit > 9 ) break;
+                digits++;
+                exponent--;
+                if ( mantissa == 0 && digit == 0 ) continue;
+                if ( ++significantDigits > 18 ) return parseFloatSlow( data, from, to );
+                mantissa = mantissa * 10 + digit;
+            }
+        }
+
+        if ( digits == 0 ) return parseFloatSlow( data, from, to );
+
+        // exponent
+        if ( i < to && ( data[i] == 'e' || data[i] == 'E' ) )
+        {
+            i++;
+            boolean negativeExponent = false;
+            if ( i < to && ( data[i] == '-' || data[i] == '+' ) )
+            {
+                negativeExponent = data[i] == '-';
+                i++;
+            }
+
+            int explicitExponent = 0;
+            int exponentDigits = 0;
+            for ( ; i < to; i++ )
+            {
+                int digit = data[i] - '0';
+                if ( digit < 0 || digit > 9 ) break;
+                if ( ++exponentDigits > 4 ) return parseFloatSlow( data, from, to );
+                explicitExponent = explicitExponent * 10 + digit;
+            }
+
+            if ( exponentDigits == 0 ) return parseFloatSlow( data, from, to );
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        // trailing whitespace, type suffixes, etc.
+        if ( i != to ) return parseFloatSlow( data, from, to );
+
+        float value = toFloat( mantissa, exponent );
+        if ( Float.isNaN( value ) ) return parseFloatSlow( data, from, to );
+
+        return negative ? -value : value;
+    }
+
+    public static float parseFloat( CharSequence data ) throws NumberFormatException
+    {
+        return parseFloat( data, 0, data.length( ) );
+    }
+
+    public static float parseFloat( CharSequence data, int from, int to ) throws NumberFormatException
+    {
+        int i = from;
+        boolean negative = false;
+
+        if ( i < to && ( data.charAt( i ) == '-' || data.charAt( i ) == '+' ) )
+        {
+            negative = data.charAt( i ) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int digits = 0;
+        int exponent = 0;
+
+        for ( ; i < to; i++ )
+        {
+            int digit = data.charAt( i ) - '0';
+            if ( digit < 0 || digit > 9 ) break;
+            digits++;
+            if ( mantissa == 0 && digit == 0 ) continue;
+            if ( ++significantDigits > 18 ) return parseFloatSlow( data, from, to );
+            mantissa = mantissa * 10 + digit;
+        }
+
+        if ( i < to && data.charAt( i ) == '.' )
+        {
+            for ( i++; i < to; i++ )
+            {
+                int digit = data.charAt( i ) - '0';
+                if ( digit < 0 || digit > 9 ) break;
+                digits++;
+                exponent--;
+                if ( mantissa == 0 && digit == 0 ) continue;
+                if ( ++significantDigits > 18 ) return parseFloatSlow( data, from, to );
+                mantissa = mantissa * 10 + digit;
+            }
+        }
+
+        if ( digits == 0 ) return parseFloatSlow( data, from, to );
+
+        if ( i < to && ( data.charAt( i ) == 'e' || data.charAt( i ) == 'E' ) )
+        {
+            i++;
+            boolean negativeExponent = false;
+            if ( i < to && ( data.charAt( i ) == '-' || data.charAt( i ) == '+' ) )
+            {
+                negativeExponent = data.charAt( i ) == '-';
+                i++;
+            }
+
+            int explicitExponent = 0;
+            int exponentDigits = 0;
+            for ( ; i < to; i++ )
+            {
+                int digit = data.charAt( i ) - '0';
+                if ( digit < 0 || digit > 9 ) break;
+                if ( ++exponentDigits > 4 ) return parseFloatSlow( data, from, to );
+                explicitExponent = explicitExponent * 10 + digit;
+            }
+
+            if ( exponentDigits == 0 ) return parseFloatSlow( data, from, to );
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if ( i != to ) return parseFloatSlow( data, from, to );
+
+        float value = toFloat( mantissa, exponent );
+        if ( Float.isNaN( value ) ) return parseFloatSlow( data, from, to );
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return mantissa * 10^exponent correctly rounded to a float, or NaN if
+     *         that cannot be guaranteed without the slow path
+     */
+    protected static float toFloat( long mantissa, int exponent )
+    {
+        if ( mantissa == 0 ) return 0.0f;
+
+        // a single correctly rounded float operation on exact operands
+        if ( mantissa < MAX_EXACT_FLOAT_MANTISSA && exponent >= -10 && exponent <= 10 )
+        {
+            float m = mantissa;
+            return exponent >= 0 ? m * FLOAT_POWERS_OF_TEN[exponent] : m / FLOAT_POWERS_OF_TEN[-exponent];
+        }
+
+        // a single correctly rounded double operation, which is then rounded again to
+        // a float: this is only safe if the double did not land exactly on a float midpoint
+        if ( mantissa < MAX_EXACT_DOUBLE_MANTISSA && exponent >= -22 && exponent <= 22 )
+        {
+            double m = mantissa;
+            double d = exponent >= 0 ? m * DOUBLE_POWERS_OF_TEN[exponent] : m / DOUBLE_POWERS_OF_TEN[-exponent];
+
+            if ( d < Float.MIN_NORMAL || d > Float.MAX_VALUE ) return Float.NaN;
+            if ( ( Double.doubleToRawLongBits( d ) & FLOAT_MIDPOINT_MASK ) == FLOAT_MIDPOINT_BITS ) return Float.NaN;
+
+            return ( float ) d;
+        }
+
+        return Float.NaN;
+    }
+
+    protected static float parseFloatSlow( byte[] data, int from, int to )
+    {
+        return Float.parseFloat( toString( data, from, to ) );
+    }
+
+    protected static float parseFloatSlow( CharSequence data, int from, int to )
+    {
+        return Float.parseFloat( data.subSequence( from, to ).toString( ) );
+    }
+
+    public static boolean parseBoolean( byte[] data, int from, int to )
+    {
+        return to - from == 4 && ( data[from] | 0x20 ) == 't' && ( data[from + 1] | 0x20 ) == 'r' && ( data[from + 2] | 0x20 ) == 'u' && ( data[from + 3] | 0x20 ) == 'e';
+    }
+
+    public static boolean parseBoolean( CharSequence data )
+    {
+        return data.length( ) == 4 && ( data.charAt( 0 ) | 0x20 ) == 't' && ( data.charAt( 1 ) | 0x20 ) == 'r' && ( data.charAt( 2 ) | 0x20 ) == 'u' && ( data.charAt( 3 ) | 0x20 ) == 'e';
+    }
+
+    protected static String toString( byte[] data, int from, int to )
+    {
+        char[] chars = new char[to - from];
+        for ( int i = from; i < to; i++ )
+        {
+            chars[i - from] = ( char ) ( data[i] & 0xFF );
+        }
+
+        return new String( chars );
+    }
+
+    protected static NumberFormatException numberFormatException( byte[] data, int from, int to )
+    {
+        return new NumberFormatException( String.format( "For input string: \"%s\"", toString( data, from, to ) ) );
+    }
+
+    protected static NumberFormatException numberFormatException( CharSequence data, int from, int to )
+    {
+        return new NumberFormatException( String.format( "For input string: \"%s\"", data.subSequence( from, to ) ) );
+    }
+}
@@ -40,6 +40,7 @@ import com.metsci.glimpse.axis.tagged.TaggedAxisMouseListener1D;
 import com.metsci.glimpse.axis.tagged.painter.TaggedPartialColorYAxisPainter;
 import com.metsci.glimpse.charts.bathy.BathymetryData;
 import com.metsci.glimpse.charts.bathy.ContourData;
+import com.metsci.glimpse.charts.bathy.ContourGenerator;
 import com.metsci.glimpse.charts.bathy.ContourPainter;
 import com.metsci.glimpse.examples.Example;
 import com.metsci.glimpse.gl.texture.ColorTexture1D;
@@ -178,7 +179,9 @@ public class BathymetryExample implements GlimpseLayoutProvider
         double[] contourLevels = new double[] { -4000, -3000, -2000, -1000, -900, -800, -700, -600, -500, -400, -300, -200, -100, -50, -10 };
 
         // generate a set of contour lines using the bathemetry data set and the contour levels
-        ContourData contourData = new ContourData( bathymetryData, projection, contourLevels );
+        // (joining the line segments of each contour level into polylines)
+        ContourGenerator contourGenerator = new ContourGenerator( bathymetryData, projection, true );
+        ContourData contourData = contourGenerator.getContours( contourLevels );
 
         // create a painter to display the contour lines
         contourPainter = new ContourPainter( contourData );
@@ -33,6 +33,7 @@ import static java.lang.Math.PI;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.FloatBuffer;
 
 import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.axis.listener.AxisListener2D;
@@ -60,6 +61,7 @@ import com.metsci.glimpse.support.color.GlimpseColor;
 import com.metsci.glimpse.support.colormap.ColorGradients;
 import com.metsci.glimpse.support.projection.LatLonProjection;
 import com.metsci.glimpse.support.texture.FloatTextureProjected2D;
+import com.metsci.glimpse.support.texture.FloatTextureProjected2D.MutatorFloat2D;
 import com.metsci.glimpse.support.texture.mutator.ColorGradientConcatenator;
 import com.metsci.glimpse.util.geo.LatLonGeo;
 import com.metsci.glimpse.util.geo.projection.TangentPlane;
@@ -188,7 +190,15 @@ public class GlobalDynamicReprojectionExample implements GlimpseLayoutProvider
         bathyData.setAxisBounds( xyAxis );
 
         final FloatTextureProjected2D texture = new FloatTextureProjected2D( bathyData.getImageWidth( ), bathyData.getImageHeight( ), true );
-        texture.setData( bathyData.getData( ) );
+        final float[] depths = bathyData.getGrid( );
+        texture.mutate( new MutatorFloat2D( )
+        {
+            @Override
+            public void mutate( FloatBuffer data, int dataSizeX, int dataSizeY )
+            {
+                data.put( depths );
+            }
+        } );
 
         final double startLat = bathyData.getStartLat( );
         final double startLon = bathyData.getStartLon( );
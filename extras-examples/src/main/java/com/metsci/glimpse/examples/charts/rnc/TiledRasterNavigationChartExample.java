@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.examples.charts.rnc;
+
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+
+import com.metsci.glimpse.charts.raster.BsbRasterReader;
+import com.metsci.glimpse.charts.raster.BsbTileCache;
+import com.metsci.glimpse.charts.raster.BsbTiledRasterPainter;
+import com.metsci.glimpse.examples.Example;
+import com.metsci.glimpse.gl.shader.Pipeline;
+import com.metsci.glimpse.gl.texture.ColorTexture1D;
+import com.metsci.glimpse.gl.texture.ColorTexture1D.MutatorColor1D;
+import com.metsci.glimpse.layout.GlimpseLayoutProvider;
+import com.metsci.glimpse.plot.ColorAxisPlot2D;
+import com.metsci.glimpse.support.projection.FlatProjection;
+import com.metsci.glimpse.support.shader.SampledColorScaleShaderInteger;
+import com.metsci.glimpse.util.io.StreamOpener;
+
+/**
+ * Displays a BSB raster chart using {@link BsbTiledRasterPainter}, which decodes
+ * only the tiles needed for the current view instead of the entire image.
+ *
+ * @see RasterNavigationChartExample
+ */
+public class TiledRasterNavigationChartExample implements GlimpseLayoutProvider
+{
+    public static void main( String[] args ) throws Exception
+    {
+        Example.showWithSwing( new TiledRasterNavigationChartExample( ) );
+    }
+
+    @Override
+    public ColorAxisPlot2D getLayout( ) throws IOException
+    {
+        final ColorAxisPlot2D plot = new ColorAxisPlot2D( );
+
+        plot.getCrosshairPainter( ).showSelectionCrosshairs( false );
+
+        // hide axes
+        plot.setTitleHeight( 0 );
+        plot.setAxisSizeX( 0 );
+        plot.setAxisSizeY( 0 );
+        plot.setAxisSizeZ( 0 );
+
+        // the image is displayed in pixel coordinates, with the first row at the top
+        final BsbRasterReader reader = BsbRasterReader.open( StreamOpener.fileThenResource.openForRead( "data/ENCSample.bsb" ) );
+        FlatProjection projection = new FlatProjection( 0, reader.getWidth( ), reader.getHeight( ), 0 );
+
+        BsbTiledRasterPainter painter = new BsbTiledRasterPainter( new BsbTileCache( reader ), projection );
+        painter.setPipeline( new Pipeline( "colormap", null, null, new SampledColorScaleShaderInteger( plot.getAxisZ( ), 0, 1 ) ) );
+        plot.addPainter( painter );
+
+        ColorTexture1D colorTexture = new ColorTexture1D( 16 );
+        colorTexture.mutate( new MutatorColor1D( )
+        {
+            @Override
+            public void mutate( FloatBuffer floatBuffer, int dim )
+            {
+                IndexColorModel colorModel = reader.getColorModel( );
+                for ( int i = 0; i < dim; i++ )
+                {
+                    floatBuffer.put( colorModel.getRed( i ) / 255.0f );
+                    floatBuffer.put( colorModel.getGreen( i ) / 255.0f );
+                    floatBuffer.put( colorModel.getBlue( i ) / 255.0f );
+                    floatBuffer.put( colorModel.getAlpha( i ) / 255.0f );
+                }
+            }
+        } );
+
+        plot.setColorScale( colorTexture );
+        painter.addNonDrawableTexture( colorTexture, 1 );
+
+        plot.lockAspectRatioXY( 1.0 );
+
+        plot.setMinZ( 0.0 );
+        plot.setMaxZ( colorTexture.getDimensionSize( 0 ) );
+
+        plot.setMinX( 0 );
+        plot.setMaxX( reader.getWidth( ) );
+        plot.setMinY( 0 );
+        plot.setMaxY( reader.getHeight( ) );
+
+        return plot;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.examples.dspl;
+
+import static com.metsci.glimpse.util.logging.LoggerUtils.logInfo;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import com.metsci.glimpse.dspl.parser.util.CompiledDatePattern;
+import com.metsci.glimpse.dspl.parser.util.TokenParsers;
+import com.metsci.glimpse.util.logging.LoggerUtils;
+
+/**
+ * Compares the throughput of the String based token parsing previously used by the DSPL
+ * CSV column parsers against the allocation free byte range parsers in {@link TokenParsers}
+ * and {@link CompiledDatePattern}, for each numeric column type.
+ */
+public class DsplTokenizerBenchmark
+{
+    public static final Logger logger = Logger.getLogger( DsplTokenizerBenchmark.class.getName( ) );
+
+    protected static final int NUM_TOKENS = 1000000;
+    protected static final int NUM_TRIALS = 5;
+
+    protected static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    public static void main( String[] args ) throws Exception
+    {
+        LoggerUtils.setTerseConsoleLogger( Level.INFO );
+
+        Random random = new Random( 0 );
+        Charset charset = Charset.forName( "UTF-8" );
+
+        DateTimeFormatter dateFormat = DateTimeFormat.forPattern( DATE_PATTERN );
+        CompiledDatePattern compiledFormat = new CompiledDatePattern( DATE_PATTERN );
+
+        StringBuilder ints = new StringBuilder( );
+        StringBuilder floats = new StringBuilder( );
+        StringBuilder booleans = new StringBuilder( );
+        StringBuilder dates = new StringBuilder( );
+        for ( int i = 0; i < NUM_TOKENS; i++ )
+        {
+            ints.append( random.nextInt( ) ).append( ',' );
+            floats.append( ( float ) ( random.nextGaussian( ) * 1000 ) ).append( ',' );
+            booleans.append( random.nextBoolean( ) ).append( ',' );
+            dates.append( dateFormat.print( random.nextLong( ) % 2000000000000L ) ).append( ',' );
+        }
+
+        Column[] columns = new Column[] { new Column( "integer", ints.toString( ).getBytes( charset ) ), new Column( "float", floats.toString( ).getBytes( charset ) ), new Column( "boolean", booleans.toString( ).getBytes( charset ) ), new Column( "date", dates.toString( ).getBytes( charset ) ) };
+
+        for ( int trial = 0; trial < NUM_TRIALS; trial++ )
+        {
+            for ( Column column : columns )
+            {
+                long start = System.nanoTime( );
+                double stringSum = parseStrings( column, charset, dateFormat );
+                long stringTime = System.nanoTime( ) - start;
+
+                start = System.nanoTime( );
+                double byteSum = parseBytes( column, compiledFormat );
+                long byteTime = System.nanoTime( ) - start;
+
+                if ( stringSum != byteSum ) throw new IllegalStateException( String.format( "Results differ for %s column: %f %f", column.type, stringSum, byteSum ) );
+
+                logInfo( logger, "trial %d %-8s String: %7.1f ms (%5.1f M tokens/s)  byte range: %7.1f ms (%5.1f M tokens/s)  speedup: %.1fx", trial, column.type, stringTime / 1e6, NUM_TOKENS * 1e3 / stringTime, byteTime / 1e6, NUM_TOKENS * 1e3 / byteTime, ( double ) stringTime / byteTime );
+            }
+        }
+    }
+
+    protected static double parseStrings( Column column, Charset charset, DateTimeFormatter dateFormat )
+    {
+        byte[] data = column.data;
+        double sum = 0;
+
+        int start = 0;
+        for ( int i = 0; i < data.length; i++ )
+        {
+            if ( data[i] != ',' ) continue;
+
+            String token = new String( data, start, i - start, charset );
+
+            if ( column.type.equals( "integer" ) )
+                sum += Integer.parseInt( token );
+            else if ( column.type.equals( "float" ) )
+                sum += Float.parseFloat( token );
+            else if ( column.type.equals( "boolean" ) )
+                sum += Boolean.parseBoolean( token ) ? 1 : 0;
+            else
+                sum += dateFormat.parseMillis( token );
+
+            start = i + 1;
+        }
+
+        return sum;
+    }
+
+    protected static double parseBytes( Column column, CompiledDatePattern compiledFormat )
+    {
+        byte[] data = column.data;
+        double sum = 0;
+
+        int start = 0;
+        for ( int i = 0; i < data.length; i++ )
+        {
+            if ( data[i] != ',' ) continue;
+
+            if ( column.type.equals( "integer" ) )
+                sum += TokenParsers.parseInt( data, start, i );
+            else if ( column.type.equals( "float" ) )
+                sum += TokenParsers.parseFloat( data, start, i );
+            else if ( column.type.equals( "boolean" ) )
+                sum += TokenParsers.parseBoolean( data, start, i ) ? 1 : 0;
+            else
+                sum += compiledFormat.parseMillis( data, start, i );
+
+            start = i + 1;
+        }
+
+        return sum;
+    }
+
+    protected static class Column
+    {
+        protected final String type;
+        protected final byte[] data;
+
+        public Column( String type, byte[] data )
+        {
+            this.type = type;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,691 @@
+/*
+ * Copyright (c) 2012, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.worldwind.tile;
+
+import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
+import static com.metsci.glimpse.worldwind.tile.GlimpseDynamicSurfaceTile.getCorners;
+import static com.metsci.glimpse.worldwind.tile.GlimpseDynamicSurfaceTile.getIntersectedCorners;
+import static com.metsci.glimpse.worldwind.tile.GlimpseDynamicSurfaceTile.maxX;
+import static com.metsci.glimpse.worldwind.tile.GlimpseDynamicSurfaceTile.maxY;
+import static com.metsci.glimpse.worldwind.tile.GlimpseDynamicSurfaceTile.minX;
+import static com.metsci.glimpse.worldwind.tile.GlimpseDynamicSurfaceTile.minY;
+import gov.nasa.worldwind.geom.Extent;
+import gov.nasa.worldwind.geom.LatLon;
+import gov.nasa.worldwind.geom.Position;
+import gov.nasa.worldwind.geom.Sector;
+import gov.nasa.worldwind.geom.Vec4;
+import gov.nasa.worldwind.layers.AbstractLayer;
+import gov.nasa.worldwind.render.DrawContext;
+import gov.nasa.worldwind.render.PreRenderable;
+import gov.nasa.worldwind.render.Renderable;
+import gov.nasa.worldwind.render.SurfaceTileRenderer;
+import gov.nasa.worldwind.util.OGLStackHandler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLContext;
+
+import com.metsci.glimpse.axis.Axis2D;
+import com.metsci.glimpse.canvas.GlimpseCanvas;
+import com.metsci.glimpse.context.GlimpseTargetStack;
+import com.metsci.glimpse.context.TargetStackUtil;
+import com.metsci.glimpse.gl.GLSimpleFrameBufferObject;
+import com.metsci.glimpse.layout.GlimpseLayout;
+import com.metsci.glimpse.painter.decoration.BackgroundPainter;
+import com.metsci.glimpse.util.geo.LatLonGeo;
+import com.metsci.glimpse.util.geo.projection.GeoProjection;
+import com.metsci.glimpse.util.vector.Vector2d;
+import com.metsci.glimpse.worldwind.canvas.SimpleOffscreenCanvas;
+import com.metsci.glimpse.worldwind.tile.GlimpseDynamicSurfaceTile.LatLonBounds;
+
+/**
+ * Displays the content of a GlimpseLayout onto the surface of the Worldwind globe
+ * using a pyramid of fixed size lat/lon quad tiles.<p>
+ *
+ * Each frame, a pyramid level is chosen so that one texel of a tile covers roughly
+ * one screen pixel at the center of the view (the same meters per pixel heuristic
+ * used by {@link GlimpseDynamicSurfaceTile#getCorners0(DrawContext)}). Only tiles
+ * which are visible and not already cached are rendered offscreen. Rendered tiles
+ * are kept in a least recently used cache bounded by an estimate of the texture
+ * memory they occupy, so panning back over a previously viewed area or zooming
+ * between levels does not require re-rendering the Glimpse content.<p>
+ *
+ * Because tiles are reused across frames, callers must {@link #invalidate()} (or
+ * {@link #invalidate(LatLonBounds)} for a smaller area) when the Glimpse content changes.
+ *
+ * @see GlimpseDynamicSurfaceTile
+ */
+public class GlimpseTiledSurfaceTile extends AbstractLayer implements GlimpseSurfaceTile, Renderable, PreRenderable
+{
+    private static final Logger logger = Logger.getLogger( GlimpseTiledSurfaceTile.class.getSimpleName( ) );
+
+    public static final int DEFAULT_TILE_SIZE = 512;
+    public static final double DEFAULT_LEVEL_ZERO_DELTA_DEG = 36.0;
+    public static final int DEFAULT_MAX_LEVEL = 20;
+    public static final int DEFAULT_MAX_VISIBLE_TILES = 64;
+    public static final long DEFAULT_CACHE_SIZE_BYTES = 256L * 1024L * 1024L;
+
+    protected static final double METERS_PER_DEGREE = 111320.0;
+
+    protected GlimpseLayout background;
+    protected GlimpseLayout mask;
+    protected GlimpseLayout layout;
+    protected Axis2D axes;
+    protected GeoProjection projection;
+    protected int tileSize;
+
+    protected LatLonBounds maxBounds;
+
+    protected double levelZeroDelta;
+    protected int maxLevel;
+    protected int maxVisibleTiles;
+    protected long cacheSizeBytes;
+
+    // access ordered, so iteration begins with the least recently used tile
+    protected LinkedHashMap<TileKey, Tile> cache;
+    protected List<Tile> visibleTiles;
+    protected List<Integer> pendingDeletes;
+
+    protected SimpleOffscreenCanvas offscreenCanvas;
+    protected GLContext context;
+
+    public GlimpseTiledSurfaceTile( GlimpseLayout layout, Axis2D axes, GeoProjection projection, double minLat, double maxLat, double minLon, double maxLon )
+    {
+        this( layout, axes, projection, DEFAULT_TILE_SIZE, DEFAULT_CACHE_SIZE_BYTES, getCorners( new LatLonBounds( minLat, maxLat, minLon, maxLon ) ) );
+    }
+
+    public GlimpseTiledSurfaceTile( GlimpseLayout layout, Axis2D axes, GeoProjection projection, int tileSize, long cacheSizeBytes, List<LatLon> corners )
+    {
+        this.axes = axes;
+        this.projection = projection;
+        this.layout = layout;
+        this.tileSize = tileSize;
+        this.cacheSizeBytes = cacheSizeBytes;
+
+        this.levelZeroDelta = DEFAULT_LEVEL_ZERO_DELTA_DEG;
+        this.maxLevel = DEFAULT_MAX_LEVEL;
+        this.maxVisibleTiles = DEFAULT_MAX_VISIBLE_TILES;
+
+        this.cache = new LinkedHashMap<TileKey, Tile>( 16, 0.75f, true );
+        this.visibleTiles = new ArrayList<Tile>( );
+        this.pendingDeletes = new ArrayList<Integer>( );
+
+        updateMaxCorners( corners );
+
+        this.mask = new GlimpseLayout( );
+        this.mask.setLayoutData( String.format( "pos 0 0 %d %d", tileSize, tileSize ) );
+        this.mask.addLayout( layout );
+
+        this.background = new GlimpseLayout( );
+        this.background.addPainter( new BackgroundPainter( ).setColor( 0f, 0f, 0f, 0f ) );
+        this.background.addLayout( mask );
+
+        this.offscreenCanvas = new SimpleOffscreenCanvas( tileSize, tileSize, false, false );
+        this.offscreenCanvas.addLayout( this.background );
+    }
+
+    public synchronized void updateMaxCorners( List<LatLon> corners )
+    {
+        this.maxBounds = getCorners( corners );
+        clearCache( );
+    }
+
+    /**
+     * Marks every cached tile as stale. Stale tiles are re-rendered the next time
+     * they are visible; their textures are reused rather than reallocated.
+     */
+    public synchronized void invalidate( )
+    {
+        for ( Tile tile : cache.values( ) )
+        {
+            tile.dirty = true;
+        }
+    }
+
+    /**
+     * Marks cached tiles which overlap the provided bounds as stale.
+     */
+    public synchronized void invalidate( LatLonBounds bounds )
+    {
+        for ( Tile tile : cache.values( ) )
+        {
+            if ( intersects( tile.bounds, bounds ) )
+            {
+                tile.dirty = true;
+            }
+        }
+    }
+
+    // cached tiles store bounds computed from the level zero delta and max bounds,
+    // so when either changes every tile is discarded and its texture queued for deletion
+    protected void clearCache( )
+    {
+        for ( Tile tile : cache.values( ) )
+        {
+            if ( tile.textureHandle != 0 ) pendingDeletes.add( tile.textureHandle );
+        }
+
+        cache.clear( );
+        visibleTiles.clear( );
+    }
+
+    public synchronized void setCacheSizeBytes( long cacheSizeBytes )
+    {
+        this.cacheSizeBytes = cacheSizeBytes;
+    }
+
+    public long getCacheSizeBytes( )
+    {
+        return this.cacheSizeBytes;
+    }
+
+    public synchronized void setLevelZeroDelta( double levelZeroDeltaDeg )
+    {
+        this.levelZeroDelta = levelZeroDeltaDeg;
+        clearCache( );
+    }
+
+    public double getLevelZeroDelta( )
+    {
+        return this.levelZeroDelta;
+    }
+
+    public void setMaxLevel( int maxLevel )
+    {
+        this.maxLevel = maxLevel;
+    }
+
+    public int getMaxLevel( )
+    {
+        return this.maxLevel;
+    }
+
+    /**
+     * Sets the maximum number of tiles displayed at once. If the chosen pyramid
+     * level would require more tiles to cover the visible area, a coarser level is used.
+     */
+    public void setMaxVisibleTiles( int maxVisibleTiles )
+    {
+        this.maxVisibleTiles = maxVisibleTiles;
+    }
+
+    public int getMaxVisibleTiles( )
+    {
+        return this.maxVisibleTiles;
+    }
+
+    public int getTileSize( )
+    {
+        return this.tileSize;
+    }
+
+    @Override
+    public GlimpseLayout getGlimpseLayout( )
+    {
+        return this.layout;
+    }
+
+    @Override
+    public GlimpseCanvas getGlimpseCanvas( )
+    {
+        return this.offscreenCanvas;
+    }
+
+    @Override
+    public GlimpseTargetStack getTargetStack( )
+    {
+        return TargetStackUtil.newTargetStack( this.offscreenCanvas, this.layout );
+    }
+
+    /**
+     * Deletes the cached tile textures, disposes the offscreen canvas and destroys
+     * the GLContext used to render tiles.
+     */
+    @Override
+    public synchronized void dispose( )
+    {
+        clearCache( );
+
+        if ( context != null )
+        {
+            context.makeCurrent( );
+            try
+            {
+                deletePendingTextures( context.getGL( ) );
+            }
+            finally
+            {
+                context.release( );
+            }
+
+            offscreenCanvas.dispose( null );
+            context.destroy( );
+            context = null;
+        }
+
+        pendingDeletes.clear( );
+
+        super.dispose( );
+    }
+
+    @Override
+    public synchronized void preRender( DrawContext dc )
+    {
+        if ( context == null )
+        {
+            GLContext oldcontext = dc.getGLContext( );
+            context = dc.getGLDrawable( ).createContext( oldcontext );
+            offscreenCanvas.initialize( context );
+        }
+
+        LatLonBounds visibleBounds = getVisibleBounds( dc );
+        if ( visibleBounds == null )
+        {
+            visibleTiles.clear( );
+            return;
+        }
+
+        int level = chooseLevel( dc, visibleBounds );
+        updateVisibleTiles( dc, visibleBounds, level );
+
+        List<Tile> toDraw = new ArrayList<Tile>( );
+        for ( Tile tile : visibleTiles )
+        {
+            if ( tile.textureHandle == 0 || tile.dirty ) toDraw.add( tile );
+        }
+
+        if ( !toDraw.isEmpty( ) || !pendingDeletes.isEmpty( ) )
+        {
+            drawOffscreen( dc, toDraw );
+        }
+    }
+
+    @Override
+    protected synchronized void doRender( DrawContext dc )
+    {
+        if ( visibleTiles.isEmpty( ) ) return;
+
+        List<TextureSurfaceTile> surfaceTiles = new ArrayList<TextureSurfaceTile>( visibleTiles.size( ) );
+        for ( Tile tile : visibleTiles )
+        {
+            if ( tile.surfaceTile != null ) surfaceTiles.add( tile.surfaceTile );
+        }
+
+        GL gl = dc.getGL( );
+
+        gl.glPushAttrib( GL.GL_POLYGON_BIT );
+        gl.glPolygonMode( GL.GL_FRONT, GL.GL_FILL );
+        gl.glEnable( GL.GL_CULL_FACE );
+        gl.glCullFace( GL.GL_BACK );
+
+        SurfaceTileRenderer r = dc.getGeographicSurfaceTileRenderer( );
+
+        try
+        {
+            r.renderTiles( dc, surfaceTiles );
+        }
+        finally
+        {
+            gl.glPopAttrib( );
+        }
+    }
+
+    protected LatLonBounds getVisibleBounds( DrawContext dc )
+    {
+        Sector sector = dc.getVisibleSector( );
+        if ( sector == null ) return maxBounds;
+
+        LatLonBounds screenBounds = new LatLonBounds( sector.getMinLatitude( ).getDegrees( ), sector.getMaxLatitude( ).getDegrees( ), sector.getMinLongitude( ).getDegrees( ), sector.getMaxLongitude( ).getDegrees( ) );
+        LatLonBounds bounds = getIntersectedCorners( maxBounds, screenBounds );
+
+        if ( bounds.minLat >= bounds.maxLat || bounds.minLon >= bounds.maxLon ) return null;
+
+        return bounds;
+    }
+
+    // choose the level whose texels are closest to (but no larger than) the screen
+    // pixels at the center of the view, backing off to coarser levels when the
+    // visible area would otherwise require too many tiles
+    protected int chooseLevel( DrawContext dc, LatLonBounds visibleBounds )
+    {
+        int level = 0;
+
+        double metersPerPixel = getMetersPerPixel( dc );
+        if ( metersPerPixel > 0 && !Double.isInfinite( metersPerPixel ) )
+        {
+            double levelZeroMetersPerTexel = levelZeroDelta * METERS_PER_DEGREE / tileSize;
+            level = ( int ) Math.ceil( Math.log( levelZeroMetersPerTexel / metersPerPixel ) / Math.log( 2 ) );
+            level = Math.max( 0, Math.min( maxLevel, level ) );
+        }
+
+        while ( level > 0 && getTileCount( visibleBounds, level ) > maxVisibleTiles )
+        {
+            level--;
+        }
+
+        return level;
+    }
+
+    protected static double getMetersPerPixel( DrawContext dc )
+    {
+        Position referencePosition = dc.getViewportCenterPosition( );
+        if ( referencePosition == null ) return Double.NaN;
+
+        Vec4 groundTarget = dc.getGlobe( ).computePointFromPosition( referencePosition );
+        double distance = dc.getView( ).getEyePoint( ).distanceTo3( groundTarget );
+        return dc.getView( ).computePixelSizeAtDistance( distance );
+    }
+
+    protected double getTileDelta( int level )
+    {
+        return levelZeroDelta / ( 1 << level );
+    }
+
+    protected long getTileCount( LatLonBounds bounds, int level )
+    {
+        double delta = getTileDelta( level );
+        long rows = getRow( bounds.maxLat, delta ) - getRow( bounds.minLat, delta ) + 1;
+        long cols = getColumn( bounds.maxLon, delta ) - getColumn( bounds.minLon, delta ) + 1;
+        return rows * cols;
+    }
+
+    protected static int getRow( double lat, double delta )
+    {
+        return ( int ) Math.floor( ( lat + 90.0 ) / delta );
+    }
+
+    protected static int getColumn( double lon, double delta )
+    {
+        return ( int ) Math.floor( ( lon + 180.0 ) / delta );
+    }
+
+    protected void updateVisibleTiles( DrawContext dc, LatLonBounds visibleBounds, int level )
+    {
+        visibleTiles.clear( );
+
+        double delta = getTileDelta( level );
+        int minRow = getRow( visibleBounds.minLat, delta );
+        int maxRow = getRow( visibleBounds.maxLat, delta );
+        int minCol = getColumn( visibleBounds.minLon, delta );
+        int maxCol = getColumn( visibleBounds.maxLon, delta );
+
+        for ( int row = minRow; row <= maxRow; row++ )
+        {
+            for ( int col = minCol; col <= maxCol; col++ )
+            {
+                TileKey key = new TileKey( level, row, col );
+                Tile tile = cache.get( key );
+
+                if ( tile == null )
+                {
+                    double minLat = row * delta - 90.0;
+                    double minLon = col * delta - 180.0;
+                    LatLonBounds cell = new LatLonBounds( minLat, minLat + delta, minLon, minLon + delta );
+
+                    // clip the cell to the extent of the layer so that the projection
+                    // is never asked to cover area outside the region it was set up for
+                    LatLonBounds bounds = getIntersectedCorners( maxBounds, cell );
+                    if ( bounds.minLat >= bounds.maxLat || bounds.minLon >= bounds.maxLon ) continue;
+
+                    tile = new Tile( key, bounds );
+                    cache.put( key, tile );
+                }
+
+                if ( isVisible( dc, tile ) ) visibleTiles.add( tile );
+            }
+        }
+
+        evict( );
+    }
+
+    protected boolean isVisible( DrawContext dc, Tile tile )
+    {
+        Extent extent = tile.getExtent( dc );
+        return extent == null || dc.getView( ).getFrustumInModelCoordinates( ).intersects( extent );
+    }
+
+    // drop least recently used tiles (never ones needed this frame) until the
+    // estimated texture memory fits within the budget
+    protected void evict( )
+    {
+        long bytesPerTile = getBytesPerTile( );
+        long cachedBytes = 0;
+        for ( Tile tile : cache.values( ) )
+        {
+            if ( tile.textureHandle != 0 ) cachedBytes += bytesPerTile;
+        }
+
+        // tiles which are visible this frame will need textures
+        for ( Tile tile : visibleTiles )
+        {
+            if ( tile.textureHandle == 0 ) cachedBytes += bytesPerTile;
+        }
+
+        Iterator<Tile> iter = cache.values( ).iterator( );
+        while ( iter.hasNext( ) )
+        {
+            Tile tile = iter.next( );
+            if ( visibleTiles.contains( tile ) ) continue;
+
+            if ( tile.textureHandle == 0 )
+            {
+                iter.remove( );
+            }
+            else if ( cachedBytes > cacheSizeBytes )
+            {
+                pendingDeletes.add( tile.textureHandle );
+                cachedBytes -= bytesPerTile;
+                iter.remove( );
+            }
+        }
+    }
+
+    protected long getBytesPerTile( )
+    {
+        // four bytes per texel plus one third again for mipmaps
+        return ( long ) tileSize * tileSize * 4 * 4 / 3;
+    }
+
+    protected void drawOffscreen( DrawContext dc, List<Tile> tiles )
+    {
+        context.makeCurrent( );
+        try
+        {
+            drawOffscreen( context, tiles );
+        }
+        finally
+        {
+            dc.getGLContext( ).makeCurrent( );
+        }
+    }
+
+    protected void drawOffscreen( GLContext glContext, List<Tile> tiles )
+    {
+        GL gl = glContext.getGL( );
+
+        deletePendingTextures( gl );
+
+        if ( tiles.isEmpty( ) ) return;
+
+        GLSimpleFrameBufferObject fbo = offscreenCanvas.getFrameBuffer( );
+        OGLStackHandler stack = new OGLStackHandler( );
+
+        stack.pushAttrib( gl, GL.GL_ALL_ATTRIB_BITS );
+        stack.pushClientAttrib( gl, ( int ) GL.GL_ALL_CLIENT_ATTRIB_BITS );
+        stack.pushTexture( gl );
+        stack.pushModelview( gl );
+        stack.pushProjection( gl );
+
+        fbo.bind( glContext );
+        try
+        {
+            for ( Tile tile : tiles )
+            {
+                drawTile( gl, tile );
+            }
+        }
+        catch ( Exception e )
+        {
+            logWarning( logger, "Trouble drawing to offscreen buffer", e );
+        }
+        finally
+        {
+            fbo.unbind( glContext );
+            stack.pop( gl );
+        }
+    }
+
+    // paint the Glimpse content for one tile into the shared framebuffer, then
+    // copy the result into the tile's own texture so the framebuffer can be reused
+    protected void drawTile( GL gl, Tile tile )
+    {
+        setAxes( axes, tile.bounds, projection );
+        background.paintTo( offscreenCanvas.getGlimpseContext( ) );
+
+        if ( tile.textureHandle == 0 )
+        {
+            tile.textureHandle = newTexture( gl );
+            tile.surfaceTile = new TextureSurfaceTile( tile.textureHandle, getCorners( tile.bounds ) );
+        }
+
+        gl.glBindTexture( GL.GL_TEXTURE_2D, tile.textureHandle );
+        gl.glCopyTexSubImage2D( GL.GL_TEXTURE_2D, 0, 0, 0, 0, 0, tileSize, tileSize );
+        gl.glBindTexture( GL.GL_TEXTURE_2D, 0 );
+
+        tile.dirty = false;
+    }
+
+    protected int newTexture( GL gl )
+    {
+        int[] handle = new int[1];
+        gl.glGenTextures( 1, handle, 0 );
+        gl.glBindTexture( GL.GL_TEXTURE_2D, handle[0] );
+        gl.glTexParameterf( GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER, GL.GL_LINEAR );
+        gl.glTexParameterf( GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER, GL.GL_LINEAR_MIPMAP_LINEAR );
+        gl.glTexParameterf( GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_S, GL.GL_CLAMP_TO_EDGE );
+        gl.glTexParameterf( GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_T, GL.GL_CLAMP_TO_EDGE );
+        gl.glTexParameteri( GL.GL_TEXTURE_2D, GL.GL_GENERATE_MIPMAP, GL.GL_TRUE );
+        gl.glTexImage2D( GL.GL_TEXTURE_2D, 0, GL.GL_RGBA8, tileSize, tileSize, 0, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, null );
+        gl.glBindTexture( GL.GL_TEXTURE_2D, 0 );
+        return handle[0];
+    }
+
+    protected void deletePendingTextures( GL gl )
+    {
+        if ( pendingDeletes.isEmpty( ) ) return;
+
+        int[] handles = new int[pendingDeletes.size( )];
+        for ( int i = 0; i < handles.length; i++ )
+        {
+            handles[i] = pendingDeletes.get( i );
+        }
+
+        gl.glDeleteTextures( handles.length, handles, 0 );
+        pendingDeletes.clear( );
+    }
+
+    protected void setAxes( Axis2D axes, LatLonBounds bounds, GeoProjection projection )
+    {
+        Vector2d c1 = projection.project( LatLonGeo.fromDeg( bounds.minLat, bounds.minLon ) );
+        Vector2d c2 = projection.project( LatLonGeo.fromDeg( bounds.maxLat, bounds.minLon ) );
+        Vector2d c3 = projection.project( LatLonGeo.fromDeg( bounds.maxLat, bounds.maxLon ) );
+        Vector2d c4 = projection.project( LatLonGeo.fromDeg( bounds.minLat, bounds.maxLon ) );
+
+        axes.set( minX( c1, c2, c3, c4 ), maxX( c1, c2, c3, c4 ), minY( c1, c2, c3, c4 ), maxY( c1, c2, c3, c4 ) );
+        axes.getAxisX( ).validate( );
+        axes.getAxisY( ).validate( );
+    }
+
+    protected static boolean intersects( LatLonBounds a, LatLonBounds b )
+    {
+        return a.minLat <= b.maxLat && b.minLat <= a.maxLat && a.minLon <= b.maxLon && b.minLon <= a.maxLon;
+    }
+
+    protected static class TileKey
+    {
+        protected final int level;
+        protected final int row;
+        protected final int col;
+
+        public TileKey( int level, int row, int col )
+        {
+            this.level = level;
+            this.row = row;
+            this.col = col;
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return ( ( level * 31 ) + row ) * 31 + col;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( o == this ) return true;
+            if ( ! ( o instanceof TileKey ) ) return false;
+
+            TileKey other = ( TileKey ) o;
+            return other.level == level && other.row == row && other.col == col;
+        }
+
+        @Override
+        public String toString( )
+        {
+            return String.format( "%d/%d/%d", level, row, col );
+        }
+    }
+
+    protected static class Tile
+    {
+        protected final TileKey key;
+        protected final LatLonBounds bounds;
+        protected final Sector sector;
+
+        protected int textureHandle;
+        protected TextureSurfaceTile surfaceTile;
+        protected boolean dirty;
+
+        public Tile( TileKey key, LatLonBounds bounds )
+        {
+            this.key = key;
+            this.bounds = bounds;
+            this.sector = Sector.fromDegrees( bounds.minLat, bounds.maxLat, bounds.minLon, bounds.maxLon );
+        }
+
+        public Extent getExtent( DrawContext dc )
+        {
+            return Sector.computeBoundingCylinder( dc.getGlobe( ), dc.getVerticalExaggeration( ), sector );
+        }
+    }
+}